@@ -67,6 +67,7 @@ import net.pms.exception.InitializationException;
 import net.pms.formats.Format;
 import net.pms.formats.FormatFactory;
 import net.pms.formats.FormatType;
+import net.pms.image.thumbnail.ThumbnailStore;
 import net.pms.io.*;
 import net.pms.logging.CacheLogger;
 import net.pms.logging.FrameAppender;
@@ -506,9 +507,19 @@ public class PMS {
 			ConfigurationWizard.run(configuration, splash[0]);
 		}
 
+		TranscodeBufferType.deleteLeftoverFiles();
+
 		fileWatcher = new FileWatcher();
 
 		globalRepo = new GlobalIdRepo();
+		globalRepo.startEviction(configuration.getIdleFolderEvictionTime());
+
+		new Thread("Thumbnail Store Cleaner") {
+			@Override
+			public void run() {
+				ThumbnailStore.get().prune();
+			}
+		}.start();
 
 		if (!isHeadless()) {
 			try {
@@ -752,6 +763,16 @@ public class PMS {
 					LOGGER.trace("", e);
 				}
 
+				// Commit queued database writes before the database is closed
+				DLNAMediaDatabase queuedDatabase;
+				synchronized (databaseLock) {
+					queuedDatabase = database;
+				}
+				if (queuedDatabase != null) {
+					LOGGER.debug("Committing queued database writes");
+					queuedDatabase.flushPendingWrites();
+				}
+
 				// Destroy services
 				Services.destroy();
 
@@ -1600,6 +1621,7 @@ public class PMS {
 	 */
 	private static void setConfiguration(PmsConfiguration conf) {
 		configuration = conf;
+		DLNAResource.addConfigurationListener(conf);
 	}
 
 	/**
@@ -1622,6 +1644,7 @@ public class PMS {
 			testConfiguration.setShowSplashScreen(false);
 			testConfiguration.setRunWizard(false);
 			configuration = testConfiguration;
+			DLNAResource.addConfigurationListener(testConfiguration);
 		}
 	}
 
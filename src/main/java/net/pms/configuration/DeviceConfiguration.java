@@ -9,6 +9,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import net.pms.PMS;
+import net.pms.dlna.DLNAResource;
 import net.pms.network.UPNPHelper;
 import net.pms.util.FileWatcher;
 import org.apache.commons.configuration.CompositeConfiguration;
@@ -77,6 +78,7 @@ public class DeviceConfiguration extends PmsConfiguration {
 		pmsConfiguration = this;
 
 		configurationReader = new ConfigurationReader(configuration, true);
+		DLNAResource.addConfigurationListener(this);
 
 		// Sync our internal PmsConfiguration vars
 		// TODO: create new objects here instead?
@@ -42,7 +42,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import net.pms.encoders.ExecutableErrorType;
 import net.pms.io.ListProcessWrapperResult;
-import net.pms.io.SimpleProcessWrapper;
+import net.pms.io.ProbeCache;
 import net.pms.util.Version;
 
 
@@ -354,6 +354,28 @@ public class FFmpegExecutableInfo extends ExecutableInfo {
 		}
 	}
 
+	/**
+	 * Starts the processes used by the {@code determine} methods in parallel
+	 * in the background, so that their output is ready when the methods are
+	 * called.
+	 *
+	 * @param executablePath the {@link Path} to the FFmpeg executable.
+	 */
+	public static void prefetchProbes(@Nonnull Path executablePath) {
+		ProbeCache.prefetch(
+			30000,
+			1000,
+			executablePath.toString(),
+			new String[] {"-hide_banner", "-protocols"},
+			new String[] {"-hide_banner", "-formats"},
+			new String[] {"-hide_banner", "-codecs"},
+			new String[] {"-hide_banner", "-decoders"},
+			new String[] {"-hide_banner", "-encoders"},
+			new String[] {"-hide_banner", "-bsfs"},
+			new String[] {"-hide_banner", "-hwaccels"}
+		);
+	}
+
 	/**
 	 * Gathers information about supported formats and stores the results in the
 	 * specified {@link FFmpegExecutableInfoBuilder}.
@@ -363,7 +385,7 @@ public class FFmpegExecutableInfo extends ExecutableInfo {
 	 */
 	public static void determineFormats(@Nonnull FFmpegExecutableInfoBuilder builder) throws InterruptedException {
 
-		ListProcessWrapperResult output = SimpleProcessWrapper.runProcessListOutput(
+		ListProcessWrapperResult output = ProbeCache.runProcessListOutput(
 			30000,
 			1000,
 			builder.executablePath().toString(),
@@ -422,7 +444,7 @@ public class FFmpegExecutableInfo extends ExecutableInfo {
 		builder.codecs(new HashMap<String, CodecBuilder>());
 
 		// Parse -codecs
-		ListProcessWrapperResult output = SimpleProcessWrapper.runProcessListOutput(
+		ListProcessWrapperResult output = ProbeCache.runProcessListOutput(
 			30000,
 			1000,
 			builder.executablePath().toString(),
@@ -498,7 +520,7 @@ public class FFmpegExecutableInfo extends ExecutableInfo {
 		Pattern codersLine = Pattern.compile("\\s([ASV\\.])([F\\.])([S\\.])([X\\.])([B\\.])([D\\.])\\s+(\\S+)\\s+(.*\\S)\\s*");
 
 		// Parse -decoders
-		output = SimpleProcessWrapper.runProcessListOutput(
+		output = ProbeCache.runProcessListOutput(
 			30000,
 			1000,
 			builder.executablePath().toString(),
@@ -570,7 +592,7 @@ public class FFmpegExecutableInfo extends ExecutableInfo {
 		}
 
 		// Parse -encoders
-		output = SimpleProcessWrapper.runProcessListOutput(
+		output = ProbeCache.runProcessListOutput(
 			30000,
 			1000,
 			builder.executablePath().toString(),
@@ -650,7 +672,7 @@ public class FFmpegExecutableInfo extends ExecutableInfo {
 	 * @throws InterruptedException If interrupted during execution.
 	 */
 	public static void determineProtocols(@Nonnull FFmpegExecutableInfoBuilder builder) throws InterruptedException {
-		ListProcessWrapperResult output = SimpleProcessWrapper.runProcessListOutput(
+		ListProcessWrapperResult output = ProbeCache.runProcessListOutput(
 			30000,
 			1000,
 			builder.executablePath().toString(),
@@ -731,7 +753,7 @@ public class FFmpegExecutableInfo extends ExecutableInfo {
 	 * @throws InterruptedException If interrupted during execution.
 	 */
 	public static void determineBitstreamFilters(@Nonnull FFmpegExecutableInfoBuilder builder) throws InterruptedException {
-		ListProcessWrapperResult output = SimpleProcessWrapper.runProcessListOutput(
+		ListProcessWrapperResult output = ProbeCache.runProcessListOutput(
 			30000,
 			1000,
 			builder.executablePath().toString(),
@@ -778,7 +800,7 @@ public class FFmpegExecutableInfo extends ExecutableInfo {
 	 * @throws InterruptedException If interrupted during execution.
 	 */
 	public static void determineHardwareAccelerationMethods(@Nonnull FFmpegExecutableInfoBuilder builder) throws InterruptedException {
-		ListProcessWrapperResult output = SimpleProcessWrapper.runProcessListOutput(
+		ListProcessWrapperResult output = ProbeCache.runProcessListOutput(
 			30000,
 			1000,
 			builder.executablePath().toString(),
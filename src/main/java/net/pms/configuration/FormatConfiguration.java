@@ -29,6 +29,7 @@ import java.util.*;
 import java.util.Map.Entry;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
+import javax.annotation.concurrent.GuardedBy;
 import net.pms.dlna.DLNAMediaAudio;
 import net.pms.dlna.DLNAMediaInfo;
 import net.pms.dlna.InputFile;
@@ -42,6 +43,34 @@ import org.slf4j.LoggerFactory;
 public class FormatConfiguration {
 	private static final Logger LOGGER = LoggerFactory.getLogger(FormatConfiguration.class);
 	private ArrayList<SupportSpec> supportSpecs;
+
+	/** The maximum number of cached match results */
+	private static final int MAX_CACHED_MATCHES = 1000;
+
+	/** The value cached for media that doesn't match any support line */
+	private static final String NO_MATCH = "";
+
+	/**
+	 * The support lines whose format matches a given container, in the order
+	 * they were specified.
+	 */
+	@GuardedBy("specsByContainer")
+	private final HashMap<String, List<SupportSpec>> specsByContainer = new HashMap<>();
+
+	/**
+	 * The most recently used match results by media signature. Since a new
+	 * instance is created when the renderer configuration is reloaded, the
+	 * results are never outdated.
+	 */
+	@GuardedBy("matchCache")
+	private final LinkedHashMap<String, String> matchCache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > MAX_CACHED_MATCHES;
+		}
+	};
 	public static final String THREEGPP = "3gp";
 	public static final String THREEGPP2 = "3g2";
 	public static final String THREEGA = "3ga";
@@ -407,6 +436,47 @@ public class FormatConfiguration {
 				return false;
 			}
 
+			return matchStreams(
+				videoCodec,
+				audioCodec,
+				nbAudioChannels,
+				frequency,
+				bitrate,
+				framerate,
+				videoWidth,
+				videoHeight,
+				extras
+			);
+		}
+
+		/**
+		 * Determine whether or not the provided parameters match this
+		 * "Supported" line, ignoring the format. Used when the format is
+		 * already known to match, otherwise as {@link #match}.
+		 *
+		 * @param videoCodec
+		 * @param audioCodec
+		 * @param nbAudioChannels
+		 * @param frequency
+		 * @param bitrate
+		 * @param framerate
+		 * @param videoWidth
+		 * @param videoHeight
+		 * @param extras
+		 * @return False if any of the provided non-null parameters is not a
+		 * 			match, true otherwise.
+		 */
+		boolean matchStreams(
+			String videoCodec,
+			String audioCodec,
+			int nbAudioChannels,
+			int frequency,
+			int bitrate,
+			int framerate,
+			int videoWidth,
+			int videoHeight,
+			Map<String, String> extras
+		) {
 			if (videoCodec != null && pVideoCodec != null && !pVideoCodec.matcher(videoCodec).matches()) {
 				LOGGER.trace("Video codec \"{}\" failed to match support line {}", videoCodec, supportLine);
 				return false;
@@ -721,29 +791,132 @@ public class FormatConfiguration {
 		int videoHeight,
 		Map<String, String> extras
 	) {
-		String matchedMimeType = null;
+		// Satisfy a minimum threshold
+		if (container == null && videoCodec == null && audioCodec == null) {
+			// We have no matchable info. This can happen with unparsed
+			// mediainfo objects (e.g. from WEB.conf or plugins).
+			return null;
+		}
 
-		for (SupportSpec supportSpec : supportSpecs) {
-			if (supportSpec.match(
-				container,
-				videoCodec,
-				audioCodec,
-				nbAudioChannels,
-				frequency,
-				bitrate,
-				framerate,
-				videoWidth,
-				videoHeight,
-				extras
-			)) {
-				matchedMimeType = supportSpec.mimeType;
-				break;
+		String signature = getSignature(
+			container,
+			videoCodec,
+			audioCodec,
+			nbAudioChannels,
+			frequency,
+			bitrate,
+			framerate,
+			videoWidth,
+			videoHeight,
+			extras
+		);
+		synchronized (matchCache) {
+			String cached = matchCache.get(signature);
+			if (cached != null) {
+				return cached == NO_MATCH ? null : cached;
 			}
 		}
 
+		String matchedMimeType = null;
+		if (container == null) {
+			for (SupportSpec supportSpec : supportSpecs) {
+				if (supportSpec.matchStreams(
+					videoCodec,
+					audioCodec,
+					nbAudioChannels,
+					frequency,
+					bitrate,
+					framerate,
+					videoWidth,
+					videoHeight,
+					extras
+				)) {
+					matchedMimeType = supportSpec.mimeType;
+					break;
+				}
+			}
+		} else {
+			for (SupportSpec supportSpec : getSupportSpecs(container)) {
+				if (supportSpec.matchStreams(
+					videoCodec,
+					audioCodec,
+					nbAudioChannels,
+					frequency,
+					bitrate,
+					framerate,
+					videoWidth,
+					videoHeight,
+					extras
+				)) {
+					matchedMimeType = supportSpec.mimeType;
+					break;
+				}
+			}
+		}
+
+		synchronized (matchCache) {
+			matchCache.put(signature, matchedMimeType == null ? NO_MATCH : matchedMimeType);
+		}
 		return matchedMimeType;
 	}
 
+	/**
+	 * Returns the support lines whose format matches the specified container,
+	 * so that the format patterns are only evaluated once per container.
+	 *
+	 * @param container the container to look up.
+	 * @return The matching {@link SupportSpec}s in their original order.
+	 */
+	private List<SupportSpec> getSupportSpecs(String container) {
+		synchronized (specsByContainer) {
+			List<SupportSpec> result = specsByContainer.get(container);
+			if (result == null) {
+				result = new ArrayList<>();
+				for (SupportSpec supportSpec : supportSpecs) {
+					if (supportSpec.pFormat.matcher(container).matches()) {
+						result.add(supportSpec);
+					} else {
+						LOGGER.trace("Format \"{}\" failed to match supported line {}", container, supportSpec.supportLine);
+					}
+				}
+				specsByContainer.put(container, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Creates a compact {@link String} from all the parameters that can
+	 * affect the result of a match, used as the key for cached results.
+	 * Extras that aren't evaluated by any support line are left out.
+	 */
+	private static String getSignature(
+		String container,
+		String videoCodec,
+		String audioCodec,
+		int nbAudioChannels,
+		int frequency,
+		int bitrate,
+		int framerate,
+		int videoWidth,
+		int videoHeight,
+		Map<String, String> extras
+	) {
+		StringBuilder sb = new StringBuilder(64);
+		sb.append(container).append('|').append(videoCodec).append('|').append(audioCodec).append('|')
+			.append(nbAudioChannels).append('|').append(frequency).append('|').append(bitrate).append('|')
+			.append(framerate).append('|').append(videoWidth).append('x').append(videoHeight);
+		if (extras != null) {
+			for (String key : new String[] {MI_QPEL, MI_GMC, MI_GOP}) {
+				String value = extras.get(key);
+				if (value != null) {
+					sb.append('|').append(key).append('=').append(value.toLowerCase());
+				}
+			}
+		}
+		return sb.toString();
+	}
+
 	private static SupportSpec parseSupportLine(String line) {
 		StringTokenizer st = new StringTokenizer(line, "\t ");
 		SupportSpec supportSpec = new SupportSpec();
@@ -50,6 +50,7 @@ import net.pms.encoders.StandardPlayerId;
 import net.pms.exception.InvalidArgumentException;
 import net.pms.image.thumbnail.CoverSupplier;
 import net.pms.io.BasicSystemUtils;
+import net.pms.io.TranscodeBufferType;
 import net.pms.io.WindowsSystemUtils;
 import net.pms.logging.LogLevel;
 import net.pms.newgui.NavigationShareTab.SharedFoldersTableModel;
@@ -70,6 +71,7 @@ import net.pms.util.StringUtil;
 import net.pms.util.SubtitleColor;
 import net.pms.util.UMSUtils;
 import net.pms.util.UniqueList;
+import org.apache.commons.configuration.AbstractConfiguration;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.ConversionException;
 import org.apache.commons.configuration.PropertiesConfiguration;
@@ -197,6 +199,8 @@ public class PmsConfiguration extends RendererConfiguration {
 	protected static final String KEY_IP_FILTER = "ip_filter";
 	protected static final String KEY_ITUNES_LIBRARY_PATH = "itunes_library_path";
 	protected static final String KEY_LANGUAGE = "language";
+	protected static final String KEY_LIBRARY_SCAN_THREADS = "library_scan_threads";
+	protected static final String KEY_LIBRARY_SCAN_THREADS_PER_VOLUME = "library_scan_threads_per_volume";
 	protected static final String KEY_LIVE_SUBTITLES_KEEP = "live_subtitles_keep";
 	protected static final String KEY_LIVE_SUBTITLES_LIMIT = "live_subtitles_limit";
 	protected static final String KEY_LIVE_SUBTITLES_TMO = "live_subtitles_timeout";
@@ -215,6 +219,8 @@ public class PmsConfiguration extends RendererConfiguration {
 	protected static final String KEY_MAX_BITRATE = "maximum_bitrate";
 	protected static final String KEY_MAX_MEMORY_BUFFER_SIZE = "maximum_video_buffer_size";
 	protected static final String KEY_MEDIA_LIB_SORT = "media_lib_sort";
+	protected static final String KEY_MEDIAINFO_PARSER_THREADS = "mediainfo_parser_threads";
+	protected static final String KEY_IDLE_FOLDER_EVICTION_TIME = "idle_folder_eviction_time";
 	protected static final String KEY_MENCODER_ASS = "mencoder_ass";
 	protected static final String KEY_MENCODER_AC3_FIXED = "mencoder_ac3_fixed";
 	protected static final String KEY_MENCODER_AVISYNTH_INTERFRAME_GPU = "mencoder_avisynth_interframegpu";
@@ -288,6 +294,7 @@ public class PmsConfiguration extends RendererConfiguration {
 	protected static final String KEY_SERVER_HOSTNAME = "hostname";
 	protected static final String KEY_SERVER_NAME = "server_name";
 	protected static final String KEY_SERVER_PORT = "port";
+	protected static final String KEY_SHARED_FOLDER_POLL_INTERVAL = "shared_folder_poll_interval";
 	protected static final String KEY_SHARES = "shares";
 	protected static final String KEY_SHOW_APERTURE_LIBRARY = "show_aperture_library";
 	protected static final String KEY_SHOW_IPHOTO_LIBRARY = "show_iphoto_library";
@@ -303,6 +310,7 @@ public class PmsConfiguration extends RendererConfiguration {
 	protected static final String KEY_SUBTITLES_LANGUAGES = "subtitles_languages";
 	protected static final String KEY_TEMP_FOLDER_PATH = "temp_directory";
 	protected static final String KEY_THUMBNAIL_GENERATION_ENABLED = "generate_thumbnails";
+	protected static final String KEY_THUMBNAIL_GENERATION_THREADS = "thumbnail_generation_threads";
 	protected static final String KEY_THUMBNAIL_SEEK_POS = "thumbnail_seek_position";
 	protected static final String KEY_TRANSCODE_BLOCKS_MULTIPLE_CONNECTIONS = "transcode_block_multiple_connections";
 	protected static final String KEY_TRANSCODE_FOLDER_NAME = "transcode_folder_name";
@@ -311,6 +319,7 @@ public class PmsConfiguration extends RendererConfiguration {
 	protected static final String KEY_UPNP_ENABLED = "upnp_enable";
 	protected static final String KEY_UPNP_PORT = "upnp_port";
 	protected static final String KEY_USE_CACHE = "use_cache";
+	protected static final String KEY_USE_THUMBNAIL_STORE = "use_thumbnail_store";
 	protected static final String KEY_USE_DEFAULT_FOLDERS = "use_default_folders";
 	protected static final String KEY_USE_EMBEDDED_SUBTITLES_STYLE = "use_embedded_subtitles_style";
 	protected static final String KEY_USE_IMDB_INFO = "use_imdb_info";
@@ -327,8 +336,12 @@ public class PmsConfiguration extends RendererConfiguration {
 	protected static final String KEY_VLC_SUBTITLE_ENABLED = "vlc_subtitle_enabled";
 	protected static final String KEY_VLC_USE_EXPERIMENTAL_CODECS = "vlc_use_experimental_codecs";
 	protected static final String KEY_VLC_HARDWARE_ACCELERATION = "vlc_hardware_acceleration";
+	protected static final String KEY_TRANSCODE_BUFFER_BUDGET = "transcode_buffer_budget";
+	protected static final String KEY_TRANSCODE_BUFFER_TYPE = "transcode_buffer_type";
+	protected static final String KEY_ZERO_COPY_TRANSFER = "zero_copy_transfer";
 	protected static final String KEY_FULLY_PLAYED_ACTION = "fully_played_action";
 	protected static final String KEY_FULLY_PLAYED_OUTPUT_DIRECTORY = "fully_played_output_directory";
+	protected static final String KEY_WATCH_SHARED_FOLDERS = "watch_shared_folders";
 	protected static final String KEY_WEB_AUTHENTICATE = "web_authenticate";
 	protected static final String KEY_WEB_BROWSE_LANG = "web_use_browser_lang";
 	protected static final String KEY_WEB_BROWSE_SUB_LANG = "web_use_browser_sub_lang";
@@ -1448,6 +1461,27 @@ public class PmsConfiguration extends RendererConfiguration {
 		configuration.setProperty(KEY_THUMBNAIL_SEEK_POS, value);
 	}
 
+	/**
+	 * Returns the maximum number of thumbnail and parsing processes that are
+	 * run at the same time. Default is 0, which means half the number of
+	 * available processors.
+	 *
+	 * @return The number of processes or {@code 0} for automatic.
+	 */
+	public int getThumbnailGenerationThreads() {
+		return Math.max(getInt(KEY_THUMBNAIL_GENERATION_THREADS, 0), 0);
+	}
+
+	/**
+	 * Sets the maximum number of thumbnail and parsing processes that are
+	 * run at the same time.
+	 *
+	 * @param value The number of processes or {@code 0} for automatic.
+	 */
+	public void setThumbnailGenerationThreads(int value) {
+		configuration.setProperty(KEY_THUMBNAIL_GENERATION_THREADS, value);
+	}
+
 	/**
 	 * Returns whether the user wants ASS/SSA subtitle support. Default is
 	 * true.
@@ -2252,6 +2286,184 @@ public class PmsConfiguration extends RendererConfiguration {
 		configuration.setProperty(KEY_USE_CACHE, value);
 	}
 
+	/**
+	 * @return The configured number of folders the library scanner scans at
+	 *         the same time, or {@code 0} for automatic.
+	 */
+	public int getLibraryScanThreads() {
+		return Math.max(getInt(KEY_LIBRARY_SCAN_THREADS, 0), 0);
+	}
+
+	/**
+	 * Sets the number of folders the library scanner scans at the same time.
+	 *
+	 * @param value the number of folders or {@code 0} for automatic.
+	 */
+	public void setLibraryScanThreads(int value) {
+		configuration.setProperty(KEY_LIBRARY_SCAN_THREADS, value);
+	}
+
+	/**
+	 * @return The maximum number of folders on the same volume the library
+	 *         scanner scans at the same time.
+	 */
+	public int getLibraryScanThreadsPerVolume() {
+		return Math.max(getInt(KEY_LIBRARY_SCAN_THREADS_PER_VOLUME, 2), 1);
+	}
+
+	/**
+	 * Sets the maximum number of folders on the same volume the library
+	 * scanner scans at the same time.
+	 *
+	 * @param value the number of folders.
+	 */
+	public void setLibraryScanThreadsPerVolume(int value) {
+		configuration.setProperty(KEY_LIBRARY_SCAN_THREADS_PER_VOLUME, value);
+	}
+
+	/**
+	 * Whether shared folders should be watched for changes, so that new,
+	 * modified and deleted files are handled as soon as they appear instead
+	 * of when the folder is browsed.
+	 *
+	 * @return {@code true} if shared folders should be watched,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isWatchSharedFolders() {
+		return getBoolean(KEY_WATCH_SHARED_FOLDERS, true);
+	}
+
+	/**
+	 * Sets whether shared folders should be watched for changes.
+	 *
+	 * @param value whether shared folders should be watched.
+	 */
+	public void setWatchSharedFolders(boolean value) {
+		configuration.setProperty(KEY_WATCH_SHARED_FOLDERS, value);
+	}
+
+	/**
+	 * @return The number of seconds between each check for changes in the
+	 *         shared folders that can't be watched, like network shares, or
+	 *         {@code 0} if those folders aren't checked.
+	 */
+	public int getSharedFolderPollInterval() {
+		return Math.max(getInt(KEY_SHARED_FOLDER_POLL_INTERVAL, 300), 0);
+	}
+
+	/**
+	 * Sets the number of seconds between each check for changes in the
+	 * shared folders that can't be watched.
+	 *
+	 * @param value the number of seconds or {@code 0} to disable checking.
+	 */
+	public void setSharedFolderPollInterval(int value) {
+		configuration.setProperty(KEY_SHARED_FOLDER_POLL_INTERVAL, value);
+	}
+
+	/**
+	 * @return The number of minutes a shared folder must be unused before
+	 *         its content is dropped from memory, or {@code 0} if folders
+	 *         are never dropped.
+	 */
+	public int getIdleFolderEvictionTime() {
+		return Math.max(getInt(KEY_IDLE_FOLDER_EVICTION_TIME, 60), 0);
+	}
+
+	/**
+	 * Sets the number of minutes a shared folder must be unused before its
+	 * content is dropped from memory.
+	 *
+	 * @param value the number of minutes or {@code 0} to never drop folders.
+	 */
+	public void setIdleFolderEvictionTime(int value) {
+		configuration.setProperty(KEY_IDLE_FOLDER_EVICTION_TIME, value);
+	}
+
+	/**
+	 * Whether untranscoded files should be sent using
+	 * {@link java.nio.channels.FileChannel#transferTo} when possible, so that
+	 * the file data doesn't have to be copied through the Java heap.
+	 *
+	 * @return {@code true} if zero-copy transfers should be used,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isZeroCopyTransfer() {
+		return getBoolean(KEY_ZERO_COPY_TRANSFER, true);
+	}
+
+	/**
+	 * Sets whether untranscoded files should be sent using
+	 * {@link java.nio.channels.FileChannel#transferTo} when possible.
+	 *
+	 * @param value whether zero-copy transfers should be used.
+	 */
+	public void setZeroCopyTransfer(boolean value) {
+		configuration.setProperty(KEY_ZERO_COPY_TRANSFER, value);
+	}
+
+	/**
+	 * Returns where transcode buffers are allocated. Default is
+	 * {@link TranscodeBufferType#DIRECT}.
+	 *
+	 * @return The {@link TranscodeBufferType}.
+	 */
+	public TranscodeBufferType getTranscodeBufferType() {
+		return TranscodeBufferType.typeOf(getString(KEY_TRANSCODE_BUFFER_TYPE, TranscodeBufferType.DIRECT.getValue()));
+	}
+
+	/**
+	 * Sets where transcode buffers are allocated.
+	 *
+	 * @param value the {@link TranscodeBufferType}.
+	 */
+	public void setTranscodeBufferType(TranscodeBufferType value) {
+		configuration.setProperty(KEY_TRANSCODE_BUFFER_TYPE, value.getValue());
+	}
+
+	/**
+	 * Returns the total size in megabytes that all active transcode buffers
+	 * can use together, or {@code 0} if it should be calculated from the
+	 * maximum memory available to the JVM.
+	 *
+	 * @return The transcode buffer budget in megabytes.
+	 */
+	public int getTranscodeBufferBudget() {
+		return Math.max(getInt(KEY_TRANSCODE_BUFFER_BUDGET, 0), 0);
+	}
+
+	/**
+	 * Sets the total size in megabytes that all active transcode buffers can
+	 * use together.
+	 *
+	 * @param value the budget in megabytes or {@code 0} for automatic.
+	 */
+	public void setTranscodeBufferBudget(int value) {
+		configuration.setProperty(KEY_TRANSCODE_BUFFER_BUDGET, Math.max(value, 0));
+	}
+
+	/**
+	 * Whether thumbnails converted for a renderer should be stored in the
+	 * profile folder, so that they can be served without being converted
+	 * again.
+	 *
+	 * @return {@code true} if the thumbnail store should be used,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isUseThumbnailStore() {
+		return getBoolean(KEY_USE_THUMBNAIL_STORE, true);
+	}
+
+	/**
+	 * Sets whether thumbnails converted for a renderer should be stored in
+	 * the profile folder.
+	 *
+	 * @param value whether the thumbnail store should be used.
+	 */
+	public void setUseThumbnailStore(boolean value) {
+		configuration.setProperty(KEY_USE_THUMBNAIL_STORE, value);
+	}
+
 	/**
 	 * Whether we should pass the flag "convertfps=true" to AviSynth.
 	 *
@@ -2462,6 +2674,38 @@ public class PmsConfiguration extends RendererConfiguration {
 		), 1);
 	}
 
+	/**
+	 * @return The configured maximum number of files that can be parsed by
+	 *         {@code LibMediaInfo} in parallel, or {@code 0} for automatic.
+	 */
+	public int getMediaInfoParserThreads() {
+		return getInt(KEY_MEDIAINFO_PARSER_THREADS, 0);
+	}
+
+	/**
+	 * Sets the maximum number of files that can be parsed by
+	 * {@code LibMediaInfo} in parallel.
+	 *
+	 * @param value the number of parallel parsers or {@code 0} for automatic.
+	 */
+	public void setMediaInfoParserThreads(int value) {
+		configuration.setProperty(KEY_MEDIAINFO_PARSER_THREADS, value);
+	}
+
+	/**
+	 * @return The effective maximum number of files that can be parsed by
+	 *         {@code LibMediaInfo} in parallel. If set to automatic, this is
+	 *         the number of available processors.
+	 */
+	public int getMediaInfoParserEffectiveThreads() {
+		int threads = getMediaInfoParserThreads();
+		int processors = Runtime.getRuntime().availableProcessors();
+		if (threads < 1) {
+			return processors;
+		}
+		return Math.min(threads, processors * 2);
+	}
+
 	/**
 	 * Whether we should pass the flag "convertfps=true" to AviSynth.
 	 *
@@ -3949,11 +4193,11 @@ public class PmsConfiguration extends RendererConfiguration {
 	}
 
 	public void addConfigurationListener(ConfigurationListener l) {
-		((PropertiesConfiguration)configuration).addConfigurationListener(l);
+		((AbstractConfiguration) configuration).addConfigurationListener(l);
 	}
 
 	public void removeConfigurationListener(ConfigurationListener l) {
-		((PropertiesConfiguration)configuration).removeConfigurationListener(l);
+		((AbstractConfiguration) configuration).removeConfigurationListener(l);
 	}
 
 	public boolean getFolderLimit() {
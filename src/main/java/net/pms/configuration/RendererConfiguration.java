@@ -13,6 +13,7 @@ import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
@@ -66,6 +67,9 @@ public class RendererConfiguration extends UPNPHelper.Renderer {
 	protected static RendererConfiguration defaultConf;
 	protected static final Map<InetAddress, RendererConfiguration> addressAssociation = new HashMap<>();
 
+	/** The number of renderer configuration reloads */
+	private static final AtomicInteger reloadCount = new AtomicInteger();
+
 	protected RootFolder rootFolder;
 	protected File file;
 	protected Configuration configuration;
@@ -521,6 +525,14 @@ public class RendererConfiguration extends UPNPHelper.Renderer {
 		return rootFolder;
 	}
 
+	/**
+	 * @return The {@link RootFolder} of this renderer if it has been created,
+	 *         {@code null} otherwise.
+	 */
+	public RootFolder getRootFolderIfCreated() {
+		return rootFolder;
+	}
+
 	public void addFolderLimit(DLNAResource res) {
 		if (rootFolder != null) {
 			rootFolder.setFolderLim(res);
@@ -1105,6 +1117,7 @@ public class RendererConfiguration extends UPNPHelper.Renderer {
 			LOGGER.info("Reloading renderer configuration: {}", f);
 			loaded = false;
 			init(f);
+			reloadCount.incrementAndGet();
 			// update gui
 			for (RendererConfiguration d : DeviceConfiguration.getInheritors(this)) {
 				PMS.get().updateRenderer(d);
@@ -1115,6 +1128,17 @@ public class RendererConfiguration extends UPNPHelper.Renderer {
 		}
 	}
 
+	/**
+	 * Returns a number that changes every time a renderer configuration is
+	 * reloaded, used to tell if information generated from a renderer
+	 * configuration might be outdated.
+	 *
+	 * @return The number of renderer configuration reloads.
+	 */
+	public static int getReloadCount() {
+		return reloadCount.get();
+	}
+
 	public String getDLNAPN(String old) {
 		if (DLNAPN.containsKey(old)) {
 			return DLNAPN.get(old);
@@ -0,0 +1,222 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.database;
+
+import static net.pms.database.Tables.setTableVersion;
+import static org.apache.commons.lang3.StringUtils.left;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import net.pms.io.ListProcessWrapperResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * This class is responsible for managing the Executable Probes table, which
+ * holds the output of the commands used to test external executables. A row
+ * is only valid as long as the size and modification time of the executable
+ * are unchanged, so that a replaced executable is probed again.
+ */
+public final class TableExecutableProbes extends Table {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TableExecutableProbes.class);
+	private static final TableId ID = TableId.EXECUTABLE_PROBES;
+
+	/** The maximum length of the executable path and the arguments */
+	private static final int SIZE_PATH = 1024;
+
+	/**
+	 * Table version must be increased every time a change is done to the table
+	 * definition. Table upgrade SQL must also be added to
+	 * {@link #upgradeTable()}
+	 */
+	private static final int TABLE_VERSION = 1;
+
+	/**
+	 * Should only be instantiated by {@link TableManager}.
+	 *
+	 * @param tableManager the {@link TableManager} to use.
+	 */
+	TableExecutableProbes(@Nonnull TableManager tableManager) {
+		super(tableManager);
+	}
+
+	@Override
+	@Nonnull
+	public TableId getTableId() {
+		return ID;
+	}
+
+	@Override
+	public int getTableVersion() {
+		return TABLE_VERSION;
+	}
+
+	@Override
+	@Nullable
+	public EnumSet<TableId> getRelatedTables() {
+		return null;
+	}
+
+	@Override
+	protected void createTable(@Nonnull Connection connection) throws SQLException {
+		LOGGER.debug("Creating database table \"{}\"", ID);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(
+				"CREATE TABLE " + ID + "(" +
+					"ID IDENTITY PRIMARY KEY, " +
+					"EXECUTABLE VARCHAR(" + SIZE_PATH + ") NOT NULL, " +
+					"ARGUMENTS VARCHAR(" + SIZE_PATH + ") NOT NULL, " +
+					"SIZE BIGINT, " +
+					"MODIFIED TIMESTAMP, " +
+					"EXITCODE INT, " +
+					"OUTPUT OTHER" +
+				")");
+			statement.execute("CREATE INDEX EXECUTABLE_IDX ON " + ID + "(EXECUTABLE, ARGUMENTS)");
+		}
+	}
+
+	@Override
+	protected void upgradeTable(@Nonnull Connection connection, int currentVersion) throws SQLException {
+		LOGGER.info("Upgrading database table \"{}\" from version {} to {}", ID, currentVersion, TABLE_VERSION);
+		if (currentVersion < 1) {
+			currentVersion = 1;
+		}
+		connection.setAutoCommit(false);
+		try (Statement statement = connection.createStatement()) {
+			for (int version = currentVersion; version < TABLE_VERSION; version++) {
+				LOGGER.trace("Upgrading table {} from version {} to {}", ID, version, version + 1);
+				switch (version) {
+					default:
+						throw new IllegalStateException(
+							"Table \"" + ID + "is missing table upgrade commands from version " +
+							version + " to " + TABLE_VERSION
+						);
+				}
+			}
+			setTableVersion(connection, ID, TABLE_VERSION);
+		} catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * Looks up the stored output of a command.
+	 *
+	 * @param executable the path to the executable.
+	 * @param arguments the arguments joined to a single {@link String}.
+	 * @param size the current size of the executable.
+	 * @param modified the current modification time of the executable.
+	 * @return The stored {@link ListProcessWrapperResult} or {@code null} if
+	 *         none was found for this version of the executable.
+	 */
+	@Nullable
+	public ListProcessWrapperResult find(
+		@Nonnull String executable,
+		@Nonnull String arguments,
+		long size,
+		long modified
+	) {
+		try (
+			Connection connection = getConnection();
+			PreparedStatement statement = connection.prepareStatement(
+				"SELECT EXITCODE, OUTPUT FROM " + ID + " WHERE EXECUTABLE = ? AND ARGUMENTS = ? AND SIZE = ? AND MODIFIED = ?"
+			);
+		) {
+			statement.setString(1, left(executable, SIZE_PATH));
+			statement.setString(2, left(arguments, SIZE_PATH));
+			statement.setLong(3, size);
+			statement.setTimestamp(4, new Timestamp(modified));
+			try (ResultSet resultSet = statement.executeQuery()) {
+				if (resultSet.next()) {
+					@SuppressWarnings("unchecked")
+					List<String> output = (List<String>) resultSet.getObject("OUTPUT");
+					return new ListProcessWrapperResult(output, resultSet.getInt("EXITCODE"), null);
+				}
+			}
+		} catch (SQLException | ClassCastException e) {
+			LOGGER.debug("Error while looking up the stored output of \"{} {}\": {}", executable, arguments, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the output of a command, replacing any previously stored output
+	 * for the same command.
+	 *
+	 * @param executable the path to the executable.
+	 * @param arguments the arguments joined to a single {@link String}.
+	 * @param size the current size of the executable.
+	 * @param modified the current modification time of the executable.
+	 * @param result the {@link ListProcessWrapperResult} to store.
+	 */
+	public void store(
+		@Nonnull String executable,
+		@Nonnull String arguments,
+		long size,
+		long modified,
+		@Nonnull ListProcessWrapperResult result
+	) {
+		try (Connection connection = getConnection()) {
+			connection.setAutoCommit(false);
+			try (
+				PreparedStatement delete = connection.prepareStatement(
+					"DELETE FROM " + ID + " WHERE EXECUTABLE = ? AND ARGUMENTS = ?"
+				);
+				PreparedStatement insert = connection.prepareStatement(
+					"INSERT INTO " + ID + " (EXECUTABLE, ARGUMENTS, SIZE, MODIFIED, EXITCODE, OUTPUT) VALUES (?, ?, ?, ?, ?, ?)"
+				);
+			) {
+				delete.setString(1, left(executable, SIZE_PATH));
+				delete.setString(2, left(arguments, SIZE_PATH));
+				delete.executeUpdate();
+
+				insert.setString(1, left(executable, SIZE_PATH));
+				insert.setString(2, left(arguments, SIZE_PATH));
+				insert.setLong(3, size);
+				insert.setTimestamp(4, new Timestamp(modified));
+				insert.setInt(5, result.getExitCode());
+				insert.setObject(6, new ArrayList<>(result.getOutput()));
+				insert.executeUpdate();
+				connection.commit();
+			} catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error while storing the output of \"{} {}\": {}", executable, arguments, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+}
@@ -37,6 +37,15 @@ public enum TableId {
 	/** The ID for {@link TableCoverArtArchive} */
 	COVER_ART_ARCHIVE(TableCoverArtArchive.class, null),
 
+	/** The ID for {@link TableExecutableProbes} */
+	EXECUTABLE_PROBES(TableExecutableProbes.class, null),
+
+	/** The ID for {@link TableLibraryFolders} */
+	LIBRARY_FOLDERS(TableLibraryFolders.class, null),
+
+	/** The ID for {@link TableLibraryScan} */
+	LIBRARY_SCAN(TableLibraryScan.class, null),
+
 	/** The ID for {@link TableMusicBrainzReleases} */
 	MUSIC_BRAINZ_RELEASES(TableMusicBrainzReleases.class, null),
 
@@ -146,6 +155,12 @@ public enum TableId {
 		switch (this) {
 			case COVER_ART_ARCHIVE:
 				return new TableCoverArtArchive(tableManager);
+			case EXECUTABLE_PROBES:
+				return new TableExecutableProbes(tableManager);
+			case LIBRARY_FOLDERS:
+				return new TableLibraryFolders(tableManager);
+			case LIBRARY_SCAN:
+				return new TableLibraryScan(tableManager);
 			case MUSIC_BRAINZ_RELEASES:
 				return new TableMusicBrainzReleases(tableManager);
 			case TABLES:
@@ -0,0 +1,349 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.database;
+
+import static net.pms.database.Tables.getPrefixUpperBound;
+import static net.pms.database.Tables.setTableVersion;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * This class is responsible for managing the Library Folders table, which
+ * holds a fingerprint of the content of every shared folder as it was when
+ * the folder was last scanned. The fingerprint is calculated from the names,
+ * sizes and modification times of the entries in the folder, so that the
+ * library scanner can skip the folders where nothing has changed.
+ */
+public final class TableLibraryFolders extends Table {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TableLibraryFolders.class);
+	private static final TableId ID = TableId.LIBRARY_FOLDERS;
+
+	/** The maximum length of a folder path */
+	private static final int SIZE_PATH = 1024;
+
+	/**
+	 * Table version must be increased every time a change is done to the table
+	 * definition. Table upgrade SQL must also be added to
+	 * {@link #upgradeTable()}
+	 */
+	private static final int TABLE_VERSION = 1;
+
+	/**
+	 * Should only be instantiated by {@link TableManager}.
+	 *
+	 * @param tableManager the {@link TableManager} to use.
+	 */
+	TableLibraryFolders(@Nonnull TableManager tableManager) {
+		super(tableManager);
+	}
+
+	@Override
+	@Nonnull
+	public TableId getTableId() {
+		return ID;
+	}
+
+	@Override
+	public int getTableVersion() {
+		return TABLE_VERSION;
+	}
+
+	@Override
+	@Nullable
+	public EnumSet<TableId> getRelatedTables() {
+		return null;
+	}
+
+	@Override
+	protected void createTable(@Nonnull Connection connection) throws SQLException {
+		LOGGER.debug("Creating database table \"{}\"", ID);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(
+				"CREATE TABLE " + ID + "(" +
+					"PATH VARCHAR(" + SIZE_PATH + ") PRIMARY KEY, " +
+					"MODIFIED TIMESTAMP NOT NULL, " +
+					"FINGERPRINT BIGINT NOT NULL" +
+				")");
+		}
+	}
+
+	@Override
+	protected void upgradeTable(@Nonnull Connection connection, int currentVersion) throws SQLException {
+		LOGGER.info("Upgrading database table \"{}\" from version {} to {}", ID, currentVersion, TABLE_VERSION);
+		if (currentVersion < 1) {
+			currentVersion = 1;
+		}
+		connection.setAutoCommit(false);
+		try (Statement statement = connection.createStatement()) {
+			for (int version = currentVersion; version < TABLE_VERSION; version++) {
+				LOGGER.trace("Upgrading table {} from version {} to {}", ID, version, version + 1);
+				switch (version) {
+					default:
+						throw new IllegalStateException(
+							"Table \"" + ID + "is missing table upgrade commands from version " +
+							version + " to " + TABLE_VERSION
+						);
+				}
+			}
+			setTableVersion(connection, ID, TABLE_VERSION);
+		} catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * Compares the stored fingerprint of a folder with the specified values.
+	 *
+	 * @param path the absolute path of the folder.
+	 * @param modified the current modification time of the folder.
+	 * @param fingerprint the current fingerprint of the folder content.
+	 * @return The {@link FolderState}. {@link FolderState#CHANGED} is also
+	 *         returned if the table can't be read.
+	 */
+	@Nonnull
+	public FolderState getFolderState(@Nonnull String path, long modified, long fingerprint) {
+		if (path.length() > SIZE_PATH) {
+			return FolderState.CHANGED;
+		}
+		try (
+			Connection connection = getConnection();
+			PreparedStatement statement = connection.prepareStatement(
+				"SELECT MODIFIED, FINGERPRINT FROM " + ID + " WHERE PATH = ?"
+			);
+		) {
+			statement.setString(1, path);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				if (!resultSet.next()) {
+					return FolderState.NEW;
+				}
+				return
+					resultSet.getTimestamp("MODIFIED").getTime() == modified &&
+					resultSet.getLong("FINGERPRINT") == fingerprint ?
+						FolderState.UNCHANGED :
+						FolderState.CHANGED;
+			}
+		} catch (SQLException e) {
+			LOGGER.debug("Database error while looking up the fingerprint of \"{}\": {}", path, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return FolderState.CHANGED;
+	}
+
+	/**
+	 * Stores the fingerprint of a folder after it has been scanned.
+	 *
+	 * @param path the absolute path of the folder.
+	 * @param modified the modification time of the folder.
+	 * @param fingerprint the fingerprint of the folder content.
+	 */
+	public void setFingerprint(@Nonnull String path, long modified, long fingerprint) {
+		if (path.length() > SIZE_PATH) {
+			return;
+		}
+		try (
+			Connection connection = getConnection();
+			PreparedStatement statement = connection.prepareStatement(
+				"MERGE INTO " + ID + " (PATH, MODIFIED, FINGERPRINT) KEY (PATH) VALUES (?, ?, ?)"
+			);
+		) {
+			statement.setString(1, path);
+			statement.setTimestamp(2, new Timestamp(modified));
+			statement.setLong(3, fingerprint);
+			statement.executeUpdate();
+		} catch (SQLException e) {
+			LOGGER.error("Database error while storing the fingerprint of \"{}\": {}", path, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Removes the rows of the direct subfolders of a folder that no longer
+	 * exist, together with the rows of everything below them.
+	 *
+	 * @param path the absolute path of the folder.
+	 * @param separator the path separator used in {@code path}.
+	 * @return The paths of the subfolders that no longer exist.
+	 */
+	@Nonnull
+	public List<String> removeMissingSubfolders(@Nonnull String path, char separator) {
+		List<String> result = new ArrayList<>();
+		String prefix = path.charAt(path.length() - 1) == separator ? path : path + separator;
+		try (Connection connection = getConnection()) {
+			try (
+				PreparedStatement statement = connection.prepareStatement(
+					"SELECT PATH FROM " + ID + " WHERE PATH >= ? AND PATH < ?"
+				);
+			) {
+				statement.setString(1, prefix);
+				statement.setString(2, getPrefixUpperBound(prefix));
+				try (ResultSet resultSet = statement.executeQuery()) {
+					while (resultSet.next()) {
+						String subfolder = resultSet.getString("PATH");
+						// Only direct subfolders, the rest is removed together with them
+						if (subfolder.indexOf(separator, prefix.length()) < 0 && !new File(subfolder).isDirectory()) {
+							result.add(subfolder);
+						}
+					}
+				}
+			}
+			remove(connection, result, separator);
+		} catch (SQLException e) {
+			LOGGER.error("Database error while removing missing subfolders of \"{}\": {}", path, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
+	/**
+	 * Removes the rows of the folders that aren't shared anymore, together
+	 * with the rows of everything below them. A folder is only kept if it's
+	 * one of {@code sharedFolders} or below one of them, and that shared
+	 * folder still exists.
+	 *
+	 * @param sharedFolders the absolute paths of the shared folders.
+	 * @param separator the path separator used in the paths.
+	 * @return The paths of the removed folders whose parent folder wasn't
+	 *         removed too.
+	 */
+	@Nonnull
+	public List<String> removeUnsharedFolders(@Nonnull Collection<String> sharedFolders, char separator) {
+		List<String> prefixes = new ArrayList<>();
+		for (String sharedFolder : sharedFolders) {
+			if (new File(sharedFolder).isDirectory()) {
+				prefixes.add(sharedFolder.charAt(sharedFolder.length() - 1) == separator ? sharedFolder : sharedFolder + separator);
+			}
+		}
+		List<String> result = new ArrayList<>();
+		try (
+			Connection connection = getConnection();
+			Statement statement = connection.createStatement();
+		) {
+			// The rows are sorted so that a folder comes before its subfolders
+			try (ResultSet resultSet = statement.executeQuery("SELECT PATH FROM " + ID + " ORDER BY PATH")) {
+				String removed = null;
+				while (resultSet.next()) {
+					String folder = resultSet.getString("PATH");
+					if (removed != null && folder.startsWith(removed)) {
+						continue;
+					}
+					boolean shared = false;
+					for (String prefix : prefixes) {
+						if (folder.startsWith(prefix) || folder.length() == prefix.length() - 1 && prefix.startsWith(folder)) {
+							shared = true;
+							break;
+						}
+					}
+					if (!shared) {
+						result.add(folder);
+						removed = folder.charAt(folder.length() - 1) == separator ? folder : folder + separator;
+					}
+				}
+			}
+			remove(connection, result, separator);
+		} catch (SQLException e) {
+			LOGGER.error("Database error while removing unshared library folders: {}", e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
+	/**
+	 * Removes the rows of the specified folders and everything below them.
+	 *
+	 * @param connection the {@link Connection} to use.
+	 * @param folders the absolute paths of the folders to remove.
+	 * @param separator the path separator used in the paths.
+	 * @throws SQLException If an SQL error occurs during the operation.
+	 */
+	private static void remove(
+		@Nonnull Connection connection,
+		@Nonnull List<String> folders,
+		char separator
+	) throws SQLException {
+		if (folders.isEmpty()) {
+			return;
+		}
+		// Separate statements, since an OR condition can't use the index
+		try (
+			PreparedStatement deleteFolder = connection.prepareStatement(
+				"DELETE FROM " + ID + " WHERE PATH = ?"
+			);
+			PreparedStatement deleteSubfolders = connection.prepareStatement(
+				"DELETE FROM " + ID + " WHERE PATH >= ? AND PATH < ?"
+			);
+		) {
+			for (String folder : folders) {
+				String prefix = folder.charAt(folder.length() - 1) == separator ? folder : folder + separator;
+				deleteFolder.setString(1, folder);
+				deleteFolder.executeUpdate();
+				deleteSubfolders.setString(1, prefix);
+				deleteSubfolders.setString(2, getPrefixUpperBound(prefix));
+				deleteSubfolders.executeUpdate();
+			}
+		}
+	}
+
+	/**
+	 * Removes all rows, so that every folder is scanned again.
+	 */
+	public void clear() {
+		try (
+			Connection connection = getConnection();
+			Statement statement = connection.createStatement();
+		) {
+			statement.executeUpdate("DELETE FROM " + ID);
+		} catch (SQLException e) {
+			LOGGER.error("Database error while clearing the library folder fingerprints: {}", e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * The state of a folder compared to its stored fingerprint.
+	 */
+	public static enum FolderState {
+
+		/** The folder has no stored fingerprint */
+		NEW,
+
+		/** The folder has changed since it was last scanned */
+		CHANGED,
+
+		/** The folder is unchanged since it was last scanned */
+		UNCHANGED
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.database;
+
+import static net.pms.database.Tables.setTableVersion;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.EnumSet;
+import java.util.HashSet;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * This class is responsible for managing the Library Scan table, which holds
+ * the folders whose complete subtree has been scanned by a library scan that
+ * hasn't finished yet. An interrupted scan uses it to skip the folders that
+ * are already done, and the table is emptied when a scan completes.
+ */
+public final class TableLibraryScan extends Table {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TableLibraryScan.class);
+	private static final TableId ID = TableId.LIBRARY_SCAN;
+
+	/** The maximum length of a folder path */
+	private static final int SIZE_PATH = 1024;
+
+	/**
+	 * Table version must be increased every time a change is done to the table
+	 * definition. Table upgrade SQL must also be added to
+	 * {@link #upgradeTable()}
+	 */
+	private static final int TABLE_VERSION = 1;
+
+	/**
+	 * Should only be instantiated by {@link TableManager}.
+	 *
+	 * @param tableManager the {@link TableManager} to use.
+	 */
+	TableLibraryScan(@Nonnull TableManager tableManager) {
+		super(tableManager);
+	}
+
+	@Override
+	@Nonnull
+	public TableId getTableId() {
+		return ID;
+	}
+
+	@Override
+	public int getTableVersion() {
+		return TABLE_VERSION;
+	}
+
+	@Override
+	@Nullable
+	public EnumSet<TableId> getRelatedTables() {
+		return null;
+	}
+
+	@Override
+	protected void createTable(@Nonnull Connection connection) throws SQLException {
+		LOGGER.debug("Creating database table \"{}\"", ID);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(
+				"CREATE TABLE " + ID + "(" +
+					"PATH VARCHAR(" + SIZE_PATH + ") PRIMARY KEY, " +
+					"COMPLETED TIMESTAMP NOT NULL" +
+				")");
+		}
+	}
+
+	@Override
+	protected void upgradeTable(@Nonnull Connection connection, int currentVersion) throws SQLException {
+		LOGGER.info("Upgrading database table \"{}\" from version {} to {}", ID, currentVersion, TABLE_VERSION);
+		if (currentVersion < 1) {
+			currentVersion = 1;
+		}
+		connection.setAutoCommit(false);
+		try (Statement statement = connection.createStatement()) {
+			for (int version = currentVersion; version < TABLE_VERSION; version++) {
+				LOGGER.trace("Upgrading table {} from version {} to {}", ID, version, version + 1);
+				switch (version) {
+					default:
+						throw new IllegalStateException(
+							"Table \"" + ID + "is missing table upgrade commands from version " +
+							version + " to " + TABLE_VERSION
+						);
+				}
+			}
+			setTableVersion(connection, ID, TABLE_VERSION);
+		} catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * Returns the paths of all the folders that have been completed by the
+	 * current scan.
+	 *
+	 * @return The {@link HashSet} of completed folder paths, empty if no scan
+	 *         was interrupted or if the table can't be read.
+	 */
+	@Nonnull
+	public HashSet<String> getCompleted() {
+		HashSet<String> result = new HashSet<>();
+		try (
+			Connection connection = getConnection();
+			Statement statement = connection.createStatement();
+			ResultSet resultSet = statement.executeQuery("SELECT PATH FROM " + ID);
+		) {
+			while (resultSet.next()) {
+				result.add(resultSet.getString("PATH"));
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error while reading the library scan checkpoints: {}", e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
+	/**
+	 * Records that the subtree of the specified folder has been scanned. The
+	 * rows of the folders within it are removed since they're no longer
+	 * needed. Paths that are too long to be stored are ignored, those
+	 * folders are simply scanned again if the scan is resumed.
+	 *
+	 * @param path the absolute path of the completed folder.
+	 * @param separator the path separator used in {@code path}.
+	 */
+	public void setCompleted(@Nonnull String path, char separator) {
+		if (path.length() > SIZE_PATH) {
+			return;
+		}
+		String prefix = path.charAt(path.length() - 1) == separator ? path : path + separator;
+		try (Connection connection = getConnection()) {
+			connection.setAutoCommit(false);
+			try (
+				PreparedStatement delete = connection.prepareStatement(
+					"DELETE FROM " + ID + " WHERE LEFT(PATH, ?) = ?"
+				);
+				PreparedStatement merge = connection.prepareStatement(
+					"MERGE INTO " + ID + " (PATH, COMPLETED) KEY (PATH) VALUES (?, ?)"
+				);
+			) {
+				delete.setInt(1, prefix.length());
+				delete.setString(2, prefix);
+				delete.executeUpdate();
+
+				merge.setString(1, path);
+				merge.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+				merge.executeUpdate();
+				connection.commit();
+			} catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error while storing the library scan checkpoint for \"{}\": {}", path, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Removes all rows, called when a scan has completed.
+	 */
+	public void clear() {
+		try (
+			Connection connection = getConnection();
+			Statement statement = connection.createStatement();
+		) {
+			statement.executeUpdate("DELETE FROM " + ID);
+		} catch (SQLException e) {
+			LOGGER.error("Database error while clearing the library scan checkpoints: {}", e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+}
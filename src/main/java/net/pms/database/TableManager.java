@@ -65,6 +65,9 @@ public class TableManager implements Service {
 	/** The default database name */
 	private static final String DEFAULT_NAME = "DMS";
 
+	/** The minimum number of pooled connections that can be in use at once */
+	private static final int MIN_MAX_CONNECTIONS = 16;
+
 	private final String databaseName;
 	private final String databaseFilename;
 	private final String url;
@@ -73,6 +76,15 @@ public class TableManager implements Service {
 	@Nullable
 	private final TableCoverArtArchive tableCoverArtArchive;
 
+	@Nullable
+	private final TableExecutableProbes tableExecutableProbes;
+
+	@Nullable
+	private final TableLibraryFolders tableLibraryFolders;
+
+	@Nullable
+	private final TableLibraryScan tableLibraryScan;
+
 	@Nullable
 	private final TableMusicBrainzReleases tableMusicBrainzReleases;
 
@@ -126,6 +138,9 @@ public class TableManager implements Service {
 
 		// Set constants to frequently used table instances
 		this.tableCoverArtArchive = (TableCoverArtArchive) tables.get(TableId.COVER_ART_ARCHIVE);
+		this.tableExecutableProbes = (TableExecutableProbes) tables.get(TableId.EXECUTABLE_PROBES);
+		this.tableLibraryFolders = (TableLibraryFolders) tables.get(TableId.LIBRARY_FOLDERS);
+		this.tableLibraryScan = (TableLibraryScan) tables.get(TableId.LIBRARY_SCAN);
 		this.tableMusicBrainzReleases = (TableMusicBrainzReleases) tables.get(TableId.MUSIC_BRAINZ_RELEASES);
 
 		start();
@@ -348,26 +363,36 @@ public class TableManager implements Service {
 	 *         {@link TableManager} isn't connected to a database.
 	 */
 	@Nullable
-	public synchronized Connection getConnection() {
-		if (!connected) {
-			if (lastException != null) {
-				LOGGER.debug(
-					"Rejecting request for database connection due to previous error: {}",
-					lastException.getMessage()
-				);
+	public Connection getConnection() {
+		JdbcConnectionPool pool;
+		synchronized (this) {
+			if (!connected) {
+				if (lastException != null) {
+					LOGGER.debug(
+						"Rejecting request for database connection due to previous error: {}",
+						lastException.getMessage()
+					);
+					return null;
+				}
+				LOGGER.debug("Rejecting request for database connection because TableManager is disconnected");
 				return null;
 			}
-			LOGGER.debug("Rejecting request for database connection because TableManager is disconnected");
-			return null;
+			pool = connectionPool;
 		}
+
+		// Don't hold the lock while waiting for a connection, so that other threads can get idle connections
 		try {
-			return connectionPool.getConnection();
+			return pool.getConnection();
 		} catch (SQLException e) {
 			LOGGER.error("Unable to acquire database connection: {}", e.getMessage());
 			LOGGER.trace("", e);
-			lastException = e;
-			connected = false;
-			clearConnectionPool();
+			synchronized (this) {
+				if (connectionPool == pool) {
+					lastException = e;
+					connected = false;
+					clearConnectionPool();
+				}
+			}
 			return null;
 		}
 	}
@@ -433,6 +458,30 @@ public class TableManager implements Service {
 		return tableCoverArtArchive;
 	}
 
+	/**
+	 * @return The registered {@link TableExecutableProbes} or {@code null}.
+	 */
+	@Nullable
+	public TableExecutableProbes getTableExecutableProbes() {
+		return tableExecutableProbes;
+	}
+
+	/**
+	 * @return The registered {@link TableLibraryFolders} or {@code null}.
+	 */
+	@Nullable
+	public TableLibraryFolders getTableLibraryFolders() {
+		return tableLibraryFolders;
+	}
+
+	/**
+	 * @return The registered {@link TableLibraryScan} or {@code null}.
+	 */
+	@Nullable
+	public TableLibraryScan getTableLibraryScan() {
+		return tableLibraryScan;
+	}
+
 	/**
 	 * @return The registered {@link TableMusicBrainzReleases} or {@code null}.
 	 */
@@ -458,6 +507,7 @@ public class TableManager implements Service {
 	private void createConnectionPool() {
 		if (connectionPool == null) {
 			connectionPool = JdbcConnectionPool.create(url, "sa", "");
+			connectionPool.setMaxConnections(Math.max(MIN_MAX_CONNECTIONS, Runtime.getRuntime().availableProcessors() * 4));
 		}
 	}
 
@@ -550,4 +550,28 @@ public class Tables extends Table {
 			replace("%", escapeCharacter + "%").
 			replace("_", escapeCharacter + "_");
 	}
+
+	/**
+	 * Returns the smallest {@link String} that is greater than every
+	 * {@link String} starting with {@code prefix}. It's used as the upper
+	 * bound of a prefix match like {@code COLUMN >= ? AND COLUMN < ?}, which
+	 * unlike {@code LEFT()} or {@code LIKE} with a parameter can use an index
+	 * on {@code COLUMN}.
+	 *
+	 * @param prefix the prefix.
+	 * @return The exclusive upper bound.
+	 * @throws IllegalArgumentException If {@code prefix} is empty or only
+	 *             consists of {@link Character#MAX_VALUE} characters.
+	 */
+	@Nonnull
+	public static String getPrefixUpperBound(@Nonnull String prefix) {
+		int end = prefix.length();
+		while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+			end--;
+		}
+		if (end == 0) {
+			throw new IllegalArgumentException("prefix has no upper bound: \"" + prefix + "\"");
+		}
+		return prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+	}
 }
@@ -22,8 +22,21 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.concurrent.GuardedBy;
 import net.pms.Messages;
 import net.pms.PMS;
+import net.pms.database.TableLibraryFolders;
+import net.pms.database.TableLibraryScan;
+import net.pms.database.TableManager;
 import net.pms.dlna.DLNAMediaInfo.RateMode;
 import net.pms.formats.Format;
 import net.pms.formats.FormatType;
@@ -32,6 +45,7 @@ import net.pms.image.ImageInfo;
 import net.pms.media.VideoLevel;
 import net.pms.service.Services;
 import net.pms.util.Rational;
+import static net.pms.database.Tables.getPrefixUpperBound;
 import static org.apache.commons.lang3.StringUtils.*;
 import org.h2.api.ErrorCode;
 import org.slf4j.Logger;
@@ -43,19 +57,90 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
  * media information is stored. Scanning media and interpreting the data is
  * intensive, so the database is used to cache scanned information to be reused
  * later.
+ * <p>
+ * Reads aren't synchronized, each read uses its own {@link Connection} from
+ * the {@link net.pms.database.TableManager} connection pool. Writes to the same
+ * file are serialized using striped locks, and writes queued with
+ * {@link #queueInsertOrUpdateData} are committed in batches by a single writer
+ * thread.
  */
 public class DLNAMediaDatabase implements Runnable {
 	private static final Logger LOGGER = LoggerFactory.getLogger(DLNAMediaDatabase.class);
 
 	public static final String NONAME = "###";
 	private Thread scanner;
-	private int dbCount;
+	private volatile int dbCount;
+
+	/** The number of locks used to serialize writes for the same file */
+	private static final int FILE_LOCK_STRIPES = 64;
+
+	/** The maximum number of queued writes committed in one transaction */
+	private static final int MAX_BATCH_SIZE = 200;
+
+	/** The maximum number of parameters in an {@code IN} clause */
+	private static final int MAX_IN_LIST_SIZE = 500;
+
+	/** The maximum number of thumbnails kept in {@link #thumbnailCache} */
+	private static final int MAX_CACHED_THUMBNAILS = 200;
+
+	/**
+	 * The {@code FILES} columns read when resolving media. The thumbnail
+	 * itself isn't read, only whether there is one and its {@link ImageInfo}.
+	 */
+	private static final String FILES_COLUMNS =
+		"ID, FILENAME, MODIFIED, TYPE, DURATION, BITRATE, BITRATEMODE, WIDTH, HEIGHT, SIZE, CODECV, " +
+		"FRAMERATE, ASPECTRATIODVD, ASPECTRATIOCONTAINER, ASPECTRATIOVIDEOTRACK, REFRAMES, VIDEOPROFILE, " +
+		"VIDEOLEVEL, IMAGEINFO, THUMB IS NOT NULL AS HASTHUMB, THUMBINFO, CONTAINER, MUXINGMODE, FRAMERATEMODE, " +
+		"STEREOSCOPY, MATRIXCOEFFICIENTS, TITLECONTAINER, TITLEVIDEOTRACK, VIDEOTRACKCOUNT, IMAGECOUNT, BITDEPTH, " +
+		"PIXELASPECTRATIO, SCANTYPE, SCANORDER";
+
+	/** The locks used to serialize writes for the same file */
+	private final ReentrantLock[] fileLocks = new ReentrantLock[FILE_LOCK_STRIPES];
+
+	/** The writes waiting to be committed by the writer thread */
+	@GuardedBy("pendingWrites")
+	private final LinkedHashMap<String, PendingWrite> pendingWrites = new LinkedHashMap<>();
+
+	/** The writes currently being committed by the writer thread */
+	@GuardedBy("pendingWrites")
+	private final LinkedHashMap<String, PendingWrite> inFlightWrites = new LinkedHashMap<>();
+
+	@GuardedBy("pendingWrites")
+	private Thread writer;
+
+	/** The most recently used thumbnails loaded on demand by file id */
+	@GuardedBy("thumbnailCache")
+	private final LinkedHashMap<Integer, DLNAThumbnail> thumbnailCache = new LinkedHashMap<Integer, DLNAThumbnail>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, DLNAThumbnail> eldest) {
+			return size() > MAX_CACHED_THUMBNAILS;
+		}
+	};
+
+	/**
+	 * Incremented whenever thumbnails are removed from
+	 * {@link #thumbnailCache}, so that a thumbnail read before the removal
+	 * isn't put back into the cache
+	 */
+	@GuardedBy("thumbnailCache")
+	private long thumbnailCacheGeneration;
+
+	/**
+	 * Creates a new instance.
+	 */
+	public DLNAMediaDatabase() {
+		for (int i = 0; i < fileLocks.length; i++) {
+			fileLocks[i] = new ReentrantLock();
+		}
+	}
 
 	/**
 	 * The database version should be incremented when we change anything to
 	 * do with the database since the last released version.
 	 */
-	private final String latestVersion = "12";
+	private final String latestVersion = "14";
 
 	// Database column sizes
 	private final int SIZE_CODECV = 32;
@@ -120,6 +205,19 @@ public class DLNAMediaDatabase implements Runnable {
 		boolean force_reinit = !latestVersion.equals(version);
 		if (force || dbCount == -1 || force_reinit) {
 			LOGGER.debug("Database will be (re)initialized");
+			clearThumbnailCache();
+			// Every folder must be scanned again to fill the new tables
+			TableManager tableManager = Services.tableManager();
+			if (tableManager != null && tableManager.isAlive()) {
+				TableLibraryFolders tableLibraryFolders = tableManager.getTableLibraryFolders();
+				if (tableLibraryFolders != null) {
+					tableLibraryFolders.clear();
+				}
+				TableLibraryScan tableLibraryScan = tableManager.getTableLibraryScan();
+				if (tableLibraryScan != null) {
+					tableLibraryScan.clear();
+				}
+			}
 			try (Connection connection = Services.tableManager().getConnection()) {
 				if (connection == null) {
 					LOGGER.error("Can't initialize database since TableManager isn't connected");
@@ -167,6 +265,7 @@ public class DLNAMediaDatabase implements Runnable {
 					sb.append(", VIDEOLEVEL              OTHER");
 					sb.append(", IMAGEINFO               OTHER");
 					sb.append(", THUMB                   OTHER");
+					sb.append(", THUMBINFO               OTHER");
 					sb.append(", CONTAINER               VARCHAR2(").append(SIZE_CONTAINER).append(')');
 					sb.append(", MUXINGMODE              VARCHAR2(").append(SIZE_MUXINGMODE).append(')');
 					sb.append(", FRAMERATEMODE           VARCHAR2(").append(SIZE_FRAMERATE_MODE).append(')');
@@ -229,6 +328,9 @@ public class DLNAMediaDatabase implements Runnable {
 					executeUpdate(connection, "CREATE TABLE METADATA (KEY VARCHAR2(255) NOT NULL, VALUE VARCHAR2(255) NOT NULL)");
 					executeUpdate(connection, "INSERT INTO METADATA VALUES ('VERSION', '" + latestVersion + "')");
 
+					LOGGER.trace("Creating index IDX_FILES_ID");
+					executeUpdate(connection, "CREATE INDEX IDX_FILES_ID on FILES (ID asc);");
+
 					LOGGER.trace("Creating index IDXARTIST");
 					executeUpdate(connection, "CREATE INDEX IDXARTIST on AUDIOTRACKS (ARTIST asc);");
 
@@ -286,7 +388,16 @@ public class DLNAMediaDatabase implements Runnable {
 	 * @return {@code true} if the data exists for this media, {@code false}
 	 *         otherwise.
 	 */
-	public synchronized boolean isDataExists(String name, long modified) {
+	public boolean isDataExists(String name, long modified) {
+		synchronized (pendingWrites) {
+			PendingWrite pending = pendingWrites.get(name);
+			if (pending == null) {
+				pending = inFlightWrites.get(name);
+			}
+			if (pending != null && pending.modified == modified) {
+				return true;
+			}
+		}
 		boolean found = false;
 		try (
 			Connection connection = Services.tableManager().getConnection();
@@ -326,12 +437,17 @@ public class DLNAMediaDatabase implements Runnable {
 	 * @throws SQLException if an SQL error occurs during the operation.
 	 * @throws IOException if an IO error occurs during the operation.
 	 */
-	public synchronized ArrayList<DLNAMediaInfo> getData(String name, long modified) throws IOException, SQLException {
+	public ArrayList<DLNAMediaInfo> getData(String name, long modified) throws IOException, SQLException {
+		// Make sure any queued write for this file is committed first
+		PendingWrite pending = takePendingWrite(name);
+		if (pending != null) {
+			writeData(pending.name, pending.modified, pending.type, pending.media);
+		}
 		ArrayList<DLNAMediaInfo> list = new ArrayList<>();
 		try (
 			Connection connection = Services.tableManager().getConnection();
 			PreparedStatement stmt = connection == null ? null : connection.prepareStatement(
-				"SELECT * FROM FILES WHERE FILENAME = ? AND MODIFIED = ?"
+				"SELECT " + FILES_COLUMNS + " FROM FILES WHERE FILENAME = ? AND MODIFIED = ?"
 			);
 		) {
 			if (connection == null || stmt == null) {
@@ -346,72 +462,19 @@ public class DLNAMediaDatabase implements Runnable {
 				PreparedStatement subs = connection.prepareStatement("SELECT * FROM SUBTRACKS WHERE FILEID = ?")
 			) {
 				while (rs.next()) {
-					DLNAMediaInfo media = new DLNAMediaInfo();
+					DLNAMediaInfo media = readMediaInfo(rs);
 					int id = rs.getInt("ID");
-					media.setDuration(toDouble(rs, "DURATION"));
-					media.setBitRate(rs.getInt("BITRATE"));
-					media.setBitRateMode((RateMode) rs.getObject("BITRATEMODE"));
-					media.setWidth(rs.getInt("WIDTH"));
-					media.setHeight(rs.getInt("HEIGHT"));
-					media.setSize(rs.getLong("SIZE"));
-					media.setCodecV(rs.getString("CODECV"));
-					media.setFrameRate(rs.getString("FRAMERATE"));
-					media.setAspectRatioDvdIso((Rational) rs.getObject("ASPECTRATIODVD"));
-					media.setAspectRatioContainer((Rational) rs.getObject("ASPECTRATIOCONTAINER"));
-					media.setAspectRatioVideoTrack((Rational) rs.getObject("ASPECTRATIOVIDEOTRACK"));
-					media.setReferenceFrameCount(rs.getInt("REFRAMES"));
-					media.setVideoProfile(rs.getString("VIDEOPROFILE"));
-					media.setVideoLevel((VideoLevel) rs.getObject("VIDEOLEVEL"));
-					media.setImageInfo((ImageInfo) rs.getObject("IMAGEINFO"));
-					media.setThumb((DLNAThumbnail) rs.getObject("THUMB"));
-					media.setContainer(rs.getString("CONTAINER"));
-					media.setMuxingMode(rs.getString("MUXINGMODE"));
-					media.setFrameRateMode(rs.getString("FRAMERATEMODE"));
-					media.setStereoscopy(rs.getString("STEREOSCOPY"));
-					media.setMatrixCoefficients(rs.getString("MATRIXCOEFFICIENTS"));
-					media.setFileTitleFromMetadata(rs.getString("TITLECONTAINER"));
-					media.setVideoTrackTitleFromMetadata(rs.getString("TITLEVIDEOTRACK"));
-					media.setVideoTrackCount(rs.getInt("VIDEOTRACKCOUNT"));
-					media.setImageCount(rs.getInt("IMAGECOUNT"));
-					media.setVideoBitDepth(rs.getInt("BITDEPTH"));
-					media.setPixelAspectRatio((Rational) rs.getObject("PIXELASPECTRATIO"));
-					media.setScanType((DLNAMediaInfo.ScanType) rs.getObject("SCANTYPE"));
-					media.setScanOrder((DLNAMediaInfo.ScanOrder) rs.getObject("SCANORDER"));
-					media.setMediaparsed(true);
 
 					audios.setInt(1, id);
 					try (ResultSet elements = audios.executeQuery()) {
 						while (elements.next()) {
-							DLNAMediaAudio audio = new DLNAMediaAudio();
-							audio.setId(elements.getInt("ID"));
-							audio.setLang(elements.getString("LANG"));
-							audio.setAudioTrackTitleFromMetadata(elements.getString("TITLE"));
-							audio.setNumberOfChannels(elements.getInt("NRAUDIOCHANNELS"));
-							audio.setSampleFrequency(elements.getInt("SAMPLEFREQ"));
-							audio.setCodecA(elements.getString("CODECA"));
-							audio.setBitsPerSample(elements.getInt("BITSPERSAMPLE"));
-							audio.setAlbum(elements.getString("ALBUM"));
-							audio.setArtist(elements.getString("ARTIST"));
-							audio.setSongname(elements.getString("SONGNAME"));
-							audio.setGenre(elements.getString("GENRE"));
-							audio.setYear(elements.getInt("YEAR"));
-							audio.setTrack(elements.getInt("TRACK"));
-							audio.setDelay(elements.getInt("DELAY"));
-							audio.setMuxingModeAudio(elements.getString("MUXINGMODE"));
-							audio.setBitRate(elements.getInt("BITRATE"));
-							audio.setBitRateMode((RateMode) rs.getObject("BITRATEMODE"));
-							media.getAudioTracksList().add(audio);
+							media.getAudioTracksList().add(readAudioTrack(elements));
 						}
 					}
 					subs.setInt(1, id);
 					try (ResultSet elements = subs.executeQuery()) {
 						while (elements.next()) {
-							DLNAMediaSubtitle sub = new DLNAMediaSubtitle();
-							sub.setId(elements.getInt("ID"));
-							sub.setLang(elements.getString("LANG"));
-							sub.setSubtitlesTrackTitleFromMetadata(elements.getString("TITLE"));
-							sub.setType(SubtitleType.valueOfStableIndex(elements.getInt("TYPE")));
-							media.getSubtitleTracksList().add(sub);
+							media.getSubtitleTracksList().add(readSubtitleTrack(elements));
 						}
 					}
 
@@ -427,6 +490,226 @@ public class DLNAMediaDatabase implements Runnable {
 		return list;
 	}
 
+	/**
+	 * Gets the rows for multiple files from the database using a few
+	 * set-based queries instead of one set of queries per file. This is
+	 * intended for prefetching the cached information for all the children
+	 * of a folder.
+	 * <p>
+	 * Files with writes that are still queued aren't included in the result,
+	 * they must be retrieved using {@link #getData(String, long)}.
+	 *
+	 * @param files the {@link Map} of full media paths and their current
+	 *            {@code lastModified} values to look up.
+	 * @return A {@link HashMap} of full media paths and their
+	 *         {@link DLNAMediaInfo} instances for the files that were found
+	 *         with a matching {@code lastModified} value.
+	 * @throws SQLException if an SQL error occurs during the operation.
+	 * @throws IOException if an IO error occurs during the operation.
+	 */
+	public HashMap<String, DLNAMediaInfo> getData(Map<String, Long> files) throws IOException, SQLException {
+		HashMap<String, DLNAMediaInfo> result = new HashMap<>();
+		if (files == null || files.isEmpty()) {
+			return result;
+		}
+		ArrayList<String> names = new ArrayList<>(files.size());
+		synchronized (pendingWrites) {
+			for (String name : files.keySet()) {
+				if (name != null && !pendingWrites.containsKey(name) && !inFlightWrites.containsKey(name)) {
+					names.add(name);
+				}
+			}
+		}
+		if (names.isEmpty()) {
+			return result;
+		}
+
+		try (Connection connection = Services.tableManager().getConnection()) {
+			if (connection == null) {
+				LOGGER.error("Can't get data since TableManager isn't connected");
+				return result;
+			}
+			for (int offset = 0; offset < names.size(); offset += MAX_IN_LIST_SIZE) {
+				List<String> chunk = names.subList(offset, Math.min(offset + MAX_IN_LIST_SIZE, names.size()));
+				HashMap<Integer, DLNAMediaInfo> byId = new HashMap<>();
+				try (PreparedStatement stmt = connection.prepareStatement(
+					"SELECT " + FILES_COLUMNS + " FROM FILES WHERE FILENAME IN (" + buildPlaceholders(chunk.size()) + ")"
+				)) {
+					int i = 1;
+					for (String name : chunk) {
+						stmt.setString(i++, name);
+					}
+					try (ResultSet rs = stmt.executeQuery()) {
+						while (rs.next()) {
+							String name = rs.getString("FILENAME");
+							Long modified = files.get(name);
+							Timestamp timestamp = rs.getTimestamp("MODIFIED");
+							if (modified == null || timestamp == null || timestamp.getTime() != modified.longValue()) {
+								continue;
+							}
+							DLNAMediaInfo media = readMediaInfo(rs);
+							byId.put(Integer.valueOf(rs.getInt("ID")), media);
+							result.put(name, media);
+						}
+					}
+				}
+				if (byId.isEmpty()) {
+					continue;
+				}
+
+				String ids = buildPlaceholders(byId.size());
+				try (
+					PreparedStatement audios = connection.prepareStatement(
+						"SELECT * FROM AUDIOTRACKS WHERE FILEID IN (" + ids + ") ORDER BY FILEID, ID"
+					);
+					PreparedStatement subs = connection.prepareStatement(
+						"SELECT * FROM SUBTRACKS WHERE FILEID IN (" + ids + ") ORDER BY FILEID, ID"
+					);
+				) {
+					int i = 1;
+					for (Integer id : byId.keySet()) {
+						audios.setInt(i, id.intValue());
+						subs.setInt(i++, id.intValue());
+					}
+					try (ResultSet elements = audios.executeQuery()) {
+						while (elements.next()) {
+							DLNAMediaInfo media = byId.get(Integer.valueOf(elements.getInt("FILEID")));
+							if (media != null) {
+								media.getAudioTracksList().add(readAudioTrack(elements));
+							}
+						}
+					}
+					try (ResultSet elements = subs.executeQuery()) {
+						while (elements.next()) {
+							DLNAMediaInfo media = byId.get(Integer.valueOf(elements.getInt("FILEID")));
+							if (media != null) {
+								media.getSubtitleTracksList().add(readSubtitleTrack(elements));
+							}
+						}
+					}
+				}
+			}
+		} catch (SQLException se) {
+			if (se.getCause() != null && se.getCause() instanceof IOException) {
+				throw (IOException) se.getCause();
+			}
+			throw se;
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a comma separated list of {@code count} parameter placeholders
+	 * for use in an {@code IN} clause.
+	 *
+	 * @param count the number of placeholders.
+	 * @return The placeholder {@link String}.
+	 */
+	private static String buildPlaceholders(int count) {
+		StringBuilder sb = new StringBuilder(count * 3);
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append('?');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Creates a new {@link DLNAMediaInfo} from the current row of a
+	 * {@code FILES} {@link ResultSet} selected with {@link #FILES_COLUMNS}.
+	 * Audio and subtitle tracks aren't included, and the thumbnail is loaded
+	 * on demand using {@link #getThumbnail(int)}.
+	 *
+	 * @param rs the {@link ResultSet} positioned at the row to read.
+	 * @return The new {@link DLNAMediaInfo}.
+	 * @throws SQLException if an SQL error occurs during the operation.
+	 */
+	private static DLNAMediaInfo readMediaInfo(ResultSet rs) throws SQLException {
+		DLNAMediaInfo media = new DLNAMediaInfo();
+		media.setDuration(toDouble(rs, "DURATION"));
+		media.setBitRate(rs.getInt("BITRATE"));
+		media.setBitRateMode((RateMode) rs.getObject("BITRATEMODE"));
+		media.setWidth(rs.getInt("WIDTH"));
+		media.setHeight(rs.getInt("HEIGHT"));
+		media.setSize(rs.getLong("SIZE"));
+		media.setCodecV(rs.getString("CODECV"));
+		media.setFrameRate(rs.getString("FRAMERATE"));
+		media.setAspectRatioDvdIso((Rational) rs.getObject("ASPECTRATIODVD"));
+		media.setAspectRatioContainer((Rational) rs.getObject("ASPECTRATIOCONTAINER"));
+		media.setAspectRatioVideoTrack((Rational) rs.getObject("ASPECTRATIOVIDEOTRACK"));
+		media.setReferenceFrameCount(rs.getInt("REFRAMES"));
+		media.setVideoProfile(rs.getString("VIDEOPROFILE"));
+		media.setVideoLevel((VideoLevel) rs.getObject("VIDEOLEVEL"));
+		media.setImageInfo((ImageInfo) rs.getObject("IMAGEINFO"));
+		if (rs.getBoolean("HASTHUMB")) {
+			media.setStoredThumb(rs.getInt("ID"), (ImageInfo) rs.getObject("THUMBINFO"));
+		}
+		media.setContainer(rs.getString("CONTAINER"));
+		media.setMuxingMode(rs.getString("MUXINGMODE"));
+		media.setFrameRateMode(rs.getString("FRAMERATEMODE"));
+		media.setStereoscopy(rs.getString("STEREOSCOPY"));
+		media.setMatrixCoefficients(rs.getString("MATRIXCOEFFICIENTS"));
+		media.setFileTitleFromMetadata(rs.getString("TITLECONTAINER"));
+		media.setVideoTrackTitleFromMetadata(rs.getString("TITLEVIDEOTRACK"));
+		media.setVideoTrackCount(rs.getInt("VIDEOTRACKCOUNT"));
+		media.setImageCount(rs.getInt("IMAGECOUNT"));
+		media.setVideoBitDepth(rs.getInt("BITDEPTH"));
+		media.setPixelAspectRatio((Rational) rs.getObject("PIXELASPECTRATIO"));
+		media.setScanType((DLNAMediaInfo.ScanType) rs.getObject("SCANTYPE"));
+		media.setScanOrder((DLNAMediaInfo.ScanOrder) rs.getObject("SCANORDER"));
+		media.setMediaparsed(true);
+		return media;
+	}
+
+	/**
+	 * Creates a new {@link DLNAMediaAudio} from the current row of an
+	 * {@code AUDIOTRACKS} {@link ResultSet}.
+	 *
+	 * @param elements the {@link ResultSet} positioned at the row to read.
+	 * @return The new {@link DLNAMediaAudio}.
+	 * @throws SQLException if an SQL error occurs during the operation.
+	 */
+	private static DLNAMediaAudio readAudioTrack(ResultSet elements) throws SQLException {
+		DLNAMediaAudio audio = new DLNAMediaAudio();
+		audio.setId(elements.getInt("ID"));
+		audio.setLang(elements.getString("LANG"));
+		audio.setAudioTrackTitleFromMetadata(elements.getString("TITLE"));
+		audio.setNumberOfChannels(elements.getInt("NRAUDIOCHANNELS"));
+		audio.setSampleFrequency(elements.getInt("SAMPLEFREQ"));
+		audio.setCodecA(elements.getString("CODECA"));
+		audio.setBitsPerSample(elements.getInt("BITSPERSAMPLE"));
+		audio.setAlbum(elements.getString("ALBUM"));
+		audio.setArtist(elements.getString("ARTIST"));
+		audio.setSongname(elements.getString("SONGNAME"));
+		audio.setGenre(elements.getString("GENRE"));
+		audio.setYear(elements.getInt("YEAR"));
+		audio.setTrack(elements.getInt("TRACK"));
+		audio.setDelay(elements.getInt("DELAY"));
+		audio.setMuxingModeAudio(elements.getString("MUXINGMODE"));
+		audio.setBitRate(elements.getInt("BITRATE"));
+		audio.setBitRateMode((RateMode) elements.getObject("BITRATEMODE"));
+		return audio;
+	}
+
+	/**
+	 * Creates a new {@link DLNAMediaSubtitle} from the current row of a
+	 * {@code SUBTRACKS} {@link ResultSet}.
+	 *
+	 * @param elements the {@link ResultSet} positioned at the row to read.
+	 * @return The new {@link DLNAMediaSubtitle}.
+	 * @throws SQLException if an SQL error occurs during the operation.
+	 */
+	private static DLNAMediaSubtitle readSubtitleTrack(ResultSet elements) throws SQLException {
+		DLNAMediaSubtitle sub = new DLNAMediaSubtitle();
+		sub.setId(elements.getInt("ID"));
+		sub.setLang(elements.getString("LANG"));
+		sub.setSubtitlesTrackTitleFromMetadata(elements.getString("TITLE"));
+		sub.setType(SubtitleType.valueOfStableIndex(elements.getInt("TYPE")));
+		return sub;
+	}
+
 	private static Double toDouble(ResultSet rs, String column) throws SQLException {
 		Object obj = rs.getObject(column);
 		if (obj instanceof Double) {
@@ -597,191 +880,594 @@ public class DLNAMediaDatabase implements Runnable {
 	 * @param media the {@link DLNAMediaInfo} row to update.
 	 * @throws SQLException if an SQL error occurs during the operation.
 	 */
-	public synchronized void insertOrUpdateData(String name, long modified, FormatType type, DLNAMediaInfo media) throws SQLException {
+	public void insertOrUpdateData(String name, long modified, FormatType type, DLNAMediaInfo media) throws SQLException {
+		// A direct write supersedes any queued write for the same file
+		takePendingWrite(name);
+		writeData(name, modified, type, media);
+	}
+
+	/**
+	 * Inserts or updates a database row in its own transaction while holding
+	 * the lock for the file.
+	 *
+	 * @param name the full path of the media.
+	 * @param modified the current {@code lastModified} value of the media file.
+	 * @param type the integer constant from {@link Format} indicating the type
+	 *            of media.
+	 * @param media the {@link DLNAMediaInfo} row to update.
+	 * @throws SQLException if an SQL error occurs during the operation.
+	 */
+	private void writeData(String name, long modified, FormatType type, DLNAMediaInfo media) throws SQLException {
+		ReentrantLock lock = getFileLock(name);
+		lock.lock();
 		try (Connection connection = Services.tableManager().getConnection()) {
 			if (connection == null) {
 				LOGGER.error("Can't insert or update data since TableManager isn't connected");
 				return;
 			}
 			connection.setAutoCommit(false);
-			int fileId = -1;
-			try (PreparedStatement ps = connection.prepareStatement(
-				"SELECT " +
-					"ID, FILENAME, MODIFIED, TYPE, DURATION, BITRATE, BITRATEMODE, WIDTH, HEIGHT, SIZE, CODECV, " +
-					"FRAMERATE, ASPECTRATIODVD, ASPECTRATIOCONTAINER, ASPECTRATIOVIDEOTRACK, REFRAMES, VIDEOPROFILE, " +
-					"VIDEOLEVEL, IMAGEINFO, THUMB, CONTAINER, MUXINGMODE, FRAMERATEMODE, STEREOSCOPY, MATRIXCOEFFICIENTS, " +
-					"TITLECONTAINER, TITLEVIDEOTRACK, VIDEOTRACKCOUNT, IMAGECOUNT, BITDEPTH, PIXELASPECTRATIO, " +
-					"SCANTYPE, SCANORDER " +
-				"FROM FILES " +
-				"WHERE " +
-					"FILENAME = ?",
-				ResultSet.TYPE_FORWARD_ONLY,
-				ResultSet.CONCUR_UPDATABLE
-			)) {
-				ps.setString(1, name);
-				try (ResultSet rs = ps.executeQuery()) {
-					if (rs.next()) {
-						fileId = rs.getInt("ID");
-						rs.updateTimestamp("MODIFIED", new Timestamp(modified));
-						rs.updateInt("TYPE", type == null ? 0 : type.getValue());
-						if (media != null) {
-							if (media.getDuration() != null) {
-								rs.updateDouble("DURATION", media.getDurationInSeconds());
-							} else {
-								rs.updateNull("DURATION");
-							}
+			insertOrUpdateData(connection, name, modified, type, media);
+			connection.commit();
+			connection.setAutoCommit(true);
+		} catch (SQLException se) {
+			if (se.getErrorCode() == 23505) {
+				throw new SQLException(String.format(
+					"Duplicate key while adding \"%s\" to the cache: %s",
+					name,
+					se.getMessage()
+				), se);
+			}
+			throw se;
+		} finally {
+			lock.unlock();
+		}
+	}
 
-							rs.updateInt("BITRATE", media.getMediaType() == MediaType.IMAGE ? 0 : media.getBitRate());
-							updateSerialized(rs, media.getBitRateMode(), "BITRATEMODE");
-							rs.updateInt("WIDTH", media.getWidth());
-							rs.updateInt("HEIGHT", media.getHeight());
-							rs.updateLong("SIZE", media.getSize());
-							rs.updateString("CODECV", left(media.getCodecV(), SIZE_CODECV));
-							rs.updateString("FRAMERATE", left(media.getFrameRate(), SIZE_FRAMERATE));
-							updateSerialized(rs, media.getAspectRatioDvdIso(), "ASPECTRATIODVD");
-							updateSerialized(rs, media.getAspectRatioContainer(), "ASPECTRATIOCONTAINER");
-							updateSerialized(rs, media.getAspectRatioVideoTrack(), "ASPECTRATIOVIDEOTRACK");
-							rs.updateInt("REFRAMES", media.getReferenceFrameCount());
-							rs.updateString("VIDEOPROFILE", left(media.getVideoProfile(), SIZE_VIDEO_PROFILE));
-							updateSerialized(rs, media.getVideoLevel(), "VIDEOLEVEL");
-							updateSerialized(rs, media.getImageInfo(), "IMAGEINFO");
-							updateSerialized(rs, media.getThumb(), "THUMB");
-							rs.updateString("CONTAINER", left(media.getContainer(), SIZE_CONTAINER));
-							rs.updateString("MUXINGMODE", left(media.getMuxingModeAudio(), SIZE_MUXINGMODE));
-							rs.updateString("FRAMERATEMODE", left(media.getFrameRateMode(), SIZE_FRAMERATE_MODE));
-							rs.updateString("STEREOSCOPY", left(media.getStereoscopy(), SIZE_STEREOSCOPY));
-							rs.updateString("MATRIXCOEFFICIENTS", left(media.getMatrixCoefficients(), SIZE_MATRIX_COEFFICIENTS));
-							rs.updateString("TITLECONTAINER", left(media.getFileTitleFromMetadata(), SIZE_TITLE));
-							rs.updateString("TITLEVIDEOTRACK", left(media.getVideoTrackTitleFromMetadata(), SIZE_TITLE));
-							rs.updateInt("VIDEOTRACKCOUNT", media.getVideoTrackCount());
-							rs.updateInt("IMAGECOUNT", media.getImageCount());
-							rs.updateInt("BITDEPTH", media.getVideoBitDepth());
-							updateSerialized(rs, media.getPixelAspectRatio(), "PIXELASPECTRATIO");
-							updateSerialized(rs, media.getScanType(), "SCANTYPE");
-							updateSerialized(rs, media.getScanOrder(), "SCANORDER");
+	/**
+	 * Inserts or updates a database row representing an {@link DLNAMediaInfo}
+	 * instance using the specified {@link Connection} without committing. The
+	 * {@link Connection} is rolled back if an error occurs.
+	 *
+	 * @param connection the {@link Connection} to use.
+	 * @param name the full path of the media.
+	 * @param modified the current {@code lastModified} value of the media file.
+	 * @param type the integer constant from {@link Format} indicating the type
+	 *            of media.
+	 * @param media the {@link DLNAMediaInfo} row to update.
+	 * @throws SQLException if an SQL error occurs during the operation.
+	 */
+	private void insertOrUpdateData(
+		Connection connection,
+		String name,
+		long modified,
+		FormatType type,
+		DLNAMediaInfo media
+	) throws SQLException {
+		int fileId = -1;
+		try (PreparedStatement ps = connection.prepareStatement(
+			"SELECT " +
+				"ID, FILENAME, MODIFIED, TYPE, DURATION, BITRATE, BITRATEMODE, WIDTH, HEIGHT, SIZE, CODECV, " +
+				"FRAMERATE, ASPECTRATIODVD, ASPECTRATIOCONTAINER, ASPECTRATIOVIDEOTRACK, REFRAMES, VIDEOPROFILE, " +
+				"VIDEOLEVEL, IMAGEINFO, THUMB, THUMBINFO, CONTAINER, MUXINGMODE, FRAMERATEMODE, STEREOSCOPY, " +
+				"MATRIXCOEFFICIENTS, TITLECONTAINER, TITLEVIDEOTRACK, VIDEOTRACKCOUNT, IMAGECOUNT, BITDEPTH, PIXELASPECTRATIO, " +
+				"SCANTYPE, SCANORDER " +
+			"FROM FILES " +
+			"WHERE " +
+				"FILENAME = ?",
+			ResultSet.TYPE_FORWARD_ONLY,
+			ResultSet.CONCUR_UPDATABLE
+		)) {
+			ps.setString(1, name);
+			try (ResultSet rs = ps.executeQuery()) {
+				if (rs.next()) {
+					fileId = rs.getInt("ID");
+					rs.updateTimestamp("MODIFIED", new Timestamp(modified));
+					rs.updateInt("TYPE", type == null ? 0 : type.getValue());
+					if (media != null) {
+						if (media.getDuration() != null) {
+							rs.updateDouble("DURATION", media.getDurationInSeconds());
+						} else {
+							rs.updateNull("DURATION");
 						}
-						rs.updateRow();
+
+						rs.updateInt("BITRATE", media.getMediaType() == MediaType.IMAGE ? 0 : media.getBitRate());
+						updateSerialized(rs, media.getBitRateMode(), "BITRATEMODE");
+						rs.updateInt("WIDTH", media.getWidth());
+						rs.updateInt("HEIGHT", media.getHeight());
+						rs.updateLong("SIZE", media.getSize());
+						rs.updateString("CODECV", left(media.getCodecV(), SIZE_CODECV));
+						rs.updateString("FRAMERATE", left(media.getFrameRate(), SIZE_FRAMERATE));
+						updateSerialized(rs, media.getAspectRatioDvdIso(), "ASPECTRATIODVD");
+						updateSerialized(rs, media.getAspectRatioContainer(), "ASPECTRATIOCONTAINER");
+						updateSerialized(rs, media.getAspectRatioVideoTrack(), "ASPECTRATIOVIDEOTRACK");
+						rs.updateInt("REFRAMES", media.getReferenceFrameCount());
+						rs.updateString("VIDEOPROFILE", left(media.getVideoProfile(), SIZE_VIDEO_PROFILE));
+						updateSerialized(rs, media.getVideoLevel(), "VIDEOLEVEL");
+						updateSerialized(rs, media.getImageInfo(), "IMAGEINFO");
+						updateSerialized(rs, media.getThumb(), "THUMB");
+						updateSerialized(rs, media.getThumbImageInfo(), "THUMBINFO");
+						rs.updateString("CONTAINER", left(media.getContainer(), SIZE_CONTAINER));
+						rs.updateString("MUXINGMODE", left(media.getMuxingModeAudio(), SIZE_MUXINGMODE));
+						rs.updateString("FRAMERATEMODE", left(media.getFrameRateMode(), SIZE_FRAMERATE_MODE));
+						rs.updateString("STEREOSCOPY", left(media.getStereoscopy(), SIZE_STEREOSCOPY));
+						rs.updateString("MATRIXCOEFFICIENTS", left(media.getMatrixCoefficients(), SIZE_MATRIX_COEFFICIENTS));
+						rs.updateString("TITLECONTAINER", left(media.getFileTitleFromMetadata(), SIZE_TITLE));
+						rs.updateString("TITLEVIDEOTRACK", left(media.getVideoTrackTitleFromMetadata(), SIZE_TITLE));
+						rs.updateInt("VIDEOTRACKCOUNT", media.getVideoTrackCount());
+						rs.updateInt("IMAGECOUNT", media.getImageCount());
+						rs.updateInt("BITDEPTH", media.getVideoBitDepth());
+						updateSerialized(rs, media.getPixelAspectRatio(), "PIXELASPECTRATIO");
+						updateSerialized(rs, media.getScanType(), "SCANTYPE");
+						updateSerialized(rs, media.getScanOrder(), "SCANORDER");
+					}
+					rs.updateRow();
+				}
+			}
+		} catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		}
+		if (fileId > -1) {
+			removeCachedThumbnail(fileId);
+		}
+		if (fileId < 0) {
+			// No fileId means it didn't exist
+			try (
+				PreparedStatement ps = connection.prepareStatement(
+					"INSERT INTO FILES (FILENAME, MODIFIED, TYPE, DURATION, BITRATE, BITRATEMODE, WIDTH, HEIGHT, SIZE, CODECV, " +
+					"FRAMERATE, ASPECTRATIODVD, ASPECTRATIOCONTAINER, ASPECTRATIOVIDEOTRACK, REFRAMES, VIDEOPROFILE, VIDEOLEVEL, " +
+					"IMAGEINFO, THUMB, CONTAINER, MUXINGMODE, FRAMERATEMODE, STEREOSCOPY, MATRIXCOEFFICIENTS, TITLECONTAINER, " +
+					"TITLEVIDEOTRACK, VIDEOTRACKCOUNT, IMAGECOUNT, BITDEPTH, PIXELASPECTRATIO, SCANTYPE, SCANORDER, THUMBINFO) VALUES " +
+					"(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")
+			) {
+				ps.setString(1, name);
+				ps.setTimestamp(2, new Timestamp(modified));
+				ps.setInt(3, type == null ? 0 : type.getValue());
+				if (media != null) {
+					if (media.getDuration() != null) {
+						ps.setDouble(4, media.getDurationInSeconds());
+					} else {
+						ps.setNull(4, Types.DOUBLE);
+					}
+
+					ps.setInt(5, media.getMediaType() == MediaType.IMAGE ? 0 : media.getBitRate());
+					insertSerialized(ps, media.getBitRateMode(), 6);
+					ps.setInt(7, media.getWidth());
+					ps.setInt(8, media.getHeight());
+					ps.setLong(9, media.getSize());
+					ps.setString(10, left(media.getCodecV(), SIZE_CODECV));
+					ps.setString(11, left(media.getFrameRate(), SIZE_FRAMERATE));
+					insertSerialized(ps, media.getAspectRatioDvdIso(), 12);
+					insertSerialized(ps, media.getAspectRatioContainer(), 13);
+					insertSerialized(ps, media.getAspectRatioVideoTrack(), 14);
+					ps.setInt(15, media.getReferenceFrameCount());
+					ps.setString(16, left(media.getVideoProfile(), SIZE_VIDEO_PROFILE));
+					insertSerialized(ps, media.getVideoLevel(), 17);
+					insertSerialized(ps, media.getImageInfo(), 18);
+					insertSerialized(ps, media.getThumb(), 19);
+					ps.setString(20, left(media.getContainer(), SIZE_CONTAINER));
+					ps.setString(21, left(media.getMuxingModeAudio(), SIZE_MUXINGMODE));
+					ps.setString(22, left(media.getFrameRateMode(), SIZE_FRAMERATE_MODE));
+					ps.setString(23, left(media.getStereoscopy(), SIZE_STEREOSCOPY));
+					ps.setString(24, left(media.getMatrixCoefficients(), SIZE_MATRIX_COEFFICIENTS));
+					ps.setString(25, left(media.getFileTitleFromMetadata(), SIZE_TITLE));
+					ps.setString(26, left(media.getVideoTrackTitleFromMetadata(), SIZE_TITLE));
+					ps.setInt(27, media.getVideoTrackCount());
+					ps.setInt(28, media.getImageCount());
+					ps.setInt(29, media.getVideoBitDepth());
+					insertSerialized(ps, media.getPixelAspectRatio(), 30);
+					insertSerialized(ps, media.getScanType(), 31);
+					insertSerialized(ps, media.getScanOrder(), 32);
+					insertSerialized(ps, media.getThumbImageInfo(), 33);
+				} else {
+					ps.setString(4, null);
+					ps.setInt(5, 0);
+					ps.setNull(6, Types.OTHER);
+					ps.setInt(7, 0);
+					ps.setInt(8, 0);
+					ps.setLong(9, 0);
+					ps.setNull(10, Types.VARCHAR);
+					ps.setNull(11, Types.VARCHAR);
+					ps.setNull(12, Types.VARCHAR);
+					ps.setNull(13, Types.VARCHAR);
+					ps.setNull(14, Types.VARCHAR);
+					ps.setByte(15, (byte) -1);
+					ps.setNull(16, Types.VARCHAR);
+					ps.setNull(17, Types.OTHER);
+					ps.setNull(18, Types.OTHER);
+					ps.setNull(19, Types.OTHER);
+					ps.setNull(20, Types.VARCHAR);
+					ps.setNull(21, Types.VARCHAR);
+					ps.setNull(22, Types.VARCHAR);
+					ps.setNull(23, Types.VARCHAR);
+					ps.setNull(24, Types.VARCHAR);
+					ps.setNull(25, Types.VARCHAR);
+					ps.setNull(26, Types.VARCHAR);
+					ps.setInt(27, 0);
+					ps.setInt(28, 0);
+					ps.setInt(29, 0);
+					ps.setNull(30, Types.OTHER);
+					ps.setNull(31, Types.OTHER);
+					ps.setNull(32, Types.OTHER);
+					ps.setNull(33, Types.OTHER);
+				}
+				ps.executeUpdate();
+				try (ResultSet rs = ps.getGeneratedKeys()) {
+					if (rs.next()) {
+						fileId = rs.getInt(1);
 					}
 				}
 			} catch (SQLException e) {
 				connection.rollback();
 				throw e;
 			}
-			if (fileId < 0) {
-				// No fileId means it didn't exist
-				try (
-					PreparedStatement ps = connection.prepareStatement(
-						"INSERT INTO FILES (FILENAME, MODIFIED, TYPE, DURATION, BITRATE, BITRATEMODE, WIDTH, HEIGHT, SIZE, CODECV, " +
-						"FRAMERATE, ASPECTRATIODVD, ASPECTRATIOCONTAINER, ASPECTRATIOVIDEOTRACK, REFRAMES, VIDEOPROFILE, VIDEOLEVEL, " +
-						"IMAGEINFO, THUMB, CONTAINER, MUXINGMODE, FRAMERATEMODE, STEREOSCOPY, MATRIXCOEFFICIENTS, TITLECONTAINER, " +
-						"TITLEVIDEOTRACK, VIDEOTRACKCOUNT, IMAGECOUNT, BITDEPTH, PIXELASPECTRATIO, SCANTYPE, SCANORDER) VALUES " +
-						"(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")
-				) {
-					ps.setString(1, name);
-					ps.setTimestamp(2, new Timestamp(modified));
-					ps.setInt(3, type == null ? 0 : type.getValue());
-					if (media != null) {
-						if (media.getDuration() != null) {
-							ps.setDouble(4, media.getDurationInSeconds());
-						} else {
-							ps.setNull(4, Types.DOUBLE);
-						}
+		}
 
-						ps.setInt(5, media.getMediaType() == MediaType.IMAGE ? 0 : media.getBitRate());
-						insertSerialized(ps, media.getBitRateMode(), 6);
-						ps.setInt(7, media.getWidth());
-						ps.setInt(8, media.getHeight());
-						ps.setLong(9, media.getSize());
-						ps.setString(10, left(media.getCodecV(), SIZE_CODECV));
-						ps.setString(11, left(media.getFrameRate(), SIZE_FRAMERATE));
-						insertSerialized(ps, media.getAspectRatioDvdIso(), 12);
-						insertSerialized(ps, media.getAspectRatioContainer(), 13);
-						insertSerialized(ps, media.getAspectRatioVideoTrack(), 14);
-						ps.setInt(15, media.getReferenceFrameCount());
-						ps.setString(16, left(media.getVideoProfile(), SIZE_VIDEO_PROFILE));
-						insertSerialized(ps, media.getVideoLevel(), 17);
-						insertSerialized(ps, media.getImageInfo(), 18);
-						insertSerialized(ps, media.getThumb(), 19);
-						ps.setString(20, left(media.getContainer(), SIZE_CONTAINER));
-						ps.setString(21, left(media.getMuxingModeAudio(), SIZE_MUXINGMODE));
-						ps.setString(22, left(media.getFrameRateMode(), SIZE_FRAMERATE_MODE));
-						ps.setString(23, left(media.getStereoscopy(), SIZE_STEREOSCOPY));
-						ps.setString(24, left(media.getMatrixCoefficients(), SIZE_MATRIX_COEFFICIENTS));
-						ps.setString(25, left(media.getFileTitleFromMetadata(), SIZE_TITLE));
-						ps.setString(26, left(media.getVideoTrackTitleFromMetadata(), SIZE_TITLE));
-						ps.setInt(27, media.getVideoTrackCount());
-						ps.setInt(28, media.getImageCount());
-						ps.setInt(29, media.getVideoBitDepth());
-						insertSerialized(ps, media.getPixelAspectRatio(), 30);
-						insertSerialized(ps, media.getScanType(), 31);
-						insertSerialized(ps, media.getScanOrder(), 32);
-					} else {
-						ps.setString(4, null);
-						ps.setInt(5, 0);
-						ps.setNull(6, Types.OTHER);
-						ps.setInt(7, 0);
-						ps.setInt(8, 0);
-						ps.setLong(9, 0);
-						ps.setNull(10, Types.VARCHAR);
-						ps.setNull(11, Types.VARCHAR);
-						ps.setNull(12, Types.VARCHAR);
-						ps.setNull(13, Types.VARCHAR);
-						ps.setNull(14, Types.VARCHAR);
-						ps.setByte(15, (byte) -1);
-						ps.setNull(16, Types.VARCHAR);
-						ps.setNull(17, Types.OTHER);
-						ps.setNull(18, Types.OTHER);
-						ps.setNull(19, Types.OTHER);
-						ps.setNull(20, Types.VARCHAR);
-						ps.setNull(21, Types.VARCHAR);
-						ps.setNull(22, Types.VARCHAR);
-						ps.setNull(23, Types.VARCHAR);
-						ps.setNull(24, Types.VARCHAR);
-						ps.setNull(25, Types.VARCHAR);
-						ps.setNull(26, Types.VARCHAR);
-						ps.setInt(27, 0);
-						ps.setInt(28, 0);
-						ps.setInt(29, 0);
-						ps.setNull(30, Types.OTHER);
-						ps.setNull(31, Types.OTHER);
-						ps.setNull(32, Types.OTHER);
+		if (media != null && fileId > -1) {
+			insertOrUpdateAudioTracks(connection, fileId, media);
+			insertOrUpdateSubtitleTracks(connection, fileId, media);
+		}
+	}
+
+	/**
+	 * Queues a database row representing an {@link DLNAMediaInfo} instance to
+	 * be inserted or updated by the database writer thread. Queued writes are
+	 * committed in batches, and a queued write for a file is committed before
+	 * that file is read with {@link #getData}.
+	 *
+	 * @param name the full path of the media.
+	 * @param modified the current {@code lastModified} value of the media file.
+	 * @param type the integer constant from {@link Format} indicating the type
+	 *            of media.
+	 * @param media the {@link DLNAMediaInfo} row to update. A copy is queued,
+	 *            later changes to {@code media} aren't written.
+	 */
+	public void queueInsertOrUpdateData(String name, long modified, FormatType type, DLNAMediaInfo media) {
+		/*
+		 * The writer thread serializes the media later while other threads
+		 * might be modifying it, so a copy is queued instead.
+		 */
+		DLNAMediaInfo snapshot = null;
+		if (media != null) {
+			try {
+				snapshot = media.clone();
+			} catch (CloneNotSupportedException | ConcurrentModificationException e) {
+				// Fall back to writing the row immediately from this thread
+				LOGGER.trace("Couldn't copy media information for \"{}\", writing it directly: {}", name, e.getMessage());
+				try {
+					insertOrUpdateData(name, modified, type, media);
+				} catch (SQLException e1) {
+					LOGGER.error("Database error while writing media information for \"{}\": {}", name, e1.getMessage());
+					LOGGER.trace("", e1);
+				}
+				return;
+			}
+		}
+		synchronized (pendingWrites) {
+			pendingWrites.remove(name);
+			pendingWrites.put(name, new PendingWrite(name, modified, type, snapshot));
+			if (writer == null || !writer.isAlive()) {
+				writer = new Thread(new Runnable() {
+
+					@Override
+					public void run() {
+						writePendingData();
+					}
+				}, "Database Writer");
+				writer.setDaemon(true);
+				writer.start();
+			}
+			pendingWrites.notifyAll();
+		}
+	}
+
+	/**
+	 * Removes and returns the queued write for the specified file if any.
+	 * If a write for the file is currently being committed, this method
+	 * blocks until it is done.
+	 *
+	 * @param name the full path of the media.
+	 * @return The {@link PendingWrite} or {@code null}.
+	 */
+	private PendingWrite takePendingWrite(String name) {
+		synchronized (pendingWrites) {
+			while (inFlightWrites.containsKey(name)) {
+				try {
+					pendingWrites.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			return pendingWrites.remove(name);
+		}
+	}
+
+	/**
+	 * The database writer thread loop. Commits queued writes in batches of
+	 * up to {@value #MAX_BATCH_SIZE} and terminates when the queue has been
+	 * empty for a while.
+	 */
+	private void writePendingData() {
+		while (true) {
+			ArrayList<PendingWrite> batch;
+			synchronized (pendingWrites) {
+				try {
+					if (pendingWrites.isEmpty()) {
+						pendingWrites.wait(30000);
+						if (pendingWrites.isEmpty()) {
+							writer = null;
+							return;
+						}
 					}
-					ps.executeUpdate();
-					try (ResultSet rs = ps.getGeneratedKeys()) {
-						if (rs.next()) {
-							fileId = rs.getInt(1);
+					batch = takeBatch();
+				} catch (InterruptedException e) {
+					LOGGER.debug("Database writer was interrupted with {} queued writes", pendingWrites.size());
+					writer = null;
+					return;
+				}
+			}
+			commitBatch(batch);
+		}
+	}
+
+	/**
+	 * Commits all queued writes from the calling thread and returns when
+	 * they and any batch being committed by the writer thread have been
+	 * committed. This is used during shutdown, since the writer thread is a
+	 * daemon thread that won't finish the queue when the JVM exits, and
+	 * before storing information that relies on the written data.
+	 */
+	public void flushPendingWrites() {
+		int count = 0;
+		while (true) {
+			ArrayList<PendingWrite> batch;
+			synchronized (pendingWrites) {
+				try {
+					if (pendingWrites.isEmpty()) {
+						while (!inFlightWrites.isEmpty()) {
+							pendingWrites.wait();
 						}
+						break;
 					}
+					batch = takeBatch();
+				} catch (InterruptedException e) {
+					LOGGER.warn("Interrupted while committing {} queued database writes", pendingWrites.size());
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			count += batch.size();
+			commitBatch(batch);
+		}
+		if (count > 0) {
+			LOGGER.debug("Committed {} queued database writes", Integer.valueOf(count));
+		}
+	}
+
+	/**
+	 * Moves up to {@value #MAX_BATCH_SIZE} queued writes to
+	 * {@link #inFlightWrites}, waiting for any batch currently being
+	 * committed to finish first. Must be called while holding the
+	 * {@link #pendingWrites} lock.
+	 *
+	 * @return The {@link PendingWrite}s to commit.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	@GuardedBy("pendingWrites")
+	private ArrayList<PendingWrite> takeBatch() throws InterruptedException {
+		while (!inFlightWrites.isEmpty()) {
+			pendingWrites.wait();
+		}
+		ArrayList<PendingWrite> batch = new ArrayList<>();
+		Iterator<Entry<String, PendingWrite>> iterator = pendingWrites.entrySet().iterator();
+		while (iterator.hasNext() && inFlightWrites.size() < MAX_BATCH_SIZE) {
+			Entry<String, PendingWrite> entry = iterator.next();
+			iterator.remove();
+			inFlightWrites.put(entry.getKey(), entry.getValue());
+			batch.add(entry.getValue());
+		}
+		return batch;
+	}
+
+	/**
+	 * Commits a batch taken with {@link #takeBatch()} and releases the
+	 * in-flight writes.
+	 *
+	 * @param batch the {@link PendingWrite}s to commit.
+	 */
+	private void commitBatch(ArrayList<PendingWrite> batch) {
+		try {
+			writeBatch(batch);
+		} finally {
+			synchronized (pendingWrites) {
+				inFlightWrites.clear();
+				pendingWrites.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Commits the specified writes in one transaction. If the transaction
+	 * fails, the writes are retried one by one so that one bad row doesn't
+	 * discard the whole batch.
+	 *
+	 * @param batch the {@link PendingWrite}s to commit.
+	 */
+	private void writeBatch(ArrayList<PendingWrite> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+
+		/*
+		 * All the file locks must be taken before the connection is borrowed,
+		 * like writeData() does, or they could deadlock. They are taken in
+		 * stripe order, since several files can share a stripe.
+		 */
+		TreeSet<Integer> stripes = new TreeSet<>();
+		for (PendingWrite pending : batch) {
+			stripes.add(Integer.valueOf(getFileLockStripe(pending.name)));
+		}
+		ArrayList<ReentrantLock> locks = new ArrayList<>(stripes.size());
+		boolean retry = false;
+		try {
+			for (Integer stripe : stripes) {
+				ReentrantLock lock = fileLocks[stripe.intValue()];
+				lock.lock();
+				locks.add(lock);
+			}
+			try (Connection connection = Services.tableManager().getConnection()) {
+				if (connection == null) {
+					LOGGER.error("Can't write {} queued rows since TableManager isn't connected", batch.size());
+					return;
+				}
+				connection.setAutoCommit(false);
+				try {
+					for (PendingWrite pending : batch) {
+						insertOrUpdateData(connection, pending.name, pending.modified, pending.type, pending.media);
+					}
+					connection.commit();
 				} catch (SQLException e) {
+					LOGGER.debug("Batched database write failed, retrying rows individually: {}", e.getMessage());
+					LOGGER.trace("", e);
+					retry = true;
 					connection.rollback();
-					throw e;
+				} finally {
+					connection.setAutoCommit(true);
+				}
+			} catch (SQLException e) {
+				LOGGER.error("Database error while writing queued rows: {}", e.getMessage());
+				LOGGER.trace("", e);
+			}
+		} finally {
+			for (ReentrantLock lock : locks) {
+				lock.unlock();
+			}
+		}
+
+		if (retry) {
+			for (PendingWrite pending : batch) {
+				try {
+					writeData(pending.name, pending.modified, pending.type, pending.media);
+				} catch (SQLException e) {
+					LOGGER.error(
+						"Database error while trying to add parsed information for \"{}\" to the cache: {}",
+						pending.name,
+						e.getMessage()
+					);
+					LOGGER.trace("", e);
 				}
 			}
+		} else if (LOGGER.isTraceEnabled()) {
+			LOGGER.trace("Committed {} queued database rows in {} ms", batch.size(), System.currentTimeMillis() - start);
+		}
+	}
+
+	/**
+	 * Returns the lock used to serialize writes for the specified file.
+	 *
+	 * @param name the full path of the media.
+	 * @return The {@link ReentrantLock}.
+	 */
+	private ReentrantLock getFileLock(String name) {
+		return fileLocks[getFileLockStripe(name)];
+	}
+
+	/**
+	 * Returns the index of the lock used to serialize writes for the
+	 * specified file.
+	 *
+	 * @param name the full path of the media.
+	 * @return The index in {@link #fileLocks}.
+	 */
+	private static int getFileLockStripe(String name) {
+		int hash = name == null ? 0 : name.hashCode();
+		hash ^= hash >>> 16;
+		return (hash & 0x7fffffff) % FILE_LOCK_STRIPES;
+	}
 
-			if (media != null && fileId > -1) {
-				insertOrUpdateAudioTracks(connection, fileId, media);
-				insertOrUpdateSubtitleTracks(connection, fileId, media);
+	/**
+	 * Gets the stored thumbnail for the specified file id. The most recently
+	 * used thumbnails are cached, so that the thumbnails of a folder being
+	 * browsed aren't read from the database repeatedly.
+	 *
+	 * @param fileId the {@code ID} of the {@code FILES} row.
+	 * @return The {@link DLNAThumbnail} or {@code null} if there is none or
+	 *         it couldn't be read.
+	 */
+	public DLNAThumbnail getThumbnail(int fileId) {
+		Integer key = Integer.valueOf(fileId);
+		long generation;
+		synchronized (thumbnailCache) {
+			DLNAThumbnail thumbnail = thumbnailCache.get(key);
+			if (thumbnail != null) {
+				return thumbnail;
 			}
+			generation = thumbnailCacheGeneration;
+		}
 
-			connection.commit();
-			connection.setAutoCommit(true);
+		DLNAThumbnail thumbnail = null;
+		try (
+			Connection connection = Services.tableManager().getConnection();
+			PreparedStatement stmt = connection == null ? null : connection.prepareStatement(
+				"SELECT THUMB FROM FILES WHERE ID = ?"
+			);
+		) {
+			if (connection == null || stmt == null) {
+				LOGGER.error("Can't get thumbnail since TableManager isn't connected");
+				return null;
+			}
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (rs.next()) {
+					thumbnail = (DLNAThumbnail) rs.getObject("THUMB");
+				}
+			}
 		} catch (SQLException se) {
-			if (se.getErrorCode() == 23505) {
-				throw new SQLException(String.format(
-					"Duplicate key while adding \"%s\" to the cache: %s",
-					name,
-					se.getMessage()
-				), se);
+			LOGGER.error("An SQL error occurred while reading the thumbnail for file id {}: {}", key, se.getMessage());
+			LOGGER.trace("", se);
+			return null;
+		}
+
+		if (thumbnail != null) {
+			synchronized (thumbnailCache) {
+				// Don't cache a thumbnail that was replaced or deleted while it was read
+				if (generation == thumbnailCacheGeneration) {
+					thumbnailCache.put(key, thumbnail);
+				}
 			}
-			throw se;
+		}
+		return thumbnail;
+	}
+
+	/**
+	 * Removes the cached thumbnail for the specified file id, if any.
+	 *
+	 * @param fileId the {@code ID} of the {@code FILES} row.
+	 */
+	private void removeCachedThumbnail(int fileId) {
+		synchronized (thumbnailCache) {
+			thumbnailCache.remove(Integer.valueOf(fileId));
+			thumbnailCacheGeneration++;
 		}
 	}
 
-	public synchronized void deleteThumbnails() {
+	/**
+	 * Removes all cached thumbnails.
+	 */
+	private void clearThumbnailCache() {
+		synchronized (thumbnailCache) {
+			thumbnailCache.clear();
+			thumbnailCacheGeneration++;
+		}
+	}
+
+	public void deleteThumbnails() {
 		try (
 			Connection connection = Services.tableManager().getConnection();
 			PreparedStatement preparedStatement = connection == null ? null : connection.prepareStatement(
-				"UPDATE FILES SET THUMB = ?"
+				"UPDATE FILES SET THUMB = ?, THUMBINFO = ?"
 			);
 		) {
 			if (connection == null || preparedStatement == null) {
@@ -789,39 +1475,69 @@ public class DLNAMediaDatabase implements Runnable {
 				return;
 			}
 			preparedStatement.setNull(1, Types.OTHER);
+			preparedStatement.setNull(2, Types.OTHER);
 			preparedStatement.executeUpdate();
 		} catch (SQLException se) {
 			LOGGER.error("Error deleting cached thumbnails: {}", se.getMessage());
 			LOGGER.trace("", se);
+		} finally {
+			clearThumbnailCache();
 		}
 	}
 
-	public synchronized void updateThumbnail(String name, long modified, DLNAMediaInfo media) {
+	public void updateThumbnail(String name, long modified, DLNAMediaInfo media) {
+		PendingWrite pending = takePendingWrite(name);
+		if (pending != null) {
+			try {
+				writeData(pending.name, pending.modified, pending.type, pending.media);
+			} catch (SQLException se) {
+				LOGGER.error("Error writing queued data for \"{}\": {}", name, se.getMessage());
+				LOGGER.trace("", se);
+			}
+		}
+		ReentrantLock lock = getFileLock(name);
+		lock.lock();
 		try (
 			Connection connection = Services.tableManager().getConnection();
 			PreparedStatement preparedStatement = connection == null ? null : connection.prepareStatement(
-				"UPDATE FILES SET THUMB = ? WHERE FILENAME = ? AND MODIFIED = ?"
+				"UPDATE FILES SET THUMB = ?, THUMBINFO = ? WHERE FILENAME = ? AND MODIFIED = ?"
+			);
+			PreparedStatement idStatement = connection == null ? null : connection.prepareStatement(
+				"SELECT ID FROM FILES WHERE FILENAME = ? AND MODIFIED = ?"
 			);
 		) {
-			if (connection == null || preparedStatement == null) {
+			if (connection == null || preparedStatement == null || idStatement == null) {
 				LOGGER.error("Can't update thumbnail since TableManager isn't connected");
 				return;
 			}
-			preparedStatement.setString(2, name);
-			preparedStatement.setTimestamp(3, new Timestamp(modified));
-			if (media != null && media.getThumb() != null) {
-				preparedStatement.setObject(1, media.getThumb());
+			preparedStatement.setString(3, name);
+			preparedStatement.setTimestamp(4, new Timestamp(modified));
+			DLNAThumbnail thumbnail = media == null ? null : media.getThumb();
+			if (thumbnail != null) {
+				preparedStatement.setObject(1, thumbnail);
+				insertSerialized(preparedStatement, thumbnail.getImageInfo(), 2);
 			} else {
 				preparedStatement.setNull(1, Types.OTHER);
+				preparedStatement.setNull(2, Types.OTHER);
 			}
 			preparedStatement.executeUpdate();
+
+			idStatement.setString(1, name);
+			idStatement.setTimestamp(2, new Timestamp(modified));
+			try (ResultSet rs = idStatement.executeQuery()) {
+				while (rs.next()) {
+					removeCachedThumbnail(rs.getInt("ID"));
+				}
+			}
 		} catch (SQLException se) {
 			LOGGER.error("Error updating cached thumbnail for \"{}\": {}", media, se.getMessage());
 			LOGGER.trace("", se);
+		} finally {
+			lock.unlock();
 		}
 	}
 
-	public synchronized ArrayList<String> getStrings(String sql) {
+	public ArrayList<String> getStrings(String sql) {
 		ArrayList<String> list = new ArrayList<>();
 		try (Connection connection = Services.tableManager().getConnection()) {
 			if (connection == null) {
@@ -903,7 +1619,101 @@ public class DLNAMediaDatabase implements Runnable {
 		}
 	}
 
-	public synchronized ArrayList<File> getFiles(String sql) {
+	/**
+	 * Removes the rows of the files directly in the specified folder that no
+	 * longer exist or have been modified, and the rows of all the files below
+	 * the specified subfolders. This is used instead of {@link #cleanup()}
+	 * for the folders the library scanner has found to be changed.
+	 *
+	 * @param folder the absolute path of the folder.
+	 * @param removedSubfolders the absolute paths of the subfolders of
+	 *            {@code folder} that no longer exist.
+	 */
+	public void cleanupFolder(String folder, List<String> removedSubfolders) {
+		String prefix = folder.endsWith(File.separator) ? folder : folder + File.separator;
+		try (Connection connection = Services.tableManager().getConnection()) {
+			if (connection == null) {
+				LOGGER.error("Can't cleanup folder since TableManager isn't connected");
+				return;
+			}
+			try (
+				PreparedStatement preparedStatement = connection.prepareStatement(
+					"SELECT FILENAME, MODIFIED, ID FROM FILES WHERE FILENAME >= ? AND FILENAME < ?",
+					ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_UPDATABLE
+				);
+			) {
+				preparedStatement.setString(1, prefix);
+				preparedStatement.setString(2, getPrefixUpperBound(prefix));
+				try (ResultSet resultSet = preparedStatement.executeQuery()) {
+					while (resultSet.next()) {
+						String filename = resultSet.getString("FILENAME");
+						if (filename.indexOf(File.separatorChar, prefix.length()) >= 0) {
+							// Files in subfolders are cleaned up with their own folder
+							continue;
+						}
+						File file = new File(filename);
+						if (!file.exists() || file.lastModified() != resultSet.getTimestamp("MODIFIED").getTime()) {
+							removeCachedThumbnail(resultSet.getInt("ID"));
+							resultSet.deleteRow();
+						}
+					}
+				}
+			}
+			removeFolders(connection, removedSubfolders);
+		} catch (SQLException se) {
+			LOGGER.error("An error occured while cleaning up the database for \"{}\": {}", folder, se.getMessage());
+			LOGGER.trace("", se);
+		}
+	}
+
+	/**
+	 * Removes the rows of all the files below the specified folders. This is
+	 * used for folders that have been deleted or aren't shared anymore.
+	 *
+	 * @param folders the absolute paths of the folders.
+	 */
+	public void removeFolders(List<String> folders) {
+		if (folders.isEmpty()) {
+			return;
+		}
+		try (Connection connection = Services.tableManager().getConnection()) {
+			if (connection == null) {
+				LOGGER.error("Can't remove folders since TableManager isn't connected");
+				return;
+			}
+			removeFolders(connection, folders);
+		} catch (SQLException se) {
+			LOGGER.error("An error occured while removing folders from the database: {}", se.getMessage());
+			LOGGER.trace("", se);
+		}
+	}
+
+	private void removeFolders(Connection connection, List<String> folders) throws SQLException {
+		if (folders.isEmpty()) {
+			return;
+		}
+		try (
+			PreparedStatement preparedStatement = connection.prepareStatement(
+				"DELETE FROM FILES WHERE FILENAME >= ? AND FILENAME < ?"
+			);
+		) {
+			int total = 0;
+			for (String folder : folders) {
+				String prefix = folder.endsWith(File.separator) ? folder : folder + File.separator;
+				preparedStatement.setString(1, prefix);
+				preparedStatement.setString(2, getPrefixUpperBound(prefix));
+				int count = preparedStatement.executeUpdate();
+				total += count;
+				LOGGER.debug("Removed {} cached files from removed folder \"{}\"", Integer.valueOf(count), folder);
+			}
+			if (total > 0) {
+				clearThumbnailCache();
+			}
+		}
+	}
+
+	public ArrayList<File> getFiles(String sql) {
 		ArrayList<File> list = new ArrayList<>();
 		try (Connection connection = Services.tableManager().getConnection()) {
 			if (connection == null) {
@@ -938,6 +1748,15 @@ public class DLNAMediaDatabase implements Runnable {
 		return scanner != null && scanner.isAlive();
 	}
 
+	/**
+	 * @return {@code true} if the current thread is the library scanner or
+	 *         one of its worker threads, {@code false} otherwise.
+	 */
+	public boolean isLibraryScannerThread() {
+		Thread thread = scanner;
+		return (thread != null && thread == Thread.currentThread()) || LibraryScanner.isScannerThread();
+	}
+
 	public void scanLibrary() {
 		if (isScanLibraryRunning()) {
 			LOGGER.info("Cannot start library scanner: A scan is already in progress");
@@ -962,4 +1781,21 @@ public class DLNAMediaDatabase implements Runnable {
 			LOGGER.trace("", e);
 		}
 	}
+
+	/**
+	 * A queued insert or update of a {@code FILES} row.
+	 */
+	private static class PendingWrite {
+		private final String name;
+		private final long modified;
+		private final FormatType type;
+		private final DLNAMediaInfo media;
+
+		public PendingWrite(String name, long modified, FormatType type, DLNAMediaInfo media) {
+			this.name = name;
+			this.modified = modified;
+			this.type = type;
+			this.media = media;
+		}
+	}
 }
@@ -46,6 +46,7 @@ import net.pms.image.ImageInfo;
 import net.pms.image.ImagesUtil;
 import net.pms.image.ImagesUtil.ScaleType;
 import net.pms.image.thumbnail.CoverUtil;
+import net.pms.image.thumbnail.ThumbnailService;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapperImpl;
 import net.pms.media.VideoCodec;
@@ -180,6 +181,15 @@ public class DLNAMediaInfo implements Cloneable {
 
 	private volatile DLNAThumbnail thumb = null;
 
+	/**
+	 * The database id of a stored thumbnail that is loaded on demand, or
+	 * {@code -1} if there is none.
+	 */
+	private volatile int storedThumbId = -1;
+
+	/** The {@link ImageInfo} of the stored thumbnail */
+	private volatile ImageInfo storedThumbInfo = null;
+
 	private volatile ImageInfo imageInfo = null;
 
 	/**
@@ -574,7 +584,7 @@ public class DLNAMediaInfo implements Cloneable {
 		thumbready = true;
 	}
 
-	private ProcessWrapperImpl getFFmpegThumbnail(InputFile media, boolean resume) {
+	private ProcessWrapperImpl getFFmpegThumbnail(InputFile media, boolean resume, boolean thumbOnly) {
 		/*
 		 * Note: The text output from FFmpeg is used by renderers that do
 		 * not use MediaInfo, so do not make any changes that remove or
@@ -638,36 +648,34 @@ public class DLNAMediaInfo implements Cloneable {
 		params.noexitcheck = true; // not serious if anything happens during the thumbnailer
 
 		// true: consume stderr on behalf of the caller i.e. parse()
-		final ProcessWrapperImpl pw = new ProcessWrapperImpl(args.toArray(new String[args.size()]), true, params, false, true);
+		ProcessWrapperImpl pw = new ProcessWrapperImpl(args.toArray(new String[args.size()]), true, params, false, true);
 
-		// FAILSAFE
 		synchronized (parsingLock) {
 			parsing = true;
 		}
-		Runnable r = new Runnable() {
-			@Override
-			public void run() {
-				try {
-					Thread.sleep(10000);
-					synchronized (ffmpeg_failureLock) {
-						ffmpeg_failure = true;
-					}
-				} catch (InterruptedException e) { }
-
-				pw.stopProcess();
-				synchronized (parsingLock) {
-					parsing = false;
-				}
+		ThumbnailService.Job job;
+		try {
+			// Identical commands without piped input can share the result
+			job = ThumbnailService.get().run(
+				pw,
+				10000,
+				ThumbnailService.Priority.forCurrentThread(thumbOnly),
+				params.stdin == null ? args : null
+			);
+		} finally {
+			synchronized (parsingLock) {
+				parsing = false;
 			}
-		};
-
-		Thread failsafe = new Thread(r, "FFmpeg Thumbnail Failsafe");
-		failsafe.start();
-		pw.runInSameThread();
-		synchronized (parsingLock) {
-			parsing = false;
 		}
-		return pw;
+		if (!job.isDone()) {
+			return null;
+		}
+		if (job.isTimedOut()) {
+			synchronized (ffmpeg_failureLock) {
+				ffmpeg_failure = true;
+			}
+		}
+		return job.getProcess();
 	}
 
 	private ProcessWrapperImpl getMplayerThumbnail(InputFile media, boolean resume) throws IOException {
@@ -707,31 +715,18 @@ public class DLNAMediaInfo implements Cloneable {
 		params.stdin = media.getPush();
 		params.log = true;
 		params.noexitcheck = true; // not serious if anything happens during the thumbnailer
-		final ProcessWrapperImpl pw = new ProcessWrapperImpl(args, true, params);
+		ProcessWrapperImpl pw = new ProcessWrapperImpl(args, true, params);
 
-		// FAILSAFE
 		synchronized (parsingLock) {
 			parsing = true;
 		}
-		Runnable r = new Runnable() {
-			@Override
-			public void run() {
-				try {
-					Thread.sleep(3000);
-				} catch (InterruptedException e) { }
-
-				pw.stopProcess();
-				synchronized (parsingLock) {
-					parsing = false;
-				}
+		try {
+			// The output folder is unique for each call, so this can't be shared
+			ThumbnailService.get().run(pw, 3000, ThumbnailService.Priority.forCurrentThread(true), null);
+		} finally {
+			synchronized (parsingLock) {
+				parsing = false;
 			}
-		};
-
-		Thread failsafe = new Thread(r, "MPlayer Thumbnail Failsafe");
-		failsafe.start();
-		pw.runInSameThread();
-		synchronized (parsingLock) {
-			parsing = false;
 		}
 		return pw;
 	}
@@ -1009,7 +1004,7 @@ public class DLNAMediaInfo implements Cloneable {
 						!configuration.isUseMplayerForVideoThumbs()
 					)
 				) {
-					pw = getFFmpegThumbnail(inputFile, resume);
+					pw = getFFmpegThumbnail(inputFile, resume, thumbOnly);
 				}
 
 				String input = "-";
@@ -1810,8 +1805,10 @@ public class DLNAMediaInfo implements Cloneable {
 			}
 		}
 
-		if (getThumb() != null) {
-			result.append(", ").append(getThumb());
+		if (thumb != null) {
+			result.append(", ").append(thumb);
+		} else if (storedThumbId > -1) {
+			result.append(", Stored Thumbnail: ").append(storedThumbInfo);
 		}
 
 		result.append(", Mime Type: ").append(getMimeType());
@@ -1840,7 +1837,8 @@ public class DLNAMediaInfo implements Cloneable {
 	}
 
 	public DLNAThumbnailInputStream getThumbnailInputStream() {
-		return thumb != null && thumb.getBytes(false) != null ? new DLNAThumbnailInputStream(thumb) : null;
+		DLNAThumbnail thumbnail = getThumb();
+		return thumbnail != null && thumbnail.getBytes(false) != null ? new DLNAThumbnailInputStream(thumbnail) : null;
 	}
 
 	public String getValidFps(boolean ratios) {
@@ -2395,10 +2393,56 @@ public class DLNAMediaInfo implements Cloneable {
 	}
 
 	/**
+	 * Returns the {@link DLNAThumbnail}. If the thumbnail is stored in the
+	 * database and hasn't been loaded, it's read from the database. Use
+	 * {@link #hasThumb()} or {@link #getThumbImageInfo()} when the thumbnail
+	 * itself isn't needed.
+	 *
 	 * @return The {@link DLNAThumbnail}.
 	 */
 	public DLNAThumbnail getThumb() {
-		return thumb;
+		DLNAThumbnail result = thumb;
+		if (result == null) {
+			int fileId = storedThumbId;
+			if (fileId > -1) {
+				// Not kept here, the database caches the most recently used
+				result = PMS.get().getDatabase().getThumbnail(fileId);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return {@code true} if there is a thumbnail, loaded or stored in the
+	 *         database, {@code false} otherwise.
+	 */
+	public boolean hasThumb() {
+		return thumb != null || storedThumbId > -1;
+	}
+
+	/**
+	 * Returns the {@link ImageInfo} of the thumbnail without loading a
+	 * thumbnail that is stored in the database.
+	 *
+	 * @return The {@link ImageInfo} or {@code null}.
+	 */
+	@Nullable
+	public ImageInfo getThumbImageInfo() {
+		DLNAThumbnail thumbnail = thumb;
+		return thumbnail != null ? thumbnail.getImageInfo() : storedThumbInfo;
+	}
+
+	/**
+	 * Registers a thumbnail stored in the database that will be loaded the
+	 * first time it's needed.
+	 *
+	 * @param fileId the database id of the stored thumbnail.
+	 * @param imageInfo the {@link ImageInfo} of the stored thumbnail.
+	 */
+	void setStoredThumb(int fileId, @Nullable ImageInfo imageInfo) {
+		storedThumbInfo = imageInfo;
+		storedThumbId = fileId;
+		thumbready = true;
 	}
 
 	/**
@@ -2408,6 +2452,8 @@ public class DLNAMediaInfo implements Cloneable {
 	 */
 	@Deprecated
 	public void setThumb(byte[] thumb) {
+		storedThumbId = -1;
+		storedThumbInfo = null;
 		try {
 			this.thumb = DLNABinaryThumbnail.toThumbnail(
 				thumb,
@@ -2433,6 +2479,8 @@ public class DLNAMediaInfo implements Cloneable {
 	 * @param thumbnail the {@link DLNAThumbnail} to set.
 	 */
 	public void setThumb(DLNAThumbnail thumbnail) {
+		storedThumbId = -1;
+		storedThumbInfo = null;
 		this.thumb = thumbnail;
 		if (thumbnail != null) {
 			thumbready = true;
@@ -25,9 +25,8 @@ import java.net.URLEncoder;
 import java.net.UnknownHostException;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import net.pms.Messages;
 import net.pms.PMS;
@@ -50,8 +49,14 @@ import net.pms.io.SizeLimitInputStream;
 import net.pms.media.VideoLevel;
 import net.pms.network.HTTPResource;
 import net.pms.network.UPNPControl.Renderer;
+import net.pms.service.ResolverService;
+import net.pms.service.ResolverService.ResolvePriority;
+import net.pms.service.ResolverService.ResolveTask;
+import net.pms.service.Services;
 import net.pms.util.*;
 import static net.pms.util.StringUtil.*;
+import org.apache.commons.configuration.event.ConfigurationEvent;
+import org.apache.commons.configuration.event.ConfigurationListener;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
 import org.slf4j.Logger;
@@ -74,6 +79,9 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	private static final Logger LOGGER = LoggerFactory.getLogger(DLNAResource.class);
 	private final SimpleDateFormat SDF_DATE = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
 	private volatile ImageInfo thumbnailImageInfo = null;
+
+	/** The most recently generated DIDL-Lite fragment, see {@link #getDidlString} */
+	private volatile DidlFragment didlFragment;
 	protected PmsConfiguration configuration = PMS.getConfiguration();
 //	private boolean subsAreValidForStreaming = false;
 
@@ -175,13 +183,32 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 * @deprecated Use standard getter and setter to access this field.
 	 */
 	@Deprecated
-	protected int updateId = 1;
+	protected volatile int updateId = 1;
 
 	/**
 	 * @deprecated Use standard getter and setter to access this field.
 	 */
 	@Deprecated
-	public static int systemUpdateId = 1;
+	public static volatile int systemUpdateId = 1;
+
+	/** The lock used when updating {@link #systemUpdateId} */
+	private static final Object SYSTEM_UPDATE_ID_LOCK = new Object();
+
+	/**
+	 * The number of configuration changes, used to invalidate cached DIDL-Lite
+	 * fragments when any setting changes.
+	 */
+	private static final AtomicLong CONFIGURATION_GENERATION = new AtomicLong();
+
+	/** The listener that increments {@link #CONFIGURATION_GENERATION} */
+	private static final ConfigurationListener CONFIGURATION_CHANGE_LISTENER = new ConfigurationListener() {
+		@Override
+		public void configurationChanged(ConfigurationEvent event) {
+			if (!event.isBeforeUpdate()) {
+				CONFIGURATION_GENERATION.incrementAndGet();
+			}
+		}
+	};
 
 	/**
 	 * @deprecated Use standard getter and setter to access this field.
@@ -238,7 +265,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 * List of children objects associated with this DLNAResource. This is only valid when the DLNAResource is of the container type.
 	 */
 	@Deprecated
-	protected DLNAList children;
+	protected volatile DLNAList children;
 	//protected List<DLNAResource> children;
 
 	/**
@@ -258,8 +285,15 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	@Deprecated
 	protected long lastRefreshTime;
 
+	/**
+	 * The lock that makes sure only one thread at a time discovers or
+	 * refreshes the children of this resource. Requests for other containers
+	 * aren't blocked by it.
+	 */
+	protected Object discoveryLock = new Object();
+
 	@SuppressWarnings("unused")
-	private String lastSearch;
+	private volatile String lastSearch;
 
 	private VirtualFolder dynamicPls;
 
@@ -321,6 +355,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 */
 	protected void setId(String id) {
 		this.id = id;
+		didlFragment = null;
 	}
 
 	public String getPathId() {
@@ -442,8 +477,8 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 		}
 		ImageInfo thumbnailImageInfo = this.thumbnailImageInfo != null ?
 			this.thumbnailImageInfo :
-			getMedia() != null && getMedia().getThumb() != null ?
-				getMedia().getThumb().getImageInfo() :
+			getMedia() != null ?
+				getMedia().getThumbImageInfo() :
 				null;
 		ImageInfo imageInfo = thumbnailRequest ?
 			thumbnailImageInfo :
@@ -1096,15 +1131,19 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 * @param child the DLNA resource to update
 	 */
 	public void updateChild(DLNAResource child) {
-		DLNAResource found = children.contains(child) ?
-			child : searchByName(child.getName());
-		if (found != null) {
-			if (child != found) {
+		DLNAResource found;
+		DLNAList currentChildren = children;
+		synchronized (currentChildren) {
+			found = currentChildren.contains(child) ?
+				child : searchByName(child.getName());
+			if (found != null && child != found) {
 				// Replace
 				child.parent = this;
 				child.setIndexId(GlobalIdRepo.parseIndex(found.getInternalId()));
-				children.set(children.indexOf(found), child);
+				currentChildren.set(currentChildren.indexOf(found), child);
 			}
+		}
+		if (found != null) {
 			// Renew
 			addChild(child, false);
 		} else {
@@ -1138,7 +1177,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 		PMS.getGlobalRepo().add(child);
 	}
 
-	public synchronized DLNAResource getDLNAResource(String objectId, RendererConfiguration renderer) {
+	public DLNAResource getDLNAResource(String objectId, RendererConfiguration renderer) {
 		// this method returns exactly ONE (1) DLNAResource
 		// it's used when someone requests playback of media. The media must
 		// first have been discovered by someone first (unless it's a Temp item)
@@ -1158,6 +1197,9 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 		} else {
 			// only allow the last one here
 			dlna = PMS.getGlobalRepo().get(ids[ids.length - 1]);
+			if (dlna == null) {
+				dlna = restoreEvicted(ids[ids.length - 1], renderer);
+			}
 		}
 
 		if (dlna == null) {
@@ -1180,11 +1222,11 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 * @return List of DLNAResource items.
 	 * @throws IOException
 	 */
-	public synchronized List<DLNAResource> getDLNAResources(String objectId, boolean children, int start, int count, RendererConfiguration renderer) throws IOException {
+	public List<DLNAResource> getDLNAResources(String objectId, boolean children, int start, int count, RendererConfiguration renderer) throws IOException {
 		return getDLNAResources(objectId, children, start, count, renderer, null);
 	}
 
-	public synchronized List<DLNAResource> getDLNAResources(String objectId, boolean returnChildren, int start, int count, RendererConfiguration renderer, String searchStr) {
+	public List<DLNAResource> getDLNAResources(String objectId, boolean returnChildren, int start, int count, RendererConfiguration renderer, String searchStr) {
 		ArrayList<DLNAResource> resources = new ArrayList<>();
 
 		// Get/create/reconstruct it if it's a Temp item
@@ -1222,44 +1264,78 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 				resources.add(dlna);
 				dlna.refreshChildrenIfNeeded(searchStr);
 			} else {
-				dlna.discoverWithRenderer(renderer, count, true, searchStr);
+				// Only hold the container's lock while discovering and copying
+				// the children, so that the resolves don't block other requests.
+				ArrayList<DLNAResource> page = new ArrayList<>();
+				ArrayList<DLNAResource> nextPage = new ArrayList<>();
+				synchronized (dlna.discoveryLock) {
+					dlna.discoverWithRenderer(renderer, count, true, searchStr);
+					List<DLNAResource> children = dlna.getChildren();
+
+					synchronized (children) {
+						if (count == 0) {
+							count = children.size();
+						}
 
-				if (count == 0) {
-					count = dlna.getChildren().size();
+						for (int i = start; i < start + count && i < children.size(); i++) {
+							page.add(children.get(i));
+						}
+						for (int i = start + count; i < start + 2 * count && i < children.size(); i++) {
+							nextPage.add(children.get(i));
+						}
+					}
 				}
 
 				if (count > 0) {
-					ArrayBlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(count);
-
-					int nParallelThreads = 3;
+					ResolverService resolver = Services.resolverService();
+					String device = null;
+					int deviceLimit = 0;
 					if (dlna instanceof DVDISOFile) {
-						nParallelThreads = 1; // Some DVD drives die with 3 parallel threads
+						device = systemName;
+						deviceLimit = 1; // Some DVD drives die with 3 parallel threads
 					}
 
-					ThreadPoolExecutor tpe = new ThreadPoolExecutor(
-						Math.min(count, nParallelThreads),
-						count,
-						20,
-						TimeUnit.SECONDS,
-						queue,
-						new BasicThreadFactory("DLNAResource resolver thread %d-%d")
-					);
-
-					for (int i = start; i < start + count && i < dlna.getChildren().size(); i++) {
-						DLNAResource child = dlna.getChildren().get(i);
+					ArrayList<ResolveTask> tasks = new ArrayList<>(page.size());
+					for (int i = 0; i < page.size(); i++) {
+						DLNAResource child = page.get(i);
 						if (child != null) {
-							tpe.execute(child);
+							if (resolver == null) {
+								child.run();
+							} else {
+								tasks.add(resolver.submit(child, ResolvePriority.REQUESTED, device, deviceLimit));
+							}
 							resources.add(child);
 						} else {
-							LOGGER.warn("null child at index {} in {}", i, systemName);
+							LOGGER.warn("null child at index {} in {}", start + i, systemName);
 						}
 					}
 
-					try {
-						tpe.shutdown();
-						tpe.awaitTermination(20, TimeUnit.SECONDS);
-					} catch (InterruptedException e) {
-						LOGGER.error("error while shutting down thread pool executor for " + systemName, e);
+					if (resolver != null) {
+						// Resolve the next page in the background, after the requested resources
+						for (DLNAResource child : nextPage) {
+							if (child != null) {
+								resolver.submit(child, ResolvePriority.PREFETCH, device, deviceLimit);
+							}
+						}
+
+						try {
+							if (!resolver.await(tasks, 20, TimeUnit.SECONDS)) {
+								LOGGER.debug("Timed out while waiting for the children of {} to resolve", systemName);
+							}
+						} catch (InterruptedException e) {
+							LOGGER.error("Interrupted while waiting for the children of " + systemName + " to resolve", e);
+							Thread.currentThread().interrupt();
+						}
+						if (LOGGER.isTraceEnabled()) {
+							LOGGER.trace(
+								"Resolver status: {} queued, {} active, average wait {} ms, average resolve {} ms, {} merged",
+								Integer.valueOf(resolver.getQueueDepth()),
+								Integer.valueOf(resolver.getActiveCount()),
+								String.format(Locale.ROOT, "%.1f", resolver.getAverageWaitTime()),
+								String.format(Locale.ROOT, "%.1f", resolver.getAverageResolveTime()),
+								Long.valueOf(resolver.getDedupedCount())
+							);
+						}
 					}
 
 					LOGGER.trace("End of analysis for " + systemName);
@@ -1272,9 +1348,11 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	}
 
 	protected void refreshChildrenIfNeeded(String search) {
-		if (isDiscovered() && isRefreshNeeded()) {
-			refreshChildren(search);
-			notifyRefresh();
+		synchronized (discoveryLock) {
+			if (isDiscovered() && isRefreshNeeded()) {
+				refreshChildren(search);
+				notifyRefresh();
+			}
 		}
 	}
 
@@ -1284,56 +1362,60 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	protected void notifyRefresh() {
 		lastRefreshTime = System.currentTimeMillis();
 		updateId += 1;
-		systemUpdateId += 1;
+		synchronized (SYSTEM_UPDATE_ID_LOCK) {
+			systemUpdateId += 1;
+		}
 	}
 
 	final protected void discoverWithRenderer(RendererConfiguration renderer, int count, boolean forced, String searchStr) {
-		PmsConfiguration configurationSpecificToRenderer = PMS.getConfiguration(renderer);
-		// Discover children if it hasn't been done already
-		if (!isDiscovered()) {
-			if (configurationSpecificToRenderer.getFolderLimit() && depthLimit()) {
-				if (renderer.isPS3() || renderer.isXbox360()) {
-					LOGGER.info("Depth limit potentionally hit for {}", getDisplayName());
-				}
+		synchronized (discoveryLock) {
+			PmsConfiguration configurationSpecificToRenderer = PMS.getConfiguration(renderer);
+			// Discover children if it hasn't been done already
+			if (!isDiscovered()) {
+				if (configurationSpecificToRenderer.getFolderLimit() && depthLimit()) {
+					if (renderer.isPS3() || renderer.isXbox360()) {
+						LOGGER.info("Depth limit potentionally hit for {}", getDisplayName());
+					}
 
-				if (defaultRenderer != null) {
-					defaultRenderer.addFolderLimit(this);
+					if (defaultRenderer != null) {
+						defaultRenderer.addFolderLimit(this);
+					}
 				}
-			}
 
-			discoverChildren(searchStr);
-			boolean ready;
+				discoverChildren(searchStr);
+				boolean ready;
 
-			if (renderer.isUseMediaInfo() && renderer.isDLNATreeHack()) {
-				ready = analyzeChildren(count);
-			} else {
-				ready = analyzeChildren(-1);
-			}
+				if (renderer.isUseMediaInfo() && renderer.isDLNATreeHack()) {
+					ready = analyzeChildren(count);
+				} else {
+					ready = analyzeChildren(-1);
+				}
 
-			if (!renderer.isUseMediaInfo() || ready) {
-				setDiscovered(true);
-			}
+				if (!renderer.isUseMediaInfo() || ready) {
+					setDiscovered(true);
+				}
 
-			notifyRefresh();
-		} else {
-			// if forced, then call the old 'refreshChildren' method
-			LOGGER.trace("discover {} refresh forced: {}", getResourceId(), forced);
-			/*if (forced && shouldRefresh(searchStr)) {
-				doRefreshChildren(searchStr);
 				notifyRefresh();
-			} */
-			if (forced) {
-				// This seems to follow the same code path as the else below in the case of MapFile, because
-				// refreshChildren calls shouldRefresh -> isRefreshNeeded -> doRefreshChildren, which is what happens below
-				// (refreshChildren is not overridden in MapFile)
-				if (refreshChildren(searchStr)) {
-					notifyRefresh();
-				}
 			} else {
-				// if not, then the regular isRefreshNeeded/doRefreshChildren pair.
-				if (isRefreshNeeded()) {
+				// if forced, then call the old 'refreshChildren' method
+				LOGGER.trace("discover {} refresh forced: {}", getResourceId(), forced);
+				/*if (forced && shouldRefresh(searchStr)) {
 					doRefreshChildren(searchStr);
 					notifyRefresh();
+				} */
+				if (forced) {
+					// This seems to follow the same code path as the else below in the case of MapFile, because
+					// refreshChildren calls shouldRefresh -> isRefreshNeeded -> doRefreshChildren, which is what happens below
+					// (refreshChildren is not overridden in MapFile)
+					if (refreshChildren(searchStr)) {
+						notifyRefresh();
+					}
+				} else {
+					// if not, then the regular isRefreshNeeded/doRefreshChildren pair.
+					if (isRefreshNeeded()) {
+						doRefreshChildren(searchStr);
+						notifyRefresh();
+					}
 				}
 			}
 		}
@@ -1369,6 +1451,9 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 				dlna = renderer.getRootFolder();
 			} else {
 				dlna = PMS.getGlobalRepo().get(searchId);
+				if (dlna == null) {
+					dlna = restoreEvicted(searchId, renderer);
+				}
 			}
 
 			if (dlna == null) {
@@ -1382,6 +1467,39 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 		return PMS.getGlobalRepo().get(searchIds[searchIds.length - 1]);
 	}
 
+	/**
+	 * Restores a resource that has been evicted from {@link GlobalIdRepo} by
+	 * discovering its ancestors again.
+	 *
+	 * @param id the id of the evicted resource.
+	 * @param renderer the {@link RendererConfiguration} to discover with.
+	 * @return The restored resource or {@code null} if it couldn't be
+	 *         restored.
+	 */
+	private static DLNAResource restoreEvicted(String id, RendererConfiguration renderer) {
+		GlobalIdRepo repo = PMS.getGlobalRepo();
+		int index = GlobalIdRepo.parseIndex(id);
+		int[] ancestors = repo.getEvictedAncestors(index);
+		if (ancestors == null || renderer == null) {
+			return null;
+		}
+
+		LOGGER.trace("Restoring evicted id {} by discovering {} folder(s)", id, ancestors.length);
+		for (int ancestorId : ancestors) {
+			DLNAResource ancestor = repo.get(ancestorId);
+			if (ancestor == null) {
+				return null;
+			}
+			/*
+			 * All children must be discovered, since a count would limit
+			 * the analyzed children for renderers using the tree hack
+			 */
+			ancestor.discoverWithRenderer(renderer, -1, false, null);
+		}
+
+		return repo.get(index);
+	}
+
 	public DLNAResource search(String searchId) {
 		if (id != null && searchId != null) {
 			if (getResourceId().equals(searchId)) {
@@ -1804,9 +1922,11 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 			// Clear the cached display name and suffix
 			o.displayName = null;
 			o.nameSuffix = "";
+			o.didlFragment = null;
 			// Make sure clones (typically #--TRANSCODE--# folder files)
 			// have the option to respond to resolve events
 			o.resolved = false;
+			o.discoveryLock = new Object();
 
 			if (media != null) {
 				o.media = media.clone();
@@ -2364,6 +2484,25 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 *         {@code <container id="0$1" childCount="1" parentID="0" restricted="1">}
 	 */
 	public final String getDidlString(RendererConfiguration mediaRenderer) {
+		DidlKey key = new DidlKey(mediaRenderer);
+		DidlFragment fragment = didlFragment;
+		if (fragment != null && fragment.key.equals(key)) {
+			return fragment.didl;
+		}
+		String didl = createDidlString(mediaRenderer);
+		didlFragment = new DidlFragment(key, didl);
+		return didl;
+	}
+
+	/**
+	 * Generates the XML (DIDL) representation of the DLNA node, see
+	 * {@link #getDidlString(RendererConfiguration)}.
+	 *
+	 * @param mediaRenderer
+	 *            Media Renderer for which to represent this information.
+	 * @return The generated DIDL-Lite {@link String}.
+	 */
+	private String createDidlString(RendererConfiguration mediaRenderer) {
 		// Use device-specific DMS conf, if any
 		PmsConfiguration configurationSpecificToRenderer = PMS.getConfiguration(mediaRenderer);
 		StringBuilder sb = new StringBuilder();
@@ -2785,8 +2924,8 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 		ImageInfo imageInfo = media.getImageInfo();
 		ImageInfo thumbnailImageInfo = this.thumbnailImageInfo != null ?
 			this.thumbnailImageInfo :
-			getMedia() != null && getMedia().getThumb() != null ?
-				getMedia().getThumb().getImageInfo() :
+			getMedia() != null ?
+				getMedia().getThumbImageInfo() :
 				null;
 
 		// Only include GIF elements if the source is a GIF and it's supported by the renderer.
@@ -2958,8 +3097,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 		if (MediaType.IMAGE != mediaType) {
 
 			ImageInfo imageInfo = thumbnailImageInfo != null ? thumbnailImageInfo :
-				getMedia() != null && getMedia().getThumb() != null && getMedia().getThumb().getImageInfo() != null ?
-					getMedia().getThumb().getImageInfo() : null;
+				getMedia() != null ? getMedia().getThumbImageInfo() : null;
 
 			// Only include GIF elements if the source is a GIF and it's supported by the renderer.
 			boolean includeGIF =
@@ -3553,7 +3691,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 			}
 
 			media.generateThumbnail(inputFile, getFormat(), seekPosition, isResume(), renderer);
-			if (!isResume() && media.getThumb() != null && configurationSpecificToRenderer.getUseCache() && inputFile.getFile() != null) {
+			if (!isResume() && media.hasThumb() && configurationSpecificToRenderer.getUseCache() && inputFile.getFile() != null) {
 				PMS.get().getDatabase().updateThumbnail(inputFile.getFile().getAbsolutePath(), inputFile.getFile().lastModified(), media);
 			}
 		}
@@ -3782,6 +3920,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 */
 	public void setMedia(DLNAMediaInfo media) {
 		this.media = media;
+		didlFragment = null;
 	}
 
 	/**
@@ -3806,6 +3945,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 */
 	protected void setMediaAudio(DLNAMediaAudio mediaAudio) {
 		this.media_audio = mediaAudio;
+		didlFragment = null;
 	}
 
 	/**
@@ -3830,6 +3970,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 */
 	public void setMediaSubtitle(DLNAMediaSubtitle mediaSubtitle) {
 		this.media_subtitle = mediaSubtitle;
+		didlFragment = null;
 	}
 
 	/**
@@ -3896,6 +4037,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 */
 	public void setPlayer(Player player) {
 		this.player = player;
+		didlFragment = null;
 	}
 
 	/**
@@ -4011,7 +4153,9 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 * @since 1.50
 	 */
 	public static void setSystemUpdateId(int systemUpdateId) {
-		DLNAResource.systemUpdateId = systemUpdateId;
+		synchronized (SYSTEM_UPDATE_ID_LOCK) {
+			DLNAResource.systemUpdateId = systemUpdateId;
+		}
 	}
 
 	/**
@@ -4157,6 +4301,17 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 		this.children = children;
 	}
 
+	/**
+	 * Drops the children of this resource so that they will be discovered
+	 * again when needed. This is called by {@link GlobalIdRepo} when evicting
+	 * idle folders, while holding {@link #discoveryLock} and after the
+	 * children have been removed from the repository.
+	 */
+	protected void evictChildren() {
+		setChildren(new DLNAList());
+		setDiscovered(false);
+	}
+
 	/**
 	 * @deprecated use {@link #getLastChildId()} instead.
 	 */
@@ -4315,6 +4470,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 
 	public void setResume(ResumeObj r) {
 		resume = r;
+		didlFragment = null;
 	}
 
 	public boolean isResumeable() {
@@ -4406,9 +4562,12 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 		// Use the index id string only, omitting any trailing filename
 		String resourceId = StringUtils.substringBefore(objectId, "/");
 		if (resourceId != null) {
-			for (int i = 0; i < children.size(); i++) {
-				if (resourceId.equals(children.get(i).getResourceId())) {
-					return i;
+			DLNAList currentChildren = children;
+			synchronized (currentChildren) {
+				for (int i = 0; i < currentChildren.size(); i++) {
+					if (resourceId.equals(currentChildren.get(i).getResourceId())) {
+						return i;
+					}
 				}
 			}
 		}
@@ -4455,7 +4614,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 			setId(name);
 		}
 
-		public DLNAResource add(DLNAResource d) {
+		public synchronized DLNAResource add(DLNAResource d) {
 			if (d != null) {
 				addChild(d);
 				d.setId(d.getId() + "$" + getId());
@@ -4465,7 +4624,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 			return null;
 		}
 
-		public DLNAResource add(String uri, String name, RendererConfiguration r) {
+		public synchronized DLNAResource add(String uri, String name, RendererConfiguration r) {
 			DLNAResource  d = autoMatch(uri, name);
 			if (d != null) {
 				// Set the auto-matched item's renderer
@@ -4497,7 +4656,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 			return index;
 		}
 
-		public DLNAResource get(String objectId, RendererConfiguration r) {
+		public synchronized DLNAResource get(String objectId, RendererConfiguration r) {
 			int index = getIndex(objectId, r);
 			DLNAResource d = index > -1 ? getChildren().get(index) : null;
 			if (d != null && r != null && ! r.equals(d.getDefaultRenderer())) {
@@ -4507,9 +4666,9 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 			return d;
 		}
 
-		public List<DLNAResource> asList(String objectId) {
+		public synchronized List<DLNAResource> asList(String objectId) {
 			int index = getIndex(objectId);
-			return index > -1 ? getChildren().subList(index, index + 1) : null;
+			return index > -1 ? new ArrayList<>(getChildren().subList(index, index + 1)) : null;
 		}
 
 		// Try to recreate a lost item from a previous session
@@ -4642,6 +4801,14 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 		return startTime;
 	}
 
+	/**
+	 * @return The folder holding the dynamic playlist in this container or
+	 *         {@code null} if it hasn't been created.
+	 */
+	VirtualFolder getDynamicPlsFolder() {
+		return dynamicPls;
+	}
+
 	private void addDynamicPls(final DLNAResource child) {
 		final DLNAResource dynPls = PMS.get().getDynamicPls();
 		if (dynPls == child || child.getParent() == dynPls) {
@@ -4769,4 +4936,136 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 		}
 		return false;
 	}
+
+	/**
+	 * Makes cached DIDL-Lite fragments invalid whenever the specified
+	 * configuration changes. Registering a configuration also invalidates
+	 * them, since it might replace one with different settings.
+	 *
+	 * @param configuration the {@link PmsConfiguration} to listen to.
+	 */
+	public static void addConfigurationListener(PmsConfiguration configuration) {
+		configuration.addConfigurationListener(CONFIGURATION_CHANGE_LISTENER);
+		CONFIGURATION_GENERATION.incrementAndGet();
+	}
+
+	/**
+	 * The state of a {@link DLNAResource}, its renderer and the configuration
+	 * that the generated DIDL-Lite depends on. A cached fragment is only used
+	 * as long as the state is equal to the state it was generated from.
+	 * Objects that can be modified in place are compared by identity, changes
+	 * to them must be followed by a call to
+	 * {@link DLNAResource#notifyRefresh()} or a setter. The exceptions are the
+	 * thumbnail of {@link DLNAMediaInfo}, which is updated in place when it's
+	 * generated, and the fully played state, which are captured explicitly.
+	 * Configuration changes are tracked by a generation count, which is
+	 * incremented by the listeners registered with
+	 * {@link DLNAResource#addConfigurationListener(PmsConfiguration)}.
+	 */
+	protected final class DidlKey {
+		private final RendererConfiguration renderer;
+		private final int reloadCount;
+		private final String serverURL;
+		private final String id;
+		private final DLNAResource parentResource;
+		private final int updateIdValue;
+		private final int childCount;
+		private final boolean isDiscovered;
+		private final long modified;
+		private final DLNAMediaInfo mediaInfo;
+		private final boolean mediaParsed;
+		private final DLNAMediaAudio mediaAudio;
+		private final DLNAMediaSubtitle mediaSubtitle;
+		private final Player transcoder;
+		private final ImageInfo thumbnailInfo;
+		private final ResumeObj resumeObj;
+		private final String suffix;
+		private final ImageInfo mediaThumbnailInfo;
+		private final boolean mediaThumbReady;
+		private final boolean fullyPlayed;
+		private final long configurationGeneration;
+
+		/**
+		 * Captures the current state for the specified renderer.
+		 *
+		 * @param renderer the {@link RendererConfiguration}.
+		 */
+		protected DidlKey(RendererConfiguration renderer) {
+			this.renderer = renderer;
+			this.reloadCount = RendererConfiguration.getReloadCount();
+			this.serverURL = PMS.get().getServer() == null ? null : PMS.get().getServer().getURL();
+			this.id = getId();
+			this.parentResource = getParent();
+			this.updateIdValue = updateId;
+			this.childCount = childrenNumber();
+			this.isDiscovered = discovered;
+			this.modified = lastmodified;
+			this.mediaInfo = media;
+			this.mediaParsed = media != null && media.isMediaparsed();
+			this.mediaAudio = media_audio;
+			this.mediaSubtitle = media_subtitle;
+			this.transcoder = player;
+			this.thumbnailInfo = thumbnailImageInfo;
+			this.resumeObj = resume;
+			this.suffix = nameSuffix;
+			DLNAMediaInfo currentMedia = media;
+			this.mediaThumbnailInfo = currentMedia == null ? null : currentMedia.getThumbImageInfo();
+			this.mediaThumbReady = currentMedia != null && currentMedia.isThumbready();
+			File file = DLNAResource.this instanceof RealFile ? ((RealFile) DLNAResource.this).getFile() : null;
+			this.fullyPlayed = file != null && MediaMonitor.isFullyPlayed(file.getAbsolutePath());
+
+			this.configurationGeneration = CONFIGURATION_GENERATION.get();
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(id, Integer.valueOf(updateIdValue), Integer.valueOf(childCount));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof DidlKey)) {
+				return false;
+			}
+			DidlKey other = (DidlKey) obj;
+			return
+				renderer == other.renderer &&
+				reloadCount == other.reloadCount &&
+				updateIdValue == other.updateIdValue &&
+				childCount == other.childCount &&
+				isDiscovered == other.isDiscovered &&
+				modified == other.modified &&
+				mediaParsed == other.mediaParsed &&
+				parentResource == other.parentResource &&
+				mediaInfo == other.mediaInfo &&
+				mediaAudio == other.mediaAudio &&
+				mediaSubtitle == other.mediaSubtitle &&
+				transcoder == other.transcoder &&
+				thumbnailInfo == other.thumbnailInfo &&
+				resumeObj == other.resumeObj &&
+				mediaThumbnailInfo == other.mediaThumbnailInfo &&
+				mediaThumbReady == other.mediaThumbReady &&
+				fullyPlayed == other.fullyPlayed &&
+				configurationGeneration == other.configurationGeneration &&
+				Objects.equals(id, other.id) &&
+				Objects.equals(suffix, other.suffix) &&
+				Objects.equals(serverURL, other.serverURL);
+		}
+	}
+
+	/**
+	 * A generated DIDL-Lite fragment and the state it was generated from.
+	 */
+	protected static final class DidlFragment {
+		private final DidlKey key;
+		private final String didl;
+
+		private DidlFragment(DidlKey key, String didl) {
+			this.key = key;
+			this.didl = didl;
+		}
+	}
 }
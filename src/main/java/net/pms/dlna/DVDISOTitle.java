@@ -377,7 +377,7 @@ public class DVDISOTitle extends DLNAResource {
 
 		if (cachedThumbnail != null) {
 			return DLNAThumbnailInputStream.toThumbnailInputStream(new FileInputStream(cachedThumbnail));
-		} else if (getMedia() != null && getMedia().getThumb() != null) {
+		} else if (getMedia() != null && getMedia().hasThumb()) {
 			return getMedia().getThumbnailInputStream();
 		} else {
 			return getGenericThumbnailInputStream(null);
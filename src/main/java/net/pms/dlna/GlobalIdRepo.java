@@ -1,45 +1,128 @@
 package net.pms.dlna;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * The repository of all {@link DLNAResource}s that have been given a global
+ * id.
+ * <p>
+ * Resources are stored in pages of an array indexed directly by their id, so
+ * lookups are O(1) and don't take any locks. Modifications are synchronized
+ * on this instance.
+ * <p>
+ * Folders that haven't been accessed for a while can be evicted using
+ * {@link #evictIdleFolders(long)}, which drops their children from both the
+ * tree and this repository. The ids of the evicted resources are remembered,
+ * so that the same ids are given to the resources when the folder is
+ * discovered again, and {@link #getEvictedAncestors(int)} tells which folders
+ * must be discovered to restore an evicted id.
+ */
+@ThreadSafe
 public class GlobalIdRepo {
 	private static final Logger LOGGER = LoggerFactory.getLogger(GlobalIdRepo.class);
 
+	private static final int PAGE_BITS = 12;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	/** The maximum number of evicted ids to remember */
+	private static final int MAX_EVICTED = 500000;
+
 	// Global ids start at 1, since id 0 is reserved as a pseudonym for 'renderer root'
-	private int curGlobalId = 1, deletionsCount = 0;
-	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-	private final ArrayList<ID> ids = new ArrayList<>();
+	@GuardedBy("this")
+	private int curGlobalId = 1;
+
+	@GuardedBy("this")
+	private int size;
+
+	/** The pages of entries, only replaced while holding the lock */
+	private volatile AtomicReferenceArray<AtomicReferenceArray<Entry>> pages = new AtomicReferenceArray<>(16);
+
+	/** The number of entries in each page */
+	@GuardedBy("this")
+	private int[] pageCounts = new int[16];
+
+	/** The evicted ids in eviction order */
+	@GuardedBy("this")
+	private final LinkedHashMap<Integer, Tombstone> evicted = new LinkedHashMap<Integer, Tombstone>(16, 0.75f, false) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Tombstone> eldest) {
+			if (size() > MAX_EVICTED) {
+				removeEvictedKey(eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/** The evicted ids by parent id and system name */
+	@GuardedBy("this")
+	private final HashMap<String, ArrayDeque<Tombstone>> evictedByKey = new HashMap<>();
+
+	@GuardedBy("this")
+	private Timer evictionTimer;
 
-	private static class ID {
+	private static class Entry {
 		final int id;
 		final DLNAResource dlnaResource;
+		volatile long lastAccess;
 
-		private ID(DLNAResource dlnaResource, int id) {
+		private Entry(DLNAResource dlnaResource, int id) {
 			this.id = id;
 			this.dlnaResource = dlnaResource;
+			this.lastAccess = System.currentTimeMillis();
 			dlnaResource.setIndexId(id);
 		}
 	}
 
+	private static class Tombstone {
+		final int id;
+		final int parentId;
+		final String key;
+
+		private Tombstone(int id, int parentId, String key) {
+			this.id = id;
+			this.parentId = parentId;
+			this.key = key;
+		}
+	}
+
 	public GlobalIdRepo() {
 	}
 
-	public void add(DLNAResource dlnaResource) {
-		lock.writeLock().lock();
-		try {
-			String id = dlnaResource.getId();
-			if (id != null) {
-				remove(id);
-			}
+	public synchronized void add(DLNAResource dlnaResource) {
+		String id = dlnaResource.getId();
+		if (id != null) {
+			remove(id);
+		}
 
-			ids.add(new ID(dlnaResource, curGlobalId++));
-		} finally {
-			lock.writeLock().unlock();
+		int newId = -1;
+		if (!evictedByKey.isEmpty()) {
+			Tombstone tombstone = takeEvicted(getKey(dlnaResource));
+			if (tombstone != null && getEntry(tombstone.id) == null) {
+				newId = tombstone.id;
+			}
+		}
+		if (newId < 0) {
+			newId = curGlobalId++;
 		}
+		setEntry(newId, new Entry(dlnaResource, newId));
 	}
 
 	public DLNAResource get(String id) {
@@ -47,13 +130,13 @@ public class GlobalIdRepo {
 	}
 
 	public DLNAResource get(int id) {
-		lock.readLock().lock();
-		try {
-			int index = indexOf(id);
-			return index > -1 ? ids.get(index).dlnaResource : null;
-		} finally {
-			lock.readLock().unlock();
+		Entry entry = getEntry(id);
+		if (entry == null) {
+			LOGGER.debug("GlobalIdRepo: id not found: {}", id);
+			return null;
 		}
+		entry.lastAccess = System.currentTimeMillis();
+		return entry.dlnaResource;
 	}
 
 	public void remove(DLNAResource d) {
@@ -64,17 +147,11 @@ public class GlobalIdRepo {
 		remove(parseIndex(id));
 	}
 
-	public void remove(int id) {
-		lock.writeLock().lock();
-		try {
-			int index = indexOf(id);
-			if (index > -1) {
-				LOGGER.debug("GlobalIdRepo: removing id {} - {}", id, ids.get(index).dlnaResource.getName());
-				ids.remove(index);
-				deletionsCount++;
-			}
-		} finally {
-			lock.writeLock().unlock();
+	public synchronized void remove(int id) {
+		Entry entry = getEntry(id);
+		if (entry != null) {
+			LOGGER.debug("GlobalIdRepo: removing id {} - {}", id, entry.dlnaResource.getName());
+			clearEntry(id);
 		}
 	}
 
@@ -88,38 +165,278 @@ public class GlobalIdRepo {
 	}
 
 	public boolean exists(String id) {
-		return indexOf(parseIndex(id)) != -1;
+		return getEntry(parseIndex(id)) != null;
 	}
 
-	private int indexOf(int id) {
-		lock.readLock().lock();
-		try {
-			if (id > 0 && id < curGlobalId) {
-				// We're in sequence by definition, so binary search is quickest
-
-				// Exclude any areas where the id can't possibly be
-				int ceil = ids.size() - 1;
-				int top = id - 1; // id 0 is reserved, so index is id-1 at most
-				int hi = top < ceil ? top : ceil;
-				int floor = hi - deletionsCount;
-				int lo = floor > 0 ? floor : 0;
-
-				while (lo <= hi) {
-					int mid = lo + (hi - lo) / 2;
-					int idm = ids.get(mid).id;
-					if (id < idm) {
-						hi = mid - 1;
-					} else if (id > idm) {
-						lo = mid + 1;
-					} else {
-						return mid;
+	/**
+	 * @return The number of resources in this repository.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @return The number of evicted ids that can be restored.
+	 */
+	public synchronized int getEvictedCount() {
+		return evicted.size();
+	}
+
+	/**
+	 * Returns the ids of the folders that must be discovered, in order, to
+	 * restore the evicted resource with the given id.
+	 *
+	 * @param id the id of the evicted resource.
+	 * @return The ids starting with a folder that is still in this repository
+	 *         and ending with the parent of {@code id}, or {@code null} if
+	 *         {@code id} can't be restored.
+	 */
+	public synchronized int[] getEvictedAncestors(int id) {
+		Tombstone tombstone = evicted.get(Integer.valueOf(id));
+		if (tombstone == null) {
+			return null;
+		}
+		ArrayList<Integer> ancestors = new ArrayList<>();
+		while (tombstone != null) {
+			ancestors.add(Integer.valueOf(tombstone.parentId));
+			if (getEntry(tombstone.parentId) != null) {
+				int[] result = new int[ancestors.size()];
+				for (int i = 0; i < result.length; i++) {
+					result[i] = ancestors.get(result.length - 1 - i).intValue();
+				}
+				return result;
+			}
+			tombstone = evicted.get(Integer.valueOf(tombstone.parentId));
+		}
+		return null;
+	}
+
+	/**
+	 * Starts evicting folders that haven't been accessed for the given time.
+	 * Any previously started eviction is stopped.
+	 *
+	 * @param idleMinutes the number of minutes a folder must have been idle
+	 *            before it's evicted. {@code 0} or less disables eviction.
+	 */
+	public synchronized void startEviction(int idleMinutes) {
+		if (evictionTimer != null) {
+			evictionTimer.cancel();
+			evictionTimer = null;
+		}
+		if (idleMinutes < 1) {
+			return;
+		}
+		final long maxIdle = TimeUnit.MINUTES.toMillis(idleMinutes);
+		long interval = Math.max(maxIdle / 4, TimeUnit.MINUTES.toMillis(1));
+		evictionTimer = new Timer("GlobalIdRepo Eviction", true);
+		evictionTimer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				try {
+					evictIdleFolders(maxIdle);
+				} catch (RuntimeException e) {
+					LOGGER.error("Unexpected error while evicting idle folders: {}", e.getMessage());
+					LOGGER.trace("", e);
+				}
+			}
+		}, interval, interval);
+	}
+
+	/**
+	 * Evicts the children of all discovered file system folders where
+	 * neither the folder nor any of its descendants have been accessed for
+	 * {@code maxIdle} milliseconds. The folders themselves are kept and will
+	 * be discovered again when needed.
+	 *
+	 * @param maxIdle the maximum idle time in milliseconds.
+	 * @return The number of evicted resources.
+	 */
+	public int evictIdleFolders(long maxIdle) {
+		long threshold = System.currentTimeMillis() - maxIdle;
+		ArrayList<DLNAResource> candidates = new ArrayList<>();
+		AtomicReferenceArray<AtomicReferenceArray<Entry>> currentPages = pages;
+		for (int i = 0; i < currentPages.length(); i++) {
+			AtomicReferenceArray<Entry> page = currentPages.get(i);
+			if (page == null) {
+				continue;
+			}
+			for (int j = 0; j < PAGE_SIZE; j++) {
+				Entry entry = page.get(j);
+				if (
+					entry != null &&
+					entry.lastAccess < threshold &&
+					entry.dlnaResource instanceof MapFile &&
+					entry.dlnaResource.isDiscovered()
+				) {
+					candidates.add(entry.dlnaResource);
+				}
+			}
+		}
+
+		int count = 0;
+		for (DLNAResource folder : candidates) {
+			count += evict(folder, threshold);
+		}
+		if (count > 0) {
+			LOGGER.debug("GlobalIdRepo: evicted {} resources from idle folders, {} resources remain", count, size());
+		}
+		return count;
+	}
+
+	/**
+	 * Evicts the children of {@code folder} unless it or any of its
+	 * descendants has been accessed after {@code threshold}.
+	 *
+	 * @param folder the folder whose children to evict.
+	 * @param threshold the time in milliseconds since the epoch.
+	 * @return The number of evicted resources.
+	 */
+	private int evict(DLNAResource folder, long threshold) {
+		synchronized (folder.discoveryLock) {
+			int folderId = parseIndex(folder.getId());
+			Entry folderEntry = getEntry(folderId);
+			if (
+				folderEntry == null ||
+				folderEntry.dlnaResource != folder ||
+				folderEntry.lastAccess >= threshold ||
+				!folder.isDiscovered() ||
+				isActive(folder, threshold)
+			) {
+				return 0;
+			}
+
+			List<DLNAResource> descendants = new ArrayList<>();
+			addDescendants(folder, descendants);
+			synchronized (this) {
+				for (DLNAResource descendant : descendants) {
+					int id = parseIndex(descendant.getId());
+					Entry entry = getEntry(id);
+					if (entry == null || entry.dlnaResource != descendant) {
+						continue;
+					}
+					clearEntry(id);
+					DLNAResource parent = descendant.getParent();
+					int parentId = parent == null ? -1 : parseIndex(parent.getId());
+					if (parentId > 0) {
+						Tombstone tombstone = new Tombstone(id, parentId, getKey(descendant));
+						evicted.put(Integer.valueOf(id), tombstone);
+						ArrayDeque<Tombstone> tombstones = evictedByKey.get(tombstone.key);
+						if (tombstones == null) {
+							tombstones = new ArrayDeque<>(1);
+							evictedByKey.put(tombstone.key, tombstones);
+						}
+						tombstones.add(tombstone);
 					}
 				}
 			}
-		} finally {
-			lock.readLock().unlock();
+			folder.evictChildren();
+			return descendants.size();
+		}
+	}
+
+	private boolean isActive(DLNAResource resource, long threshold) {
+		for (DLNAResource child : new ArrayList<>(resource.getChildren())) {
+			Entry entry = getEntry(parseIndex(child.getId()));
+			if (entry != null && entry.lastAccess >= threshold) {
+				return true;
+			}
+			if (isActive(child, threshold)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void addDescendants(DLNAResource resource, List<DLNAResource> descendants) {
+		for (DLNAResource child : new ArrayList<>(resource.getChildren())) {
+			descendants.add(child);
+			addDescendants(child, descendants);
+		}
+	}
+
+	private static String getKey(DLNAResource dlnaResource) {
+		DLNAResource parent = dlnaResource.getParent();
+		return (parent == null ? "" : parent.getId()) + "/" + dlnaResource.getSystemName();
+	}
+
+	@GuardedBy("this")
+	private Tombstone takeEvicted(String key) {
+		ArrayDeque<Tombstone> tombstones = evictedByKey.get(key);
+		if (tombstones == null) {
+			return null;
+		}
+		Tombstone tombstone = tombstones.poll();
+		if (tombstones.isEmpty()) {
+			evictedByKey.remove(key);
+		}
+		if (tombstone != null) {
+			evicted.remove(Integer.valueOf(tombstone.id));
+		}
+		return tombstone;
+	}
+
+	@GuardedBy("this")
+	private void removeEvictedKey(Tombstone tombstone) {
+		ArrayDeque<Tombstone> tombstones = evictedByKey.get(tombstone.key);
+		if (tombstones != null) {
+			tombstones.remove(tombstone);
+			if (tombstones.isEmpty()) {
+				evictedByKey.remove(tombstone.key);
+			}
+		}
+	}
+
+	private Entry getEntry(int id) {
+		if (id < 1) {
+			return null;
+		}
+		AtomicReferenceArray<AtomicReferenceArray<Entry>> currentPages = pages;
+		int pageIndex = id >>> PAGE_BITS;
+		if (pageIndex >= currentPages.length()) {
+			return null;
+		}
+		AtomicReferenceArray<Entry> page = currentPages.get(pageIndex);
+		return page == null ? null : page.get(id & PAGE_MASK);
+	}
+
+	@GuardedBy("this")
+	private void setEntry(int id, Entry entry) {
+		int pageIndex = id >>> PAGE_BITS;
+		AtomicReferenceArray<AtomicReferenceArray<Entry>> currentPages = pages;
+		if (pageIndex >= currentPages.length()) {
+			int newLength = Math.max(currentPages.length() * 2, pageIndex + 1);
+			AtomicReferenceArray<AtomicReferenceArray<Entry>> newPages = new AtomicReferenceArray<>(newLength);
+			for (int i = 0; i < currentPages.length(); i++) {
+				newPages.set(i, currentPages.get(i));
+			}
+			int[] newCounts = new int[newLength];
+			System.arraycopy(pageCounts, 0, newCounts, 0, pageCounts.length);
+			pageCounts = newCounts;
+			pages = newPages;
+			currentPages = newPages;
+		}
+		AtomicReferenceArray<Entry> page = currentPages.get(pageIndex);
+		if (page == null) {
+			page = new AtomicReferenceArray<>(PAGE_SIZE);
+			currentPages.set(pageIndex, page);
+		}
+		if (page.getAndSet(id & PAGE_MASK, entry) == null) {
+			pageCounts[pageIndex]++;
+			size++;
+		}
+	}
+
+	@GuardedBy("this")
+	private void clearEntry(int id) {
+		int pageIndex = id >>> PAGE_BITS;
+		AtomicReferenceArray<AtomicReferenceArray<Entry>> currentPages = pages;
+		AtomicReferenceArray<Entry> page = currentPages.get(pageIndex);
+		if (page.getAndSet(id & PAGE_MASK, null) != null) {
+			size--;
+			// Release pages that are empty and won't be filled by new ids
+			if (--pageCounts[pageIndex] == 0 && pageIndex < curGlobalId >>> PAGE_BITS) {
+				currentPages.set(pageIndex, null);
+			}
 		}
-		LOGGER.debug("GlobalIdRepo: id not found: {}", id);
-		return -1;
 	}
 }
@@ -5,11 +5,14 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import net.pms.PMS;
 import net.pms.configuration.FormatConfiguration;
+import net.pms.configuration.PmsConfiguration;
 import net.pms.configuration.RendererConfiguration;
 import net.pms.dlna.DLNAMediaInfo.RateMode;
 import net.pms.dlna.MediaInfo.StreamType;
@@ -114,40 +117,19 @@ public class LibMediaInfoParser {
 		"^\\s*([^@]*[^@\\s])?\\s*@?\\s*(?:L|LEVEL)?\\s*(\\d+(?:\\.\\d+|,\\d+)?)?\\s*(?:@\\S.*\\S)?\\s*(?:/|$)", Pattern.CASE_INSENSITIVE
 	);
 
-	private static MediaInfo MI;
-	private static final Version VERSION;
+	private static final MediaInfoPool POOL;
 
 	static {
-		MI = new MediaInfo();
-
-		if (MI.isValid()) {
-			MI.Option("Internet", "No"); // avoid MediaInfoLib to try to connect to an Internet server for availability of newer software, anonymous statistics and retrieving information about a file
-			MI.Option("Complete", "1");
-			MI.Option("Language", "raw");
-			MI.Option("File_TestContinuousFileNames", "0");
-			Matcher matcher = Pattern.compile("MediaInfoLib[\\s-]*(\\S+)", Pattern.CASE_INSENSITIVE).matcher(MI.Option("Info_Version"));
-			if (matcher.find() && isNotBlank(matcher.group(1))) {
-				VERSION = new Version(matcher.group(1));
-			} else {
-				VERSION = null;
-			}
-			if (VERSION != null && VERSION.isGreaterThan(18, 5)) {
-				MI.Option("LegacyStreamDisplay", "1");
-				MI.Option("File_HighestFormat", "0");
-				MI.Option("File_ChannelLayout", "1");
-				MI.Option("Legacy", "1");
-			}
-			LOGGER.debug("Option 'File_TestContinuousFileNames' is set to: " + MI.Option("File_TestContinuousFileNames_Get"));
-			MI.Option("ParseSpeed", "0");
-			LOGGER.debug("Option 'ParseSpeed' is set to: " + MI.Option("ParseSpeed_Get"));
-//			LOGGER.debug(MI.Option("Info_Parameters_CSV")); // It can be used to export all current MediaInfo parameters
-		} else {
-			VERSION = null;
-		}
+		PmsConfiguration configuration = PMS.getConfiguration();
+		POOL = new MediaInfoPool(
+			configuration == null ?
+				Runtime.getRuntime().availableProcessors() :
+				configuration.getMediaInfoParserEffectiveThreads()
+		);
 	}
 
 	public static boolean isValid() {
-		return MI.isValid();
+		return POOL.isValid();
 	}
 
 	/**
@@ -156,29 +138,84 @@ public class LibMediaInfoParser {
 	 */
 	@Nullable
 	public static Version getVersion() {
-		return VERSION;
+		return POOL.getVersion();
+	}
+
+	/**
+	 * @return The {@link MediaInfoPool} used for parsing.
+	 */
+	@Nonnull
+	public static MediaInfoPool getPool() {
+		return POOL;
 	}
 
 	/**
 	 * Parse media via MediaInfo.
+	 * <p>
+	 * A {@link MediaInfo} instance is checked out from the {@link MediaInfoPool}
+	 * for the duration of the parse, so multiple files can be parsed in
+	 * parallel.
 	 */
-	public synchronized static void parse(DLNAMediaInfo media, InputFile inputFile, FormatType type, RendererConfiguration renderer) {
+	public static void parse(DLNAMediaInfo media, InputFile inputFile, FormatType type, RendererConfiguration renderer) {
 		File file = inputFile.getFile();
-		ParseLogger parseLogger = LOGGER.isTraceEnabled() ? new ParseLogger() : null;
-		if (!media.isMediaparsed() && file != null && MI.isValid() && MI.Open(file.getAbsolutePath()) > 0) {
+		if (media.isMediaparsed() || file == null || !POOL.isValid()) {
+			return;
+		}
+		long waitStart = System.nanoTime();
+		MediaInfo mediaInfo;
+		try {
+			mediaInfo = POOL.acquire();
+		} catch (InterruptedException e) {
+			LOGGER.debug("Interrupted while waiting to parse \"{}\" with MediaInfo", file.getName());
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if (mediaInfo == null) {
+			return;
+		}
+		try {
+			long parseStart = System.nanoTime();
+			parse(mediaInfo, media, inputFile, file, type, renderer);
+			long parseEnd = System.nanoTime();
+			POOL.registerParse(parseEnd - parseStart);
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug(
+					"Parsed \"{}\" with MediaInfo in {} ms (waited {} ms, {} of {} instances busy)",
+					file.getName(),
+					Long.valueOf(TimeUnit.NANOSECONDS.toMillis(parseEnd - parseStart)),
+					Long.valueOf(TimeUnit.NANOSECONDS.toMillis(parseStart - waitStart)),
+					Integer.valueOf(POOL.getActiveCount()),
+					Integer.valueOf(POOL.getSize())
+				);
+			}
+		} finally {
+			POOL.release(mediaInfo);
+		}
+	}
+
+	private static void parse(
+		MediaInfo mediaInfo,
+		DLNAMediaInfo media,
+		InputFile inputFile,
+		File file,
+		FormatType type,
+		RendererConfiguration renderer
+	) {
+		ParseLogger parseLogger = LOGGER.isTraceEnabled() ? new ParseLogger(mediaInfo) : null;
+		if (mediaInfo.Open(file.getAbsolutePath()) > 0) {
 			DLNAMediaAudio currentAudioTrack = new DLNAMediaAudio();
 			DLNAMediaSubtitle currentSubTrack;
 			media.setSize(file.length());
 			String value;
 
 			// Set General
-			getFormat(StreamType.General, media, currentAudioTrack, MI.Get(StreamType.General, 0, "Format"), file);
-			getFormat(StreamType.General, media, currentAudioTrack, MI.Get(StreamType.General, 0, "CodecID").trim(), file);
-			media.setDuration(parseDuration(MI.Get(StreamType.General, 0, "Duration")));
-			media.setBitRate(parseBitRate(MI.Get(StreamType.General, 0, "OverallBitRate"), false));
-			media.setBitRateMode(parseBitRateMode(MI.Get(StreamType.General, 0, "OverallBitRate_Mode")));
-			media.setStereoscopy(MI.Get(StreamType.General, 0, "StereoscopicLayout"));
-			value = MI.Get(StreamType.General, 0, "Cover_Data");
+			getFormat(StreamType.General, media, currentAudioTrack, mediaInfo.Get(StreamType.General, 0, "Format"), file);
+			getFormat(StreamType.General, media, currentAudioTrack, mediaInfo.Get(StreamType.General, 0, "CodecID").trim(), file);
+			media.setDuration(parseDuration(mediaInfo.Get(StreamType.General, 0, "Duration")));
+			media.setBitRate(parseBitRate(mediaInfo.Get(StreamType.General, 0, "OverallBitRate"), false));
+			media.setBitRateMode(parseBitRateMode(mediaInfo.Get(StreamType.General, 0, "OverallBitRate_Mode")));
+			media.setStereoscopy(mediaInfo.Get(StreamType.General, 0, "StereoscopicLayout"));
+			value = mediaInfo.Get(StreamType.General, 0, "Cover_Data");
 			if (isNotBlank(value)) {
 				try {
 					media.setThumb(DLNABinaryThumbnail.toThumbnail(
@@ -202,7 +239,7 @@ public class LibMediaInfoParser {
 				}
 			}
 
-			value = MI.Get(StreamType.General, 0, "Title");
+			value = mediaInfo.Get(StreamType.General, 0, "Title");
 			if (isNotBlank(value)) {
 				media.setFileTitleFromMetadata(value);
 			}
@@ -212,71 +249,71 @@ public class LibMediaInfoParser {
 			}
 
 			// set Video
-			media.setVideoTrackCount(MI.Count_Get(StreamType.Video));
+			media.setVideoTrackCount(mediaInfo.Count_Get(StreamType.Video));
 			if (media.getVideoTrackCount() > 0) {
 				for (int i = 0; i < media.getVideoTrackCount(); i++) {
 					// check for DXSA and DXSB subtitles (subs in video format)
-					if (MI.Get(StreamType.Video, i, "Title").startsWith("Subtitle")) {
+					if (mediaInfo.Get(StreamType.Video, i, "Title").startsWith("Subtitle")) {
 						currentSubTrack = new DLNAMediaSubtitle();
 						// First attempt to detect subtitle track format
-						currentSubTrack.setType(SubtitleType.valueOfLibMediaInfoCodec(MI.Get(StreamType.Video, i, "Format")));
+						currentSubTrack.setType(SubtitleType.valueOfLibMediaInfoCodec(mediaInfo.Get(StreamType.Video, i, "Format")));
 						// Second attempt to detect subtitle track format (CodecID usually is more accurate)
-						currentSubTrack.setType(SubtitleType.valueOfLibMediaInfoCodec(MI.Get(StreamType.Video, i, "CodecID")));
+						currentSubTrack.setType(SubtitleType.valueOfLibMediaInfoCodec(mediaInfo.Get(StreamType.Video, i, "CodecID")));
 						currentSubTrack.setId(media.getSubtitleTracksList().size());
 						addSub(currentSubTrack, media);
 						if (parseLogger != null) {
 							parseLogger.logSubtitleTrackColumns(i, true);
 						}
 					} else {
-						getFormat(StreamType.Video, media, currentAudioTrack, MI.Get(StreamType.Video, i, "Format"), file);
-						getFormat(StreamType.Video, media, currentAudioTrack, MI.Get(StreamType.Video, i, "Format_Version"), file);
-						value = MI.Get(StreamType.Video, i, "Format_Profile");
+						getFormat(StreamType.Video, media, currentAudioTrack, mediaInfo.Get(StreamType.Video, i, "Format"), file);
+						getFormat(StreamType.Video, media, currentAudioTrack, mediaInfo.Get(StreamType.Video, i, "Format_Version"), file);
+						value = mediaInfo.Get(StreamType.Video, i, "Format_Profile");
 						getFormat(StreamType.Video, media, currentAudioTrack, value, file);
-						getFormat(StreamType.Video, media, currentAudioTrack, MI.Get(StreamType.Video, i, "CodecID"), file);
-						media.setWidth(getPixelValue(MI.Get(StreamType.Video, i, "Width")));
-						media.setHeight(getPixelValue(MI.Get(StreamType.Video, i, "Height")));
-						media.setMatrixCoefficients(MI.Get(StreamType.Video, i, "matrix_coefficients"));
+						getFormat(StreamType.Video, media, currentAudioTrack, mediaInfo.Get(StreamType.Video, i, "CodecID"), file);
+						media.setWidth(getPixelValue(mediaInfo.Get(StreamType.Video, i, "Width")));
+						media.setHeight(getPixelValue(mediaInfo.Get(StreamType.Video, i, "Height")));
+						media.setMatrixCoefficients(mediaInfo.Get(StreamType.Video, i, "matrix_coefficients"));
 						if (!media.is3d()) {
-							media.setStereoscopy(MI.Get(StreamType.Video, i, "MultiView_Layout"));
+							media.setStereoscopy(mediaInfo.Get(StreamType.Video, i, "MultiView_Layout"));
 						}
 
-						media.setPixelAspectRatio(MI.Get(StreamType.Video, i, "PixelAspectRatio"));
-						media.setScanType(MI.Get(StreamType.Video, i, "ScanType"));
-						media.setScanOrder(MI.Get(StreamType.Video, i, "ScanOrder"));
-						media.setAspectRatioContainer(MI.Get(StreamType.Video, i, "DisplayAspectRatio/String"));
-						media.setAspectRatioVideoTrack(MI.Get(StreamType.Video, i, "DisplayAspectRatio_Original/String"));
-						media.setFrameRate(getFPSValue(MI.Get(StreamType.Video, i, "FrameRate")));
-						media.setFrameRateOriginal(MI.Get(StreamType.Video, i, "FrameRate_Original"));
-						media.setFrameRateMode(getFrameRateModeValue(MI.Get(StreamType.Video, i, "FrameRate_Mode")));
-						media.setFrameRateModeRaw(MI.Get(StreamType.Video, i, "FrameRate_Mode"));
-						media.setReferenceFrameCount(getReferenceFrameCount(MI.Get(StreamType.Video, i, "Format_Settings_RefFrames")));
-						media.setVideoTrackTitleFromMetadata(MI.Get(StreamType.Video, i, "Title"));
+						media.setPixelAspectRatio(mediaInfo.Get(StreamType.Video, i, "PixelAspectRatio"));
+						media.setScanType(mediaInfo.Get(StreamType.Video, i, "ScanType"));
+						media.setScanOrder(mediaInfo.Get(StreamType.Video, i, "ScanOrder"));
+						media.setAspectRatioContainer(mediaInfo.Get(StreamType.Video, i, "DisplayAspectRatio/String"));
+						media.setAspectRatioVideoTrack(mediaInfo.Get(StreamType.Video, i, "DisplayAspectRatio_Original/String"));
+						media.setFrameRate(getFPSValue(mediaInfo.Get(StreamType.Video, i, "FrameRate")));
+						media.setFrameRateOriginal(mediaInfo.Get(StreamType.Video, i, "FrameRate_Original"));
+						media.setFrameRateMode(getFrameRateModeValue(mediaInfo.Get(StreamType.Video, i, "FrameRate_Mode")));
+						media.setFrameRateModeRaw(mediaInfo.Get(StreamType.Video, i, "FrameRate_Mode"));
+						media.setReferenceFrameCount(getReferenceFrameCount(mediaInfo.Get(StreamType.Video, i, "Format_Settings_RefFrames")));
+						media.setVideoTrackTitleFromMetadata(mediaInfo.Get(StreamType.Video, i, "Title"));
 
 						if (isNotBlank(value) && media.getCodecV() != null) {
 							setVideoProfileAndLevel(media, value);
 						}
 
-						value = MI.Get(StreamType.Video, i, "Format_Settings_QPel");
+						value = mediaInfo.Get(StreamType.Video, i, "Format_Settings_QPel");
 						if (isNotBlank(value)) {
 							media.putExtra(FormatConfiguration.MI_QPEL, value);
 						}
 
-						value = MI.Get(StreamType.Video, i, "Format_Settings_GMC");
+						value = mediaInfo.Get(StreamType.Video, i, "Format_Settings_GMC");
 						if (isNotBlank(value)) {
 							media.putExtra(FormatConfiguration.MI_GMC, value);
 						}
 
-						value = MI.Get(StreamType.Video, i, "Format_Settings_GOP");
+						value = mediaInfo.Get(StreamType.Video, i, "Format_Settings_GOP");
 						if (isNotBlank(value)) {
 							media.putExtra(FormatConfiguration.MI_GOP, value);
 						}
 
-						media.setMuxingMode(MI.Get(StreamType.Video, i, "MuxingMode"));
+						media.setMuxingMode(mediaInfo.Get(StreamType.Video, i, "MuxingMode"));
 						if (!media.isEncrypted()) {
-							media.setEncrypted("encrypted".equals(MI.Get(StreamType.Video, i, "Encryption")));
+							media.setEncrypted("encrypted".equals(mediaInfo.Get(StreamType.Video, i, "Encryption")));
 						}
 
-						value = MI.Get(StreamType.Video, i, "BitDepth");
+						value = mediaInfo.Get(StreamType.Video, i, "BitDepth");
 						if (isNotBlank(value)) {
 							try {
 								media.setVideoBitDepth(Integer.parseInt(value));
@@ -292,29 +329,29 @@ public class LibMediaInfoParser {
 			}
 
 			// set Audio
-			int audioTracks = MI.Count_Get(StreamType.Audio);
+			int audioTracks = mediaInfo.Count_Get(StreamType.Audio);
 			if (audioTracks > 0) {
 				for (int i = 0; i < audioTracks; i++) {
 					currentAudioTrack = new DLNAMediaAudio();
-					getFormat(StreamType.Audio, media, currentAudioTrack, MI.Get(StreamType.Audio, i, "Format"), file);
-					getFormat(StreamType.Audio, media, currentAudioTrack, MI.Get(StreamType.Audio, i, "Format_Version"), file);
-					getFormat(StreamType.Audio, media, currentAudioTrack, MI.Get(StreamType.Audio, i, "Format_Profile"), file);
-					getFormat(StreamType.Audio, media, currentAudioTrack, MI.Get(StreamType.Audio, i, "CodecID"), file);
-					value = MI.Get(StreamType.Audio, i, "CodecID_Description");
+					getFormat(StreamType.Audio, media, currentAudioTrack, mediaInfo.Get(StreamType.Audio, i, "Format"), file);
+					getFormat(StreamType.Audio, media, currentAudioTrack, mediaInfo.Get(StreamType.Audio, i, "Format_Version"), file);
+					getFormat(StreamType.Audio, media, currentAudioTrack, mediaInfo.Get(StreamType.Audio, i, "Format_Profile"), file);
+					getFormat(StreamType.Audio, media, currentAudioTrack, mediaInfo.Get(StreamType.Audio, i, "CodecID"), file);
+					value = mediaInfo.Get(StreamType.Audio, i, "CodecID_Description");
 					if (isNotBlank(value) && value.startsWith("Windows Media Audio 10")) {
 						currentAudioTrack.setCodecA(FormatConfiguration.WMA10);
 					}
-					currentAudioTrack.setLang(getLang(MI.Get(StreamType.Audio, i, "Language/String")));
-					currentAudioTrack.setAudioTrackTitleFromMetadata(MI.Get(StreamType.Audio, i, "Title").trim());
-					currentAudioTrack.setNumberOfChannels(parseNumberOfChannels(MI.Get(StreamType.Audio, i, "Channel(s)_Original")));
+					currentAudioTrack.setLang(getLang(mediaInfo.Get(StreamType.Audio, i, "Language/String")));
+					currentAudioTrack.setAudioTrackTitleFromMetadata(mediaInfo.Get(StreamType.Audio, i, "Title").trim());
+					currentAudioTrack.setNumberOfChannels(parseNumberOfChannels(mediaInfo.Get(StreamType.Audio, i, "Channel(s)_Original")));
 					if (currentAudioTrack.isNumberOfChannelsUnknown()) {
-						currentAudioTrack.setNumberOfChannels(parseNumberOfChannels(MI.Get(StreamType.Audio, i, "Channel(s)")));
+						currentAudioTrack.setNumberOfChannels(parseNumberOfChannels(mediaInfo.Get(StreamType.Audio, i, "Channel(s)")));
 					}
-					currentAudioTrack.setDelay(parseDelay(MI.Get(StreamType.Audio, i, "Video_Delay")));
-					currentAudioTrack.setSampleFrequency(parseSamplingRate(MI.Get(StreamType.Audio, i, "SamplingRate")));
-					currentAudioTrack.setBitRate(parseBitRate(MI.Get(StreamType.Audio, i, "BitRate"), false));
-					currentAudioTrack.setBitRateMode(parseBitRateMode(MI.Get(StreamType.Audio, i, "BitRate_Mode")));
-					currentAudioTrack.setSongname(MI.Get(StreamType.General, 0, "Track"));
+					currentAudioTrack.setDelay(parseDelay(mediaInfo.Get(StreamType.Audio, i, "Video_Delay")));
+					currentAudioTrack.setSampleFrequency(parseSamplingRate(mediaInfo.Get(StreamType.Audio, i, "SamplingRate")));
+					currentAudioTrack.setBitRate(parseBitRate(mediaInfo.Get(StreamType.Audio, i, "BitRate"), false));
+					currentAudioTrack.setBitRateMode(parseBitRateMode(mediaInfo.Get(StreamType.Audio, i, "BitRate_Mode")));
+					currentAudioTrack.setSongname(mediaInfo.Get(StreamType.General, 0, "Track"));
 
 					if (
 						renderer.isPrependTrackNumbers() &&
@@ -325,11 +362,11 @@ public class LibMediaInfoParser {
 						currentAudioTrack.setSongname(currentAudioTrack.getTrack() + ": " + currentAudioTrack.getSongname());
 					}
 
-					currentAudioTrack.setAlbum(MI.Get(StreamType.General, 0, "Album"));
-					currentAudioTrack.setArtist(MI.Get(StreamType.General, 0, "Performer"));
-					currentAudioTrack.setGenre(MI.Get(StreamType.General, 0, "Genre"));
+					currentAudioTrack.setAlbum(mediaInfo.Get(StreamType.General, 0, "Album"));
+					currentAudioTrack.setArtist(mediaInfo.Get(StreamType.General, 0, "Performer"));
+					currentAudioTrack.setGenre(mediaInfo.Get(StreamType.General, 0, "Genre"));
 					// Try to parse the year from the stored date
-					String recordedDate = MI.Get(StreamType.General, 0, "Recorded_Date");
+					String recordedDate = mediaInfo.Get(StreamType.General, 0, "Recorded_Date");
 					Matcher matcher = yearPattern.matcher(recordedDate);
 					if (matcher.matches()) {
 						try {
@@ -340,7 +377,7 @@ public class LibMediaInfoParser {
 					}
 
 					// Special check for OGM: MediaInfo reports specific Audio/Subs IDs (0xn) while mencoder does not
-					value = MI.Get(StreamType.Audio, i, "ID/String");
+					value = mediaInfo.Get(StreamType.Audio, i, "ID/String");
 					if (isNotBlank(value)) {
 						if (value.contains("(0x") && !FormatConfiguration.OGG.equals(media.getContainer())) {
 							currentAudioTrack.setId(getSpecificID(value));
@@ -349,7 +386,7 @@ public class LibMediaInfoParser {
 						}
 					}
 
-					value = MI.Get(StreamType.General, i, "Track/Position");
+					value = mediaInfo.Get(StreamType.General, i, "Track/Position");
 					if (isNotBlank(value)) {
 						try {
 							currentAudioTrack.setTrack(Integer.parseInt(value));
@@ -358,7 +395,7 @@ public class LibMediaInfoParser {
 						}
 					}
 
-					value = MI.Get(StreamType.Audio, i, "BitDepth");
+					value = mediaInfo.Get(StreamType.Audio, i, "BitDepth");
 					if (isNotBlank(value)) {
 						currentAudioTrack.setBitsPerSample(parseBitsperSample(value));
 					}
@@ -371,14 +408,14 @@ public class LibMediaInfoParser {
 			}
 
 			// set Image
-			media.setImageCount(MI.Count_Get(StreamType.Image));
+			media.setImageCount(mediaInfo.Count_Get(StreamType.Image));
 			if (media.getImageCount() > 0 || type == FormatType.IMAGE) {
 				boolean parseByMediainfo = false;
 				// For images use our own parser instead of MediaInfo which doesn't provide enough information
 				try {
 					ImagesUtil.parseImage(file, media);
 					// This is a little hack. MediaInfo only recognizes a few image formats
-					// so that MI.Count_Get(image) might return 0 even if there is an image.
+					// so that mediaInfo.Count_Get(image) might return 0 even if there is an image.
 					if (media.getImageCount() == 0) {
 						media.setImageCount(1);
 					}
@@ -395,9 +432,9 @@ public class LibMediaInfoParser {
 				}
 
 				if (parseByMediainfo) {
-					getFormat(StreamType.Image, media, currentAudioTrack, MI.Get(StreamType.Image, 0, "Format"), file);
-					media.setWidth(getPixelValue(MI.Get(StreamType.Image, 0, "Width")));
-					media.setHeight(getPixelValue(MI.Get(StreamType.Image, 0, "Height")));
+					getFormat(StreamType.Image, media, currentAudioTrack, mediaInfo.Get(StreamType.Image, 0, "Format"), file);
+					media.setWidth(getPixelValue(mediaInfo.Get(StreamType.Image, 0, "Width")));
+					media.setHeight(getPixelValue(mediaInfo.Get(StreamType.Image, 0, "Height")));
 				}
 				if (parseLogger != null) {
 					parseLogger.logImageColumns(0);
@@ -405,16 +442,16 @@ public class LibMediaInfoParser {
 			}
 
 			// set Subs in text format
-			int subTracks = MI.Count_Get(StreamType.Text);
+			int subTracks = mediaInfo.Count_Get(StreamType.Text);
 			if (subTracks > 0) {
 				for (int i = 0; i < subTracks; i++) {
 					currentSubTrack = new DLNAMediaSubtitle();
-					currentSubTrack.setType(SubtitleType.valueOfLibMediaInfoCodec(MI.Get(StreamType.Text, i, "Format")));
-					currentSubTrack.setType(SubtitleType.valueOfLibMediaInfoCodec(MI.Get(StreamType.Text, i, "CodecID")));
-					currentSubTrack.setLang(getLang(MI.Get(StreamType.Text, i, "Language/String")));
-					currentSubTrack.setSubtitlesTrackTitleFromMetadata((MI.Get(StreamType.Text, i, "Title")).trim());
+					currentSubTrack.setType(SubtitleType.valueOfLibMediaInfoCodec(mediaInfo.Get(StreamType.Text, i, "Format")));
+					currentSubTrack.setType(SubtitleType.valueOfLibMediaInfoCodec(mediaInfo.Get(StreamType.Text, i, "CodecID")));
+					currentSubTrack.setLang(getLang(mediaInfo.Get(StreamType.Text, i, "Language/String")));
+					currentSubTrack.setSubtitlesTrackTitleFromMetadata((mediaInfo.Get(StreamType.Text, i, "Title")).trim());
 					// Special check for OGM: MediaInfo reports specific Audio/Subs IDs (0xn) while mencoder does not
-					value = MI.Get(StreamType.Text, i, "ID/String");
+					value = mediaInfo.Get(StreamType.Text, i, "ID/String");
 					if (isNotBlank(value)) {
 						if (value.contains("(0x") && !FormatConfiguration.OGG.equals(media.getContainer())) {
 							currentSubTrack.setId(getSpecificID(value));
@@ -529,7 +566,6 @@ public class LibMediaInfoParser {
 				LOGGER.trace("{}", parseLogger);
 			}
 
-			MI.Close();
 			if (media.getContainer() == null) {
 				media.setContainer(DLNAMediaLang.UND);
 			}
@@ -1371,10 +1407,21 @@ public class LibMediaInfoParser {
 	@SuppressWarnings("unused")
 	protected static class ParseLogger {
 
+		private final MediaInfo mediaInfo;
 		private final StringBuilder sb = new StringBuilder();
 		private final Columns generalColumns = new Columns(false, 2, 32, 62, 92);
 		private final Columns streamColumns = new Columns(false, 4, 34, 64, 94);
 
+		/**
+		 * Creates a new instance that logs the results from the specified
+		 * {@link MediaInfo} instance.
+		 *
+		 * @param mediaInfo the {@link MediaInfo} instance to log from.
+		 */
+		public ParseLogger(MediaInfo mediaInfo) {
+			this.mediaInfo = mediaInfo;
+		}
+
 		/**
 		 * Appends a label and value to the internal {@link StringBuilder} at
 		 * the next column using the specified parameters.
@@ -1551,36 +1598,36 @@ public class LibMediaInfoParser {
 			} else {
 				sb.append("MediaInfo parsing results for \"").append(file.getAbsolutePath()).append("\":\n");
 			}
-			if (MI == null) {
+			if (mediaInfo == null) {
 				sb.append("ERROR: LibMediaInfo instance is null");
 				return;
 			}
-			if (!MI.isValid()) {
+			if (!mediaInfo.isValid()) {
 				sb.append("ERROR: LibMediaInfo instance not valid");
 				return;
 			}
 			sb.append("  ");
 			boolean first = true;
-			first &= !appendString("Title", MI.Get(StreamType.General, 0, "Title"), first, true, true);
-			first &= !appendString("Format", MI.Get(StreamType.General, 0, "Format"), first, true, false);
-			first &= !appendString("CodecID", MI.Get(StreamType.General, 0, "CodecID"), first, true, true);
-			Double durationSec = parseDuration(MI.Get(StreamType.General, 0, "Duration"));
+			first &= !appendString("Title", mediaInfo.Get(StreamType.General, 0, "Title"), first, true, true);
+			first &= !appendString("Format", mediaInfo.Get(StreamType.General, 0, "Format"), first, true, false);
+			first &= !appendString("CodecID", mediaInfo.Get(StreamType.General, 0, "CodecID"), first, true, true);
+			Double durationSec = parseDuration(mediaInfo.Get(StreamType.General, 0, "Duration"));
 			if (durationSec != null) {
 				first &= !appendString("Duration", StringUtil.formatDLNADuration(durationSec), first, false, true);
 			}
-			first &= !appendString("Overall Bitrate Mode", MI.Get(StreamType.General, 0, "OverallBitRate_Mode"), first, false, true);
-			first &= !appendString("Overall Bitrate", MI.Get(StreamType.General, 0, "OverallBitRate"), first, false, true);
-			first &= !appendString("Overall Bitrate Nom.", MI.Get(StreamType.General, 0, "OverallBitRate_Nominal"), first, false, true);
-			first &= !appendString("Overall Bitrate Max.", MI.Get(StreamType.General, 0, "OverallBitRate_Maximum"), first, false, true);
-			first &= !appendString("Stereoscopic", MI.Get(StreamType.General, 0, "StereoscopicLayout"), first, true, true);
-			appendExists("Cover", MI.Get(StreamType.General, 0, "Cover_Data"), first, false);
+			first &= !appendString("Overall Bitrate Mode", mediaInfo.Get(StreamType.General, 0, "OverallBitRate_Mode"), first, false, true);
+			first &= !appendString("Overall Bitrate", mediaInfo.Get(StreamType.General, 0, "OverallBitRate"), first, false, true);
+			first &= !appendString("Overall Bitrate Nom.", mediaInfo.Get(StreamType.General, 0, "OverallBitRate_Nominal"), first, false, true);
+			first &= !appendString("Overall Bitrate Max.", mediaInfo.Get(StreamType.General, 0, "OverallBitRate_Maximum"), first, false, true);
+			first &= !appendString("Stereoscopic", mediaInfo.Get(StreamType.General, 0, "StereoscopicLayout"), first, true, true);
+			appendExists("Cover", mediaInfo.Get(StreamType.General, 0, "Cover_Data"), first, false);
 			first = false;
-			appendString("FPS", MI.Get(StreamType.General, 0, "FrameRate"), first, false, true);
-			appendString("Track", MI.Get(StreamType.General, 0, "Track"), first, true, true);
-			appendString("Album", MI.Get(StreamType.General, 0, "Album"), first, true, true);
-			appendString("Performer", MI.Get(StreamType.General, 0, "Performer"), first, true, true);
-			appendString("Genre", MI.Get(StreamType.General, 0, "Genre"), first, true, true);
-			appendString("Rec Date", MI.Get(StreamType.General, 0, "Recorded_Date"), first, true, true);
+			appendString("FPS", mediaInfo.Get(StreamType.General, 0, "FrameRate"), first, false, true);
+			appendString("Track", mediaInfo.Get(StreamType.General, 0, "Track"), first, true, true);
+			appendString("Album", mediaInfo.Get(StreamType.General, 0, "Album"), first, true, true);
+			appendString("Performer", mediaInfo.Get(StreamType.General, 0, "Performer"), first, true, true);
+			appendString("Genre", mediaInfo.Get(StreamType.General, 0, "Genre"), first, true, true);
+			appendString("Rec Date", mediaInfo.Get(StreamType.General, 0, "Recorded_Date"), first, true, true);
 		}
 
 		public void logGeneralColumns(File file) {
@@ -1589,280 +1636,280 @@ public class LibMediaInfoParser {
 			} else {
 				sb.append("MediaInfo parsing results for \"").append(file.getAbsolutePath()).append("\":\n");
 			}
-			if (MI == null) {
+			if (mediaInfo == null) {
 				sb.append("ERROR: LibMediaInfo instance is null");
 				return;
 			}
-			if (!MI.isValid()) {
+			if (!mediaInfo.isValid()) {
 				sb.append("ERROR: LibMediaInfo instance not valid");
 				return;
 			}
 			generalColumns.reset();
-			appendStringNextColumn(generalColumns, "Title", MI.Get(StreamType.General, 0, "Title"), true, true);
-			appendStringNextColumn(generalColumns, "Format", MI.Get(StreamType.General, 0, "Format"), true, false);
-			appendStringNextColumn(generalColumns, "CodecID", MI.Get(StreamType.General, 0, "CodecID"), true, true);
-			Double durationSec = parseDuration(MI.Get(StreamType.General, 0, "Duration"));
+			appendStringNextColumn(generalColumns, "Title", mediaInfo.Get(StreamType.General, 0, "Title"), true, true);
+			appendStringNextColumn(generalColumns, "Format", mediaInfo.Get(StreamType.General, 0, "Format"), true, false);
+			appendStringNextColumn(generalColumns, "CodecID", mediaInfo.Get(StreamType.General, 0, "CodecID"), true, true);
+			Double durationSec = parseDuration(mediaInfo.Get(StreamType.General, 0, "Duration"));
 			if (durationSec != null) {
 				appendStringNextColumn(generalColumns, "Duration", StringUtil.formatDLNADuration(durationSec), false, true);
 			}
-			appendStringNextColumn(generalColumns, "Overall Bitrate Mode", MI.Get(StreamType.General, 0, "OverallBitRate_Mode"), false, true);
-			appendStringNextColumn(generalColumns, "Overall Bitrate", MI.Get(StreamType.General, 0, "OverallBitRate"), false, true);
-			appendStringNextColumn(generalColumns, "Overall Bitrate Nom.", MI.Get(StreamType.General, 0, "OverallBitRate_Nominal"), false, true);
-			appendStringNextColumn(generalColumns, "Overall Bitrate Max.", MI.Get(StreamType.General, 0, "OverallBitRate_Maximum"), false, true);
-			appendStringNextColumn(generalColumns, "Stereoscopic", MI.Get(StreamType.General, 0, "StereoscopicLayout"), true, true);
-			appendExistsNextColumn(generalColumns, "Cover", MI.Get(StreamType.General, 0, "Cover_Data"), false);
-			appendStringNextColumn(generalColumns, "FPS", MI.Get(StreamType.General, 0, "FrameRate"), false, true);
-			appendStringNextColumn(generalColumns, "Track", MI.Get(StreamType.General, 0, "Track"), true, true);
-			appendStringNextColumn(generalColumns, "Album", MI.Get(StreamType.General, 0, "Album"), true, true);
-			appendStringNextColumn(generalColumns, "Performer", MI.Get(StreamType.General, 0, "Performer"), true, true);
-			appendStringNextColumn(generalColumns, "Genre", MI.Get(StreamType.General, 0, "Genre"), true, true);
-			appendStringNextColumn(generalColumns, "Rec Date", MI.Get(StreamType.General, 0, "Recorded_Date"), true, true);
+			appendStringNextColumn(generalColumns, "Overall Bitrate Mode", mediaInfo.Get(StreamType.General, 0, "OverallBitRate_Mode"), false, true);
+			appendStringNextColumn(generalColumns, "Overall Bitrate", mediaInfo.Get(StreamType.General, 0, "OverallBitRate"), false, true);
+			appendStringNextColumn(generalColumns, "Overall Bitrate Nom.", mediaInfo.Get(StreamType.General, 0, "OverallBitRate_Nominal"), false, true);
+			appendStringNextColumn(generalColumns, "Overall Bitrate Max.", mediaInfo.Get(StreamType.General, 0, "OverallBitRate_Maximum"), false, true);
+			appendStringNextColumn(generalColumns, "Stereoscopic", mediaInfo.Get(StreamType.General, 0, "StereoscopicLayout"), true, true);
+			appendExistsNextColumn(generalColumns, "Cover", mediaInfo.Get(StreamType.General, 0, "Cover_Data"), false);
+			appendStringNextColumn(generalColumns, "FPS", mediaInfo.Get(StreamType.General, 0, "FrameRate"), false, true);
+			appendStringNextColumn(generalColumns, "Track", mediaInfo.Get(StreamType.General, 0, "Track"), true, true);
+			appendStringNextColumn(generalColumns, "Album", mediaInfo.Get(StreamType.General, 0, "Album"), true, true);
+			appendStringNextColumn(generalColumns, "Performer", mediaInfo.Get(StreamType.General, 0, "Performer"), true, true);
+			appendStringNextColumn(generalColumns, "Genre", mediaInfo.Get(StreamType.General, 0, "Genre"), true, true);
+			appendStringNextColumn(generalColumns, "Rec Date", mediaInfo.Get(StreamType.General, 0, "Recorded_Date"), true, true);
 		}
 
 		public void logVideoTrack(int idx) {
-			if (MI == null || !MI.isValid()) {
+			if (mediaInfo == null || !mediaInfo.isValid()) {
 				return;
 			}
 
 			sb.append("\n    - Video - ");
 			boolean first = true;
-			first &= !appendString("Format", MI.Get(StreamType.Video, idx, "Format"), first, true, true);
-			first &= !appendString("Version", MI.Get(StreamType.Video, idx, "Format_Version"), first, true, true);
-			first &= !appendString("Profile", MI.Get(StreamType.Video, idx, "Format_Profile"), first, true, true);
-			first &= !appendString("ID", MI.Get(StreamType.Video, idx, "ID"), first, false, true);
-			first &= !appendString("CodecID", MI.Get(StreamType.Video, idx, "CodecID"), first, true, true);
-			Double durationSec = parseDuration(MI.Get(StreamType.Video, 0, "Duration"));
+			first &= !appendString("Format", mediaInfo.Get(StreamType.Video, idx, "Format"), first, true, true);
+			first &= !appendString("Version", mediaInfo.Get(StreamType.Video, idx, "Format_Version"), first, true, true);
+			first &= !appendString("Profile", mediaInfo.Get(StreamType.Video, idx, "Format_Profile"), first, true, true);
+			first &= !appendString("ID", mediaInfo.Get(StreamType.Video, idx, "ID"), first, false, true);
+			first &= !appendString("CodecID", mediaInfo.Get(StreamType.Video, idx, "CodecID"), first, true, true);
+			Double durationSec = parseDuration(mediaInfo.Get(StreamType.Video, 0, "Duration"));
 			if (durationSec != null) {
 				first &= !appendString("Duration", StringUtil.formatDLNADuration(durationSec), first, false, true);
 			}
-			first &= !appendString("BitRate Mode", MI.Get(StreamType.Video, idx, "BitRate_Mode"), first, false, true);
-			first &= !appendString("Bitrate", MI.Get(StreamType.Video, idx, "BitRate"), first, false, true);
-			first &= !appendString("Bitrate Nominal", MI.Get(StreamType.Video, idx, "BitRate_Nominal"), first, false, true);
-			first &= !appendString("BitRate Maximum", MI.Get(StreamType.Video, idx, "BitRate_Maximum"), first, false, true);
-			first &= !appendString("Bitrate Encoded", MI.Get(StreamType.Video, idx, "BitRate_Encoded"), first, false, true);
-			first &= !appendString("Width", MI.Get(StreamType.Video, idx, "Width"), first, false, true);
-			first &= !appendString("Height", MI.Get(StreamType.Video, idx, "Height"), first, false, true);
-			first &= !appendString("Colorimetry", MI.Get(StreamType.Video, idx, "Colorimetry"), first, false, true);
-			first &= !appendString("Chroma", MI.Get(StreamType.Video, idx, "ChromaSubsampling"), first, false, true);
-			first &= !appendString("Matrix Co", MI.Get(StreamType.Video, idx, "matrix_coefficients"), first, false, true);
-			first &= !appendString("MultiView Layout", MI.Get(StreamType.Video, idx, "MultiView_Layout"), first, true, true);
-			first &= !appendString("PAR", MI.Get(StreamType.Video, idx, "PixelAspectRatio"), first, false, true);
-			first &= !appendString("DAR", MI.Get(StreamType.Video, idx, "DisplayAspectRatio/String"), first, false, true);
-			first &= !appendString("DAR Orig", MI.Get(StreamType.Video, idx, "DisplayAspectRatio_Original/String"), first, false, true);
-			first &= !appendString("Scan Type", MI.Get(StreamType.Video, idx, "ScanType"), first, false, true);
-			first &= !appendString("Scan Order", MI.Get(StreamType.Video, idx, "ScanOrder"), first, false, true);
-			first &= !appendString("FPS", MI.Get(StreamType.Video, idx, "FrameRate"), first, false, true);
-			first &= !appendString("FPS Orig", MI.Get(StreamType.Video, idx, "FrameRate_Original"), first, false, true);
-			first &= !appendString("Framerate Mode", MI.Get(StreamType.Video, idx, "FrameRate_Mode"), first, false, true);
-			first &= !appendString("RefFrames", MI.Get(StreamType.Video, idx, "Format_Settings_RefFrames"), first, false, true);
-			first &= !appendString("QPel", MI.Get(StreamType.Video, idx, "Format_Settings_QPel"), first, true, true);
-			first &= !appendString("GMC", MI.Get(StreamType.Video, idx, "Format_Settings_GMC"), first, true, true);
-			first &= !appendString("GOP", MI.Get(StreamType.Video, idx, "Format_Settings_GOP"), first, true, true);
-			first &= !appendString("Muxing Mode", MI.Get(StreamType.Video, idx, "MuxingMode"), first, true, true);
-			first &= !appendString("Encrypt", MI.Get(StreamType.Video, idx, "Encryption"), first, true, true);
-			first &= !appendString("Bit Depth", MI.Get(StreamType.Video, idx, "BitDepth"), first, false, true);
-			first &= !appendString("Delay", MI.Get(StreamType.Video, idx, "Delay"), first, false, true);
-			first &= !appendString("Delay Source", MI.Get(StreamType.Video, idx, "Delay_Source"), first, false, true);
-			first &= !appendString("Delay Original", MI.Get(StreamType.Video, idx, "Delay_Original"), first, false, true);
-			first &= !appendString("Delay O. Source", MI.Get(StreamType.Video, idx, "Delay_Original_Source"), first, false, true);
-			first &= !appendString("TimeStamp_FirstFrame", MI.Get(StreamType.Video, idx, "TimeStamp_FirstFrame"), first, false, true);
+			first &= !appendString("BitRate Mode", mediaInfo.Get(StreamType.Video, idx, "BitRate_Mode"), first, false, true);
+			first &= !appendString("Bitrate", mediaInfo.Get(StreamType.Video, idx, "BitRate"), first, false, true);
+			first &= !appendString("Bitrate Nominal", mediaInfo.Get(StreamType.Video, idx, "BitRate_Nominal"), first, false, true);
+			first &= !appendString("BitRate Maximum", mediaInfo.Get(StreamType.Video, idx, "BitRate_Maximum"), first, false, true);
+			first &= !appendString("Bitrate Encoded", mediaInfo.Get(StreamType.Video, idx, "BitRate_Encoded"), first, false, true);
+			first &= !appendString("Width", mediaInfo.Get(StreamType.Video, idx, "Width"), first, false, true);
+			first &= !appendString("Height", mediaInfo.Get(StreamType.Video, idx, "Height"), first, false, true);
+			first &= !appendString("Colorimetry", mediaInfo.Get(StreamType.Video, idx, "Colorimetry"), first, false, true);
+			first &= !appendString("Chroma", mediaInfo.Get(StreamType.Video, idx, "ChromaSubsampling"), first, false, true);
+			first &= !appendString("Matrix Co", mediaInfo.Get(StreamType.Video, idx, "matrix_coefficients"), first, false, true);
+			first &= !appendString("MultiView Layout", mediaInfo.Get(StreamType.Video, idx, "MultiView_Layout"), first, true, true);
+			first &= !appendString("PAR", mediaInfo.Get(StreamType.Video, idx, "PixelAspectRatio"), first, false, true);
+			first &= !appendString("DAR", mediaInfo.Get(StreamType.Video, idx, "DisplayAspectRatio/String"), first, false, true);
+			first &= !appendString("DAR Orig", mediaInfo.Get(StreamType.Video, idx, "DisplayAspectRatio_Original/String"), first, false, true);
+			first &= !appendString("Scan Type", mediaInfo.Get(StreamType.Video, idx, "ScanType"), first, false, true);
+			first &= !appendString("Scan Order", mediaInfo.Get(StreamType.Video, idx, "ScanOrder"), first, false, true);
+			first &= !appendString("FPS", mediaInfo.Get(StreamType.Video, idx, "FrameRate"), first, false, true);
+			first &= !appendString("FPS Orig", mediaInfo.Get(StreamType.Video, idx, "FrameRate_Original"), first, false, true);
+			first &= !appendString("Framerate Mode", mediaInfo.Get(StreamType.Video, idx, "FrameRate_Mode"), first, false, true);
+			first &= !appendString("RefFrames", mediaInfo.Get(StreamType.Video, idx, "Format_Settings_RefFrames"), first, false, true);
+			first &= !appendString("QPel", mediaInfo.Get(StreamType.Video, idx, "Format_Settings_QPel"), first, true, true);
+			first &= !appendString("GMC", mediaInfo.Get(StreamType.Video, idx, "Format_Settings_GMC"), first, true, true);
+			first &= !appendString("GOP", mediaInfo.Get(StreamType.Video, idx, "Format_Settings_GOP"), first, true, true);
+			first &= !appendString("Muxing Mode", mediaInfo.Get(StreamType.Video, idx, "MuxingMode"), first, true, true);
+			first &= !appendString("Encrypt", mediaInfo.Get(StreamType.Video, idx, "Encryption"), first, true, true);
+			first &= !appendString("Bit Depth", mediaInfo.Get(StreamType.Video, idx, "BitDepth"), first, false, true);
+			first &= !appendString("Delay", mediaInfo.Get(StreamType.Video, idx, "Delay"), first, false, true);
+			first &= !appendString("Delay Source", mediaInfo.Get(StreamType.Video, idx, "Delay_Source"), first, false, true);
+			first &= !appendString("Delay Original", mediaInfo.Get(StreamType.Video, idx, "Delay_Original"), first, false, true);
+			first &= !appendString("Delay O. Source", mediaInfo.Get(StreamType.Video, idx, "Delay_Original_Source"), first, false, true);
+			first &= !appendString("TimeStamp_FirstFrame", mediaInfo.Get(StreamType.Video, idx, "TimeStamp_FirstFrame"), first, false, true);
 		}
 
 		public void logVideoTrackColumns(int idx) {
-			if (MI == null || !MI.isValid()) {
+			if (mediaInfo == null || !mediaInfo.isValid()) {
 				return;
 			}
 
 			sb.append("\n  - Video track ");
-			appendString("ID", MI.Get(StreamType.Video, idx, "ID"), true, false, false);
+			appendString("ID", mediaInfo.Get(StreamType.Video, idx, "ID"), true, false, false);
 			streamColumns.reset();
 			sb.append("\n");
-			appendStringNextColumn(streamColumns, "Format", MI.Get(StreamType.Video, idx, "Format"), true, true);
-			appendStringNextColumn(streamColumns, "Version", MI.Get(StreamType.Video, idx, "Format_Version"), true, true);
-			appendStringNextColumn(streamColumns, "Profile", MI.Get(StreamType.Video, idx, "Format_Profile"), true, true);
-			appendStringNextColumn(streamColumns, "CodecID", MI.Get(StreamType.Video, idx, "CodecID"), true, true);
-			Double durationSec = parseDuration(MI.Get(StreamType.Video, 0, "Duration"));
+			appendStringNextColumn(streamColumns, "Format", mediaInfo.Get(StreamType.Video, idx, "Format"), true, true);
+			appendStringNextColumn(streamColumns, "Version", mediaInfo.Get(StreamType.Video, idx, "Format_Version"), true, true);
+			appendStringNextColumn(streamColumns, "Profile", mediaInfo.Get(StreamType.Video, idx, "Format_Profile"), true, true);
+			appendStringNextColumn(streamColumns, "CodecID", mediaInfo.Get(StreamType.Video, idx, "CodecID"), true, true);
+			Double durationSec = parseDuration(mediaInfo.Get(StreamType.Video, 0, "Duration"));
 			if (durationSec != null) {
 				appendStringNextColumn(streamColumns, "Duration", StringUtil.formatDLNADuration(durationSec), false, true);
 			}
-			appendStringNextColumn(streamColumns, "BitRate Mode", MI.Get(StreamType.Video, idx, "BitRate_Mode"), false, true);
-			appendStringNextColumn(streamColumns, "Bitrate", MI.Get(StreamType.Video, idx, "BitRate"), false, true);
-			appendStringNextColumn(streamColumns, "Bitrate Nominal", MI.Get(StreamType.Video, idx, "BitRate_Nominal"), false, true);
-			appendStringNextColumn(streamColumns, "BitRate Maximum", MI.Get(StreamType.Video, idx, "BitRate_Maximum"), false, true);
-			appendStringNextColumn(streamColumns, "Bitrate Encoded", MI.Get(StreamType.Video, idx, "BitRate_Encoded"), false, true);
-			appendStringNextColumn(streamColumns, "Width", MI.Get(StreamType.Video, idx, "Width"), false, true);
-			appendStringNextColumn(streamColumns, "Height", MI.Get(StreamType.Video, idx, "Height"), false, true);
-			appendStringNextColumn(streamColumns, "Colorimetry", MI.Get(StreamType.Video, idx, "Colorimetry"), false, true);
-			appendStringNextColumn(streamColumns, "Chroma", MI.Get(StreamType.Video, idx, "ChromaSubsampling"), false, true);
-			appendStringNextColumn(streamColumns, "Matrix Co", MI.Get(StreamType.Video, idx, "matrix_coefficients"), false, true);
-			appendStringNextColumn(streamColumns, "MultiView Layout", MI.Get(StreamType.Video, idx, "MultiView_Layout"), true, true);
-			appendStringNextColumn(streamColumns, "PAR", MI.Get(StreamType.Video, idx, "PixelAspectRatio"), false, true);
-			appendStringNextColumn(streamColumns, "DAR", MI.Get(StreamType.Video, idx, "DisplayAspectRatio/String"), false, true);
-			appendStringNextColumn(streamColumns, "DAR Orig", MI.Get(StreamType.Video, idx, "DisplayAspectRatio_Original/String"), false, true);
-			appendStringNextColumn(streamColumns, "Scan Type", MI.Get(StreamType.Video, idx, "ScanType"), false, true);
-			appendStringNextColumn(streamColumns, "Scan Order", MI.Get(StreamType.Video, idx, "ScanOrder"), false, true);
-			appendStringNextColumn(streamColumns, "FPS", MI.Get(StreamType.Video, idx, "FrameRate"), false, true);
-			appendStringNextColumn(streamColumns, "FPS Orig", MI.Get(StreamType.Video, idx, "FrameRate_Original"), false, true);
-			appendStringNextColumn(streamColumns, "Framerate Mode", MI.Get(StreamType.Video, idx, "FrameRate_Mode"), false, true);
-			appendStringNextColumn(streamColumns, "RefFrames", MI.Get(StreamType.Video, idx, "Format_Settings_RefFrames"), false, true);
-			appendStringNextColumn(streamColumns, "QPel", MI.Get(StreamType.Video, idx, "Format_Settings_QPel"), true, true);
-			appendStringNextColumn(streamColumns, "GMC", MI.Get(StreamType.Video, idx, "Format_Settings_GMC"), true, true);
-			appendStringNextColumn(streamColumns, "GOP", MI.Get(StreamType.Video, idx, "Format_Settings_GOP"), true, true);
-			appendStringNextColumn(streamColumns, "Muxing Mode", MI.Get(StreamType.Video, idx, "MuxingMode"), true, true);
-			appendStringNextColumn(streamColumns, "Encrypt", MI.Get(StreamType.Video, idx, "Encryption"), true, true);
-			appendStringNextColumn(streamColumns, "Bit Depth", MI.Get(StreamType.Video, idx, "BitDepth"), false, true);
-			appendStringNextColumn(streamColumns, "Delay", MI.Get(StreamType.Video, idx, "Delay"), false, true);
-			appendStringNextColumn(streamColumns, "Delay Source", MI.Get(StreamType.Video, idx, "Delay_Source"), false, true);
-			appendStringNextColumn(streamColumns, "Delay Original", MI.Get(StreamType.Video, idx, "Delay_Original"), false, true);
-			appendStringNextColumn(streamColumns, "Delay O. Source", MI.Get(StreamType.Video, idx, "Delay_Original_Source"), false, true);
-			appendStringNextColumn(streamColumns, "TimeStamp_FirstFrame", MI.Get(StreamType.Video, idx, "TimeStamp_FirstFrame"), false, true);
+			appendStringNextColumn(streamColumns, "BitRate Mode", mediaInfo.Get(StreamType.Video, idx, "BitRate_Mode"), false, true);
+			appendStringNextColumn(streamColumns, "Bitrate", mediaInfo.Get(StreamType.Video, idx, "BitRate"), false, true);
+			appendStringNextColumn(streamColumns, "Bitrate Nominal", mediaInfo.Get(StreamType.Video, idx, "BitRate_Nominal"), false, true);
+			appendStringNextColumn(streamColumns, "BitRate Maximum", mediaInfo.Get(StreamType.Video, idx, "BitRate_Maximum"), false, true);
+			appendStringNextColumn(streamColumns, "Bitrate Encoded", mediaInfo.Get(StreamType.Video, idx, "BitRate_Encoded"), false, true);
+			appendStringNextColumn(streamColumns, "Width", mediaInfo.Get(StreamType.Video, idx, "Width"), false, true);
+			appendStringNextColumn(streamColumns, "Height", mediaInfo.Get(StreamType.Video, idx, "Height"), false, true);
+			appendStringNextColumn(streamColumns, "Colorimetry", mediaInfo.Get(StreamType.Video, idx, "Colorimetry"), false, true);
+			appendStringNextColumn(streamColumns, "Chroma", mediaInfo.Get(StreamType.Video, idx, "ChromaSubsampling"), false, true);
+			appendStringNextColumn(streamColumns, "Matrix Co", mediaInfo.Get(StreamType.Video, idx, "matrix_coefficients"), false, true);
+			appendStringNextColumn(streamColumns, "MultiView Layout", mediaInfo.Get(StreamType.Video, idx, "MultiView_Layout"), true, true);
+			appendStringNextColumn(streamColumns, "PAR", mediaInfo.Get(StreamType.Video, idx, "PixelAspectRatio"), false, true);
+			appendStringNextColumn(streamColumns, "DAR", mediaInfo.Get(StreamType.Video, idx, "DisplayAspectRatio/String"), false, true);
+			appendStringNextColumn(streamColumns, "DAR Orig", mediaInfo.Get(StreamType.Video, idx, "DisplayAspectRatio_Original/String"), false, true);
+			appendStringNextColumn(streamColumns, "Scan Type", mediaInfo.Get(StreamType.Video, idx, "ScanType"), false, true);
+			appendStringNextColumn(streamColumns, "Scan Order", mediaInfo.Get(StreamType.Video, idx, "ScanOrder"), false, true);
+			appendStringNextColumn(streamColumns, "FPS", mediaInfo.Get(StreamType.Video, idx, "FrameRate"), false, true);
+			appendStringNextColumn(streamColumns, "FPS Orig", mediaInfo.Get(StreamType.Video, idx, "FrameRate_Original"), false, true);
+			appendStringNextColumn(streamColumns, "Framerate Mode", mediaInfo.Get(StreamType.Video, idx, "FrameRate_Mode"), false, true);
+			appendStringNextColumn(streamColumns, "RefFrames", mediaInfo.Get(StreamType.Video, idx, "Format_Settings_RefFrames"), false, true);
+			appendStringNextColumn(streamColumns, "QPel", mediaInfo.Get(StreamType.Video, idx, "Format_Settings_QPel"), true, true);
+			appendStringNextColumn(streamColumns, "GMC", mediaInfo.Get(StreamType.Video, idx, "Format_Settings_GMC"), true, true);
+			appendStringNextColumn(streamColumns, "GOP", mediaInfo.Get(StreamType.Video, idx, "Format_Settings_GOP"), true, true);
+			appendStringNextColumn(streamColumns, "Muxing Mode", mediaInfo.Get(StreamType.Video, idx, "MuxingMode"), true, true);
+			appendStringNextColumn(streamColumns, "Encrypt", mediaInfo.Get(StreamType.Video, idx, "Encryption"), true, true);
+			appendStringNextColumn(streamColumns, "Bit Depth", mediaInfo.Get(StreamType.Video, idx, "BitDepth"), false, true);
+			appendStringNextColumn(streamColumns, "Delay", mediaInfo.Get(StreamType.Video, idx, "Delay"), false, true);
+			appendStringNextColumn(streamColumns, "Delay Source", mediaInfo.Get(StreamType.Video, idx, "Delay_Source"), false, true);
+			appendStringNextColumn(streamColumns, "Delay Original", mediaInfo.Get(StreamType.Video, idx, "Delay_Original"), false, true);
+			appendStringNextColumn(streamColumns, "Delay O. Source", mediaInfo.Get(StreamType.Video, idx, "Delay_Original_Source"), false, true);
+			appendStringNextColumn(streamColumns, "TimeStamp_FirstFrame", mediaInfo.Get(StreamType.Video, idx, "TimeStamp_FirstFrame"), false, true);
 		}
 
 		public void logAudioTrack(int idx) {
-			if (MI == null || !MI.isValid()) {
+			if (mediaInfo == null || !mediaInfo.isValid()) {
 				return;
 			}
 
 			sb.append("\n    - Audio - ");
 			boolean first = true;
-			first &= !appendString("Title", MI.Get(StreamType.Audio, idx, "Title"), first, true, true);
-			first &= !appendString("Format", MI.Get(StreamType.Audio, idx, "Format"), first, true, true);
-			first &= !appendString("Version", MI.Get(StreamType.Audio, idx, "Format_Version"), first, true, true);
-			first &= !appendString("Profile", MI.Get(StreamType.Audio, idx, "Format_Profile"), first, true, true);
-			first &= !appendString("ID", MI.Get(StreamType.Audio, idx, "ID"), first, false, true);
-			first &= !appendString("CodecID", MI.Get(StreamType.Audio, idx, "CodecID"), first, true, true);
-			first &= !appendString("CodecID Desc", MI.Get(StreamType.Audio, idx, "CodecID_Description"), first, true, true);
-			Double durationSec = parseDuration(MI.Get(StreamType.Audio, 0, "Duration"));
+			first &= !appendString("Title", mediaInfo.Get(StreamType.Audio, idx, "Title"), first, true, true);
+			first &= !appendString("Format", mediaInfo.Get(StreamType.Audio, idx, "Format"), first, true, true);
+			first &= !appendString("Version", mediaInfo.Get(StreamType.Audio, idx, "Format_Version"), first, true, true);
+			first &= !appendString("Profile", mediaInfo.Get(StreamType.Audio, idx, "Format_Profile"), first, true, true);
+			first &= !appendString("ID", mediaInfo.Get(StreamType.Audio, idx, "ID"), first, false, true);
+			first &= !appendString("CodecID", mediaInfo.Get(StreamType.Audio, idx, "CodecID"), first, true, true);
+			first &= !appendString("CodecID Desc", mediaInfo.Get(StreamType.Audio, idx, "CodecID_Description"), first, true, true);
+			Double durationSec = parseDuration(mediaInfo.Get(StreamType.Audio, 0, "Duration"));
 			if (durationSec != null) {
 				first &= !appendString("Duration", StringUtil.formatDLNADuration(durationSec), first, false, true);
 			}
-			first &= !appendString("BitRate Mode", MI.Get(StreamType.Audio, idx, "BitRate_Mode"), first, false, true);
-			first &= !appendString("Bitrate", MI.Get(StreamType.Audio, idx, "BitRate"), first, false, true);
-			first &= !appendString("Bitrate Nominal", MI.Get(StreamType.Audio, idx, "BitRate_Nominal"), first, false, true);
-			first &= !appendString("BitRate Maximum", MI.Get(StreamType.Audio, idx, "BitRate_Maximum"), first, false, true);
-			first &= !appendString("Bitrate Encoded", MI.Get(StreamType.Audio, idx, "BitRate_Encoded"), first, false, true);
-			first &= !appendString("Language", MI.Get(StreamType.Audio, idx, "Language"), first, true, true);
-			first &= !appendString("Channel(s)", MI.Get(StreamType.Audio, idx, "Channel(s)_Original"), first, false, true);
-			first &= !appendString("Samplerate", MI.Get(StreamType.Audio, idx, "SamplingRate"), first, false, true);
-			first &= !appendString("Track", MI.Get(StreamType.General, idx, "Track/Position"), first, false, true);
-			first &= !appendString("Bit Depth", MI.Get(StreamType.Audio, idx, "BitDepth"), first, false, true);
-			first &= !appendString("Delay", MI.Get(StreamType.Audio, idx, "Delay"), first, false, true);
-			first &= !appendString("Delay Source", MI.Get(StreamType.Audio, idx, "Delay_Source"), first, false, true);
-			first &= !appendString("Delay Original", MI.Get(StreamType.Audio, idx, "Delay_Original"), first, false, true);
-			first &= !appendString("Delay O. Source", MI.Get(StreamType.Audio, idx, "Delay_Original_Source"), first, false, true);
+			first &= !appendString("BitRate Mode", mediaInfo.Get(StreamType.Audio, idx, "BitRate_Mode"), first, false, true);
+			first &= !appendString("Bitrate", mediaInfo.Get(StreamType.Audio, idx, "BitRate"), first, false, true);
+			first &= !appendString("Bitrate Nominal", mediaInfo.Get(StreamType.Audio, idx, "BitRate_Nominal"), first, false, true);
+			first &= !appendString("BitRate Maximum", mediaInfo.Get(StreamType.Audio, idx, "BitRate_Maximum"), first, false, true);
+			first &= !appendString("Bitrate Encoded", mediaInfo.Get(StreamType.Audio, idx, "BitRate_Encoded"), first, false, true);
+			first &= !appendString("Language", mediaInfo.Get(StreamType.Audio, idx, "Language"), first, true, true);
+			first &= !appendString("Channel(s)", mediaInfo.Get(StreamType.Audio, idx, "Channel(s)_Original"), first, false, true);
+			first &= !appendString("Samplerate", mediaInfo.Get(StreamType.Audio, idx, "SamplingRate"), first, false, true);
+			first &= !appendString("Track", mediaInfo.Get(StreamType.General, idx, "Track/Position"), first, false, true);
+			first &= !appendString("Bit Depth", mediaInfo.Get(StreamType.Audio, idx, "BitDepth"), first, false, true);
+			first &= !appendString("Delay", mediaInfo.Get(StreamType.Audio, idx, "Delay"), first, false, true);
+			first &= !appendString("Delay Source", mediaInfo.Get(StreamType.Audio, idx, "Delay_Source"), first, false, true);
+			first &= !appendString("Delay Original", mediaInfo.Get(StreamType.Audio, idx, "Delay_Original"), first, false, true);
+			first &= !appendString("Delay O. Source", mediaInfo.Get(StreamType.Audio, idx, "Delay_Original_Source"), first, false, true);
 		}
 
 		public void logAudioTrackColumns(int idx) {
-			if (MI == null || !MI.isValid()) {
+			if (mediaInfo == null || !mediaInfo.isValid()) {
 				return;
 			}
 
 			sb.append("\n  - Audio track ");
-			appendString("ID", MI.Get(StreamType.Audio, idx, "ID"), true, false, false);
-			appendString("Title", MI.Get(StreamType.Audio, idx, "Title"), false, true, true);
+			appendString("ID", mediaInfo.Get(StreamType.Audio, idx, "ID"), true, false, false);
+			appendString("Title", mediaInfo.Get(StreamType.Audio, idx, "Title"), false, true, true);
 			streamColumns.reset();
 			sb.append("\n");
-			appendStringNextColumn(streamColumns, "Format", MI.Get(StreamType.Audio, idx, "Format"), true, true);
-			appendStringNextColumn(streamColumns, "Version", MI.Get(StreamType.Audio, idx, "Format_Version"), true, true);
-			appendStringNextColumn(streamColumns, "Profile", MI.Get(StreamType.Audio, idx, "Format_Profile"), true, true);
-			appendStringNextColumn(streamColumns, "CodecID", MI.Get(StreamType.Audio, idx, "CodecID"), true, true);
-			appendStringNextColumn(streamColumns, "CodecID Desc", MI.Get(StreamType.Audio, idx, "CodecID_Description"), true, true);
-			Double durationSec = parseDuration(MI.Get(StreamType.Audio, 0, "Duration"));
+			appendStringNextColumn(streamColumns, "Format", mediaInfo.Get(StreamType.Audio, idx, "Format"), true, true);
+			appendStringNextColumn(streamColumns, "Version", mediaInfo.Get(StreamType.Audio, idx, "Format_Version"), true, true);
+			appendStringNextColumn(streamColumns, "Profile", mediaInfo.Get(StreamType.Audio, idx, "Format_Profile"), true, true);
+			appendStringNextColumn(streamColumns, "CodecID", mediaInfo.Get(StreamType.Audio, idx, "CodecID"), true, true);
+			appendStringNextColumn(streamColumns, "CodecID Desc", mediaInfo.Get(StreamType.Audio, idx, "CodecID_Description"), true, true);
+			Double durationSec = parseDuration(mediaInfo.Get(StreamType.Audio, 0, "Duration"));
 			if (durationSec != null) {
 				appendStringNextColumn(streamColumns, "Duration", StringUtil.formatDLNADuration(durationSec), false, true);
 			}
-			appendStringNextColumn(streamColumns, "BitRate Mode", MI.Get(StreamType.Audio, idx, "BitRate_Mode"), false, true);
-			appendStringNextColumn(streamColumns, "Bitrate", MI.Get(StreamType.Audio, idx, "BitRate"), false, true);
-			appendStringNextColumn(streamColumns, "Bitrate Nominal", MI.Get(StreamType.Audio, idx, "BitRate_Nominal"), false, true);
-			appendStringNextColumn(streamColumns, "BitRate Maximum", MI.Get(StreamType.Audio, idx, "BitRate_Maximum"), false, true);
-			appendStringNextColumn(streamColumns, "Bitrate Encoded", MI.Get(StreamType.Audio, idx, "BitRate_Encoded"), false, true);
-			appendStringNextColumn(streamColumns, "Language", MI.Get(StreamType.Audio, idx, "Language"), true, true);
-			appendStringNextColumn(streamColumns, "Channel(s)", MI.Get(StreamType.Audio, idx, "Channel(s)"), false, true);
-			appendStringNextColumn(streamColumns, "Samplerate", MI.Get(StreamType.Audio, idx, "SamplingRate"), false, true);
-			appendStringNextColumn(streamColumns, "Track", MI.Get(StreamType.General, idx, "Track/Position"), false, true);
-			appendStringNextColumn(streamColumns, "Bit Depth", MI.Get(StreamType.Audio, idx, "BitDepth"), false, true);
-			appendStringNextColumn(streamColumns, "Delay", MI.Get(StreamType.Audio, idx, "Delay"), false, true);
-			appendStringNextColumn(streamColumns, "Delay Source", MI.Get(StreamType.Audio, idx, "Delay_Source"), false, true);
-			appendStringNextColumn(streamColumns, "Delay Original", MI.Get(StreamType.Audio, idx, "Delay_Original"), false, true);
-			appendStringNextColumn(streamColumns, "Delay O. Source", MI.Get(StreamType.Audio, idx, "Delay_Original_Source"), false, true);
+			appendStringNextColumn(streamColumns, "BitRate Mode", mediaInfo.Get(StreamType.Audio, idx, "BitRate_Mode"), false, true);
+			appendStringNextColumn(streamColumns, "Bitrate", mediaInfo.Get(StreamType.Audio, idx, "BitRate"), false, true);
+			appendStringNextColumn(streamColumns, "Bitrate Nominal", mediaInfo.Get(StreamType.Audio, idx, "BitRate_Nominal"), false, true);
+			appendStringNextColumn(streamColumns, "BitRate Maximum", mediaInfo.Get(StreamType.Audio, idx, "BitRate_Maximum"), false, true);
+			appendStringNextColumn(streamColumns, "Bitrate Encoded", mediaInfo.Get(StreamType.Audio, idx, "BitRate_Encoded"), false, true);
+			appendStringNextColumn(streamColumns, "Language", mediaInfo.Get(StreamType.Audio, idx, "Language"), true, true);
+			appendStringNextColumn(streamColumns, "Channel(s)", mediaInfo.Get(StreamType.Audio, idx, "Channel(s)"), false, true);
+			appendStringNextColumn(streamColumns, "Samplerate", mediaInfo.Get(StreamType.Audio, idx, "SamplingRate"), false, true);
+			appendStringNextColumn(streamColumns, "Track", mediaInfo.Get(StreamType.General, idx, "Track/Position"), false, true);
+			appendStringNextColumn(streamColumns, "Bit Depth", mediaInfo.Get(StreamType.Audio, idx, "BitDepth"), false, true);
+			appendStringNextColumn(streamColumns, "Delay", mediaInfo.Get(StreamType.Audio, idx, "Delay"), false, true);
+			appendStringNextColumn(streamColumns, "Delay Source", mediaInfo.Get(StreamType.Audio, idx, "Delay_Source"), false, true);
+			appendStringNextColumn(streamColumns, "Delay Original", mediaInfo.Get(StreamType.Audio, idx, "Delay_Original"), false, true);
+			appendStringNextColumn(streamColumns, "Delay O. Source", mediaInfo.Get(StreamType.Audio, idx, "Delay_Original_Source"), false, true);
 		}
 
 		public void logImage(int idx) {
-			if (MI == null || !MI.isValid()) {
+			if (mediaInfo == null || !mediaInfo.isValid()) {
 				return;
 			}
 
 			sb.append("\n    - Image - ");
 			boolean first = true;
-			first &= !appendString("Format", MI.Get(StreamType.Image, idx, "Format"), first, true, true);
-			first &= !appendString("Version", MI.Get(StreamType.Image, idx, "Format_Version"), first, true, true);
-			first &= !appendString("Profile", MI.Get(StreamType.Image, idx, "Format_Profile"), first, true, true);
-			first &= !appendString("ID", MI.Get(StreamType.Image, idx, "ID"), first, false, true);
-			first &= !appendString("Width", MI.Get(StreamType.Image, idx, "Width"), first, false, true);
-			first &= !appendString("Height", MI.Get(StreamType.Image, idx, "Height"), first, false, true);
+			first &= !appendString("Format", mediaInfo.Get(StreamType.Image, idx, "Format"), first, true, true);
+			first &= !appendString("Version", mediaInfo.Get(StreamType.Image, idx, "Format_Version"), first, true, true);
+			first &= !appendString("Profile", mediaInfo.Get(StreamType.Image, idx, "Format_Profile"), first, true, true);
+			first &= !appendString("ID", mediaInfo.Get(StreamType.Image, idx, "ID"), first, false, true);
+			first &= !appendString("Width", mediaInfo.Get(StreamType.Image, idx, "Width"), first, false, true);
+			first &= !appendString("Height", mediaInfo.Get(StreamType.Image, idx, "Height"), first, false, true);
 		}
 
 		public void logImageColumns(int idx) {
-			if (MI == null || !MI.isValid()) {
+			if (mediaInfo == null || !mediaInfo.isValid()) {
 				return;
 			}
 
 			sb.append("\n  - Image ");
-			appendString("ID", MI.Get(StreamType.Image, idx, "ID"), true, false, false);
+			appendString("ID", mediaInfo.Get(StreamType.Image, idx, "ID"), true, false, false);
 			streamColumns.reset();
 			sb.append("\n");
-			appendStringNextColumn(streamColumns, "Format", MI.Get(StreamType.Image, idx, "Format"), true, true);
-			appendStringNextColumn(streamColumns, "Version", MI.Get(StreamType.Image, idx, "Format_Version"), true, true);
-			appendStringNextColumn(streamColumns, "Profile", MI.Get(StreamType.Image, idx, "Format_Profile"), true, true);
-			appendStringNextColumn(streamColumns, "Width", MI.Get(StreamType.Image, idx, "Width"), false, true);
-			appendStringNextColumn(streamColumns, "Height", MI.Get(StreamType.Image, idx, "Height"), false, true);
+			appendStringNextColumn(streamColumns, "Format", mediaInfo.Get(StreamType.Image, idx, "Format"), true, true);
+			appendStringNextColumn(streamColumns, "Version", mediaInfo.Get(StreamType.Image, idx, "Format_Version"), true, true);
+			appendStringNextColumn(streamColumns, "Profile", mediaInfo.Get(StreamType.Image, idx, "Format_Profile"), true, true);
+			appendStringNextColumn(streamColumns, "Width", mediaInfo.Get(StreamType.Image, idx, "Width"), false, true);
+			appendStringNextColumn(streamColumns, "Height", mediaInfo.Get(StreamType.Image, idx, "Height"), false, true);
 		}
 
 		public void logSubtitleTrack(int idx, boolean videoSubtitle) {
-			if (MI == null || !MI.isValid()) {
+			if (mediaInfo == null || !mediaInfo.isValid()) {
 				return;
 			}
 
 			sb.append("\n    - Sub - ");
 			boolean first = true;
 			if (videoSubtitle) {
-				first &= !appendString("Title", MI.Get(StreamType.Video, idx, "Title"), first, true, true);
-				first &= !appendString("Format", MI.Get(StreamType.Video, idx, "Format"), first, true, true);
-				first &= !appendString("Version", MI.Get(StreamType.Video, idx, "Format_Version"), first, true, true);
-				first &= !appendString("Profile", MI.Get(StreamType.Video, idx, "Format_Profile"), first, true, true);
-				first &= !appendString("ID", MI.Get(StreamType.Video, idx, "ID"), first, false, true);
+				first &= !appendString("Title", mediaInfo.Get(StreamType.Video, idx, "Title"), first, true, true);
+				first &= !appendString("Format", mediaInfo.Get(StreamType.Video, idx, "Format"), first, true, true);
+				first &= !appendString("Version", mediaInfo.Get(StreamType.Video, idx, "Format_Version"), first, true, true);
+				first &= !appendString("Profile", mediaInfo.Get(StreamType.Video, idx, "Format_Profile"), first, true, true);
+				first &= !appendString("ID", mediaInfo.Get(StreamType.Video, idx, "ID"), first, false, true);
 			} else {
-				first &= !appendString("Title", MI.Get(StreamType.Text, idx, "Title"), first, true, true);
-				first &= !appendString("Format", MI.Get(StreamType.Text, idx, "Format"), first, true, true);
-				first &= !appendString("Version", MI.Get(StreamType.Text, idx, "Format_Version"), first, true, true);
-				first &= !appendString("Profile", MI.Get(StreamType.Text, idx, "Format_Profile"), first, true, true);
-				first &= !appendString("ID", MI.Get(StreamType.Text, idx, "ID"), first, false, true);
-				first &= !appendString("Language", MI.Get(StreamType.Text, idx, "Language"), first, true, true);
+				first &= !appendString("Title", mediaInfo.Get(StreamType.Text, idx, "Title"), first, true, true);
+				first &= !appendString("Format", mediaInfo.Get(StreamType.Text, idx, "Format"), first, true, true);
+				first &= !appendString("Version", mediaInfo.Get(StreamType.Text, idx, "Format_Version"), first, true, true);
+				first &= !appendString("Profile", mediaInfo.Get(StreamType.Text, idx, "Format_Profile"), first, true, true);
+				first &= !appendString("ID", mediaInfo.Get(StreamType.Text, idx, "ID"), first, false, true);
+				first &= !appendString("Language", mediaInfo.Get(StreamType.Text, idx, "Language"), first, true, true);
 			}
 		}
 
 		public void logSubtitleTrackColumns(int idx, boolean videoSubtitle) {
-			if (MI == null || !MI.isValid()) {
+			if (mediaInfo == null || !mediaInfo.isValid()) {
 				return;
 			}
 
 			sb.append("\n  - Subtitle ");
 			streamColumns.reset();
 			if (videoSubtitle) {
-				appendString("ID", MI.Get(StreamType.Video, idx, "ID"), true, false, false);
-				appendString("Title", MI.Get(StreamType.Video, idx, "Title"), false, true, true);
+				appendString("ID", mediaInfo.Get(StreamType.Video, idx, "ID"), true, false, false);
+				appendString("Title", mediaInfo.Get(StreamType.Video, idx, "Title"), false, true, true);
 				sb.append("\n");
-				appendStringNextColumn(streamColumns, "Format", MI.Get(StreamType.Video, idx, "Format"), true, true);
-				appendStringNextColumn(streamColumns, "Version", MI.Get(StreamType.Video, idx, "Format_Version"), true, true);
-				appendStringNextColumn(streamColumns, "Profile", MI.Get(StreamType.Video, idx, "Format_Profile"), true, true);
+				appendStringNextColumn(streamColumns, "Format", mediaInfo.Get(StreamType.Video, idx, "Format"), true, true);
+				appendStringNextColumn(streamColumns, "Version", mediaInfo.Get(StreamType.Video, idx, "Format_Version"), true, true);
+				appendStringNextColumn(streamColumns, "Profile", mediaInfo.Get(StreamType.Video, idx, "Format_Profile"), true, true);
 			} else {
-				appendString("ID", MI.Get(StreamType.Text, idx, "ID"), true, false, false);
-				appendString("Title", MI.Get(StreamType.Text, idx, "Title"), false, true, true);
+				appendString("ID", mediaInfo.Get(StreamType.Text, idx, "ID"), true, false, false);
+				appendString("Title", mediaInfo.Get(StreamType.Text, idx, "Title"), false, true, true);
 				sb.append("\n");
-				appendStringNextColumn(streamColumns, "Format", MI.Get(StreamType.Text, idx, "Format"), true, true);
-				appendStringNextColumn(streamColumns, "Version", MI.Get(StreamType.Text, idx, "Format_Version"), true, true);
-				appendStringNextColumn(streamColumns, "Profile", MI.Get(StreamType.Text, idx, "Format_Profile"), true, true);
-				appendStringNextColumn(streamColumns, "Language", MI.Get(StreamType.Text, idx, "Language"), true, true);
+				appendStringNextColumn(streamColumns, "Format", mediaInfo.Get(StreamType.Text, idx, "Format"), true, true);
+				appendStringNextColumn(streamColumns, "Version", mediaInfo.Get(StreamType.Text, idx, "Format_Version"), true, true);
+				appendStringNextColumn(streamColumns, "Profile", mediaInfo.Get(StreamType.Text, idx, "Format_Profile"), true, true);
+				appendStringNextColumn(streamColumns, "Language", mediaInfo.Get(StreamType.Text, idx, "Language"), true, true);
 			}
 		}
 
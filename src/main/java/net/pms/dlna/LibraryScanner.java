@@ -0,0 +1,875 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.dlna;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import net.pms.Messages;
+import net.pms.PMS;
+import net.pms.database.TableLibraryFolders;
+import net.pms.database.TableLibraryFolders.FolderState;
+import net.pms.database.TableLibraryScan;
+import net.pms.database.TableManager;
+import net.pms.newgui.IFrame;
+import net.pms.service.Services;
+import net.pms.util.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Scans a tree of {@link DLNAResource} folders using a number of worker
+ * threads. Each folder is a separate task, and the tasks are queued per
+ * volume so that no more than a configured number of folders on the same
+ * volume are read at the same time.
+ * <p>
+ * Folders whose complete subtree has been scanned are recorded in
+ * {@link TableLibraryScan}, so that a scan that is stopped or interrupted
+ * skips them the next time. The records are removed when a scan completes.
+ * <p>
+ * The fingerprint of every folder is stored in {@link TableLibraryFolders}.
+ * A folder whose entries have the same names, sizes and modification times
+ * as the last time isn't discovered again, only its subfolders are queued.
+ * The cached files are cleaned up only in the folders that have changed, and
+ * in the folders that aren't shared anymore using
+ * {@link #removeUnsharedFolders}.
+ */
+@ThreadSafe
+public class LibraryScanner {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LibraryScanner.class);
+
+	/** The number of milliseconds between each throughput report */
+	protected static final long REPORT_INTERVAL = 30000;
+
+	/** The number of scanned folders whose fingerprints are stored together */
+	protected static final int MAX_PENDING_FINGERPRINTS = 100;
+
+	/** The volume used for folders that don't represent a file system folder */
+	protected static final Object VIRTUAL_VOLUME = new Object();
+
+	/** Whether the current thread is scanning */
+	private static final ThreadLocal<Boolean> SCANNER_THREAD = new ThreadLocal<>();
+
+	/** The number of threads scanning */
+	protected final int threads;
+
+	/** The maximum number of threads scanning the same volume */
+	protected final int threadsPerVolume;
+
+	/** The lock protecting the queues */
+	protected final ReentrantLock lock = new ReentrantLock();
+
+	/** Signaled when a task is queued or finished */
+	protected final Condition changed = lock.newCondition();
+
+	/** The queued tasks by volume */
+	@GuardedBy("lock")
+	protected final LinkedHashMap<Object, VolumeQueue> volumes = new LinkedHashMap<>();
+
+	/** The number of queued or running tasks */
+	@GuardedBy("lock")
+	protected int outstanding;
+
+	/** Whether the scan has been stopped */
+	protected volatile boolean stopped;
+
+	/** The checkpoint table or {@code null} if checkpoints aren't used */
+	@Nullable
+	protected final TableLibraryScan checkpoints;
+
+	/** The folders completed by an earlier, interrupted scan */
+	@Nonnull
+	protected volatile HashSet<String> completed = new HashSet<>();
+
+	/** The folder fingerprint table or {@code null} if every folder is scanned */
+	@Nullable
+	protected final TableLibraryFolders fingerprints;
+
+	/** The media database */
+	@Nullable
+	protected final DLNAMediaDatabase database = PMS.get().getDatabase();
+
+	/** The fingerprints of scanned folders waiting to be stored */
+	@GuardedBy("pendingFingerprints")
+	protected final ArrayList<Fingerprint> pendingFingerprints = new ArrayList<>();
+
+	/** The frame used to show which folder is scanned */
+	protected final IFrame frame = PMS.get().getFrame();
+
+	/** The number of folders scanned */
+	protected final AtomicLong folders = new AtomicLong();
+
+	/** The number of folders skipped because they were unchanged */
+	protected final AtomicLong unchangedFolders = new AtomicLong();
+
+	/** The number of files scanned */
+	protected final AtomicLong files = new AtomicLong();
+
+	/** The time spent discovering and parsing in nanoseconds */
+	protected final AtomicLong parseTime = new AtomicLong();
+
+	/** The time the scan started */
+	protected long startTime;
+
+	/** The time of the next throughput report */
+	protected final AtomicLong nextReport = new AtomicLong();
+
+	/**
+	 * Creates a new scanner using the configured number of threads.
+	 */
+	public LibraryScanner() {
+		this(
+			getConfiguredThreads(PMS.getConfiguration().getLibraryScanThreads()),
+			PMS.getConfiguration().getLibraryScanThreadsPerVolume()
+		);
+	}
+
+	/**
+	 * Creates a new scanner.
+	 *
+	 * @param threads the number of threads scanning.
+	 * @param threadsPerVolume the maximum number of threads scanning the same
+	 *            volume.
+	 */
+	public LibraryScanner(int threads, int threadsPerVolume) {
+		this.threads = Math.max(threads, 1);
+		this.threadsPerVolume = Math.max(threadsPerVolume, 1);
+		TableManager tableManager = Services.tableManager();
+		this.checkpoints = tableManager == null || !tableManager.isAlive() ? null : tableManager.getTableLibraryScan();
+		this.fingerprints = tableManager == null || !tableManager.isAlive() ? null : tableManager.getTableLibraryFolders();
+	}
+
+	/**
+	 * Calculates the number of threads from the configured value.
+	 *
+	 * @param configured the configured number of threads or {@code 0} for
+	 *            automatic.
+	 * @return The number of threads.
+	 */
+	protected static int getConfiguredThreads(int configured) {
+		if (configured > 0) {
+			return configured;
+		}
+		return Math.max(1, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @return {@code true} if the current thread is scanning for a
+	 *         {@link LibraryScanner}, {@code false} otherwise.
+	 */
+	public static boolean isScannerThread() {
+		return Boolean.TRUE.equals(SCANNER_THREAD.get());
+	}
+
+	/**
+	 * Scans the subfolders of the specified folder and returns when all of
+	 * them have been scanned or the scan has been stopped. The calling thread
+	 * is used as one of the scanning threads.
+	 *
+	 * @param root the already discovered folder whose subfolders to scan.
+	 * @return {@code true} if the scan completed, {@code false} if it was
+	 *         stopped.
+	 */
+	public boolean scan(@Nonnull DLNAResource root) {
+		startTime = System.currentTimeMillis();
+		nextReport.set(startTime + REPORT_INTERVAL);
+		if (checkpoints != null) {
+			completed = checkpoints.getCompleted();
+		}
+		if (!completed.isEmpty()) {
+			LOGGER.info("Resuming the interrupted library scan, {} folders are already scanned", Integer.valueOf(completed.size()));
+		}
+		LOGGER.debug(
+			"Scanning \"{}\" using {} threads with at most {} threads per volume",
+			root.getName(),
+			Integer.valueOf(threads),
+			Integer.valueOf(threadsPerVolume)
+		);
+
+		FolderTask rootTask = new FolderTask(root, null, VIRTUAL_VOLUME);
+		lock.lock();
+		try {
+			outstanding++;
+		} finally {
+			lock.unlock();
+		}
+		process(rootTask);
+
+		BasicThreadFactory threadFactory = new BasicThreadFactory("Library Scanner %d-%d");
+		List<Thread> workers = new ArrayList<>(threads - 1);
+		for (int i = 1; i < threads; i++) {
+			Thread worker = threadFactory.newThread(new Runnable() {
+
+				@Override
+				public void run() {
+					work();
+				}
+			});
+			workers.add(worker);
+			worker.start();
+		}
+		work();
+		for (Thread worker : workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				LOGGER.debug("Interrupted while waiting for the library scanner threads to finish");
+				stop();
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+
+		storeFingerprints();
+		report(true);
+		if (stopped) {
+			LOGGER.info("The library scan was stopped and will continue where it left off the next time");
+			return false;
+		}
+		if (checkpoints != null) {
+			checkpoints.clear();
+		}
+		return true;
+	}
+
+	/**
+	 * Stops the scan. The folders that are being scanned are finished, the
+	 * queued folders are dropped.
+	 */
+	public void stop() {
+		stopped = true;
+		lock.lock();
+		try {
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return {@code true} if unchanged folders are skipped and the cached
+	 *         files in changed folders are cleaned up during the scan, so
+	 *         that {@link DLNAMediaDatabase#cleanup()} isn't needed.
+	 */
+	public boolean isIncremental() {
+		return fingerprints != null && database != null;
+	}
+
+	/**
+	 * @return {@code true} if the scan has been stopped, {@code false}
+	 *         otherwise.
+	 */
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	/**
+	 * Takes tasks from the queues and processes them until there are no more
+	 * tasks or the scan is stopped.
+	 */
+	protected void work() {
+		SCANNER_THREAD.set(Boolean.TRUE);
+		try {
+			while (true) {
+				VolumeQueue volume;
+				FolderTask task;
+				lock.lock();
+				try {
+					while (true) {
+						if (stopped || outstanding == 0) {
+							changed.signalAll();
+							return;
+						}
+						volume = nextVolume();
+						if (volume != null) {
+							break;
+						}
+						changed.await();
+					}
+					// Taking the newest task keeps the scan close to depth-first
+					task = volume.tasks.pollLast();
+					volume.active++;
+				} finally {
+					lock.unlock();
+				}
+
+				try {
+					process(task);
+				} finally {
+					lock.lock();
+					try {
+						volume.active--;
+						changed.signalAll();
+					} finally {
+						lock.unlock();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			LOGGER.debug("Library scanner thread was interrupted");
+			stop();
+		} finally {
+			SCANNER_THREAD.remove();
+		}
+	}
+
+	/**
+	 * Finds the next volume that has queued tasks and a free thread. The
+	 * volumes are served in turn.
+	 *
+	 * @return The {@link VolumeQueue} or {@code null} if no task can be run
+	 *         now.
+	 */
+	@GuardedBy("lock")
+	@Nullable
+	protected VolumeQueue nextVolume() {
+		for (VolumeQueue volume : volumes.values()) {
+			if (!volume.tasks.isEmpty() && volume.active < threadsPerVolume) {
+				// Move it last so that the other volumes are served first next time
+				volumes.remove(volume.volume);
+				volumes.put(volume.volume, volume);
+				return volume;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Queues a task.
+	 *
+	 * @param task the {@link FolderTask} to queue.
+	 */
+	protected void queue(@Nonnull FolderTask task) {
+		lock.lock();
+		try {
+			VolumeQueue volume = volumes.get(task.volume);
+			if (volume == null) {
+				volume = new VolumeQueue(task.volume);
+				volumes.put(task.volume, volume);
+			}
+			volume.tasks.add(task);
+			outstanding++;
+			changed.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Discovers and analyzes the folder of the specified task and queues its
+	 * subfolders.
+	 *
+	 * @param task the {@link FolderTask} to process.
+	 */
+	protected void process(@Nonnull FolderTask task) {
+		try {
+			if (task.parent == null || scanFolder(task.resource, task)) {
+				int fileCount = 0;
+				for (DLNAResource child : task.resource.getChildren()) {
+					if (stopped) {
+						break;
+					}
+					if (child.allowScan()) {
+						queueSubfolder(task, child);
+					} else {
+						fileCount++;
+					}
+				}
+				files.addAndGet(fileCount);
+			}
+		} catch (RuntimeException e) {
+			LOGGER.error("An error occurred while scanning \"{}\": {}", task.resource.getName(), e.getMessage());
+			LOGGER.trace("", e);
+			// The subtree must be scanned again if the scan is resumed
+			for (FolderTask failed = task; failed != null; failed = failed.parent) {
+				failed.failed = true;
+			}
+		} finally {
+			lock.lock();
+			try {
+				outstanding--;
+				if (outstanding == 0) {
+					changed.signalAll();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		complete(task);
+		report(false);
+	}
+
+	/**
+	 * Scans a single folder without its subfolders, outside of a full scan.
+	 * This is used to bring the cached information up to date when a folder
+	 * is known to have changed. The folder isn't discovered if its
+	 * fingerprint shows that it's unchanged since it was last scanned. The
+	 * calling thread counts as a scanning thread while the folder is scanned,
+	 * so that media is parsed with background priority.
+	 *
+	 * @param folder the folder to scan.
+	 * @return {@code true} if the folder was discovered, {@code false} if it
+	 *         was unchanged.
+	 */
+	public boolean update(@Nonnull DLNAResource folder) {
+		boolean scannerThread = isScannerThread();
+		SCANNER_THREAD.set(Boolean.TRUE);
+		try {
+			return scanFolder(folder, null);
+		} finally {
+			storeFingerprints();
+			if (!scannerThread) {
+				SCANNER_THREAD.remove();
+			}
+		}
+	}
+
+	/**
+	 * Discovers and analyzes a folder unless its fingerprint shows that it's
+	 * unchanged since the last scan. The subfolders of an unchanged folder
+	 * are queued directly if a task is specified.
+	 *
+	 * @param resource the folder to scan.
+	 * @param task the {@link FolderTask} of the folder or {@code null} if
+	 *            the subfolders shouldn't be queued.
+	 * @return {@code true} if the folder was discovered and its children
+	 *         should be queued, {@code false} if it was unchanged.
+	 */
+	protected boolean scanFolder(@Nonnull DLNAResource resource, @Nullable FolderTask task) {
+		if (resource instanceof RealFile) {
+			LOGGER.debug("Scanning folder: " + resource.getName());
+			if (task != null) {
+				frame.setStatusLine(Messages.getString("DLNAMediaDatabase.4") + " " + resource.getName());
+			}
+		}
+
+		long start = System.nanoTime();
+		Fingerprint fingerprint = getFingerprint(resource);
+		FolderState state = fingerprint == null ?
+			null :
+			fingerprints.getFolderState(fingerprint.path, fingerprint.modified, fingerprint.value);
+		if (state == FolderState.CHANGED) {
+			// A new folder has nothing to clean up
+			database.cleanupFolder(
+				fingerprint.path,
+				fingerprints.removeMissingSubfolders(fingerprint.path, File.separatorChar)
+			);
+		}
+		if (resource.isDiscovered()) {
+			// The children are needed to queue the subfolders even if it's unchanged
+			resource.refreshChildren();
+		} else {
+			if (state == FolderState.UNCHANGED) {
+				unchangedFolders.incrementAndGet();
+				if (task != null) {
+					for (File subfolder : fingerprint.subfolders) {
+						if (stopped) {
+							break;
+						}
+						RealFile child = new RealFile(subfolder);
+						child.setParent(resource);
+						queueSubfolder(task, child);
+					}
+				}
+				return false;
+			}
+			if (resource instanceof DVDISOFile || resource instanceof DVDISOTitle) { // ugly hack
+				resource.syncResolve();
+			}
+			resource.discoverChildren();
+			resource.analyzeChildren(-1);
+			resource.setDiscovered(true);
+		}
+		parseTime.addAndGet(System.nanoTime() - start);
+		folders.incrementAndGet();
+		if (state == FolderState.NEW || state == FolderState.CHANGED) {
+			storeFingerprint(fingerprint);
+		}
+		return true;
+	}
+
+	/**
+	 * Queues the {@link Fingerprint} of a scanned folder for storage. The
+	 * fingerprints are stored in batches by {@link #storeFingerprints()}.
+	 *
+	 * @param fingerprint the {@link Fingerprint} to store.
+	 */
+	protected void storeFingerprint(@Nonnull Fingerprint fingerprint) {
+		boolean store;
+		synchronized (pendingFingerprints) {
+			pendingFingerprints.add(fingerprint);
+			store = pendingFingerprints.size() >= MAX_PENDING_FINGERPRINTS;
+		}
+		if (store) {
+			storeFingerprints();
+		}
+	}
+
+	/**
+	 * Stores the queued {@link Fingerprint}s. The queued database writes are
+	 * committed first, since a stored fingerprint makes the next scan skip
+	 * the folder, and its files would then never be written if the server
+	 * was stopped before the writes were committed.
+	 */
+	protected void storeFingerprints() {
+		ArrayList<Fingerprint> batch;
+		synchronized (pendingFingerprints) {
+			if (pendingFingerprints.isEmpty()) {
+				return;
+			}
+			batch = new ArrayList<>(pendingFingerprints);
+			pendingFingerprints.clear();
+		}
+		database.flushPendingWrites();
+		for (Fingerprint fingerprint : batch) {
+			fingerprints.setFingerprint(fingerprint.path, fingerprint.modified, fingerprint.value);
+		}
+	}
+
+	/**
+	 * Removes the cached files and fingerprints of the folders that aren't
+	 * below any of the specified shared folders anymore, or whose shared
+	 * folder no longer exists. This is done instead of
+	 * {@link DLNAMediaDatabase#cleanup()} after an incremental scan, since
+	 * {@link #scan} never visits such folders.
+	 *
+	 * @param sharedFolders the shared folders.
+	 */
+	public void removeUnsharedFolders(@Nonnull List<Path> sharedFolders) {
+		if (!isIncremental()) {
+			return;
+		}
+		List<String> paths = new ArrayList<>(sharedFolders.size());
+		for (Path sharedFolder : sharedFolders) {
+			paths.add(sharedFolder.toAbsolutePath().toString());
+		}
+		List<String> removed = fingerprints.removeUnsharedFolders(paths, File.separatorChar);
+		if (!removed.isEmpty()) {
+			LOGGER.info("Removing the cached files of {} folders that aren't shared anymore", Integer.valueOf(removed.size()));
+			database.removeFolders(removed);
+		}
+	}
+
+	/**
+	 * Queues a subfolder of the folder of the specified task unless it was
+	 * completed by an earlier, interrupted scan.
+	 *
+	 * @param task the {@link FolderTask} of the parent folder.
+	 * @param child the subfolder.
+	 */
+	protected void queueSubfolder(@Nonnull FolderTask task, @Nonnull DLNAResource child) {
+		child.setDefaultRenderer(task.resource.getDefaultRenderer());
+		String path = getPath(child);
+		if (path != null && completed.contains(path)) {
+			return;
+		}
+		task.pending.incrementAndGet();
+		queue(new FolderTask(child, task, getVolume(child, task.volume)));
+	}
+
+	/**
+	 * Calculates the {@link Fingerprint} of a folder from the names, sizes
+	 * and modification times of its entries.
+	 *
+	 * @param resource the folder.
+	 * @return The {@link Fingerprint} or {@code null} if fingerprints aren't
+	 *         used, if the folder isn't a {@link RealFile} folder or if it
+	 *         can't be read.
+	 */
+	@Nullable
+	protected Fingerprint getFingerprint(@Nonnull DLNAResource resource) {
+		if (fingerprints == null || database == null || !(resource instanceof RealFile)) {
+			return null;
+		}
+		File folder = ((RealFile) resource).getFile();
+		return folder == null ? null : calculateFingerprint(folder);
+	}
+
+	/**
+	 * Calculates the {@link Fingerprint} of a folder from the names, sizes
+	 * and modification times of its entries.
+	 *
+	 * @param folder the folder.
+	 * @return The {@link Fingerprint} or {@code null} if {@code folder} isn't
+	 *         a folder or can't be read.
+	 */
+	@Nullable
+	protected static Fingerprint calculateFingerprint(@Nonnull File folder) {
+		try {
+			Path folderPath = folder.toPath();
+			BasicFileAttributes folderAttributes = Files.readAttributes(folderPath, BasicFileAttributes.class);
+			if (!folderAttributes.isDirectory()) {
+				return null;
+			}
+			TreeMap<String, BasicFileAttributes> entries = new TreeMap<>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(folderPath)) {
+				for (Path entry : stream) {
+					entries.put(entry.getFileName().toString(), Files.readAttributes(entry, BasicFileAttributes.class));
+				}
+			}
+
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			ByteBuffer buffer = ByteBuffer.allocate(17);
+			List<File> subfolders = new ArrayList<>();
+			for (Entry<String, BasicFileAttributes> entry : entries.entrySet()) {
+				BasicFileAttributes attributes = entry.getValue();
+				digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+				buffer.clear();
+				buffer.put((byte) (attributes.isDirectory() ? 1 : 0));
+				buffer.putLong(attributes.size());
+				buffer.putLong(attributes.lastModifiedTime().toMillis());
+				digest.update(buffer.array());
+				if (attributes.isDirectory() && !"VIDEO_TS".equals(entry.getKey().toUpperCase(Locale.ROOT))) {
+					File subfolder = new File(folder, entry.getKey());
+					if (!subfolder.isHidden()) {
+						subfolders.add(subfolder);
+					}
+				}
+			}
+			return new Fingerprint(
+				folder.getAbsolutePath(),
+				folderAttributes.lastModifiedTime().toMillis(),
+				ByteBuffer.wrap(digest.digest()).getLong(),
+				subfolders
+			);
+		} catch (IOException | InvalidPathException e) {
+			LOGGER.debug("Could not calculate the fingerprint of \"{}\": {}", folder, e.getMessage());
+			LOGGER.trace("", e);
+			return null;
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError("MD5 is missing", e);
+		}
+	}
+
+	/**
+	 * Called when a task or one of its subtasks is finished. When the whole
+	 * subtree of the task is finished, the children are released and a
+	 * checkpoint is stored unless the scan was stopped or something in the
+	 * subtree failed.
+	 *
+	 * @param task the {@link FolderTask}.
+	 */
+	protected void complete(@Nonnull FolderTask task) {
+		while (task != null && task.pending.decrementAndGet() == 0) {
+			if (task.parent == null) {
+				return;
+			}
+			if (!stopped && !task.failed && checkpoints != null) {
+				String path = getPath(task.resource);
+				if (path != null) {
+					checkpoints.setCompleted(path, File.separatorChar);
+				}
+			}
+			task.resource.getChildren().clear();
+			task = task.parent;
+		}
+	}
+
+	/**
+	 * Logs the throughput if it's time for a new report.
+	 *
+	 * @param last whether this is the final report.
+	 */
+	protected void report(boolean last) {
+		long now = System.currentTimeMillis();
+		if (!last) {
+			long next = nextReport.get();
+			if (now < next || !nextReport.compareAndSet(next, now + REPORT_INTERVAL)) {
+				return;
+			}
+		}
+		long elapsed = Math.max(now - startTime, 1);
+		long fileCount = files.get();
+		LOGGER.info(
+			"{}: {} folders and {} files in {} seconds, {} unchanged folders skipped, {} files per second, {} ms per file",
+			last ? "Library scan finished" : "Library scan progress",
+			Long.valueOf(folders.get()),
+			Long.valueOf(fileCount),
+			Long.valueOf(TimeUnit.MILLISECONDS.toSeconds(elapsed)),
+			Long.valueOf(unchangedFolders.get()),
+			String.format("%.1f", Double.valueOf(fileCount * 1000.0 / elapsed)),
+			String.format("%.1f", Double.valueOf(fileCount == 0 ? 0 : parseTime.get() / 1000000.0 / fileCount))
+		);
+	}
+
+	/**
+	 * Returns the path used for the checkpoint of a folder.
+	 *
+	 * @param resource the folder.
+	 * @return The absolute path or {@code null} if the folder isn't a
+	 *         {@link RealFile}.
+	 */
+	@Nullable
+	protected static String getPath(@Nonnull DLNAResource resource) {
+		if (resource instanceof RealFile) {
+			File file = ((RealFile) resource).getFile();
+			return file == null ? null : file.getAbsolutePath();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the volume of a folder. Subfolders are assumed to be on the
+	 * same volume as their parent, only the first {@link RealFile} below a
+	 * virtual folder is looked up.
+	 *
+	 * @param resource the folder.
+	 * @param parentVolume the volume of the parent folder.
+	 * @return The volume.
+	 */
+	@Nonnull
+	protected static Object getVolume(@Nonnull DLNAResource resource, @Nonnull Object parentVolume) {
+		if (parentVolume != VIRTUAL_VOLUME || !(resource instanceof RealFile)) {
+			return parentVolume;
+		}
+		File file = ((RealFile) resource).getFile();
+		if (file == null) {
+			return parentVolume;
+		}
+		try {
+			Path path = file.toPath();
+			try {
+				return Files.getFileStore(path);
+			} catch (IOException e) {
+				LOGGER.debug("Could not determine the volume of \"{}\": {}", file, e.getMessage());
+				Path root = path.toAbsolutePath().getRoot();
+				return root == null ? parentVolume : root;
+			}
+		} catch (InvalidPathException e) {
+			return parentVolume;
+		}
+	}
+
+	/**
+	 * A folder to scan.
+	 */
+	protected static class FolderTask {
+
+		/** The folder */
+		protected final DLNAResource resource;
+
+		/** The task of the parent folder or {@code null} */
+		protected final FolderTask parent;
+
+		/** The volume of the folder */
+		protected final Object volume;
+
+		/** The number of unfinished tasks in this subtree, including itself */
+		protected final AtomicInteger pending = new AtomicInteger(1);
+
+		/** Whether scanning this folder or one of its subfolders failed */
+		protected volatile boolean failed;
+
+		/**
+		 * Creates a new task.
+		 *
+		 * @param resource the folder.
+		 * @param parent the task of the parent folder or {@code null}.
+		 * @param volume the volume of the folder.
+		 */
+		protected FolderTask(DLNAResource resource, FolderTask parent, Object volume) {
+			this.resource = resource;
+			this.parent = parent;
+			this.volume = volume;
+		}
+	}
+
+	/**
+	 * The fingerprint of the content of a folder.
+	 */
+	protected static class Fingerprint {
+
+		/** The absolute path of the folder */
+		protected final String path;
+
+		/** The modification time of the folder */
+		protected final long modified;
+
+		/** The fingerprint */
+		protected final long value;
+
+		/** The subfolders that are scanned if the folder is unchanged */
+		protected final List<File> subfolders;
+
+		/**
+		 * Creates a new fingerprint.
+		 *
+		 * @param path the absolute path of the folder.
+		 * @param modified the modification time of the folder.
+		 * @param value the fingerprint.
+		 * @param subfolders the subfolders.
+		 */
+		protected Fingerprint(String path, long modified, long value, List<File> subfolders) {
+			this.path = path;
+			this.modified = modified;
+			this.value = value;
+			this.subfolders = subfolders;
+		}
+	}
+
+	/**
+	 * The queued tasks of one volume.
+	 */
+	protected static class VolumeQueue {
+
+		/** The volume */
+		protected final Object volume;
+
+		/** The queued tasks */
+		protected final ArrayDeque<FolderTask> tasks = new ArrayDeque<>();
+
+		/** The number of tasks being processed */
+		protected int active;
+
+		/**
+		 * Creates a new queue.
+		 *
+		 * @param volume the volume.
+		 */
+		protected VolumeQueue(Object volume) {
+			this.volume = volume;
+		}
+	}
+}
@@ -22,19 +22,21 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import net.pms.PMS;
 import net.pms.configuration.MapFileConfiguration;
+import net.pms.dlna.virtual.TranscodeVirtualFolder;
 import net.pms.formats.Format;
 import net.pms.formats.FormatFactory;
 import net.pms.formats.FormatType;
 import net.pms.util.FileUtil;
+import net.pms.util.FolderIndex;
 import net.pms.util.UMSUtils;
 import net.pms.util.StringUtil.LetterCase;
 import org.apache.commons.lang3.StringUtils;
@@ -71,6 +73,19 @@ public class MapFile extends DLNAResource {
 
 	private ArrayList<RealFile> searchList;
 
+	/**
+	 * The files in this folder that have been handled by
+	 * {@link #manageFile(File)} with the children they produced, or
+	 * {@code null} if this folder can't be refreshed incrementally.
+	 */
+	private HashMap<File, ManagedFile> managedFiles;
+
+	/** Whether the last refresh found no changes */
+	private boolean childrenUnchanged;
+
+	/** Cached media information prefetched for children that haven't been resolved yet */
+	private final Map<String, DLNAMediaInfo> prefetchedMedia = new ConcurrentHashMap<>();
+
 	/**
 	 * @deprecated Use standard getter and setter to access this variable.
 	 */
@@ -115,30 +130,15 @@ public class MapFile extends DLNAResource {
 		if (folder == null || !folder.isDirectory()) {
 			return null;
 		}
-		try {
-			DirectoryStream<Path> folderThumbnails = Files.newDirectoryStream(folder.toPath(), new DirectoryStream.Filter<Path>() {
-
-				@Override
-				public boolean accept(Path entry) throws IOException {
-					Path fileNamePath = entry.getFileName();
-					if (fileNamePath == null) {
-						return false;
-					}
-					String fileName = fileNamePath.toString().toLowerCase(Locale.ROOT);
-					if (fileName.startsWith("folder.") || fileName.contains("albumart")) {
-						return isPotentialThumbnail(fileName);
-					}
-					return false;
+		FolderIndex folderIndex = FolderIndex.get(folder);
+		if (folderIndex != null) {
+			for (File file : folderIndex.getFiles()) {
+				String fileName = file.getName().toLowerCase(Locale.ROOT);
+				if ((fileName.startsWith("folder.") || fileName.contains("albumart")) && isPotentialThumbnail(fileName)) {
+					// We don't have any rule to prioritize between them; return the first
+					return file;
 				}
-
-			});
-			for (Path folderThumbnail : folderThumbnails) {
-				// We don't have any rule to prioritize between them; return the first
-				return folderThumbnail.toFile();
 			}
-		} catch (IOException e) {
-			LOGGER.warn("An error occurred while trying to browse folder \"{}\": {}", folder.getAbsolutePath(), e.getMessage());
-			LOGGER.trace("", e);
 		}
 		return null;
 	}
@@ -176,8 +176,9 @@ public class MapFile extends DLNAResource {
 	 * @param audioVideoFile the {@link File} for which to enumerate potential
 	 *            thumbnail files.
 	 * @param existingOnly if {@code true}, files will only be added to the
-	 *            returned {@link Set} if they {@link File#exists()}.
-	 * @return The {@link Set} of {@link File}s.
+	 *            returned {@link Set} if they exist according to the
+	 *            {@link FolderIndex} of the folder.
+	 * @return The {@link Set} of absolute {@link File}s.
 	 */
 	@Nonnull
 	public static HashSet<File> getPotentialFileThumbnails(
@@ -189,14 +190,21 @@ public class MapFile extends DLNAResource {
 		if (audioVideoFile == null) {
 			return potentialMatches;
 		}
+		File folder = audioVideoFile.getAbsoluteFile().getParentFile();
+		String baseName = FileUtil.getFileNameWithoutExtension(audioVideoFile.getName());
+		FolderIndex folderIndex = FolderIndex.get(folder);
 		for (String extension : THUMBNAIL_EXTENSIONS) {
-			file = FileUtil.replaceExtension(audioVideoFile, extension, false, true);
-			if (!existingOnly || file.exists()) {
+			file = folderIndex == null ? null : folderIndex.getFile(baseName, extension);
+			if (file != null) {
 				potentialMatches.add(file);
+			} else if (!existingOnly) {
+				potentialMatches.add(new File(folder, baseName + "." + extension));
 			}
-			file = new File(audioVideoFile.toString() + ".cover." + extension);
-			if (!existingOnly || file.exists()) {
+			file = folderIndex == null ? null : folderIndex.getFile(audioVideoFile.getName() + ".cover." + extension);
+			if (file != null) {
 				potentialMatches.add(file);
+			} else if (!existingOnly) {
+				potentialMatches.add(new File(folder, audioVideoFile.getName() + ".cover." + extension));
 			}
 		}
 		return potentialMatches;
@@ -231,6 +239,33 @@ public class MapFile extends DLNAResource {
 	}
 
 	private void manageFile(File file) {
+		if (managedFiles == null) {
+			addFile(file);
+			return;
+		}
+		List<DLNAResource> children = getChildren();
+		int before = children.size();
+		addFile(file);
+		ArrayList<DLNAResource> resources = new ArrayList<>(Math.max(children.size() - before, 0));
+		for (int i = before; i < children.size(); i++) {
+			DLNAResource child = children.get(i);
+			if (!isGeneratedContainer(child)) {
+				resources.add(child);
+			}
+		}
+		managedFiles.put(file, new ManagedFile(file.lastModified(), resources));
+	}
+
+	/**
+	 * @param child the child to evaluate.
+	 * @return {@code true} if {@code child} is a container shared by all the
+	 *         files in this folder, {@code false} otherwise.
+	 */
+	private boolean isGeneratedContainer(DLNAResource child) {
+		return child instanceof TranscodeVirtualFolder || child instanceof SubSelect || child == getDynamicPlsFolder();
+	}
+
+	private void addFile(File file) {
 		boolean isFolder = file.isDirectory();
 		if (file.isFile() || isFolder) {
 			String extension = FileUtil.getExtension(file, LetterCase.LOWER, Locale.ROOT);
@@ -353,6 +388,7 @@ public class MapFile extends DLNAResource {
 			fs = new FileSearch(searchList);
 			addChild(new SearchFolder(fs));
 		}
+		prefetchMedia(count);
 		while (((getChildren().size() - currentChildrenCount) < count) || (count == -1)) {
 			if (vfolder < getConf().getChildren().size()) {
 				addChild(new MapFile(getConf().getChildren().get(vfolder)));
@@ -367,9 +403,58 @@ public class MapFile extends DLNAResource {
 		if (fs != null) {
 			fs.update(searchList);
 		}
+		prefetchedMedia.clear();
 		return discoverable.isEmpty();
 	}
 
+	/**
+	 * Loads the cached media information for the next {@code count} files to
+	 * be analyzed from the database in a few bulk queries, so that the
+	 * children don't have to query the database one by one when resolved.
+	 * Nothing is prefetched unless the default renderer uses MediaInfo, since
+	 * the children are only resolved when added in that case.
+	 *
+	 * @param count the number of files to prefetch or {@code -1} for all.
+	 */
+	private void prefetchMedia(int count) {
+		if (
+			!configuration.getUseCache() ||
+			discoverable == null ||
+			discoverable.isEmpty() ||
+			getDefaultRenderer() == null ||
+			!getDefaultRenderer().isUseMediaInfo()
+		) {
+			return;
+		}
+		DLNAMediaDatabase database = PMS.get().getDatabase();
+		if (database == null) {
+			return;
+		}
+		int end = count < 0 ? discoverable.size() : Math.min(count, discoverable.size());
+		HashMap<String, Long> files = new HashMap<>(end * 4 / 3 + 1);
+		for (File file : discoverable.subList(0, end)) {
+			files.put(file.getAbsolutePath(), Long.valueOf(file.lastModified()));
+		}
+		try {
+			prefetchedMedia.putAll(database.getData(files));
+		} catch (IOException | SQLException e) {
+			LOGGER.debug("Failed to prefetch cached information for \"{}\": {}", getName(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Returns and removes the prefetched media information for the specified
+	 * file if it has been prefetched.
+	 *
+	 * @param fileName the full path of the file.
+	 * @return The prefetched {@link DLNAMediaInfo} or {@code null}.
+	 */
+	@Nullable
+	protected DLNAMediaInfo takePrefetchedMedia(@Nullable String fileName) {
+		return fileName == null ? null : prefetchedMedia.remove(fileName);
+	}
+
 	@Override
 	public void discoverChildren() {
 		discoverChildren(null);
@@ -385,51 +470,7 @@ public class MapFile extends DLNAResource {
 
 		int sm = configuration.getSortMethod(getPath());
 
-		List<File> files = getFileList();
-
-		// Build a map of all files and their corresponding formats
-		HashSet<File> images = new HashSet<>();
-		HashSet<File> audioVideo = new HashSet<>();
-		Iterator<File> iterator = files.iterator();
-		while (iterator.hasNext()) {
-			File file = iterator.next();
-			if (file.isFile()) {
-				if (isPotentialThumbnail(file.getName())) {
-					if (isFolderThumbnail(file, false)) {
-						potentialCover = file;
-						iterator.remove();
-					} else {
-						images.add(file);
-					}
-				} else {
-					Format format = FormatFactory.getAssociatedFormat(file.getAbsolutePath());
-					FormatType formatType = format == null ? null : format.getType();
-					if (
-						formatType == FormatType.AUDIO ||
-						formatType == FormatType.CONTAINER ||
-						formatType == FormatType.VIDEO
-					) {
-						audioVideo.add(file);
-					}
-				}
-			}
-		}
-
-		// Remove cover/thumbnails from file list
-		if (images.size() > 0 && audioVideo.size() > 0) {
-			HashSet<File> potentialMatches = new HashSet<File>(THUMBNAIL_EXTENSIONS.size() * 2);
-			for (File audioVideoFile : audioVideo) {
-				potentialMatches = getPotentialFileThumbnails(audioVideoFile, false);
-				iterator = images.iterator();
-				while (iterator.hasNext()) {
-					File imageFile = iterator.next();
-					if (potentialMatches.contains(imageFile)) {
-						iterator.remove();
-						files.remove(imageFile);
-					}
-				}
-			}
-		}
+		List<File> files = getRelevantFiles();
 
 		// ATZ handling
 		if (files.size() > configuration.getATZLimit() && StringUtils.isEmpty(forcedName)) {
@@ -487,24 +528,94 @@ public class MapFile extends DLNAResource {
 			return;
 		}
 
-		UMSUtils.sort(files, (sm == UMSUtils.SORT_RANDOM ? UMSUtils.SORT_LOC_NAT : sm));
+		managedFiles = new HashMap<>();
+		discoverable.addAll(getSortedFiles(files, sm));
+	}
+
+	/**
+	 * Lists the files in this folder, leaving out the folder thumbnail and
+	 * any thumbnails belonging to audio or video files.
+	 *
+	 * @return The {@link List} of relevant files.
+	 */
+	private List<File> getRelevantFiles() {
+		List<File> files = getFileList();
+
+		// Build a map of all files and their corresponding formats
+		HashSet<File> images = new HashSet<>();
+		HashSet<File> audioVideo = new HashSet<>();
+		Iterator<File> iterator = files.iterator();
+		while (iterator.hasNext()) {
+			File file = iterator.next();
+			if (file.isFile()) {
+				if (isPotentialThumbnail(file.getName())) {
+					if (isFolderThumbnail(file, false)) {
+						potentialCover = file;
+						iterator.remove();
+					} else {
+						images.add(file);
+					}
+				} else {
+					Format format = FormatFactory.getAssociatedFormat(file.getAbsolutePath());
+					FormatType formatType = format == null ? null : format.getType();
+					if (
+						formatType == FormatType.AUDIO ||
+						formatType == FormatType.CONTAINER ||
+						formatType == FormatType.VIDEO
+					) {
+						audioVideo.add(file);
+					}
+				}
+			}
+		}
+
+		// Remove cover/thumbnails from file list
+		if (images.size() > 0 && audioVideo.size() > 0) {
+			HashSet<File> potentialMatches = new HashSet<File>(THUMBNAIL_EXTENSIONS.size() * 2);
+			for (File audioVideoFile : audioVideo) {
+				potentialMatches = getPotentialFileThumbnails(audioVideoFile, false);
+				iterator = images.iterator();
+				while (iterator.hasNext()) {
+					File imageFile = iterator.next();
+					if (potentialMatches.contains(imageFile.getAbsoluteFile())) {
+						iterator.remove();
+						files.remove(imageFile);
+					}
+				}
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Sorts files in the order they should be added as children, folders
+	 * first.
+	 *
+	 * @param files the files to sort. The {@link List} will be reordered.
+	 * @param sortMethod the sort method to use.
+	 * @return The sorted {@link List} of files.
+	 */
+	private static List<File> getSortedFiles(List<File> files, int sortMethod) {
+		ArrayList<File> result = new ArrayList<>(files.size());
+		UMSUtils.sort(files, (sortMethod == UMSUtils.SORT_RANDOM ? UMSUtils.SORT_LOC_NAT : sortMethod));
 
 		for (File f : files) {
 			if (f.isDirectory()) {
-				discoverable.add(f); // manageFile(f);
+				result.add(f);
 			}
 		}
 
 		// For random sorting, we only randomize file entries
-		if (sm == UMSUtils.SORT_RANDOM) {
-			UMSUtils.sort(files, sm);
+		if (sortMethod == UMSUtils.SORT_RANDOM) {
+			UMSUtils.sort(files, sortMethod);
 		}
 
 		for (File f : files) {
 			if (f.isFile()) {
-				discoverable.add(f); // manageFile(f);
+				result.add(f);
 			}
 		}
+		return result;
 	}
 
 	@Override
@@ -540,13 +651,207 @@ public class MapFile extends DLNAResource {
 
 	@Override
 	public void doRefreshChildren(String str) {
+		if (refreshIncrementally()) {
+			return;
+		}
 		getChildren().clear();
 		emptyFoldersToRescan = null; // Since we're re-scanning, reset this list so it can be built again
 		discoverable = null;
+		managedFiles = null;
 		discoverChildren(str);
 		analyzeChildren(-1);
 	}
 
+	/**
+	 * Refreshes the children by comparing the current folder content with
+	 * the files that have already been handled. Children of unchanged files
+	 * are kept as they are, children of deleted or modified files are
+	 * removed and new or modified files are added.
+	 *
+	 * @return {@code true} if the refresh was done, {@code false} if a full
+	 *         refresh is needed.
+	 */
+	private boolean refreshIncrementally() {
+		if (managedFiles == null || discoverable == null || !discoverable.isEmpty() || StringUtils.isNotEmpty(forcedName)) {
+			return false;
+		}
+		int sm = configuration.getSortMethod(getPath());
+		if (sm == UMSUtils.SORT_RANDOM) {
+			return false;
+		}
+		List<File> files = getRelevantFiles();
+		if (files.size() > configuration.getATZLimit()) {
+			// The folder must be split into A-Z folders
+			return false;
+		}
+		List<File> sortedFiles = getSortedFiles(files, sm);
+		HashSet<File> present = new HashSet<>(sortedFiles);
+
+		// Previously empty folders are evaluated again
+		if (emptyFoldersToRescan != null) {
+			for (File folder : emptyFoldersToRescan) {
+				managedFiles.remove(folder);
+			}
+			emptyFoldersToRescan = null;
+		}
+
+		ArrayList<DLNAResource> removed = new ArrayList<>();
+		Iterator<Entry<File, ManagedFile>> iterator = managedFiles.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Entry<File, ManagedFile> entry = iterator.next();
+			File file = entry.getKey();
+			if (!present.contains(file) || (file.isFile() && file.lastModified() != entry.getValue().lastModified)) {
+				removed.addAll(entry.getValue().resources);
+				iterator.remove();
+			}
+		}
+		if (!removed.isEmpty()) {
+			removeResources(removed);
+		}
+
+		for (File file : sortedFiles) {
+			if (!managedFiles.containsKey(file)) {
+				discoverable.add(file);
+			}
+		}
+		int added = 0;
+		if (!discoverable.isEmpty()) {
+			prefetchMedia(-1);
+			for (File file : discoverable) {
+				manageFile(file);
+				ManagedFile managedFile = managedFiles.get(file);
+				if (managedFile != null) {
+					added += managedFile.resources.size();
+				}
+			}
+			discoverable.clear();
+			prefetchedMedia.clear();
+			if (added > 0) {
+				sortResources(sortedFiles);
+			}
+		}
+
+		childrenUnchanged = removed.isEmpty() && added == 0;
+		if (!childrenUnchanged) {
+			LOGGER.debug("Refreshed \"{}\": {} children removed, {} children added", getName(), removed.size(), added);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes children belonging to files that no longer exist or have
+	 * changed, including their entries in the generated containers.
+	 *
+	 * @param resources the children to remove.
+	 */
+	private void removeResources(List<DLNAResource> resources) {
+		HashSet<String> systemNames = new HashSet<>();
+		for (DLNAResource resource : resources) {
+			systemNames.add(resource.getSystemName());
+			children.remove(resource);
+			forget(resource);
+		}
+		if (searchList != null) {
+			searchList.removeAll(resources);
+		}
+		for (DLNAResource child : new ArrayList<>(children)) {
+			if (child instanceof TranscodeVirtualFolder || child instanceof SubSelect) {
+				pruneContainer(child, systemNames);
+			}
+		}
+	}
+
+	/**
+	 * Removes the resources with the given system names from a generated
+	 * container, together with any sub-containers left empty.
+	 *
+	 * @param container the container to prune.
+	 * @param systemNames the system names of the resources to remove.
+	 */
+	private static void pruneContainer(DLNAResource container, Set<String> systemNames) {
+		for (DLNAResource child : new ArrayList<>(container.children)) {
+			if (systemNames.contains(child.getSystemName())) {
+				container.children.remove(child);
+				forget(child);
+			} else if (!child.children.isEmpty()) {
+				pruneContainer(child, systemNames);
+				if (child.children.isEmpty()) {
+					container.children.remove(child);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes a resource and all its descendants from the
+	 * {@link GlobalIdRepo}, so that they can no longer be resolved by their
+	 * ids and can be garbage collected.
+	 *
+	 * @param resource the resource to remove.
+	 */
+	private static void forget(DLNAResource resource) {
+		PMS.getGlobalRepo().remove(resource);
+		for (DLNAResource child : resource.children) {
+			forget(child);
+		}
+	}
+
+	/**
+	 * Puts the children belonging to files in the order of
+	 * {@code sortedFiles}, leaving other children where they are.
+	 *
+	 * @param sortedFiles the files in sorted order.
+	 */
+	private void sortResources(List<File> sortedFiles) {
+		final IdentityHashMap<DLNAResource, Integer> ranks = new IdentityHashMap<>();
+		int rank = 0;
+		for (File file : sortedFiles) {
+			ManagedFile managedFile = managedFiles.get(file);
+			if (managedFile != null) {
+				for (DLNAResource resource : managedFile.resources) {
+					ranks.put(resource, Integer.valueOf(rank++));
+				}
+			}
+		}
+		ArrayList<Integer> positions = new ArrayList<>(ranks.size());
+		ArrayList<DLNAResource> ranked = new ArrayList<>(ranks.size());
+		for (int i = 0; i < children.size(); i++) {
+			if (ranks.containsKey(children.get(i))) {
+				positions.add(Integer.valueOf(i));
+				ranked.add(children.get(i));
+			}
+		}
+		Collections.sort(ranked, new Comparator<DLNAResource>() {
+
+			@Override
+			public int compare(DLNAResource o1, DLNAResource o2) {
+				return ranks.get(o1).compareTo(ranks.get(o2));
+			}
+		});
+		for (int i = 0; i < positions.size(); i++) {
+			children.set(positions.get(i).intValue(), ranked.get(i));
+		}
+	}
+
+	@Override
+	protected void notifyRefresh() {
+		if (childrenUnchanged) {
+			// Nothing changed, so the update id is left alone
+			childrenUnchanged = false;
+			setLastRefreshTime(System.currentTimeMillis());
+			return;
+		}
+		super.notifyRefresh();
+	}
+
+	@Override
+	protected void evictChildren() {
+		super.evictChildren();
+		emptyFoldersToRescan = null;
+		discoverable = null;
+		managedFiles = null;
+	}
+
 	@Override
 	public String getSystemName() {
 		return getName();
@@ -633,4 +938,17 @@ public class MapFile extends DLNAResource {
 		}
 		return null;
 	}
+
+	/**
+	 * The state of a file handled by {@link MapFile#manageFile(File)}.
+	 */
+	private static class ManagedFile {
+		private final long lastModified;
+		private final List<DLNAResource> resources;
+
+		private ManagedFile(long lastModified, List<DLNAResource> resources) {
+			this.lastModified = lastModified;
+			this.resources = resources;
+		}
+	}
 }
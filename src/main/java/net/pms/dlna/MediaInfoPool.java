@@ -0,0 +1,284 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.dlna;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import net.pms.util.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A bounded pool of configured {@link MediaInfo} instances.
+ * <p>
+ * Each {@link MediaInfo} instance wraps a native {@code LibMediaInfo} handle
+ * that can only parse one file at a time. This pool hands out instances using
+ * {@link #acquire()} and takes them back using {@link #release(MediaInfo)},
+ * so that up to {@link #getSize()} files can be parsed in parallel. Instances
+ * are created lazily and kept for reuse.
+ */
+@ThreadSafe
+public class MediaInfoPool {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaInfoPool.class);
+
+	/** The maximum number of {@link MediaInfo} instances in this pool */
+	protected final int size;
+
+	/** The {@link Semaphore} limiting the number of checked out instances */
+	protected final Semaphore permits;
+
+	/** The idle instances available for checkout */
+	protected final ConcurrentLinkedDeque<MediaInfo> idle = new ConcurrentLinkedDeque<>();
+
+	/** The number of instances created by this pool */
+	protected final AtomicInteger created = new AtomicInteger();
+
+	/** Whether {@code LibMediaInfo} could be loaded */
+	protected final boolean valid;
+
+	/** The {@code LibMediaInfo} {@link Version} or {@code null} if unknown */
+	@Nullable
+	protected final Version version;
+
+	/** The number of completed parses reported to this pool */
+	protected final AtomicLong parseCount = new AtomicLong();
+
+	/** The accumulated time spent parsing in nanoseconds */
+	protected final AtomicLong parseNanos = new AtomicLong();
+
+	/** The accumulated time spent waiting for an instance in nanoseconds */
+	protected final AtomicLong waitNanos = new AtomicLong();
+
+	/**
+	 * Creates a new pool with the specified maximum number of instances.
+	 * <p>
+	 * One instance is created immediately to determine if
+	 * {@code LibMediaInfo} is available and what version it is.
+	 *
+	 * @param size the maximum number of {@link MediaInfo} instances that can be
+	 *            checked out at the same time.
+	 */
+	public MediaInfoPool(int size) {
+		this.size = Math.max(size, 1);
+		this.permits = new Semaphore(this.size, true);
+		MediaInfo mediaInfo = new MediaInfo();
+		valid = mediaInfo.isValid();
+		if (valid) {
+			Matcher matcher = Pattern.compile(
+				"MediaInfoLib[\\s-]*(\\S+)",
+				Pattern.CASE_INSENSITIVE
+			).matcher(mediaInfo.Option("Info_Version"));
+			if (matcher.find() && isNotBlank(matcher.group(1))) {
+				version = new Version(matcher.group(1));
+			} else {
+				version = null;
+			}
+			configure(mediaInfo);
+			created.incrementAndGet();
+			idle.push(mediaInfo);
+			LOGGER.debug("MediaInfo pool initialized with a maximum of {} parallel instances", Integer.valueOf(this.size));
+		} else {
+			version = null;
+			discard(mediaInfo);
+		}
+	}
+
+	/**
+	 * Applies the options used by {@link LibMediaInfoParser} to a newly
+	 * created {@link MediaInfo} instance.
+	 *
+	 * @param mediaInfo the {@link MediaInfo} instance to configure.
+	 */
+	protected void configure(@Nonnull MediaInfo mediaInfo) {
+		// Avoid MediaInfoLib to try to connect to an Internet server for availability of newer software, anonymous statistics and retrieving information about a file
+		mediaInfo.Option("Internet", "No");
+		mediaInfo.Option("Complete", "1");
+		mediaInfo.Option("Language", "raw");
+		mediaInfo.Option("File_TestContinuousFileNames", "0");
+		if (version != null && version.isGreaterThan(18, 5)) {
+			mediaInfo.Option("LegacyStreamDisplay", "1");
+			mediaInfo.Option("File_HighestFormat", "0");
+			mediaInfo.Option("File_ChannelLayout", "1");
+			mediaInfo.Option("Legacy", "1");
+		}
+		mediaInfo.Option("ParseSpeed", "0");
+		if (LOGGER.isDebugEnabled() && created.get() == 0) {
+			LOGGER.debug("Option 'File_TestContinuousFileNames' is set to: " + mediaInfo.Option("File_TestContinuousFileNames_Get"));
+			LOGGER.debug("Option 'ParseSpeed' is set to: " + mediaInfo.Option("ParseSpeed_Get"));
+		}
+	}
+
+	/**
+	 * @return {@code true} if {@code LibMediaInfo} was loaded successfully,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * @return The {@code LibMediaInfo} {@link Version} or {@code null} if
+	 *         unknown.
+	 */
+	@Nullable
+	public Version getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return The maximum number of instances that can be checked out at the
+	 *         same time.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return The number of {@link MediaInfo} instances currently checked out.
+	 */
+	public int getActiveCount() {
+		return size - permits.availablePermits();
+	}
+
+	/**
+	 * Checks out a {@link MediaInfo} instance, blocking until one is
+	 * available. Every instance returned by this method must be returned to
+	 * the pool using {@link #release(MediaInfo)} when it's no longer in use.
+	 *
+	 * @return The {@link MediaInfo} instance or {@code null} if
+	 *         {@code LibMediaInfo} isn't available.
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 */
+	@Nullable
+	public MediaInfo acquire() throws InterruptedException {
+		if (!valid) {
+			return null;
+		}
+		long start = System.nanoTime();
+		permits.acquire();
+		waitNanos.addAndGet(System.nanoTime() - start);
+		MediaInfo mediaInfo = idle.poll();
+		if (mediaInfo != null) {
+			return mediaInfo;
+		}
+		try {
+			mediaInfo = new MediaInfo();
+			if (!mediaInfo.isValid()) {
+				discard(mediaInfo);
+				permits.release();
+				return null;
+			}
+			configure(mediaInfo);
+			LOGGER.trace("Created MediaInfo instance number {}", Integer.valueOf(created.incrementAndGet()));
+			return mediaInfo;
+		} catch (RuntimeException | Error e) {
+			discard(mediaInfo);
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes and frees the native handle of a {@link MediaInfo} instance that
+	 * won't be used or returned to the pool. Instances that failed to
+	 * allocate a native handle have nothing to free.
+	 *
+	 * @param mediaInfo the {@link MediaInfo} instance to discard.
+	 */
+	protected void discard(@Nullable MediaInfo mediaInfo) {
+		if (mediaInfo == null || !mediaInfo.isValid()) {
+			return;
+		}
+		try {
+			mediaInfo.Close();
+			mediaInfo.dispose();
+		} catch (RuntimeException e) {
+			LOGGER.debug("Failed to discard MediaInfo instance: {}", e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Closes any file opened by a {@link MediaInfo} instance previously
+	 * checked out using {@link #acquire()} and returns it to the pool. If
+	 * closing fails, the instance is discarded instead, so that a new one
+	 * will be created when needed.
+	 *
+	 * @param mediaInfo the {@link MediaInfo} instance to return.
+	 */
+	public void release(@Nullable MediaInfo mediaInfo) {
+		if (mediaInfo == null) {
+			return;
+		}
+		try {
+			mediaInfo.Close();
+			idle.push(mediaInfo);
+		} catch (RuntimeException e) {
+			LOGGER.debug("Failed to close MediaInfo instance, discarding it: {}", e.getMessage());
+			LOGGER.trace("", e);
+			discard(mediaInfo);
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Registers the time spent on a completed parse.
+	 *
+	 * @param parseTime the time spent parsing in nanoseconds.
+	 */
+	public void registerParse(long parseTime) {
+		parseCount.incrementAndGet();
+		parseNanos.addAndGet(parseTime);
+	}
+
+	/**
+	 * @return The number of parses registered with this pool.
+	 */
+	public long getParseCount() {
+		return parseCount.get();
+	}
+
+	/**
+	 * @return The average time spent parsing a file in milliseconds.
+	 */
+	public double getAverageParseTime() {
+		long count = parseCount.get();
+		return count == 0 ? 0d : (double) TimeUnit.NANOSECONDS.toMicros(parseNanos.get()) / count / 1000d;
+	}
+
+	/**
+	 * @return The average time spent waiting for a {@link MediaInfo} instance
+	 *         in milliseconds.
+	 */
+	public double getAverageWaitTime() {
+		long count = parseCount.get();
+		return count == 0 ? 0d : (double) TimeUnit.NANOSECONDS.toMicros(waitNanos.get()) / count / 1000d;
+	}
+}
@@ -167,7 +167,7 @@ public class RarredEntry extends DLNAResource implements IPushOutput {
 
 	@Override
 	public DLNAThumbnailInputStream getThumbnailInputStream() throws IOException {
-		if (getMedia() != null && getMedia().getThumb() != null) {
+		if (getMedia() != null && getMedia().hasThumb()) {
 			return getMedia().getThumbnailInputStream();
 		}
 		return super.getThumbnailInputStream();
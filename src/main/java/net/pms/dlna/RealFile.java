@@ -176,7 +176,16 @@ public class RealFile extends MapFile {
 				fileName += "#SplitTrack" + getSplitTrack();
 			}
 
-			if (configuration.getUseCache()) {
+			DLNAMediaInfo prefetched = null;
+			if (configuration.getUseCache() && getSplitTrack() < 1 && getParent() instanceof MapFile) {
+				prefetched = ((MapFile) getParent()).takePrefetchedMedia(fileName);
+			}
+
+			if (prefetched != null) {
+				setMedia(prefetched);
+				getMedia().postParse(input);
+				found = true;
+			} else if (configuration.getUseCache()) {
 				DLNAMediaDatabase database = PMS.get().getDatabase();
 
 				if (database != null) {
@@ -232,24 +241,12 @@ public class RealFile extends MapFile {
 					DLNAMediaDatabase database = PMS.get().getDatabase();
 
 					if (database != null) {
-						try {
-							database.insertOrUpdateData(fileName, file.lastModified(), getFormat() == null ? null : getFormat().getType(), getMedia());
-						} catch (SQLException e) {
-							LOGGER.error(
-								"Database error while trying to add parsed information for \"{}\" to the cache: {}",
-								fileName,
-								e.getMessage());
-							if (LOGGER.isTraceEnabled()) {
-								LOGGER.trace("SQL error code: {}", e.getErrorCode());
-								if (
-									e.getCause() instanceof SQLException &&
-									((SQLException) e.getCause()).getErrorCode() != e.getErrorCode()
-								) {
-									LOGGER.trace("Cause SQL error code: {}", ((SQLException) e.getCause()).getErrorCode());
-								}
-								LOGGER.trace("", e);
-							}
-						}
+						database.queueInsertOrUpdateData(
+							fileName,
+							file.lastModified(),
+							getFormat() == null ? null : getFormat().getType(),
+							getMedia()
+						);
 					}
 				}
 			}
@@ -297,13 +294,13 @@ public class RealFile extends MapFile {
 			cachedThumbnail = MapFile.getFolderThumbnail(file);
 		}
 
-		boolean hasAlreadyEmbeddedCoverArt = mediaType == MediaType.AUDIO && getMedia() != null && getMedia().getThumb() != null;
+		boolean hasAlreadyEmbeddedCoverArt = mediaType == MediaType.AUDIO && getMedia() != null && getMedia().hasThumb();
 
 		DLNAThumbnailInputStream result = null;
 		try {
 			if (cachedThumbnail != null && (!hasAlreadyEmbeddedCoverArt || file.isDirectory())) {
 				result = DLNAThumbnailInputStream.toThumbnailInputStream(new FileInputStream(cachedThumbnail));
-			} else if (getMedia() != null && getMedia().getThumb() != null) {
+			} else if (getMedia() != null && getMedia().hasThumb()) {
 				result = getMedia().getThumbnailInputStream();
 			}
 		} catch (IOException e) {
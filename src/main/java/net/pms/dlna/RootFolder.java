@@ -55,7 +55,8 @@ import xmlwise.XmlParseException;
 
 public class RootFolder extends DLNAResource {
 	private static final Logger LOGGER = LoggerFactory.getLogger(RootFolder.class);
-	private boolean running;
+	private volatile boolean running;
+	private volatile LibraryScanner libraryScanner;
 	private FolderLimit lim;
 	private MediaMonitor mon;
 	private Playlist last;
@@ -197,13 +198,23 @@ public class RootFolder extends DLNAResource {
 
 			setDefaultRenderer(RendererConfiguration.getDefaultConf());
 			LOGGER.debug("Starting scan of: {}", this.getName());
-			scan(this);
+			LibraryScanner scanner = new LibraryScanner();
+			libraryScanner = scanner;
+			if (running) {
+				scanner.scan(this);
+			}
 
-			// Running might have been set false during scan
+			// Running might have been set false during scan. An incremental
+			// scan has already cleaned up the folders that changed.
 			if (running) {
-				PMS.get().getDatabase().cleanup();
+				if (scanner.isIncremental()) {
+					scanner.removeUnsharedFolders(getSharedFolders());
+				} else {
+					PMS.get().getDatabase().cleanup();
+				}
 			}
 		} finally {
+			libraryScanner = null;
 			frame.setScanLibraryEnabled(true);
 			frame.setStatusLine(null);
 		}
@@ -219,52 +230,17 @@ public class RootFolder extends DLNAResource {
 
 	public void stopScan() {
 		running = false;
-	}
-
-	private void scan(DLNAResource resource) {
-		if (running) {
-			for (DLNAResource child : resource.getChildren()) {
-				if (running && child.allowScan()) {
-					child.setDefaultRenderer(resource.getDefaultRenderer());
-
-					// Display and log which folder is being scanned
-					String childName = child.getName();
-					if (child instanceof RealFile) {
-						LOGGER.debug("Scanning folder: " + childName);
-						frame.setStatusLine(Messages.getString("DLNAMediaDatabase.4") + " " + childName);
-					}
-
-					if (child.isDiscovered()) {
-						child.refreshChildren();
-					} else {
-						if (child instanceof DVDISOFile || child instanceof DVDISOTitle) { // ugly hack
-							child.syncResolve();
-						}
-						child.discoverChildren();
-						child.analyzeChildren(-1);
-						child.setDiscovered(true);
-					}
-
-					int count = child.getChildren().size();
-
-					if (count == 0) {
-						continue;
-					}
-
-					scan(child);
-					child.getChildren().clear();
-				} else if (!running){
-					break;
-				}
-			}
-		} else {
-			frame.setScanLibraryEnabled(true);
+		LibraryScanner scanner = libraryScanner;
+		if (scanner != null) {
+			scanner.stop();
 		}
 	}
 
+	/**
+	 * @return The configured shared folders that aren't ignored.
+	 */
 	@Nonnull
-	private List<RealFile> getConfiguredFolders() {
-		List<RealFile> resources = new ArrayList<>();
+	private List<Path> getSharedFolders() {
 		List<Path> folders = configuration.getSharedFolders();
 		List<Path> ignoredList = configuration.getIgnoredFolders();
 
@@ -276,10 +252,18 @@ public class RootFolder extends DLNAResource {
 				}
 			}
 		}
+		return folders;
+	}
+
+	@Nonnull
+	private List<RealFile> getConfiguredFolders() {
+		List<RealFile> resources = new ArrayList<>();
+		List<Path> folders = getSharedFolders();
 
 		for (Path folder : folders) {
 			resources.add(new RealFile(folder.toFile()));
 		}
+		SharedFolderWatcher.get().setFolders(folders);
 
 		if (configuration.getSearchFolder()) {
 			SearchFolder sf = new SearchFolder(Messages.getString("PMS.143"), new FileSearch(resources));
@@ -0,0 +1,417 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.dlna;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import net.pms.PMS;
+import net.pms.configuration.PmsConfiguration;
+import net.pms.configuration.RendererConfiguration;
+import net.pms.util.BasicThreadFactory;
+import net.pms.util.FileWatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Watches the shared folders for changes using {@link FileWatcher}. Folders
+ * on network file systems, and folders that can't be registered with the
+ * operating system, are polled instead.
+ * <p>
+ * When a folder has changed and no further events have arrived for
+ * {@link #DEBOUNCE_DELAY} milliseconds, the cached information for the
+ * folder is brought up to date in the background and every discovered
+ * instance of the folder is refreshed, which updates its {@code updateId}
+ * and the {@code SystemUpdateID}. New files can then be browsed without
+ * being parsed during the browse request.
+ */
+@ThreadSafe
+public class SharedFolderWatcher {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SharedFolderWatcher.class);
+	private static final PmsConfiguration CONFIGURATION = PMS.getConfiguration();
+
+	/** The number of milliseconds without events before a folder is updated */
+	protected static final long DEBOUNCE_DELAY = 5000;
+
+	/** The file system types that can't be watched reliably */
+	protected static final HashSet<String> REMOTE_FILE_SYSTEMS = new HashSet<>(Arrays.asList(
+		"9p", "afpfs", "cifs", "davfs", "fuse.rclone", "fuse.sshfs", "ncpfs",
+		"nfs", "nfs4", "smb", "smb2", "smb3", "smbfs", "webdav"
+	));
+
+	private static final Object INSTANCE_LOCK = new Object();
+
+	@GuardedBy("INSTANCE_LOCK")
+	private static SharedFolderWatcher instance;
+
+	/** The thread registering watches, polling and updating folders */
+	protected final ScheduledThreadPoolExecutor executor;
+
+	/** The watched folders and their watchpoints */
+	@GuardedBy("this")
+	protected final HashMap<Path, FileWatcher.Watch> watches = new HashMap<>();
+
+	/** The polled folders and the modification times of their subfolders */
+	@GuardedBy("this")
+	protected final HashMap<Path, HashMap<Path, Long>> polled = new HashMap<>();
+
+	/** The scheduled polling task or {@code null} */
+	@GuardedBy("this")
+	protected ScheduledFuture<?> pollTask;
+
+	/** The changed folders waiting to be updated */
+	@GuardedBy("pending")
+	protected final HashMap<Path, ScheduledFuture<?>> pending = new HashMap<>();
+
+	/** The listener, which must be kept since watchpoints only hold weak references */
+	protected final FileWatcher.Listener listener = new FileWatcher.Listener() {
+
+		@Override
+		public void notify(String filename, String event, FileWatcher.Watch watch, boolean isDir) {
+			handleEvent(Paths.get(filename), event, isDir);
+		}
+	};
+
+	/**
+	 * Creates a new instance.
+	 */
+	protected SharedFolderWatcher() {
+		executor = new ScheduledThreadPoolExecutor(1, new BasicThreadFactory("Shared Folder Watcher %d-%d"));
+		executor.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * @return The shared {@link SharedFolderWatcher} instance.
+	 */
+	@Nonnull
+	public static SharedFolderWatcher get() {
+		synchronized (INSTANCE_LOCK) {
+			if (instance == null) {
+				instance = new SharedFolderWatcher();
+			}
+			return instance;
+		}
+	}
+
+	/**
+	 * Sets the folders to watch. Folders that are no longer shared stop being
+	 * watched. The registration is done in the background.
+	 *
+	 * @param folders the shared folders.
+	 */
+	public void setFolders(@Nonnull List<Path> folders) {
+		final List<Path> watched = CONFIGURATION.isWatchSharedFolders() ?
+			new ArrayList<>(folders) :
+			Collections.<Path>emptyList();
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				register(watched);
+			}
+		});
+	}
+
+	/**
+	 * Registers or removes watches and polled folders so that exactly the
+	 * specified folders are watched.
+	 *
+	 * @param folders the folders to watch.
+	 */
+	protected synchronized void register(@Nonnull List<Path> folders) {
+		Iterator<Entry<Path, FileWatcher.Watch>> iterator = watches.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Entry<Path, FileWatcher.Watch> entry = iterator.next();
+			if (!folders.contains(entry.getKey())) {
+				FileWatcher.remove(entry.getValue());
+				iterator.remove();
+				LOGGER.debug("Stopped watching \"{}\"", entry.getKey());
+			}
+		}
+		polled.keySet().retainAll(folders);
+
+		for (Path folder : folders) {
+			if (watches.containsKey(folder) || polled.containsKey(folder) || !Files.isDirectory(folder)) {
+				continue;
+			}
+			if (!isRemote(folder)) {
+				FileWatcher.Watch watch = FileWatcher.Watch.folder(folder, listener, this);
+				if (FileWatcher.add(watch)) {
+					watches.put(folder, watch);
+					LOGGER.debug("Watching \"{}\" for changes", folder);
+					continue;
+				}
+				FileWatcher.remove(watch);
+				LOGGER.info("Could not watch all the folders in \"{}\", checking it for changes periodically instead", folder);
+			}
+			HashMap<Path, Long> snapshot = new HashMap<>();
+			readFolders(folder, snapshot);
+			polled.put(folder, snapshot);
+			LOGGER.debug("Checking \"{}\" for changes periodically", folder);
+		}
+
+		int interval = CONFIGURATION.getSharedFolderPollInterval();
+		if (polled.isEmpty() || interval == 0) {
+			if (pollTask != null) {
+				pollTask.cancel(false);
+				pollTask = null;
+			}
+		} else if (pollTask == null) {
+			pollTask = executor.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					poll();
+				}
+			}, interval, interval, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Compares the modification times of all the subfolders of the polled
+	 * folders with those found the last time, and handles the folders that
+	 * have changed.
+	 */
+	protected synchronized void poll() {
+		for (Entry<Path, HashMap<Path, Long>> entry : polled.entrySet()) {
+			HashMap<Path, Long> previous = entry.getValue();
+			HashMap<Path, Long> current = new HashMap<>();
+			readFolders(entry.getKey(), current);
+			for (Entry<Path, Long> folder : current.entrySet()) {
+				if (!folder.getValue().equals(previous.get(folder.getKey()))) {
+					folderChanged(folder.getKey());
+				}
+			}
+			for (Path folder : previous.keySet()) {
+				if (!current.containsKey(folder) && folder.getParent() != null) {
+					folderChanged(folder.getParent());
+				}
+			}
+			entry.setValue(current);
+		}
+	}
+
+	/**
+	 * Handles an event from {@link FileWatcher}.
+	 *
+	 * @param path the path of the changed file or folder.
+	 * @param event the event name.
+	 * @param isDir whether {@code path} is a folder.
+	 */
+	protected void handleEvent(@Nonnull Path path, String event, boolean isDir) {
+		if ("OVERFLOW".equals(event)) {
+			// Events were lost, so anything in the watched folder might have changed
+			LOGGER.debug("Checking all the folders in \"{}\" since file events were lost", path);
+			HashMap<Path, Long> folders = new HashMap<>();
+			readFolders(path, folders);
+			for (Path folder : folders.keySet()) {
+				folderChanged(folder);
+			}
+			return;
+		}
+		if (isDir && "ENTRY_MODIFY".equals(event)) {
+			// Changes within the folder have events of their own
+			return;
+		}
+		if (path.getParent() != null) {
+			folderChanged(path.getParent());
+		}
+		if (isDir && "ENTRY_CREATE".equals(event)) {
+			// The content of a moved or copied folder doesn't produce events
+			HashMap<Path, Long> folders = new HashMap<>();
+			readFolders(path, folders);
+			for (Path folder : folders.keySet()) {
+				folderChanged(folder);
+			}
+		}
+	}
+
+	/**
+	 * Schedules an update of the specified folder after
+	 * {@link #DEBOUNCE_DELAY} milliseconds. An update that is already
+	 * scheduled for the folder is postponed.
+	 *
+	 * @param folder the changed folder.
+	 */
+	protected void folderChanged(@Nonnull final Path folder) {
+		synchronized (pending) {
+			ScheduledFuture<?> previous = pending.put(folder, executor.schedule(new Runnable() {
+
+				@Override
+				public void run() {
+					synchronized (pending) {
+						pending.remove(folder);
+					}
+					update(folder);
+				}
+			}, DEBOUNCE_DELAY, TimeUnit.MILLISECONDS));
+			if (previous != null) {
+				previous.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * Brings the cached information for a changed folder up to date and
+	 * refreshes every discovered instance of it.
+	 *
+	 * @param folder the changed folder.
+	 */
+	protected void update(@Nonnull Path folder) {
+		File file = folder.toFile();
+		if (!file.isDirectory()) {
+			// The event for the parent folder handles deleted folders
+			return;
+		}
+		LOGGER.debug("Updating changed folder \"{}\"", folder);
+		try {
+			if (CONFIGURATION.getUseCache() && PMS.get().getDatabase() != null) {
+				RealFile resource = new RealFile(file);
+				resource.setDefaultRenderer(RendererConfiguration.getDefaultConf());
+				new LibraryScanner(1, 1).update(resource);
+			}
+
+			LinkedHashSet<RootFolder> rootFolders = new LinkedHashSet<>();
+			rootFolders.add(RendererConfiguration.getDefaultConf().getRootFolderIfCreated());
+			for (RendererConfiguration renderer : RendererConfiguration.getConnectedRenderersConfigurations()) {
+				rootFolders.add(renderer.getRootFolderIfCreated());
+			}
+			rootFolders.remove(null);
+
+			List<DLNAResource> resources = new ArrayList<>();
+			for (RootFolder rootFolder : rootFolders) {
+				findDiscovered(rootFolder, folder, resources);
+			}
+			for (DLNAResource resource : resources) {
+				synchronized (resource.discoveryLock) {
+					if (resource.isDiscovered()) {
+						resource.doRefreshChildren();
+						resource.notifyRefresh();
+					}
+				}
+			}
+		} catch (RuntimeException e) {
+			LOGGER.error("An error occurred while updating changed folder \"{}\": {}", folder, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Finds the discovered {@link MapFile} instances representing the
+	 * specified folder below the specified resource.
+	 *
+	 * @param parent the resource to search below.
+	 * @param folder the folder to find.
+	 * @param result the {@link List} to add the instances to.
+	 */
+	protected static void findDiscovered(@Nonnull DLNAResource parent, @Nonnull Path folder, @Nonnull List<DLNAResource> result) {
+		List<DLNAResource> children;
+		synchronized (parent.discoveryLock) {
+			children = new ArrayList<>(parent.getChildren());
+		}
+		for (DLNAResource child : children) {
+			if (!(child instanceof MapFile) || !child.isDiscovered()) {
+				continue;
+			}
+			for (File file : ((MapFile) child).getConf().getFiles()) {
+				Path path = file == null ? null : file.toPath().toAbsolutePath();
+				if (path == null || !folder.startsWith(path)) {
+					continue;
+				}
+				if (folder.equals(path)) {
+					result.add(child);
+				} else {
+					findDiscovered(child, folder, result);
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Adds the modification times of the specified folder and all its
+	 * subfolders to a {@link HashMap}.
+	 *
+	 * @param root the folder to read.
+	 * @param folders the {@link HashMap} to add the folders to.
+	 */
+	protected static void readFolders(@Nonnull Path root, @Nonnull final HashMap<Path, Long> folders) {
+		try {
+			Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					folders.put(dir, Long.valueOf(attrs.lastModifiedTime().toMillis()));
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			LOGGER.debug("Could not read the folders in \"{}\": {}", root, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Checks whether a folder is on a network file system where changes made
+	 * by other computers aren't reported.
+	 *
+	 * @param folder the folder to check.
+	 * @return {@code true} if the folder must be polled, {@code false} if it
+	 *         can be watched.
+	 */
+	protected static boolean isRemote(@Nonnull Path folder) {
+		try {
+			FileStore store = Files.getFileStore(folder);
+			return REMOTE_FILE_SYSTEMS.contains(store.type().toLowerCase(Locale.ROOT));
+		} catch (IOException e) {
+			LOGGER.debug("Could not determine the file system of \"{}\": {}", folder, e.getMessage());
+			return true;
+		}
+	}
+}
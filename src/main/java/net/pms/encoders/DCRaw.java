@@ -38,7 +38,7 @@ import net.pms.io.ListProcessWrapperResult;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
 import net.pms.io.ProcessWrapperImpl;
-import net.pms.io.SimpleProcessWrapper;
+import net.pms.io.ProbeCache;
 import net.pms.platform.windows.NTStatus;
 import net.pms.util.Version;
 
@@ -394,7 +394,7 @@ public class DCRaw extends ImagePlayer {
 		}
 		ExecutableInfoBuilder result = executableInfo.modify();
 		try {
-			ListProcessWrapperResult output = SimpleProcessWrapper.runProcessListOutput(
+			ListProcessWrapperResult output = ProbeCache.runProcessListOutput(
 				30000,
 				1000,
 				executableInfo.getPath().toString()
@@ -1647,8 +1647,12 @@ public class FFMpegVideo extends Player {
 		}
 		final String arg = "-version";
 		ExecutableInfoBuilder result = executableInfo.modify();
+		if (result instanceof FFmpegExecutableInfoBuilder) {
+			// Run the capability probes while the version is tested
+			FFmpegExecutableInfo.prefetchProbes(executableInfo.getPath());
+		}
 		try {
-			ListProcessWrapperResult output = SimpleProcessWrapper.runProcessListOutput(
+			ListProcessWrapperResult output = ProbeCache.runProcessListOutput(
 				30000,
 				1000,
 				executableInfo.getPath().toString(),
@@ -2786,7 +2786,7 @@ public class MEncoderVideo extends Player {
 		final String arg = "-info:help";
 		ExecutableInfoBuilder result = executableInfo.modify();
 		try {
-			ListProcessWrapperResult output = SimpleProcessWrapper.runProcessListOutput(
+			ListProcessWrapperResult output = ProbeCache.runProcessListOutput(
 				30000,
 				1000,
 				executableInfo.getPath().toString(),
@@ -904,7 +904,7 @@ public class TsMuxeRVideo extends Player {
 		final String arg = "-v";
 		ExecutableInfoBuilder result = executableInfo.modify();
 		try {
-			ListProcessWrapperResult output = SimpleProcessWrapper.runProcessListOutput(
+			ListProcessWrapperResult output = ProbeCache.runProcessListOutput(
 				30000,
 				1000,
 				executableInfo.getPath().toString(),
@@ -777,7 +777,7 @@ public class VLCVideo extends Player {
 		} else {
 			final String arg = "--version";
 			try {
-				ListProcessWrapperResult output = SimpleProcessWrapper.runProcessListOutput(
+				ListProcessWrapperResult output = ProbeCache.runProcessListOutput(
 					30000,
 					1000,
 					executableInfo.getPath().toString(),
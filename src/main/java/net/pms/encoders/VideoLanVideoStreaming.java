@@ -48,7 +48,7 @@ import net.pms.io.OutputParams;
 import net.pms.io.PipeProcess;
 import net.pms.io.ProcessWrapper;
 import net.pms.io.ProcessWrapperImpl;
-import net.pms.io.SimpleProcessWrapper;
+import net.pms.io.ProbeCache;
 import net.pms.util.Version;
 import net.pms.util.Version.WindowsVersionType;
 
@@ -256,7 +256,7 @@ public class VideoLanVideoStreaming extends Player {
 		} else {
 			final String arg = "--version";
 			try {
-				ListProcessWrapperResult output = SimpleProcessWrapper.runProcessListOutput(
+				ListProcessWrapperResult output = ProbeCache.runProcessListOutput(
 					30000,
 					1000,
 					executableInfo.getPath().toString(),
@@ -0,0 +1,354 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.image.thumbnail;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import net.pms.PMS;
+import net.pms.dlna.DLNAMediaDatabase;
+import net.pms.io.ProcessWrapperImpl;
+import net.pms.util.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Runs the short-lived external processes used to generate thumbnails and
+ * to parse media on a bounded pool of worker threads, so that browsing a
+ * large folder doesn't start dozens of processes at once.
+ * <p>
+ * Each process is stopped by a shared watchdog if it runs for longer than
+ * its timeout. Jobs with the same key, usually the command line, are
+ * coalesced so that concurrent requests for the same file share one process.
+ * Jobs are run in {@link Priority} order, so that items a renderer is
+ * waiting for are handled before those requested by the library scanner.
+ */
+@ThreadSafe
+public class ThumbnailService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailService.class);
+
+	private static final Object INSTANCE_LOCK = new Object();
+
+	@GuardedBy("INSTANCE_LOCK")
+	private static ThumbnailService instance;
+
+	/** The shared watchdog stopping processes that time out */
+	private static final ScheduledThreadPoolExecutor WATCHDOG;
+
+	static {
+		WATCHDOG = new ScheduledThreadPoolExecutor(1, new BasicThreadFactory("Thumbnail Watchdog %d-%d"));
+		WATCHDOG.setKeepAliveTime(30, TimeUnit.SECONDS);
+		WATCHDOG.allowCoreThreadTimeOut(true);
+		WATCHDOG.setRemoveOnCancelPolicy(true);
+	}
+
+	/** The worker threads */
+	protected final ThreadPoolExecutor executor;
+
+	/** The sequence number used to keep jobs of equal priority in order */
+	protected final AtomicLong sequence = new AtomicLong();
+
+	/** The queued or running jobs that can be shared by key */
+	@GuardedBy("jobs")
+	protected final HashMap<List<String>, Job> jobs = new HashMap<>();
+
+	/**
+	 * Creates a new instance with the specified number of workers.
+	 *
+	 * @param workers the maximum number of concurrent processes.
+	 */
+	public ThumbnailService(int workers) {
+		workers = Math.max(workers, 1);
+		executor = new ThreadPoolExecutor(
+			workers,
+			workers,
+			30,
+			TimeUnit.SECONDS,
+			new PriorityBlockingQueue<Runnable>(),
+			new BasicThreadFactory("Thumbnail Worker %d-%d")
+		);
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @return The shared {@link ThumbnailService} instance, created from the
+	 *         configuration on first use.
+	 */
+	@Nonnull
+	public static ThumbnailService get() {
+		synchronized (INSTANCE_LOCK) {
+			if (instance == null) {
+				int workers = getConfiguredWorkers(PMS.getConfiguration().getThumbnailGenerationThreads());
+				LOGGER.debug("Starting thumbnail service with {} workers", Integer.valueOf(workers));
+				instance = new ThumbnailService(workers);
+			}
+			return instance;
+		}
+	}
+
+	/**
+	 * Calculates the number of workers from the configured value.
+	 *
+	 * @param configured the configured number of workers or {@code 0} for
+	 *            automatic.
+	 * @return The number of workers.
+	 */
+	protected static int getConfiguredWorkers(int configured) {
+		if (configured > 0) {
+			return configured;
+		}
+		return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	}
+
+	/**
+	 * Runs the specified process on a worker and waits for it to finish. If a
+	 * job with the same key is already queued or running, no new process is
+	 * started and the returned {@link Job} is the existing one, whose
+	 * priority is raised if needed.
+	 *
+	 * @param process the {@link ProcessWrapperImpl} to run.
+	 * @param timeout the number of milliseconds after which the process is
+	 *            stopped.
+	 * @param priority the {@link Priority} of the job.
+	 * @param key the key identifying identical jobs, or {@code null} if the
+	 *            job can't be shared.
+	 * @return The {@link Job} that was run. The process hasn't finished if the
+	 *         waiting thread was interrupted, check {@link Job#isDone()}.
+	 */
+	@Nonnull
+	public Job run(
+		@Nonnull ProcessWrapperImpl process,
+		long timeout,
+		@Nonnull Priority priority,
+		@Nullable List<String> key
+	) {
+		Job job;
+		boolean submit = false;
+		if (key == null) {
+			job = new Job(process, timeout, priority, null);
+			submit = true;
+		} else {
+			synchronized (jobs) {
+				job = jobs.get(key);
+				if (job == null) {
+					job = new Job(process, timeout, priority, key);
+					jobs.put(key, job);
+					submit = true;
+				} else {
+					LOGGER.trace("Sharing an already queued or running thumbnail process for {}", key);
+					if (priority.compareTo(job.priority) < 0 && executor.remove(job)) {
+						// The job must be out of the queue when its priority changes
+						job.priority = priority;
+						submit = true;
+					}
+				}
+			}
+		}
+		if (submit) {
+			executor.execute(job);
+		}
+
+		try {
+			job.get();
+		} catch (InterruptedException e) {
+			LOGGER.debug("Interrupted while waiting for a thumbnail process");
+			if (key == null) {
+				job.cancel(false);
+				process.stopProcess();
+			}
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			LOGGER.debug("Thumbnail process failed: {}", e.getCause() == null ? e.getMessage() : e.getCause().getMessage());
+			LOGGER.trace("", e);
+		}
+		return job;
+	}
+
+	/**
+	 * @return The number of jobs waiting for a worker.
+	 */
+	public int getQueueSize() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * The priority of a job, in descending order.
+	 */
+	public enum Priority {
+
+		/** The result is needed by a renderer */
+		VISIBLE,
+
+		/** The result is needed when resolving media */
+		NORMAL,
+
+		/** The result is needed by the library scanner */
+		BACKGROUND;
+
+		/**
+		 * Returns the {@link Priority} to use for the current thread.
+		 *
+		 * @param visible whether the result is needed to show an item.
+		 * @return {@link #BACKGROUND} for the library scanner, otherwise
+		 *         {@link #VISIBLE} or {@link #NORMAL} depending on
+		 *         {@code visible}.
+		 */
+		@Nonnull
+		public static Priority forCurrentThread(boolean visible) {
+			DLNAMediaDatabase database = PMS.get().getDatabase();
+			if (database != null && database.isLibraryScannerThread()) {
+				return BACKGROUND;
+			}
+			return visible ? VISIBLE : NORMAL;
+		}
+	}
+
+	/**
+	 * A queued or running process.
+	 */
+	public class Job extends FutureTask<ProcessWrapperImpl> implements Comparable<Job> {
+
+		/** The runner doing the work */
+		protected final ProcessRunner runner;
+
+		/** The key or {@code null} if the job can't be shared */
+		protected final List<String> key;
+
+		/** The sequence number */
+		protected final long number;
+
+		/** The priority, only changed while the job isn't queued */
+		protected volatile Priority priority;
+
+		/**
+		 * Creates a new job.
+		 *
+		 * @param process the {@link ProcessWrapperImpl} to run.
+		 * @param timeout the timeout in milliseconds.
+		 * @param priority the {@link Priority}.
+		 * @param key the key or {@code null}.
+		 */
+		protected Job(ProcessWrapperImpl process, long timeout, Priority priority, List<String> key) {
+			this(new ProcessRunner(process, timeout), priority, key);
+		}
+
+		private Job(ProcessRunner runner, Priority priority, List<String> key) {
+			super(runner);
+			this.runner = runner;
+			this.priority = priority;
+			this.key = key;
+			this.number = sequence.getAndIncrement();
+		}
+
+		/**
+		 * @return The {@link ProcessWrapperImpl}.
+		 */
+		@Nonnull
+		public ProcessWrapperImpl getProcess() {
+			return runner.process;
+		}
+
+		/**
+		 * @return {@code true} if the process was stopped by the watchdog,
+		 *         {@code false} otherwise.
+		 */
+		public boolean isTimedOut() {
+			return runner.timedOut;
+		}
+
+		@Override
+		protected void done() {
+			if (key != null) {
+				synchronized (jobs) {
+					if (jobs.get(key) == this) {
+						jobs.remove(key);
+					}
+				}
+			}
+		}
+
+		@Override
+		public int compareTo(Job other) {
+			int result = priority.compareTo(other.priority);
+			if (result != 0) {
+				return result;
+			}
+			return number < other.number ? -1 : number == other.number ? 0 : 1;
+		}
+	}
+
+	/**
+	 * Runs a process while the watchdog makes sure it doesn't exceed its
+	 * timeout.
+	 */
+	protected static class ProcessRunner implements Callable<ProcessWrapperImpl> {
+
+		/** The process */
+		protected final ProcessWrapperImpl process;
+
+		/** The timeout in milliseconds */
+		protected final long timeout;
+
+		/** Whether the process was stopped by the watchdog */
+		protected volatile boolean timedOut;
+
+		/**
+		 * Creates a new runner.
+		 *
+		 * @param process the {@link ProcessWrapperImpl} to run.
+		 * @param timeout the timeout in milliseconds.
+		 */
+		protected ProcessRunner(ProcessWrapperImpl process, long timeout) {
+			this.process = process;
+			this.timeout = timeout;
+		}
+
+		@Override
+		public ProcessWrapperImpl call() {
+			ScheduledFuture<?> watchdog = WATCHDOG.schedule(new Runnable() {
+
+				@Override
+				public void run() {
+					timedOut = true;
+					LOGGER.debug("Stopping thumbnail process since it didn't finish within {} ms", Long.valueOf(timeout));
+					process.stopProcess();
+				}
+			}, timeout, TimeUnit.MILLISECONDS);
+			try {
+				process.runInSameThread();
+			} finally {
+				watchdog.cancel(false);
+			}
+			return process;
+		}
+	}
+}
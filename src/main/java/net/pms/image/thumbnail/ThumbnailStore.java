@@ -0,0 +1,397 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.image.thumbnail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import net.pms.PMS;
+import net.pms.dlna.DLNAImageProfile;
+import net.pms.dlna.DLNAMediaInfo;
+import net.pms.dlna.DLNAResource;
+import net.pms.dlna.DLNAThumbnailInputStream;
+import net.pms.dlna.FileTranscodeVirtualFolder;
+import net.pms.dlna.RealFile;
+import net.pms.util.FullyPlayed;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A persistent store of thumbnails that have already been converted to a
+ * specific {@link DLNAImageProfile}. Each variant is stored as an encoded
+ * image file in the profile folder, named by a hash of the source file path,
+ * its modification time, the modification time of its folder, the
+ * {@link DLNAImageProfile} and the rendering options. A thumbnail request
+ * that hits the store is served without loading, decoding or encoding any
+ * image.
+ * <p>
+ * Including the folder modification time in the key invalidates the variants
+ * when a cover image is added to or removed from the folder. Variants that
+ * haven't been used for {@link #MAX_IDLE_DAYS} days are deleted by
+ * {@link #prune()}.
+ */
+@ThreadSafe
+public class ThumbnailStore {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailStore.class);
+
+	/** The name of the store folder in the profile folder */
+	public static final String FOLDER_NAME = "thumbnails";
+
+	/** The number of days an unused variant is kept */
+	public static final int MAX_IDLE_DAYS = 30;
+
+	private static final Object INSTANCE_LOCK = new Object();
+
+	private static ThumbnailStore instance;
+
+	/** The folder holding the variants */
+	protected final Path folder;
+
+	/** Whether the store is used */
+	protected final boolean enabled;
+
+	/**
+	 * Creates a new instance using the specified folder.
+	 *
+	 * @param folder the folder holding the variants.
+	 * @param enabled whether the store should be used.
+	 */
+	public ThumbnailStore(@Nonnull Path folder, boolean enabled) {
+		this.folder = folder;
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return The shared {@link ThumbnailStore} instance, created from the
+	 *         configuration on first use.
+	 */
+	@Nonnull
+	public static ThumbnailStore get() {
+		synchronized (INSTANCE_LOCK) {
+			if (instance == null) {
+				instance = new ThumbnailStore(
+					PMS.getConfiguration().getProfileFolder().resolve(FOLDER_NAME),
+					PMS.getConfiguration().isUseThumbnailStore()
+				);
+			}
+			return instance;
+		}
+	}
+
+	/**
+	 * Returns the thumbnail for the specified resource converted to the
+	 * specified {@link DLNAImageProfile}. The thumbnail is read from the
+	 * store if possible, otherwise it's created and stored if the resource
+	 * qualifies.
+	 *
+	 * @param resource the {@link DLNAResource} whose thumbnail to get.
+	 * @param profile the {@link DLNAImageProfile} to convert to.
+	 * @param padToSize whether padding should be used if the source aspect
+	 *            doesn't match the target aspect.
+	 * @param generic {@code true} to use the generic thumbnail instead of the
+	 *            resource's own thumbnail.
+	 * @return The thumbnail {@link InputStream} or {@code null}.
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	@Nullable
+	public InputStream getThumbnailInputStream(
+		@Nonnull DLNAResource resource,
+		@Nonnull DLNAImageProfile profile,
+		boolean padToSize,
+		boolean generic
+	) throws IOException {
+		if (generic) {
+			return transcode(resource, resource.getGenericThumbnailInputStream(null), profile, padToSize);
+		}
+
+		String key = getKey(resource, profile, padToSize);
+		if (key != null) {
+			byte[] bytes = read(key);
+			if (bytes != null) {
+				return new ByteArrayInputStream(bytes);
+			}
+		}
+
+		resource.checkThumbnail();
+		DLNAThumbnailInputStream thumbnail = transcode(resource, resource.fetchThumbnailInputStream(), profile, padToSize);
+		if (thumbnail != null) {
+			if (key == null) {
+				// The thumbnail might have been generated by checkThumbnail()
+				key = getKey(resource, profile, padToSize);
+			}
+			if (key != null) {
+				write(key, thumbnail.getBytes(false));
+			}
+		}
+		return thumbnail;
+	}
+
+	/**
+	 * Adds the "fully played" overlay if needed and converts the thumbnail to
+	 * the specified {@link DLNAImageProfile}.
+	 *
+	 * @param resource the {@link DLNAResource} the thumbnail belongs to.
+	 * @param thumbnail the source {@link DLNAThumbnailInputStream}.
+	 * @param profile the {@link DLNAImageProfile} to convert to.
+	 * @param padToSize whether to pad to the target aspect.
+	 * @return The converted {@link DLNAThumbnailInputStream} or {@code null}.
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	@Nullable
+	protected static DLNAThumbnailInputStream transcode(
+		@Nonnull DLNAResource resource,
+		@Nullable DLNAThumbnailInputStream thumbnail,
+		@Nonnull DLNAImageProfile profile,
+		boolean padToSize
+	) throws IOException {
+		if (resource instanceof RealFile && FullyPlayed.isFullyPlayedThumbnail(((RealFile) resource).getFile())) {
+			thumbnail = FullyPlayed.addFullyPlayedOverlay(thumbnail);
+		}
+		return thumbnail == null ? null : thumbnail.transcode(profile, padToSize);
+	}
+
+	/**
+	 * Calculates the store key for the specified thumbnail variant. Only
+	 * plain {@link RealFile}s whose thumbnail has been resolved qualify,
+	 * since the thumbnails of other resources depend on more than the file.
+	 *
+	 * @param resource the {@link DLNAResource}.
+	 * @param profile the {@link DLNAImageProfile}.
+	 * @param padToSize whether padding is used.
+	 * @return The key or {@code null} if the resource doesn't qualify.
+	 */
+	@Nullable
+	protected String getKey(@Nonnull DLNAResource resource, @Nonnull DLNAImageProfile profile, boolean padToSize) {
+		if (!enabled) {
+			return null;
+		}
+		String hash = getHash(resource, profile, padToSize);
+		return hash == null ? null : hash + "." + profile.getDefaultExtension();
+	}
+
+	/**
+	 * Returns a strong HTTP entity tag for the specified thumbnail variant,
+	 * derived from the same values as the store key. This is available
+	 * whether or not the store is enabled.
+	 *
+	 * @param resource the {@link DLNAResource}.
+	 * @param profile the {@link DLNAImageProfile}.
+	 * @param padToSize whether padding is used.
+	 * @param generic whether the generic thumbnail is used.
+	 * @return The quoted entity tag or {@code null} if the thumbnail can
+	 *         change without the file changing.
+	 */
+	@Nullable
+	public String getETag(@Nonnull DLNAResource resource, @Nonnull DLNAImageProfile profile, boolean padToSize, boolean generic) {
+		if (generic) {
+			return null;
+		}
+		String hash = getHash(resource, profile, padToSize);
+		return hash == null ? null : "\"" + hash + "\"";
+	}
+
+	/**
+	 * Calculates the hash identifying the specified thumbnail variant.
+	 *
+	 * @param resource the {@link DLNAResource}.
+	 * @param profile the {@link DLNAImageProfile}.
+	 * @param padToSize whether padding is used.
+	 * @return The hash or {@code null} if the resource doesn't qualify.
+	 */
+	@Nullable
+	protected static String getHash(@Nonnull DLNAResource resource, @Nonnull DLNAImageProfile profile, boolean padToSize) {
+		if (
+			!(resource instanceof RealFile) ||
+			resource.isResume() ||
+			resource.getMediaAudio() != null ||
+			resource.getMediaSubtitle() != null ||
+			resource.getParent() instanceof FileTranscodeVirtualFolder
+		) {
+			return null;
+		}
+		DLNAMediaInfo media = resource.getMedia();
+		if (media == null || (!media.isThumbready() && !media.hasThumb())) {
+			return null;
+		}
+		File file = ((RealFile) resource).getFile();
+		if (file == null) {
+			return null;
+		}
+		long lastModified = file.lastModified();
+		if (lastModified == 0) {
+			// The file doesn't exist
+			return null;
+		}
+		File parent = file.getAbsoluteFile().getParentFile();
+		StringBuilder sb = new StringBuilder(file.getAbsolutePath());
+		sb.append('|').append(lastModified)
+			.append('|').append(parent == null ? 0 : parent.lastModified())
+			.append('|').append(profile)
+			.append('|').append(profile.getMaxWidth()).append('x').append(profile.getMaxHeight())
+			.append('|').append(padToSize)
+			.append('|').append(FullyPlayed.isFullyPlayedThumbnail(file));
+		return DigestUtils.sha1Hex(sb.toString());
+	}
+
+	/**
+	 * @param key the key.
+	 * @return The {@link Path} of the variant with the specified key.
+	 */
+	@Nonnull
+	protected Path getPath(@Nonnull String key) {
+		return folder.resolve(key.substring(0, 2)).resolve(key);
+	}
+
+	/**
+	 * Reads a variant from the store.
+	 *
+	 * @param key the key.
+	 * @return The encoded image or {@code null} if it isn't stored.
+	 */
+	@Nullable
+	protected byte[] read(@Nonnull String key) {
+		Path path = getPath(key);
+		try {
+			byte[] bytes = Files.readAllBytes(path);
+			touch(path);
+			return bytes;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			LOGGER.debug("Could not read stored thumbnail \"{}\": {}", path, e.getMessage());
+			LOGGER.trace("", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Updates the modification time of a variant that's used, at most once a
+	 * day, so that {@link #prune()} keeps it.
+	 *
+	 * @param path the {@link Path} of the variant.
+	 */
+	protected static void touch(@Nonnull Path path) {
+		try {
+			long now = System.currentTimeMillis();
+			if (now - Files.getLastModifiedTime(path).toMillis() > TimeUnit.DAYS.toMillis(1)) {
+				Files.setLastModifiedTime(path, FileTime.fromMillis(now));
+			}
+		} catch (IOException e) {
+			LOGGER.trace("Could not update the modification time of \"{}\": {}", path, e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes a variant to the store. The file is written to a temporary file
+	 * first and then moved in place, so that concurrent readers never see a
+	 * partial file.
+	 *
+	 * @param key the key.
+	 * @param bytes the encoded image.
+	 */
+	protected void write(@Nonnull String key, @Nullable byte[] bytes) {
+		if (bytes == null || bytes.length == 0) {
+			return;
+		}
+		Path path = getPath(key);
+		Path temp = null;
+		try {
+			Files.createDirectories(path.getParent());
+			temp = Files.createTempFile(path.getParent(), key, ".tmp");
+			Files.write(temp, bytes);
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			temp = null;
+		} catch (IOException e) {
+			LOGGER.debug("Could not store thumbnail \"{}\": {}", path, e.getMessage());
+			LOGGER.trace("", e);
+		} finally {
+			if (temp != null) {
+				try {
+					Files.deleteIfExists(temp);
+				} catch (IOException e) {
+					LOGGER.trace("Could not delete \"{}\": {}", temp, e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deletes the variants that haven't been used for {@link #MAX_IDLE_DAYS}
+	 * days and any leftover temporary files.
+	 */
+	public void prune() {
+		delete(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_IDLE_DAYS));
+	}
+
+	/**
+	 * Deletes all stored variants.
+	 */
+	public void clear() {
+		delete(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Deletes the variants last modified before the specified time.
+	 *
+	 * @param before the time in milliseconds since the epoch.
+	 */
+	protected void delete(long before) {
+		if (!Files.isDirectory(folder)) {
+			return;
+		}
+		int count = 0;
+		try (DirectoryStream<Path> subFolders = Files.newDirectoryStream(folder)) {
+			for (Path subFolder : subFolders) {
+				if (!Files.isDirectory(subFolder)) {
+					continue;
+				}
+				try (DirectoryStream<Path> files = Files.newDirectoryStream(subFolder)) {
+					for (Path file : files) {
+						if (
+							file.getFileName().toString().endsWith(".tmp") ||
+							Files.getLastModifiedTime(file).toMillis() < before
+						) {
+							Files.deleteIfExists(file);
+							count++;
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.debug("An error occurred while cleaning the thumbnail store: {}", e.getMessage());
+			LOGGER.trace("", e);
+		}
+		if (count > 0) {
+			LOGGER.debug("Deleted {} thumbnails from the thumbnail store", Integer.valueOf(count));
+		}
+	}
+}
@@ -21,16 +21,24 @@ package net.pms.io;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.text.NumberFormat;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import net.pms.PMS;
 import net.pms.configuration.PmsConfiguration;
 import net.pms.configuration.RendererConfiguration;
+import net.pms.util.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +49,14 @@ import org.slf4j.LoggerFactory;
  * misleading, as there is typically no file involved in the process at all.
  * Instead, the buffer is typically used to hold data piped by a transcoding
  * process in one thread until a request for data comes in from another thread.
+ * Large buffers are allocated as configured by {@link TranscodeBufferType} and
+ * their size is limited by the shared {@link TranscodeBufferBudget}.
+ * <p>
+ * The writer and the readers don't poll. A writer that would overrun the
+ * margin waits on {@link #spaceAvailable} until a reader has consumed enough
+ * data, and a reader that hasn't got enough data waits on
+ * {@link #dataAvailable} until the writer has written more or the end of the
+ * stream is reached.
  *
  * @see ProcessWrapperImpl
  * @see net.pms.network.Request Request
@@ -63,19 +79,76 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	private static final int MARGIN_LARGE = 20000000;
 	private static final int MARGIN_MEDIUM = 2000000;
 	private static final int MARGIN_SMALL = 600000;
-	private static final int CHECK_INTERVAL = 500;
-	private static final int CHECK_END_OF_PROCESS = 2500; // must be superior to CHECK_INTERVAL
+
+	/**
+	 * The space in bytes a buffer needs in addition to the minimum buffer
+	 * size and the margin to be usable when the memory budget is exhausted.
+	 */
+	private static final int MINIMUM_HEADROOM = 16777216;
+
+	/**
+	 * The maximum time in milliseconds a read will wait for the minimum
+	 * amount of data to be buffered before returning what's available.
+	 */
+	private static final long MAX_READ_WAIT = 7500;
+
+	/**
+	 * The time in milliseconds to wait after the last input stream has been
+	 * detached before the attached process is stopped.
+	 */
+	private static final long CHECK_END_OF_PROCESS = 2500;
+
+	/** The minimum time in milliseconds between buffer usage updates */
+	private static final long BUFFER_REPORT_INTERVAL = 2000;
+
+	/** The shared executor running the delayed end of process checks */
+	private static final ScheduledThreadPoolExecutor CLEANUP_EXECUTOR;
+
+	static {
+		CLEANUP_EXECUTOR = new ScheduledThreadPoolExecutor(1, new BasicThreadFactory("BufferedOutputFile cleanup %d-%d"));
+		CLEANUP_EXECUTOR.setKeepAliveTime(30, TimeUnit.SECONDS);
+		CLEANUP_EXECUTOR.allowCoreThreadTimeOut(true);
+		CLEANUP_EXECUTOR.setRemoveOnCancelPolicy(true);
+	}
+
 	private int minMemorySize;
 	private int maxMemorySize;
-	private int bufferOverflowWarning;
-	private boolean eof;
-	private long writeCount;
-	private byte buffer[];
+	private volatile int bufferOverflowWarning;
+	private volatile boolean eof;
+	private volatile long writeCount;
+	private ByteBuffer buffer;
+
+	/** Where {@link #buffer} is allocated */
+	private final TranscodeBufferType bufferType;
+
+	/** The share of the {@link TranscodeBufferBudget} used by this buffer, if any */
+	private final TranscodeBufferBudget.Reservation reservation;
 	private boolean forcefirst;
-	private ArrayList<WaitBufferedInputStream> inputStreams;
-	private ProcessWrapper attachedThread;
+	private final List<WaitBufferedInputStream> inputStreams;
+	private volatile ProcessWrapper attachedThread;
 	private int secondread_minsize;
-	private Timer timer;
+
+	/** The lock guarding the {@link Condition}s below */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** Signaled when data has been written or the end of stream is reached */
+	private final Condition dataAvailable = lock.newCondition();
+
+	/** Signaled when data has been read or the readers have changed */
+	private final Condition spaceAvailable = lock.newCondition();
+
+	/** The number of threads waiting for {@link #dataAvailable}, only modified while holding {@link #lock} */
+	private volatile int waitingReaders;
+
+	/** The number of threads waiting for {@link #spaceAvailable}, only modified while holding {@link #lock} */
+	private volatile int waitingWriters;
+
+	/** The pending end of process check, if any */
+	private ScheduledFuture<?> cleanupCheck;
+
+	/** The earliest time the buffer usage should be reported again */
+	private final AtomicLong nextBufferReport = new AtomicLong();
+	private volatile boolean reportBuffer;
 	private boolean hidebuffer;
 	private boolean cleanup;
 	private boolean shiftScr;
@@ -91,40 +164,33 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	 * Try to increase the size of a memory buffer, while retaining its
 	 * contents. The provided new size is considered to be a request, it is
 	 * scaled down when an OutOfMemory error occurs. There is no guarantee
-	 * about the exact length of the returned byte array, only that it is
+	 * about the exact capacity of the returned buffer, only that it is
 	 * greater than or equal to the original buffer size. When null is
 	 * passed as an argument, a fresh buffer will be allocated. Copying one
-	 * byte array to another is a costly operation, both in memory usage and
+	 * buffer to another is a costly operation, both in memory usage and
 	 * performance. It is best to avoid using this method.
 	 *
-	 * @param buffer The byte array to resize, null is allowed.
+	 * @param buffer The buffer to resize, null is allowed.
 	 * @param newSize The requested final size. Should be greater than the
 	 * original size or the original buffer will be returned.
-	 * @return The resized byte array.
+	 * @return The resized buffer, or {@code null} if {@code buffer} is
+	 * {@code null} and no memory could be allocated.
 	 */
-	private byte[] growBuffer(byte[] buffer, int newSize) {
-		byte[] copy;
+	private ByteBuffer growBuffer(ByteBuffer buffer, int newSize) {
+		int oldSize = buffer == null ? 0 : buffer.capacity();
 
-		if (buffer == null) {
-			// Temporary empty array to avoid null tests in the code below
-			buffer = new byte[0];
-		}
-
-		if (newSize <= buffer.length) {
+		if (newSize <= oldSize) {
 			// Cannot shrink the original
 			return buffer;
 		}
 
-		try {
-			// Try to allocate the requested new size
-			copy = new byte[newSize];
-		} catch (OutOfMemoryError e) {
-			if (buffer.length == 0) {
+		// Try to allocate the requested new size
+		ByteBuffer copy = bufferType.allocate(newSize);
+		if (copy == null) {
+			if (oldSize == 0) {
 				LOGGER.trace("Cannot initialize buffer to " + formatter.format(newSize) + " bytes.");
 			} else {
-				LOGGER.debug("Cannot grow buffer size from " + formatter.format(buffer.length) + " bytes to " + formatter.format(newSize) + " bytes.");
-				LOGGER.debug("Error given: " + e);
-
+				LOGGER.debug("Cannot grow buffer size from " + formatter.format(oldSize) + " bytes to " + formatter.format(newSize) + " bytes.");
 			}
 
 			// Could not allocate the requested new size, use 30% of free memory instead.
@@ -133,37 +199,35 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			// Using maxMemory() to ignore the initial Java heap space size that freeMemory()
 			// takes into account.
 			// See http://javarevisited.blogspot.com/2011/05/java-heap-space-memory-size-jvm.html
-			long realisticSize = Runtime.getRuntime().maxMemory() * 3 / 10;
+			long realisticSize = Math.min(Runtime.getRuntime().maxMemory() * 3 / 10, newSize);
 
-			if (realisticSize < buffer.length) {
+			if (realisticSize < oldSize) {
 				// A copy would be smaller in size, shrinking instead of growing the buffer.
 				// Better to return the original and retain its size.
 				return buffer;
 			}
-			try {
-				// Try to allocate the realistic alternative size
-				copy = new byte[(int) realisticSize];
-			} catch (OutOfMemoryError e2) {
-				LOGGER.debug("Cannot grow buffer size from " + formatter.format(buffer.length) + " bytes to " + formatter.format(realisticSize) + " bytes either.");
+
+			// Try to allocate the realistic alternative size
+			copy = bufferType.allocate((int) realisticSize);
+			if (copy == null) {
+				LOGGER.debug("Cannot grow buffer size from " + formatter.format(oldSize) + " bytes to " + formatter.format(realisticSize) + " bytes either.");
 				LOGGER.trace("freeMemory: " + formatter.format(Runtime.getRuntime().freeMemory()));
 				LOGGER.trace("totalMemory: " + formatter.format(Runtime.getRuntime().totalMemory()));
 				LOGGER.trace("maxMemory: " + formatter.format(Runtime.getRuntime().maxMemory()));
-				LOGGER.debug("Error given: " + e2);
 
 				// Cannot allocate memory, no other option than to return the original.
 				return buffer;
 			}
 		}
 
-		if (buffer.length == 0) {
-			LOGGER.trace("Successfully initialized buffer to " + formatter.format(copy.length) + " bytes.");
+		if (oldSize == 0) {
+			LOGGER.trace("Successfully initialized " + (copy.isDirect() ? "native " : "") + "buffer to " + formatter.format(copy.capacity()) + " bytes.");
 		} else {
-			try {
-				System.arraycopy(buffer, 0, copy, 0, buffer.length);
-				LOGGER.trace("Successfully grown buffer from " + formatter.format(buffer.length) + " bytes to " + formatter.format(copy.length) + " bytes.");
-			} catch (NullPointerException npe) {
-				LOGGER.trace("Cannot grow buffer size, error copying buffer contents.");
-			}
+			ByteBuffer source = buffer.duplicate();
+			source.clear();
+			copy.put(source);
+			copy.clear();
+			LOGGER.trace("Successfully grown buffer from " + formatter.format(oldSize) + " bytes to " + formatter.format(copy.capacity()) + " bytes.");
 		}
 
 		return copy;
@@ -171,8 +235,8 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 
 	/**
 	 * Constructor to create a memory buffer based on settings that are
-	 * passed on. Will also start up a timer task to display buffer size and
-	 * usage in the DMS main screen.
+	 * passed on. Buffer size and usage will be displayed in the DMS main
+	 * screen as data is written and read.
 	 *
 	 * @param params {@link OutputParams} object that contains preferences
 	 * for the buffers dimensions and behavior.
@@ -185,6 +249,20 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		this.minMemorySize = (int) (1048576 * params.minBufferSize);
 		this.maxMemorySize = (int) (1048576 * params.maxBufferSize);
 
+		if (maxMemorySize > MARGIN_LARGE) {
+			// Large buffers share the global budget, small ones are kept on the heap
+			bufferType = configuration.getTranscodeBufferType();
+			reservation = TranscodeBufferBudget.get().reserve(
+				this,
+				maxMemorySize,
+				Math.min(maxMemorySize, minMemorySize + MARGIN_LARGE + MINIMUM_HEADROOM)
+			);
+			maxMemorySize = (int) reservation.getSize();
+		} else {
+			bufferType = TranscodeBufferType.HEAP;
+			reservation = null;
+		}
+
 		// FIXME: Better to relate margin directly to maxMemorySize instead of using arbitrary fixed values
 
 		int margin = MARGIN_LARGE; // Issue 220: extends to 20Mb : readCount is wrongly set cause of the ps3's
@@ -203,15 +281,16 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		this.hidebuffer = params.hidebuffer;
 		this.cleanup = params.cleanup;
 
-		if (maxMemorySize > INITIAL_BUFFER_SIZE) {
+		if (maxMemorySize > INITIAL_BUFFER_SIZE && bufferType != TranscodeBufferType.MAPPED) {
 			// Try to limit memory usage a bit.
 			// Start with a modest allocation initially, grow to max when needed later.
+			// Mapped files are only paged in as they are used, so they don't need this.
 			buffer = growBuffer(null, INITIAL_BUFFER_SIZE);
 		} else {
 			buffer = growBuffer(null, maxMemorySize);
 		}
 
-		if (buffer.length == 0) {
+		if (buffer == null) {
 			// Cannot transcode without a buffer
 			LOGGER.info("FATAL ERROR: OutOfMemory / dumping stats");
 			LOGGER.trace("freeMemory: " + Runtime.getRuntime().freeMemory());
@@ -220,13 +299,14 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			System.exit(1);
 		}
 
-		inputStreams = new ArrayList<>();
+		inputStreams = new CopyOnWriteArrayList<>();
 	}
 
 	@Override
 	public void close() throws IOException {
 		LOGGER.trace("EOF");
 		eof = true;
+		signalReaders();
 		if (cleanup) {
 			detachInputStream();
 		}
@@ -254,6 +334,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		if (attachedThread != null) {
 			attachedThread.setReadyToStop(false);
 		}
+		cancelCleanupCheck();
 
 		WaitBufferedInputStream atominputStream;
 
@@ -286,6 +367,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			LOGGER.debug("Setting InputStream new position to: " + formatter.format(newReadPosition));
 			atominputStream.setReadCount(newReadPosition);
 		}
+		signalWriters();
 
 		return atominputStream;
 	}
@@ -302,34 +384,49 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			debugOutput.flush();
 		}
 
-		WaitBufferedInputStream input = getCurrentInputStream();
+		//LOGGER.trace("write(" + b.length + ", " + off + ", " + len + "), writeCount = " + writeCount);
 
-		//LOGGER.trace("write(" + b.length + ", " + off + ", " + len + "), writeCount = " + writeCount + ", readCount = " + (input != null ? input.getReadCount() : "null"));
-
-		while ((input != null && (writeCount - input.getReadCount() > bufferOverflowWarning)) || (input == null && writeCount > bufferOverflowWarning)) {
+		if (isOverflowing(false)) {
+			lock.lock();
+			waitingWriters++;
 			try {
-				Thread.sleep(CHECK_INTERVAL);
+				while (isOverflowing(false)) {
+					spaceAvailable.await();
+				}
 			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for buffer space");
+			} finally {
+				waitingWriters--;
+				lock.unlock();
 			}
-			input = getCurrentInputStream();
 		}
 
 		if (buffer != null) {
 			int mb = (int) (writeCount % maxMemorySize);
 
-			if (mb >= buffer.length - (len - off)) {
-				if (buffer.length == INITIAL_BUFFER_SIZE) {
+			if (mb >= buffer.capacity() - (len - off)) {
+				if (buffer.capacity() == INITIAL_BUFFER_SIZE) {
 					// Initial buffer size was not big enough, try to increase it
 					buffer = growBuffer(buffer, maxMemorySize);
 				}
 
-				// FIXME: This smells like 2x System.arraycopy()!
+				// Split the copy where it wraps around the end of the buffer
 				int s = (len - off);
-				for (int i = 0; i < s; i++) {
-					buffer[modulo(mb + i, buffer.length)] = b[off + i];
+				int position = modulo(mb, buffer.capacity());
+				int copied = 0;
+				ByteBuffer target = buffer.duplicate();
+				while (copied < s) {
+					int chunk = Math.min(s - copied, buffer.capacity() - position);
+					target.position(position);
+					target.put(b, off + copied, chunk);
+					copied += chunk;
+					position = 0;
 				}
 			} else {
-				System.arraycopy(b, off, buffer, mb, (len - off));
+				ByteBuffer target = buffer.duplicate();
+				target.position(mb);
+				target.put(b, off, (len - off));
 				if ((len - off) > 0) {
 					buffered = true;
 				}
@@ -350,24 +447,24 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 				while (packetpos + packetLength < writeCount && buffer != null) {
 					int packetposMB = (int) (packetpos % maxMemorySize);
 					int streamPos = 0;
-					if (buffer[modulo(packetposMB, buffer.length)] == 71) {// TS
+					if (buffer.get(modulo(packetposMB, buffer.capacity())) == 71) {// TS
 						packetLength = 188;
 						streamPos = 4;
 
 						// adaptation field
-						if ((buffer[modulo(packetposMB + 3, buffer.length)] & 0x20) == 0x20) {
-							streamPos += 1 + ((buffer[modulo(packetposMB + 4, buffer.length)] + 256) % 256);
+						if ((buffer.get(modulo(packetposMB + 3, buffer.capacity())) & 0x20) == 0x20) {
+							streamPos += 1 + ((buffer.get(modulo(packetposMB + 4, buffer.capacity())) + 256) % 256);
 						}
 
 						if (streamPos == 188) {
 							streamPos = -1;
 						}
 
-					} else if (buffer[modulo(packetposMB + 3, buffer.length)] == -70) { // BA
+					} else if (buffer.get(modulo(packetposMB + 3, buffer.capacity())) == -70) { // BA
 						packetLength = 14;
 						streamPos = -1;
 					} else {
-						packetLength = 6 + (((buffer[modulo(packetposMB + 4, buffer.length)] + 256) % 256)) * 256 + ((buffer[modulo(packetposMB + 5, buffer.length)] + 256) % 256);
+						packetLength = 6 + (((buffer.get(modulo(packetposMB + 4, buffer.capacity())) + 256) % 256)) * 256 + ((buffer.get(modulo(packetposMB + 5, buffer.capacity())) + 256) % 256);
 					}
 					if (streamPos != -1) {
 						mb = packetposMB + streamPos + 18;
@@ -379,6 +476,59 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 					packetpos += packetLength;
 				}
 			}
+			signalReaders();
+			reportBuffer();
+		}
+	}
+
+	/**
+	 * Determines whether the writer must wait for the current input stream
+	 * to consume data before more can be written without overwriting unread
+	 * data. Never returns {@code true} once the buffer has been
+	 * {@link #reset()}, so that a waiting writer is released.
+	 *
+	 * @param exact {@code true} to use the single byte write condition,
+	 *            {@code false} to use the array write condition.
+	 * @return {@code true} if the writer must wait, {@code false} otherwise.
+	 */
+	private boolean isOverflowing(boolean exact) {
+		if (buffer == null) {
+			return false;
+		}
+		WaitBufferedInputStream input = getCurrentInputStream();
+		if (input != null) {
+			return writeCount - input.getReadCount() > bufferOverflowWarning;
+		}
+		return exact ? writeCount == bufferOverflowWarning : writeCount > bufferOverflowWarning;
+	}
+
+	/**
+	 * Wakes up any readers waiting for {@link #dataAvailable}. The lock is
+	 * only taken if a reader is waiting, which keeps the cost of small
+	 * writes down.
+	 */
+	private void signalReaders() {
+		if (waitingReaders > 0) {
+			lock.lock();
+			try {
+				dataAvailable.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Wakes up the writer if it's waiting for {@link #spaceAvailable}.
+	 */
+	private void signalWriters() {
+		if (waitingWriters > 0) {
+			lock.lock();
+			try {
+				spaceAvailable.signalAll();
+			} finally {
+				lock.unlock();
+			}
 		}
 	}
 
@@ -401,18 +551,26 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	@Override
 	public void write(int b) throws IOException {
 		boolean bb = b % 100000 == 0;
-		WaitBufferedInputStream input = getCurrentInputStream();
-		while (bb && ((input != null && (writeCount - input.getReadCount() > bufferOverflowWarning)) || (input == null && writeCount == bufferOverflowWarning))) {
+		if (bb && isOverflowing(true)) {
+			lock.lock();
+			waitingWriters++;
 			try {
-				Thread.sleep(CHECK_INTERVAL);
-				//LOGGER.trace("BufferedOutputFile Full");
+				while (isOverflowing(true)) {
+					//LOGGER.trace("BufferedOutputFile Full");
+					spaceAvailable.await();
+				}
 			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for buffer space");
+			} finally {
+				waitingWriters--;
+				lock.unlock();
 			}
-			input = getCurrentInputStream();
 		}
-		int mb = (int) (writeCount++ % maxMemorySize);
+		int mb = (int) (writeCount % maxMemorySize);
 		if (buffer != null) {
-			buffer[mb] = (byte) b;
+			buffer.put(mb, (byte) b);
+			writeCount++;
 			buffered = true;
 			if (writeCount == INITIAL_BUFFER_SIZE) {
 				buffer = growBuffer(buffer, maxMemorySize);
@@ -426,37 +584,40 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			if (timeseek > 0 && writeCount > 10) {
 				shiftSCRByTimeSeek(mb, (int) timeseek);
 			}
+			signalReaders();
+		} else {
+			writeCount++;
 		}
 	}
 
 	// Ditlew - Modify SCR
 	private void shiftSCRByTimeSeek(int buffer_index, int offset_sec) {
-		int m9 = modulo(buffer_index - 9, buffer.length);
-		int m8 = modulo(buffer_index - 8, buffer.length);
-		int m7 = modulo(buffer_index - 7, buffer.length);
-		int m6 = modulo(buffer_index - 6, buffer.length);
-		int m5 = modulo(buffer_index - 5, buffer.length);
-		int m4 = modulo(buffer_index - 4, buffer.length);
-		int m3 = modulo(buffer_index - 3, buffer.length);
-		int m2 = modulo(buffer_index - 2, buffer.length);
-		int m1 = modulo(buffer_index - 1, buffer.length);
-		int m0 = modulo(buffer_index, buffer.length);
+		int m9 = modulo(buffer_index - 9, buffer.capacity());
+		int m8 = modulo(buffer_index - 8, buffer.capacity());
+		int m7 = modulo(buffer_index - 7, buffer.capacity());
+		int m6 = modulo(buffer_index - 6, buffer.capacity());
+		int m5 = modulo(buffer_index - 5, buffer.capacity());
+		int m4 = modulo(buffer_index - 4, buffer.capacity());
+		int m3 = modulo(buffer_index - 3, buffer.capacity());
+		int m2 = modulo(buffer_index - 2, buffer.capacity());
+		int m1 = modulo(buffer_index - 1, buffer.capacity());
+		int m0 = modulo(buffer_index, buffer.capacity());
 
 		// SCR
-		if (buffer[m9] == 0
-			&& buffer[m8] == 0
-			&& buffer[m7] == 1
-			&& buffer[m6] == -70 && // 0xBA - Java/DMS wants -70
+		if (buffer.get(m9) == 0
+			&& buffer.get(m8) == 0
+			&& buffer.get(m7) == 1
+			&& buffer.get(m6) == -70 && // 0xBA - Java/DMS wants -70
 			// control bits
-			!((buffer[m5] & 128) == 128)
-			&& ((buffer[m5] & 64) == 64)
-			&& ((buffer[m5] & 4) == 4)
-			&& ((buffer[m3] & 4) == 4)
-			&& ((buffer[m1] & 4) == 4)
-			&& ((buffer[m0] & 1) == 1)) {
-			long scr_32_30 = ((buffer[m5] & 56) >> 3);
-			long scr_29_15 = ((buffer[m5] & 3) << 13) + (buffer[m4] << 5) + ((buffer[m3] & 248) >> 3);
-			long scr_14_00 = ((buffer[m3] & 3) << 13) + (buffer[m2] << 5) + ((buffer[m1] & 248) >> 3);
+			!((buffer.get(m5) & 128) == 128)
+			&& ((buffer.get(m5) & 64) == 64)
+			&& ((buffer.get(m5) & 4) == 4)
+			&& ((buffer.get(m3) & 4) == 4)
+			&& ((buffer.get(m1) & 4) == 4)
+			&& ((buffer.get(m0) & 1) == 1)) {
+			long scr_32_30 = ((buffer.get(m5) & 56) >> 3);
+			long scr_29_15 = ((buffer.get(m5) & 3) << 13) + (buffer.get(m4) << 5) + ((buffer.get(m3) & 248) >> 3);
+			long scr_14_00 = ((buffer.get(m3) & 3) << 13) + (buffer.get(m2) << 5) + ((buffer.get(m1) & 248) >> 3);
 
 			long scr = (scr_32_30 << 30) + (scr_29_15 << 15) + scr_14_00;
 			long scr_new = scr + (90000L * offset_sec);
@@ -466,17 +627,17 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			long scr_14_00_new = (scr_new & 32767L);             // 000000000000000000111111111111111
 
 			// scr_32_30_new
-			buffer[m5] = (byte) ((buffer[m5] & 199) + ((scr_32_30_new << 3) & 56)); // 11000111
+			buffer.put(m5, (byte) ((buffer.get(m5) & 199) + ((scr_32_30_new << 3) & 56))); // 11000111
 
 			// scr_29_15_new
-			buffer[m5] = (byte) ((buffer[m5] & 252) + ((scr_29_15_new >> 13) & 3)); // 00000011
-			buffer[m4] = (byte) (scr_29_15_new >> 5);                               // 11111111
-			buffer[m3] = (byte) ((buffer[m3] & 7) + ((scr_29_15_new << 3) & 248));  // 11111000
+			buffer.put(m5, (byte) ((buffer.get(m5) & 252) + ((scr_29_15_new >> 13) & 3))); // 00000011
+			buffer.put(m4, (byte) (scr_29_15_new >> 5));                               // 11111111
+			buffer.put(m3, (byte) ((buffer.get(m3) & 7) + ((scr_29_15_new << 3) & 248)));  // 11111000
 
 			// scr_14_00_new
-			buffer[m3] = (byte) ((buffer[m3] & 252) + ((scr_14_00_new >> 13) & 3)); // 00000011
-			buffer[m2] = (byte) (scr_14_00_new >> 5);                               // 11111111
-			buffer[m1] = (byte) ((buffer[m1] & 7) + ((scr_14_00_new << 3) & 248));  // 11111000
+			buffer.put(m3, (byte) ((buffer.get(m3) & 252) + ((scr_14_00_new >> 13) & 3))); // 00000011
+			buffer.put(m2, (byte) (scr_14_00_new >> 5));                               // 11111111
+			buffer.put(m1, (byte) ((buffer.get(m1) & 7) + ((scr_14_00_new << 3) & 248)));  // 11111000
 
 			// Debug
 			//LOGGER.trace("Ditlew - SCR "+scr+" ("+(int)(scr/90000)+") -> "+scr_new+" ("+(int)(scr_new/90000)+")  "+offset_sec+" secs");
@@ -486,31 +647,31 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	// Ditlew - Modify GOP
 	@SuppressWarnings("unused")
 	private void shiftGOPByTimeSeek(int buffer_index, int offset_sec) {
-		int m7 = modulo(buffer_index - 7, buffer.length);
-		int m6 = modulo(buffer_index - 6, buffer.length);
-		int m5 = modulo(buffer_index - 5, buffer.length);
-		int m4 = modulo(buffer_index - 4, buffer.length);
-		int m3 = modulo(buffer_index - 3, buffer.length);
-		int m2 = modulo(buffer_index - 2, buffer.length);
-		int m1 = modulo(buffer_index - 1, buffer.length);
-		int m0 = modulo(buffer_index, buffer.length);
+		int m7 = modulo(buffer_index - 7, buffer.capacity());
+		int m6 = modulo(buffer_index - 6, buffer.capacity());
+		int m5 = modulo(buffer_index - 5, buffer.capacity());
+		int m4 = modulo(buffer_index - 4, buffer.capacity());
+		int m3 = modulo(buffer_index - 3, buffer.capacity());
+		int m2 = modulo(buffer_index - 2, buffer.capacity());
+		int m1 = modulo(buffer_index - 1, buffer.capacity());
+		int m0 = modulo(buffer_index, buffer.capacity());
 
 		// check if valid gop
-		if (buffer[m7] == 0
-			&& buffer[m6] == 0
-			&& buffer[m5] == 1
-			&& buffer[m4] == -72 && // 0xB8 - Java/DMS wants -72
+		if (buffer.get(m7) == 0
+			&& buffer.get(m6) == 0
+			&& buffer.get(m5) == 1
+			&& buffer.get(m4) == -72 && // 0xB8 - Java/DMS wants -72
 			// control bits
-			((buffer[m2] & 0x08) == 0x08)
-			&& ((buffer[m0] & 31) == 0)
+			((buffer.get(m2) & 0x08) == 0x08)
+			&& ((buffer.get(m0) & 31) == 0)
 			&& // of interest
-			!((buffer[m3] & 128) == 128) && // not drop frm
-			!((buffer[m0] & 16) == 16) // not broken
+			!((buffer.get(m3) & 128) == 128) && // not drop frm
+			!((buffer.get(m0) & 16) == 16) // not broken
 			) {
 			// org timecode
-			byte h = (byte) ((buffer[m3] & 124) >> 2);
-			byte m = (byte) (((buffer[m3] & 3) << 4) + ((buffer[m2] & 240) >> 4));
-			byte s = (byte) (((buffer[m2] & 7) << 3) + ((buffer[m1] & 224) >> 5));
+			byte h = (byte) ((buffer.get(m3) & 124) >> 2);
+			byte m = (byte) (((buffer.get(m3) & 3) << 4) + ((buffer.get(m2) & 240) >> 4));
+			byte s = (byte) (((buffer.get(m2) & 7) << 3) + ((buffer.get(m1) & 224) >> 5));
 
 			// updated offset
 			int _offset = s + m * 60 + h * 60 + offset_sec;
@@ -522,13 +683,13 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 
 			// update gop
 			// h - ok
-			buffer[m3] = (byte) ((buffer[m3] & 131) + (_h << 2)); // 10000011
+			buffer.put(m3, (byte) ((buffer.get(m3) & 131) + (_h << 2))); // 10000011
 			// m - ok
-			buffer[m3] = (byte) ((buffer[m3] & 252) + (_m >> 4)); // 11111100
-			buffer[m2] = (byte) ((buffer[m2] & 15) + (_m << 4)); // 00001111
+			buffer.put(m3, (byte) ((buffer.get(m3) & 252) + (_m >> 4))); // 11111100
+			buffer.put(m2, (byte) ((buffer.get(m2) & 15) + (_m << 4))); // 00001111
 			// s - ok
-			buffer[m2] = (byte) ((buffer[m2] & 248) + (_s >> 3)); // 11111000
-			buffer[m1] = (byte) ((buffer[m1] & 31) + (_s << 5)); // 00011111
+			buffer.put(m2, (byte) ((buffer.get(m2) & 248) + (_s >> 3))); // 11111000
+			buffer.put(m1, (byte) ((buffer.get(m1) & 31) + (_s << 5))); // 00011111
 
 			// Debug
 			//LOGGER.trace("Ditlew - GOP "+h+":"+m+":"+s+" -> "+_h+":"+_m+":"+_s+"  "+offset_sec+" secs");
@@ -544,26 +705,26 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		boolean bb = (
 				!mod &&
 				(
-					buffer[mb - 10] == -67 || buffer[mb - 10] == -64
+					buffer.get(mb - 10) == -67 || buffer.get(mb - 10) == -64
 				) &&
-				buffer[mb - 11] == 1 &&
-				buffer[mb - 12] == 0 &&
-				buffer[mb - 13] == 0 &&
-				(buffer[mb - 6] & 128) == 128
+				buffer.get(mb - 11) == 1 &&
+				buffer.get(mb - 12) == 0 &&
+				buffer.get(mb - 13) == 0 &&
+				(buffer.get(mb - 6) & 128) == 128
 			) ||
 			(
 				mod &&
 				(
-					buffer[modulo(mb - 10, buffer.length)] == -67 ||
-					buffer[modulo(mb - 10, buffer.length)] == -64
+					buffer.get(modulo(mb - 10, buffer.capacity())) == -67 ||
+					buffer.get(modulo(mb - 10, buffer.capacity())) == -64
 				) &&
-				buffer[modulo(mb - 11, buffer.length)] == 1 &&
-				buffer[modulo(mb - 12, buffer.length)] == 0 &&
-				buffer[modulo(mb - 13, buffer.length)] == 0 &&
-				(buffer[modulo(mb - 6, buffer.length)] & 128) == 128
+				buffer.get(modulo(mb - 11, buffer.capacity())) == 1 &&
+				buffer.get(modulo(mb - 12, buffer.capacity())) == 0 &&
+				buffer.get(modulo(mb - 13, buffer.capacity())) == 0 &&
+				(buffer.get(modulo(mb - 6, buffer.capacity())) & 128) == 128
 			);
 		if (bb) {
-			int pts = (((((buffer[modulo(mb - 3, buffer.length)] & 0xff) << 8) + (buffer[modulo(mb - 2, buffer.length)] & 0xff)) >> 1) << 15) + ((((buffer[modulo(mb - 1, buffer.length)] & 0xff) << 8) + (buffer[modulo(mb, buffer.length)] & 0xff)) >> 1);
+			int pts = (((((buffer.get(modulo(mb - 3, buffer.capacity())) & 0xff) << 8) + (buffer.get(modulo(mb - 2, buffer.capacity())) & 0xff)) >> 1) << 15) + ((((buffer.get(modulo(mb - 1, buffer.capacity())) & 0xff) << 8) + (buffer.get(modulo(mb, buffer.capacity())) & 0xff)) >> 1);
 			pts += (int) (timeseek * 90000);
 
 			setTS(pts, mb, mod);
@@ -574,26 +735,26 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 
 	private boolean shiftVideo(int mb, boolean mod) {
 		boolean bb = (!mod
-			&& (buffer[mb - 15] == -32 || buffer[mb - 15] == -3)
-			&& buffer[mb - 16] == 1
-			&& buffer[mb - 17] == 0
-			&& buffer[mb - 18] == 0
-			&& (buffer[mb - 11] & 128) == 128
-			&& (buffer[mb - 9] & 32) == 32) || (mod
-			&& (buffer[modulo(mb - 15, buffer.length)] == -32 || buffer[modulo(mb - 15, buffer.length)] == -3)
-			&& buffer[modulo(mb - 16, buffer.length)] == 1
-			&& buffer[modulo(mb - 17, buffer.length)] == 0
-			&& buffer[modulo(mb - 18, buffer.length)] == 0
-			&& (buffer[modulo(mb - 11, buffer.length)] & 128) == 128
-			&& (buffer[modulo(mb - 9, buffer.length)] & 32) == 32);
+			&& (buffer.get(mb - 15) == -32 || buffer.get(mb - 15) == -3)
+			&& buffer.get(mb - 16) == 1
+			&& buffer.get(mb - 17) == 0
+			&& buffer.get(mb - 18) == 0
+			&& (buffer.get(mb - 11) & 128) == 128
+			&& (buffer.get(mb - 9) & 32) == 32) || (mod
+			&& (buffer.get(modulo(mb - 15, buffer.capacity())) == -32 || buffer.get(modulo(mb - 15, buffer.capacity())) == -3)
+			&& buffer.get(modulo(mb - 16, buffer.capacity())) == 1
+			&& buffer.get(modulo(mb - 17, buffer.capacity())) == 0
+			&& buffer.get(modulo(mb - 18, buffer.capacity())) == 0
+			&& (buffer.get(modulo(mb - 11, buffer.capacity())) & 128) == 128
+			&& (buffer.get(modulo(mb - 9, buffer.capacity())) & 32) == 32);
 
 		if (bb) { // check EO or FD (tsMuxeR)
 			int pts = getTS(mb - 5, mod);
 			int dts = 0;
-			boolean dts_present = (buffer[modulo(mb - 11, buffer.length)] & 64) == 64;
+			boolean dts_present = (buffer.get(modulo(mb - 11, buffer.capacity())) & 64) == 64;
 			if (dts_present) {
-				if ((buffer[modulo(mb - 4, buffer.length)] & 15) == 15) {
-					dts = (((((255 - (buffer[modulo(mb - 3, buffer.length)] & 0xff)) << 8) + (255 - (buffer[modulo(mb - 2, buffer.length)] & 0xff))) >> 1) << 15) + ((((255 - (buffer[modulo(mb - 1, buffer.length)] & 0xff)) << 8) + (255 - (buffer[modulo(mb, buffer.length)] & 0xff))) >> 1);
+				if ((buffer.get(modulo(mb - 4, buffer.capacity())) & 15) == 15) {
+					dts = (((((255 - (buffer.get(modulo(mb - 3, buffer.capacity())) & 0xff)) << 8) + (255 - (buffer.get(modulo(mb - 2, buffer.capacity())) & 0xff))) >> 1) << 15) + ((((255 - (buffer.get(modulo(mb - 1, buffer.capacity())) & 0xff)) << 8) + (255 - (buffer.get(modulo(mb, buffer.capacity())) & 0xff))) >> 1);
 					dts = -dts;
 				} else {
 					dts = getTS(mb, mod);
@@ -609,7 +770,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			setTS(pts, mb - 5, mod);
 			if (dts_present) {
 				if (dts < 0) {
-					buffer[modulo(mb - 4, buffer.length)] = 17;
+					buffer.put(modulo(mb - 4, buffer.capacity()), (byte) 17);
 				}
 				dts += ts;
 				setTS(dts, mb, mod);
@@ -625,14 +786,14 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		int m1 = mb - 1;
 		int m0 = mb;
 		if (modulo) {
-			m3 = modulo(m3, buffer.length);
-			m2 = modulo(m2, buffer.length);
-			m1 = modulo(m1, buffer.length);
-			m0 = modulo(m0, buffer.length);
+			m3 = modulo(m3, buffer.capacity());
+			m2 = modulo(m2, buffer.capacity());
+			m1 = modulo(m1, buffer.capacity());
+			m0 = modulo(m0, buffer.capacity());
 		}
 
-		return (((((buffer[m3] & 0xff) << 8) + (buffer[m2] & 0xff)) >> 1) << 15)
-			+ ((((buffer[m1] & 0xff) << 8) + (buffer[m0] & 0xff)) >> 1);
+		return (((((buffer.get(m3) & 0xff) << 8) + (buffer.get(m2) & 0xff)) >> 1) << 15)
+			+ ((((buffer.get(m1) & 0xff) << 8) + (buffer.get(m0) & 0xff)) >> 1);
 	}
 
 	private void setTS(int ts, int mb, boolean modulo) {
@@ -641,23 +802,34 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		int m1 = mb - 1;
 		int m0 = mb;
 		if (modulo) {
-			m3 = modulo(m3, buffer.length);
-			m2 = modulo(m2, buffer.length);
-			m1 = modulo(m1, buffer.length);
-			m0 = modulo(m0, buffer.length);
+			m3 = modulo(m3, buffer.capacity());
+			m2 = modulo(m2, buffer.capacity());
+			m1 = modulo(m1, buffer.capacity());
+			m0 = modulo(m0, buffer.capacity());
 		}
 		int pts_low = ts & 32767;
 		int pts_high = (ts >> 15) & 32767;
 		int pts_left_low = 1 + (pts_low << 1);
 		int pts_left_high = 1 + (pts_high << 1);
-		buffer[m3] = (byte) ((pts_left_high & 65280) >> 8);
-		buffer[m2] = (byte) (pts_left_high & 255);
-		buffer[m1] = (byte) ((pts_left_low & 65280) >> 8);
-		buffer[m0] = (byte) (pts_left_low & 255);
+		buffer.put(m3, (byte) ((pts_left_high & 65280) >> 8));
+		buffer.put(m2, (byte) (pts_left_high & 255));
+		buffer.put(m1, (byte) ((pts_left_low & 65280) >> 8));
+		buffer.put(m0, (byte) (pts_left_low & 255));
 	}
 
-	@Override
-	public int read(boolean firstRead, long readCount, byte buf[], int off, int len) {
+	/**
+	 * Prepares a read at the specified position by adjusting the margin,
+	 * waking up the writer and waiting until enough data has been buffered.
+	 * The wait ends when more than the minimum buffer size is available, when
+	 * the end of stream is reached or after {@link #MAX_READ_WAIT}
+	 * milliseconds.
+	 *
+	 * @param firstRead whether this is the first read from the input stream.
+	 * @param readCount the position to read from.
+	 * @return {@code false} if the end of stream has been reached,
+	 *         {@code true} otherwise.
+	 */
+	private boolean awaitData(boolean firstRead, long readCount) {
 		if (readCount > INITIAL_BUFFER_SIZE && readCount < maxMemorySize) {
 			int newMargin = maxMemorySize - MARGIN_MEDIUM;
 			if (bufferOverflowWarning != newMargin) {
@@ -667,31 +839,43 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			this.bufferOverflowWarning = newMargin;
 		}
 
+		// The input stream position has been updated by the previous read
+		signalWriters();
+
 		if (eof && readCount >= writeCount) {
-			return -1;
+			return false;
 		}
 
-		int c = 0;
 		int minBufferS = firstRead ? minMemorySize : secondread_minsize;
-		while (writeCount - readCount <= minBufferS && !eof && c < 15) {
-			if (c == 0) {
-				LOGGER.trace("Suspend Read: readCount=" + readCount + " / writeCount=" + writeCount);
-			}
-
-			c++;
-
+		if (writeCount - readCount <= minBufferS && !eof) {
+			LOGGER.trace("Suspend Read: readCount=" + readCount + " / writeCount=" + writeCount);
+			long remaining = TimeUnit.MILLISECONDS.toNanos(MAX_READ_WAIT);
+			lock.lock();
+			waitingReaders++;
 			try {
-				Thread.sleep(CHECK_INTERVAL);
+				while (writeCount - readCount <= minBufferS && !eof && buffer != null && remaining > 0) {
+					remaining = dataAvailable.awaitNanos(remaining);
+				}
 			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				waitingReaders--;
+				lock.unlock();
 			}
+			LOGGER.trace("Resume Read: readCount=" + readCount + " / writeCount=" + writeCount);
 		}
 
 		if (attachedThread != null) {
 			attachedThread.setReadyToStop(false);
 		}
+		reportBuffer();
+		return true;
+	}
 
-		if (c > 0) {
-			LOGGER.trace("Resume Read: readCount=" + readCount + " / writeCount=" + writeCount);
+	@Override
+	public int read(boolean firstRead, long readCount, byte buf[], int off, int len) {
+		if (!awaitData(firstRead, readCount)) {
+			return -1;
 		}
 
 		if (buffer == null || !buffered) {
@@ -699,7 +883,8 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		}
 
 		int mb = (int) (readCount % maxMemorySize);
-		int endOF = buffer.length;
+		ByteBuffer source = buffer.duplicate();
+		int endOF = source.capacity();
 		int cut = 0;
 
 		if (eof && (writeCount - readCount) < len) {
@@ -711,68 +896,36 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 
 		if (mb >= endOF - len) {
 			try {
-				System.arraycopy(buffer, mb, buf, off, endOF - mb - cut);
-			} catch (ArrayIndexOutOfBoundsException e) {
+				source.position(mb);
+				source.get(buf, off, endOF - mb - cut);
+			} catch (IndexOutOfBoundsException | IllegalArgumentException | BufferUnderflowException e) {
 				LOGGER.trace("Something went wrong with the buffer, error: " + e);
-				LOGGER.trace("buffer: " + Arrays.toString(buffer));
+				LOGGER.trace("buffer capacity: " + endOF);
 				LOGGER.trace("mb: " + mb);
-				LOGGER.trace("buf: " + Arrays.toString(buf));
+				LOGGER.trace("buf length: " + buf.length);
 				LOGGER.trace("off: " + off);
 				LOGGER.trace("endOF - mb - cut: " + (endOF - mb - cut));
 			}
 			return endOF - mb;
 		}
-		System.arraycopy(buffer, mb, buf, off, len - cut);
+		source.position(mb);
+		source.get(buf, off, len - cut);
 		return len;
 	}
 
 	@Override
 	public int read(boolean firstRead, long readCount) {
-		if (readCount > INITIAL_BUFFER_SIZE && readCount < maxMemorySize) {
-			int newMargin = maxMemorySize - MARGIN_MEDIUM;
-
-			if (bufferOverflowWarning != newMargin) {
-				LOGGER.debug("Setting margin to 2Mb");
-			}
-
-			this.bufferOverflowWarning = newMargin;
-		}
-
-		if (eof && readCount >= writeCount) {
+		if (!awaitData(firstRead, readCount)) {
 			return -1;
 		}
 
-		int c = 0;
-		int minBufferS = firstRead ? minMemorySize : secondread_minsize;
-
-		while (writeCount - readCount <= minBufferS && !eof && c < 15) {
-			if (c == 0) {
-				LOGGER.trace("Suspend Read: readCount=" + readCount + " / writeCount=" + writeCount);
-			}
-
-			c++;
-
-			try {
-				Thread.sleep(CHECK_INTERVAL);
-			} catch (InterruptedException e) {
-			}
-		}
-
-		if (attachedThread != null) {
-			attachedThread.setReadyToStop(false);
-		}
-
-		if (c > 0) {
-			LOGGER.trace("Resume Read: readCount=" + readCount + " / writeCount=" + writeCount);
-		}
-
 		if (buffer == null || !buffered) {
 			return -1;
 		}
 
 		try {
-			return 0xff & buffer[(int) (readCount % maxMemorySize)];
-		} catch (ArrayIndexOutOfBoundsException e) {
+			return 0xff & buffer.get((int) (readCount % maxMemorySize));
+		} catch (IndexOutOfBoundsException e) {
 			LOGGER.info("Buffer read ArrayIndexOutOfBoundsException error:");
 			LOGGER.info("readCount: \"" + readCount + "\"");
 			LOGGER.info("maxMemorySize: \"" + maxMemorySize + "\"");
@@ -788,39 +941,48 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 
 		LOGGER.debug("Attaching thread: " + thread);
 		attachedThread = thread;
-		startTimer();
+		reportBuffer = !hidebuffer && maxMemorySize > (15 * 1048576);
+		reportBuffer();
 	}
 
-	private void startTimer() {
-		if (!hidebuffer && maxMemorySize > (15 * 1048576)) {
-			timer = new Timer(attachedThread + "-Timer");
-			timer.schedule(new TimerTask() {
-				@Override
-				public void run() {
-					long rc = 0;
-
-					if (getCurrentInputStream() != null) {
-						rc = getCurrentInputStream().getReadCount();
-						PMS.get().getFrame().setReadValue(rc, "");
-					}
+	/**
+	 * Displays the buffer usage in the DMS main screen and stores it in the
+	 * renderer. This is called as data is written and read, but the update
+	 * is performed at most every {@link #BUFFER_REPORT_INTERVAL}
+	 * milliseconds.
+	 */
+	private void reportBuffer() {
+		if (!reportBuffer) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		long next = nextBufferReport.get();
+		if (now < next || !nextBufferReport.compareAndSet(next, now + BUFFER_REPORT_INTERVAL)) {
+			return;
+		}
 
-					long space = (writeCount - rc);
-					LOGGER.trace("buffered: " + formatter.format(space) + " bytes / inputs: " + inputStreams.size());
+		long rc = 0;
+		WaitBufferedInputStream input = getCurrentInputStream();
+		if (input != null) {
+			rc = input.getReadCount();
+			PMS.get().getFrame().setReadValue(rc, "");
+		}
 
-					// There are 1048576 bytes in a megabyte
-					long bufferInMBs = space / 1048576;
-					if (renderer != null) {
-						renderer.setBuffer(bufferInMBs);
-					}
-					PMS.get().getFrame().updateBuffer();
-				}
-			}, 0, 2000);
+		long space = (writeCount - rc);
+		LOGGER.trace("buffered: " + formatter.format(space) + " bytes / inputs: " + inputStreams.size());
+
+		// There are 1048576 bytes in a megabyte
+		long bufferInMBs = space / 1048576;
+		if (renderer != null) {
+			renderer.setBuffer(bufferInMBs);
 		}
+		PMS.get().getFrame().updateBuffer();
 	}
 
 	@Override
 	public void removeInputStream(WaitBufferedInputStream inputStream) {
 		inputStreams.remove(inputStream);
+		signalWriters();
 	}
 
 	@Override
@@ -836,12 +998,6 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		Runnable checkEnd = new Runnable() {
 			@Override
 			public void run() {
-				try {
-					Thread.sleep(CHECK_END_OF_PROCESS);
-				} catch (InterruptedException e) {
-					LOGGER.error(null, e);
-				}
-
 				if (attachedThread != null && attachedThread.isReadyToStop()) {
 					if (!attachedThread.isDestroyed()) {
 						attachedThread.stopProcess();
@@ -851,7 +1007,23 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 				}
 			}
 		};
-		new Thread(checkEnd, attachedThread + "-Cleanup").start();
+		synchronized (this) {
+			if (cleanupCheck != null) {
+				cleanupCheck.cancel(false);
+			}
+			cleanupCheck = CLEANUP_EXECUTOR.schedule(checkEnd, CHECK_END_OF_PROCESS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Cancels the pending end of process check since a new input stream has
+	 * been attached.
+	 */
+	private synchronized void cancelCleanupCheck() {
+		if (cleanupCheck != null) {
+			cleanupCheck.cancel(false);
+			cleanupCheck = null;
+		}
 	}
 
 	@Override
@@ -864,17 +1036,29 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			}
 		}
 
-		if (timer != null) {
-			timer.cancel();
-		}
+		reportBuffer = false;
 
 		if (buffer != null) {
 			LOGGER.trace("Destroying buffer");
 			buffer = null;
 		}
 
+		if (reservation != null) {
+			// The memory itself is freed by the garbage collector
+			TranscodeBufferBudget.get().release(reservation);
+		}
+
 		buffered = false;
 
+		// Release any reader or writer still waiting for the buffer
+		lock.lock();
+		try {
+			dataAvailable.signalAll();
+			spaceAvailable.signalAll();
+		} finally {
+			lock.unlock();
+		}
+
 		if (renderer != null) {
 			renderer.setBuffer(0);
 		}
@@ -0,0 +1,242 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import net.pms.database.TableExecutableProbes;
+import net.pms.database.TableManager;
+import net.pms.service.Services;
+import net.pms.util.BasicThreadFactory;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Runs the commands used to test external executables and stores their
+ * output in {@link TableExecutableProbes}. As long as the size and
+ * modification time of an executable are unchanged, the stored output is
+ * returned instead of starting a new process.
+ * <p>
+ * Commands that are known in advance can be started in parallel with
+ * {@link #prefetch}, the result is then picked up by the next call to
+ * {@link #runProcessListOutput} for the same command.
+ */
+@ThreadSafe
+public class ProbeCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProbeCache.class);
+
+	/** The number of milliseconds a prefetched result is kept if it isn't used */
+	protected static final long PREFETCH_EXPIRY = 60000;
+
+	/** The executor running prefetched commands */
+	private static final ThreadPoolExecutor EXECUTOR;
+
+	static {
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		EXECUTOR = new ThreadPoolExecutor(
+			threads,
+			threads,
+			30,
+			TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(),
+			new BasicThreadFactory("Executable Probe %d-%d")
+		);
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+	/** The prefetched commands by command line */
+	protected static final ConcurrentHashMap<List<String>, Prefetch> PREFETCHED = new ConcurrentHashMap<>();
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private ProbeCache() {
+	}
+
+	/**
+	 * Returns the output of the specified command, either from a prefetched
+	 * result, from the stored output or by running the command in the same
+	 * thread.
+	 *
+	 * @param timeoutMS the process timeout in milliseconds.
+	 * @param terminateTimeoutMS the timeout in milliseconds for each
+	 *            termination attempt before a new attempt is made.
+	 * @param command the command(s) used to create the {@link Process}. The
+	 *            first element must be the path to the executable.
+	 * @return The process result as a {@link ListProcessWrapperResult}.
+	 * @throws InterruptedException If interrupted while waiting for the
+	 *             {@link Process} to finish.
+	 */
+	@Nonnull
+	public static ListProcessWrapperResult runProcessListOutput(
+		long timeoutMS,
+		long terminateTimeoutMS,
+		@Nonnull String... command
+	) throws InterruptedException {
+		Prefetch prefetch = PREFETCHED.remove(Arrays.asList(command));
+		if (prefetch != null && System.currentTimeMillis() - prefetch.created < PREFETCH_EXPIRY) {
+			try {
+				return prefetch.get();
+			} catch (ExecutionException e) {
+				LOGGER.debug("Prefetching \"{}\" failed, retrying: {}", StringUtils.join(command, ' '), e.getMessage());
+				LOGGER.trace("", e);
+			}
+		}
+		return probe(timeoutMS, terminateTimeoutMS, command);
+	}
+
+	/**
+	 * Starts the specified commands in parallel in the background. Each
+	 * result is kept for {@link #PREFETCH_EXPIRY} milliseconds waiting for a
+	 * call to {@link #runProcessListOutput} with the same command.
+	 *
+	 * @param timeoutMS the process timeout in milliseconds.
+	 * @param terminateTimeoutMS the timeout in milliseconds for each
+	 *            termination attempt before a new attempt is made.
+	 * @param executable the path to the executable.
+	 * @param arguments the arguments for each command.
+	 */
+	public static void prefetch(
+		final long timeoutMS,
+		final long terminateTimeoutMS,
+		@Nonnull String executable,
+		@Nonnull String[]... arguments
+	) {
+		for (String[] commandArguments : arguments) {
+			final String[] command = new String[commandArguments.length + 1];
+			command[0] = executable;
+			System.arraycopy(commandArguments, 0, command, 1, commandArguments.length);
+			List<String> key = Arrays.asList(command);
+			Prefetch prefetch = new Prefetch(new Callable<ListProcessWrapperResult>() {
+
+				@Override
+				public ListProcessWrapperResult call() throws Exception {
+					return probe(timeoutMS, terminateTimeoutMS, command);
+				}
+			});
+			Prefetch previous = PREFETCHED.put(key, prefetch);
+			if (previous != null) {
+				previous.cancel(false);
+			}
+			EXECUTOR.execute(prefetch);
+		}
+	}
+
+	/**
+	 * Returns the stored output of the specified command if the executable
+	 * is unchanged, otherwise runs the command and stores the output if it
+	 * succeeded.
+	 *
+	 * @param timeoutMS the process timeout in milliseconds.
+	 * @param terminateTimeoutMS the timeout in milliseconds for each
+	 *            termination attempt before a new attempt is made.
+	 * @param command the command(s) used to create the {@link Process}.
+	 * @return The process result as a {@link ListProcessWrapperResult}.
+	 * @throws InterruptedException If interrupted while waiting for the
+	 *             {@link Process} to finish.
+	 */
+	@Nonnull
+	protected static ListProcessWrapperResult probe(
+		long timeoutMS,
+		long terminateTimeoutMS,
+		@Nonnull String... command
+	) throws InterruptedException {
+		TableExecutableProbes table = getTable();
+		BasicFileAttributes attributes = table == null ? null : getAttributes(command[0]);
+		String arguments = null;
+		if (attributes != null) {
+			arguments = StringUtils.join(command, ' ', 1, command.length);
+			ListProcessWrapperResult result = table.find(
+				command[0],
+				arguments,
+				attributes.size(),
+				attributes.lastModifiedTime().toMillis()
+			);
+			if (result != null) {
+				if (LOGGER.isTraceEnabled()) {
+					LOGGER.trace("Using stored output of \"{} {}\"", command[0], arguments);
+				}
+				return result;
+			}
+		}
+
+		ListProcessWrapperResult result = SimpleProcessWrapper.runProcessListOutput(timeoutMS, terminateTimeoutMS, command);
+		if (attributes != null && result.getError() == null && result.getExitCode() == 0) {
+			table.store(command[0], arguments, attributes.size(), attributes.lastModifiedTime().toMillis(), result);
+		}
+		return result;
+	}
+
+	@Nullable
+	private static TableExecutableProbes getTable() {
+		TableManager tableManager = Services.tableManager();
+		return tableManager == null || !tableManager.isAlive() ? null : tableManager.getTableExecutableProbes();
+	}
+
+	@Nullable
+	private static BasicFileAttributes getAttributes(@Nullable String executable) {
+		if (executable == null) {
+			return null;
+		}
+		try {
+			Path path = Paths.get(executable);
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			return attributes.isRegularFile() ? attributes : null;
+		} catch (InvalidPathException | IOException e) {
+			// Executables found using the OS path can't be checked for changes
+			return null;
+		}
+	}
+
+	/**
+	 * A prefetched command.
+	 */
+	protected static class Prefetch extends FutureTask<ListProcessWrapperResult> {
+
+		/** The time this {@link Prefetch} was created */
+		protected final long created = System.currentTimeMillis();
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param callable the {@link Callable} to run.
+		 */
+		public Prefetch(Callable<ListProcessWrapperResult> callable) {
+			super(callable);
+		}
+	}
+}
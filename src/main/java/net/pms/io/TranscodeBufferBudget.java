@@ -0,0 +1,240 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.io;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import net.pms.PMS;
+import net.pms.configuration.PmsConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Keeps track of the memory used by transcode buffers so that the combined
+ * size of all active buffers stays within a global budget.
+ * <p>
+ * Each {@link BufferedOutputFileImpl} reserves its size when it's created and
+ * releases it when it's reset. When other buffers are active, a new buffer
+ * is granted at most an equal share of the budget, so that the per-stream
+ * buffer size shrinks as the server gets busy. Buffers that are garbage
+ * collected without being released have their reservation reclaimed
+ * automatically.
+ */
+@ThreadSafe
+public class TranscodeBufferBudget {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TranscodeBufferBudget.class);
+
+	private static final Object INSTANCE_LOCK = new Object();
+
+	@GuardedBy("INSTANCE_LOCK")
+	private static TranscodeBufferBudget instance;
+
+	/** The budget in bytes */
+	protected final long budget;
+
+	/** The {@link ReferenceQueue} for reservations whose owner is gone */
+	protected final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+	/** The active reservations */
+	@GuardedBy("this")
+	protected final HashSet<Reservation> reservations = new HashSet<>();
+
+	/** The total number of reserved bytes */
+	@GuardedBy("this")
+	protected long reserved;
+
+	/**
+	 * Creates a new instance with the specified budget.
+	 *
+	 * @param budget the budget in bytes.
+	 */
+	public TranscodeBufferBudget(long budget) {
+		this.budget = Math.max(budget, 0);
+	}
+
+	/**
+	 * @return The shared {@link TranscodeBufferBudget} instance, created from
+	 *         the configuration on first use.
+	 */
+	@Nonnull
+	public static TranscodeBufferBudget get() {
+		synchronized (INSTANCE_LOCK) {
+			if (instance == null) {
+				PmsConfiguration configuration = PMS.getConfiguration();
+				instance = new TranscodeBufferBudget(getConfiguredBudget(configuration.getTranscodeBufferBudget()));
+				LOGGER.debug(
+					"Transcode buffers are allocated as {} memory with a total budget of {} MB",
+					configuration.getTranscodeBufferType().getValue(),
+					Long.valueOf(instance.budget / 1048576)
+				);
+			}
+			return instance;
+		}
+	}
+
+	/**
+	 * Calculates the budget in bytes from the configured value.
+	 *
+	 * @param budgetMB the configured budget in megabytes or {@code 0} for
+	 *            automatic.
+	 * @return The budget in bytes.
+	 */
+	protected static long getConfiguredBudget(int budgetMB) {
+		if (budgetMB > 0) {
+			return budgetMB * 1048576L;
+		}
+		/*
+		 * Use half of the heap size. The default direct memory limit equals
+		 * the maximum heap size, and mapped memory still counts against the
+		 * physical memory of the system.
+		 */
+		return Runtime.getRuntime().maxMemory() / 2;
+	}
+
+	/**
+	 * Reserves memory for a new transcode buffer. The returned size is never
+	 * larger than {@code requested} and never smaller than {@code minimum}.
+	 * When other buffers are active, the new buffer gets at most its share
+	 * of the budget. If the budget is exhausted, {@code minimum} is granted
+	 * anyway since a stream can't be transcoded without a buffer.
+	 *
+	 * @param owner the object using the memory. The reservation is released
+	 *            automatically if it's garbage collected.
+	 * @param requested the preferred size in bytes.
+	 * @param minimum the smallest usable size in bytes.
+	 * @return The {@link Reservation}.
+	 */
+	@Nonnull
+	public synchronized Reservation reserve(@Nonnull Object owner, long requested, long minimum) {
+		expunge();
+		minimum = Math.min(minimum, requested);
+		long granted = Math.min(requested, budget - reserved);
+		if (!reservations.isEmpty()) {
+			granted = Math.min(granted, budget / (reservations.size() + 1));
+		}
+		if (granted < minimum) {
+			if (budget - reserved < minimum) {
+				LOGGER.debug(
+					"Transcode buffer budget exceeded, granting the minimum of {} MB ({} MB reserved by {} buffers)",
+					Long.valueOf(minimum / 1048576),
+					Long.valueOf(reserved / 1048576),
+					Integer.valueOf(reservations.size())
+				);
+			}
+			granted = minimum;
+		} else if (granted < requested) {
+			LOGGER.debug(
+				"Reducing transcode buffer from {} MB to {} MB since {} buffers are active",
+				Long.valueOf(requested / 1048576),
+				Long.valueOf(granted / 1048576),
+				Integer.valueOf(reservations.size())
+			);
+		}
+		Reservation reservation = new Reservation(owner, granted, queue);
+		reservations.add(reservation);
+		reserved += granted;
+		return reservation;
+	}
+
+	/**
+	 * Releases the specified {@link Reservation}. Releasing a
+	 * {@link Reservation} more than once has no effect.
+	 *
+	 * @param reservation the {@link Reservation} to release.
+	 */
+	public synchronized void release(@Nonnull Reservation reservation) {
+		if (reservations.remove(reservation)) {
+			reserved -= reservation.size;
+			reservation.clear();
+		}
+		expunge();
+	}
+
+	/**
+	 * Releases reservations whose owner has been garbage collected.
+	 */
+	@GuardedBy("this")
+	protected void expunge() {
+		Reference<?> reference;
+		while ((reference = queue.poll()) != null) {
+			Reservation reservation = (Reservation) reference;
+			if (reservations.remove(reservation)) {
+				LOGGER.trace("Reclaiming {} bytes from a transcode buffer that wasn't released", Long.valueOf(reservation.size));
+				reserved -= reservation.size;
+			}
+		}
+	}
+
+	/**
+	 * @return The budget in bytes.
+	 */
+	public long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * @return The number of bytes currently reserved.
+	 */
+	public synchronized long getReserved() {
+		expunge();
+		return reserved;
+	}
+
+	/**
+	 * @return The number of active reservations.
+	 */
+	public synchronized int getActiveCount() {
+		expunge();
+		return reservations.size();
+	}
+
+	/**
+	 * A reservation of transcode buffer memory.
+	 */
+	public static class Reservation extends WeakReference<Object> {
+
+		/** The reserved size in bytes */
+		protected final long size;
+
+		/**
+		 * Creates a new reservation.
+		 *
+		 * @param owner the object using the memory.
+		 * @param size the reserved size in bytes.
+		 * @param queue the {@link ReferenceQueue} to register with.
+		 */
+		protected Reservation(Object owner, long size, ReferenceQueue<Object> queue) {
+			super(owner, queue);
+			this.size = size;
+		}
+
+		/**
+		 * @return The reserved size in bytes.
+		 */
+		public long getSize() {
+			return size;
+		}
+	}
+}
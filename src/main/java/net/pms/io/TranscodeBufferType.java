@@ -0,0 +1,185 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import net.pms.PMS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Defines where the memory backing a {@link BufferedOutputFileImpl} is
+ * allocated. Native memory and mappings are released by the garbage collector
+ * once the buffer is no longer referenced, since releasing them explicitly
+ * while another thread might still access the buffer would crash the JVM.
+ */
+public enum TranscodeBufferType {
+
+	/** A {@code byte} array on the Java heap */
+	HEAP,
+
+	/** Native memory outside the Java heap */
+	DIRECT,
+
+	/**
+	 * A memory-mapped temporary file in the temporary folder. The OS decides
+	 * how much of it is kept in memory.
+	 */
+	MAPPED;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TranscodeBufferType.class);
+
+	/** The file name prefix of the temporary files used by {@link #MAPPED} */
+	protected static final String MAPPED_FILE_PREFIX = "dms-buffer-";
+
+	/** The file name suffix of the temporary files used by {@link #MAPPED} */
+	protected static final String MAPPED_FILE_SUFFIX = ".tmp";
+
+	/**
+	 * @return The value used to store this {@link TranscodeBufferType} in the
+	 *         configuration.
+	 */
+	public String getValue() {
+		return name().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Allocates a new buffer of this type. If the allocation fails, the
+	 * allocation is retried using {@link #DIRECT} and then {@link #HEAP}.
+	 *
+	 * @param size the size of the buffer in bytes.
+	 * @return The new {@link ByteBuffer} or {@code null} if no memory could be
+	 *         allocated.
+	 */
+	@Nullable
+	public ByteBuffer allocate(int size) {
+		switch (this) {
+			case MAPPED:
+				try {
+					return map(size);
+				} catch (IOException e) {
+					LOGGER.debug("Could not map a {} bytes transcode buffer, using direct memory instead: {}", Integer.valueOf(size), e.getMessage());
+					LOGGER.trace("", e);
+				}
+				// Fall through
+			case DIRECT:
+				try {
+					return ByteBuffer.allocateDirect(size);
+				} catch (OutOfMemoryError e) {
+					LOGGER.debug("Could not allocate {} bytes of direct memory, using the heap instead: {}", Integer.valueOf(size), e.getMessage());
+				}
+				// Fall through
+			default:
+				try {
+					return ByteBuffer.allocate(size);
+				} catch (OutOfMemoryError e) {
+					LOGGER.debug("Could not allocate {} bytes on the heap: {}", Integer.valueOf(size), e.getMessage());
+					return null;
+				}
+		}
+	}
+
+	/**
+	 * Maps a new temporary file of the specified size. The file is deleted
+	 * right away where the OS allows it. Windows doesn't allow deleting a
+	 * mapped file, and since the mapping is only released by the garbage
+	 * collector it might still exist on exit, so such files are also deleted
+	 * by {@link #deleteLeftoverFiles()} on the next start.
+	 *
+	 * @param size the size in bytes.
+	 * @return The mapped {@link ByteBuffer}.
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	@Nonnull
+	private static ByteBuffer map(int size) throws IOException {
+		File file = File.createTempFile(MAPPED_FILE_PREFIX, MAPPED_FILE_SUFFIX, PMS.getConfiguration().getTempFolder());
+		try (
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			FileChannel channel = raf.getChannel()
+		) {
+			// The mapping stays valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		} finally {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * Deletes {@link #MAPPED} temporary files left behind by a previous run.
+	 * This must be called before any {@link #MAPPED} buffer is allocated.
+	 */
+	public static void deleteLeftoverFiles() {
+		File[] files;
+		try {
+			files = PMS.getConfiguration().getTempFolder().listFiles();
+		} catch (IOException e) {
+			LOGGER.debug("Could not delete leftover transcode buffer files: {}", e.getMessage());
+			LOGGER.trace("", e);
+			return;
+		}
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			String name = file.getName();
+			if (name.startsWith(MAPPED_FILE_PREFIX) && name.endsWith(MAPPED_FILE_SUFFIX) && file.isFile()) {
+				if (file.delete()) {
+					LOGGER.trace("Deleted leftover transcode buffer file \"{}\"", file);
+				} else {
+					LOGGER.debug("Could not delete leftover transcode buffer file \"{}\"", file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Converts the specified {@link String} to a {@link TranscodeBufferType}.
+	 *
+	 * @param value the {@link String} to convert.
+	 * @return The corresponding {@link TranscodeBufferType}, {@link #DIRECT}
+	 *         if there's no match.
+	 */
+	public static TranscodeBufferType typeOf(String value) {
+		if (value == null) {
+			return DIRECT;
+		}
+		value = value.trim().toLowerCase(Locale.ROOT);
+		switch (value) {
+			case "heap":
+			case "memory":
+				return HEAP;
+			case "mapped":
+			case "mmap":
+			case "file":
+				return MAPPED;
+			default:
+				return DIRECT;
+		}
+	}
+}
@@ -23,7 +23,7 @@ import java.io.InputStream;
 
 class WaitBufferedInputStream extends InputStream {
 	private BufferedOutputFile outputStream;
-	private long readCount;
+	private volatile long readCount;
 	private boolean firstRead;
 
 	public void setReadCount(long readCount) {
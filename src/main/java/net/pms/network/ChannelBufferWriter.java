@@ -0,0 +1,224 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.network;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+
+/**
+ * Encodes text to UTF-8 as it's appended, into a list of fixed size chunks
+ * that are combined into a single {@link ChannelBuffer} without copying.
+ * <p>
+ * This is used instead of a {@link StringBuilder} for responses that can
+ * be large. The whole response is still kept in memory until it's sent,
+ * but only once and in its encoded form: there is no intermediate
+ * {@link String} or byte array, and the chunks aren't copied when the
+ * response grows or when it's sent.
+ */
+@NotThreadSafe
+public class ChannelBufferWriter implements Appendable {
+
+	/** The size of each chunk in bytes */
+	protected static final int CHUNK_SIZE = 16384;
+
+	/** The encoder */
+	protected final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+		.onMalformedInput(CodingErrorAction.REPLACE)
+		.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/** The completely filled chunks */
+	protected final ArrayList<ChannelBuffer> chunks = new ArrayList<>();
+
+	/** The chunk currently being filled */
+	protected ByteBuffer current = ByteBuffer.allocate(CHUNK_SIZE);
+
+	/** The total number of bytes in the completely filled chunks */
+	protected int filledBytes;
+
+	/** Whether {@link #toChannelBuffer()} has been called */
+	protected boolean finished;
+
+	/**
+	 * Whether the last appended character was a high surrogate that is
+	 * waiting for the low surrogate of the pair
+	 */
+	protected boolean hasHighSurrogate;
+
+	/** The high surrogate waiting for the next append */
+	protected char highSurrogate;
+
+	@Override
+	public ChannelBufferWriter append(CharSequence csq) {
+		if (csq != null) {
+			encode(CharBuffer.wrap(csq), false);
+		} else {
+			encode(CharBuffer.wrap("null"), false);
+		}
+		return this;
+	}
+
+	@Override
+	public ChannelBufferWriter append(CharSequence csq, int start, int end) {
+		encode(CharBuffer.wrap(csq == null ? "null" : csq, start, end), false);
+		return this;
+	}
+
+	@Override
+	public ChannelBufferWriter append(char c) {
+		encode(CharBuffer.wrap(new char[] {c}), false);
+		return this;
+	}
+
+	/**
+	 * Appends the decimal representation of an {@code int}.
+	 *
+	 * @param i the value to append.
+	 * @return This {@link ChannelBufferWriter}.
+	 */
+	public ChannelBufferWriter append(int i) {
+		return append(Integer.toString(i));
+	}
+
+	/**
+	 * Appends the decimal representation of a {@code long}.
+	 *
+	 * @param l the value to append.
+	 * @return This {@link ChannelBufferWriter}.
+	 */
+	public ChannelBufferWriter append(long l) {
+		return append(Long.toString(l));
+	}
+
+	/**
+	 * @return The number of encoded bytes so far.
+	 */
+	public int length() {
+		return filledBytes + current.position();
+	}
+
+	/**
+	 * Completes the encoding and combines the chunks to a single
+	 * {@link ChannelBuffer}. Nothing can be appended afterwards.
+	 *
+	 * @return The encoded text.
+	 */
+	@Nonnull
+	public ChannelBuffer toChannelBuffer() {
+		if (!finished) {
+			finished = true;
+			encode(CharBuffer.allocate(0), true);
+			while (encoder.flush(current) == CoderResult.OVERFLOW) {
+				nextChunk();
+			}
+			if (current.position() > 0) {
+				current.flip();
+				chunks.add(ChannelBuffers.wrappedBuffer(current));
+				filledBytes += current.remaining();
+				current = ByteBuffer.allocate(0);
+			}
+		}
+		if (chunks.isEmpty()) {
+			return ChannelBuffers.EMPTY_BUFFER;
+		}
+		return ChannelBuffers.wrappedBuffer(chunks.toArray(new ChannelBuffer[chunks.size()]));
+	}
+
+	/**
+	 * Encodes the specified characters into as many chunks as needed. A
+	 * surrogate pair can be split between two calls, a trailing high
+	 * surrogate is kept until the next call.
+	 *
+	 * @param chars the characters to encode.
+	 * @param endOfInput whether these are the last characters.
+	 */
+	protected void encode(CharBuffer chars, boolean endOfInput) {
+		if (finished && !endOfInput) {
+			throw new IllegalStateException("Can't append to a finished ChannelBufferWriter");
+		}
+		if (hasHighSurrogate) {
+			if (!chars.hasRemaining() && !endOfInput) {
+				return;
+			}
+			hasHighSurrogate = false;
+			CharBuffer pair = CharBuffer.allocate(2);
+			pair.put(highSurrogate);
+			if (chars.hasRemaining()) {
+				pair.put(chars.get());
+			}
+			pair.flip();
+			encodeChunks(pair, endOfInput && !chars.hasRemaining());
+			if (pair.hasRemaining()) {
+				// The next character wasn't a low surrogate, so it's encoded with the rest
+				chars.position(chars.position() - 1);
+			}
+		}
+		encodeChunks(chars, endOfInput);
+		if (chars.hasRemaining()) {
+			// The encoder leaves a high surrogate at the end of the input until it gets the low surrogate
+			highSurrogate = chars.get();
+			hasHighSurrogate = true;
+		}
+	}
+
+	/**
+	 * Encodes as many of the specified characters as possible into as many
+	 * chunks as needed.
+	 *
+	 * @param chars the characters to encode.
+	 * @param endOfInput whether these are the last characters.
+	 */
+	protected void encodeChunks(CharBuffer chars, boolean endOfInput) {
+		while (true) {
+			CoderResult result = encoder.encode(chars, current, endOfInput);
+			if (result.isOverflow()) {
+				nextChunk();
+			} else if (result.isUnderflow()) {
+				return;
+			} else {
+				// Not possible with CodingErrorAction.REPLACE
+				try {
+					result.throwException();
+				} catch (CharacterCodingException e) {
+					throw new IllegalStateException("Failed to encode response: " + e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stores the current chunk and starts a new one.
+	 */
+	protected void nextChunk() {
+		current.flip();
+		filledBytes += current.remaining();
+		chunks.add(ChannelBuffers.wrappedBuffer(current));
+		current = ByteBuffer.allocate(CHUNK_SIZE);
+	}
+}
@@ -178,6 +178,44 @@ public class HTTPResource {
 		return is;
 	}
 
+	/**
+	 * Returns the modification time of the resource that
+	 * {@link #getResourceInputStream(String)} returns for the fileName. For a
+	 * resource in a JAR file this is the time of the JAR entry.
+	 *
+	 * @param fileName the resource file name.
+	 * @return The modification time in milliseconds or {@code 0} if the
+	 *         resource isn't found or its modification time is unknown.
+	 */
+	protected long getResourceLastModified(String fileName) {
+		fileName = "/resources/" + fileName;
+		fileName = fileName.replaceAll("//", "/");
+		ClassLoader cll = this.getClass().getClassLoader();
+		URL url = cll.getResource(fileName.substring(1));
+
+		while (url == null && cll.getParent() != null) {
+			cll = cll.getParent();
+			url = cll.getResource(fileName.substring(1));
+		}
+
+		if (url == null) {
+			return 0;
+		}
+		try {
+			URLConnection connection = url.openConnection();
+			try {
+				return connection.getLastModified();
+			} finally {
+				// Connecting opens the resource, close it
+				connection.getInputStream().close();
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Couldn't get the modification time of \"{}\": {}", fileName, e.getMessage());
+			LOGGER.trace("", e);
+			return 0;
+		}
+	}
+
 	/**
 	 * Creates an InputStream based on a URL. This is used while accessing external resources
 	 * like online radio stations.
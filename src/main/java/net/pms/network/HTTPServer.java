@@ -54,6 +54,7 @@ public class HTTPServer implements Runnable {
 	private Channel channel;
 	private NetworkInterface networkInterface;
 	private ChannelGroup group;
+	private RequestExecutor requestExecutor;
 
 	// XXX not used
 	@Deprecated
@@ -118,8 +119,9 @@ public class HTTPServer implements Runnable {
 				Executors.newCachedThreadPool(new NettyWorkerThreadFactory())
 			);
 
+			requestExecutor = new RequestExecutor();
 			ServerBootstrap bootstrap = new ServerBootstrap(factory);
-			HttpServerPipelineFactory pipeline = new HttpServerPipelineFactory(group);
+			HttpServerPipelineFactory pipeline = new HttpServerPipelineFactory(group, requestExecutor);
 			bootstrap.setPipelineFactory(pipeline);
 			bootstrap.setOption("child.tcpNoDelay", true);
 			bootstrap.setOption("child.keepAlive", true);
@@ -217,6 +219,10 @@ public class HTTPServer implements Runnable {
 			}
 		}
 
+		if (requestExecutor != null) { // HTTP Engine V2
+			requestExecutor.shutdown();
+		}
+
 		NetworkConfiguration.forgetConfiguration();
 	}
 
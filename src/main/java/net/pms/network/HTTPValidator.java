@@ -0,0 +1,133 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.network;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import java.text.ParseException;
+import java.util.Locale;
+import java.util.TimeZone;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.time.FastDateFormat;
+
+
+/**
+ * Creates the validators used for HTTP conditional requests ({@code ETag}
+ * and {@code Last-Modified}) and evaluates the {@code If-None-Match} and
+ * {@code If-Modified-Since} request headers as described in RFC 7232, so
+ * that a response can be replaced by {@code 304 Not Modified}.
+ */
+public final class HTTPValidator {
+
+	/** The HTTP date format (RFC 7231 IMF-fixdate) */
+	public static final FastDateFormat HTTP_DATE = FastDateFormat.getInstance(
+		"EEE, dd MMM yyyy HH:mm:ss 'GMT'",
+		TimeZone.getTimeZone("GMT"),
+		Locale.US
+	);
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private HTTPValidator() {
+	}
+
+	/**
+	 * Creates a strong entity tag from the specified values. The same values
+	 * always give the same tag, and any change in the values gives a
+	 * different tag.
+	 *
+	 * @param values the values that identify the content, typically the
+	 *            path, the modification time and the format.
+	 * @return The quoted entity tag.
+	 */
+	@Nonnull
+	public static String createETag(Object... values) {
+		StringBuilder sb = new StringBuilder();
+		for (Object value : values) {
+			sb.append(value).append('|');
+		}
+		return "\"" + DigestUtils.sha1Hex(sb.toString()) + "\"";
+	}
+
+	/**
+	 * Formats a time as a HTTP date.
+	 *
+	 * @param millis the time in milliseconds since the epoch.
+	 * @return The formatted date.
+	 */
+	@Nonnull
+	public static String formatDate(long millis) {
+		return HTTP_DATE.format(millis);
+	}
+
+	/**
+	 * Evaluates the conditional request headers against the current
+	 * validators of the content. {@code If-None-Match} takes precedence, and
+	 * {@code If-Modified-Since} is only evaluated if it's absent.
+	 *
+	 * @param ifNoneMatch the value of the {@code If-None-Match} header or
+	 *            {@code null}.
+	 * @param ifModifiedSince the value of the {@code If-Modified-Since}
+	 *            header or {@code null}.
+	 * @param eTag the current entity tag or {@code null} if unknown.
+	 * @param lastModified the current modification time in milliseconds or
+	 *            {@code 0} if unknown.
+	 * @return {@code true} if the client's copy is current and
+	 *         {@code 304 Not Modified} should be sent, {@code false}
+	 *         otherwise.
+	 */
+	public static boolean isNotModified(
+		@Nullable String ifNoneMatch,
+		@Nullable String ifModifiedSince,
+		@Nullable String eTag,
+		long lastModified
+	) {
+		if (!isBlank(ifNoneMatch)) {
+			if (eTag == null) {
+				return false;
+			}
+			String tag = stripWeak(eTag);
+			for (String candidate : ifNoneMatch.split(",")) {
+				candidate = candidate.trim();
+				// Weak comparison is used for If-None-Match
+				if ("*".equals(candidate) || tag.equals(stripWeak(candidate))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		if (!isBlank(ifModifiedSince) && lastModified > 0) {
+			try {
+				long since = HTTP_DATE.parse(ifModifiedSince.trim()).getTime();
+				// HTTP dates have a resolution of one second
+				return lastModified / 1000 <= since / 1000;
+			} catch (ParseException e) {
+				// Invalid dates must be ignored
+				return false;
+			}
+		}
+		return false;
+	}
+
+	private static String stripWeak(String eTag) {
+		return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+	}
+}
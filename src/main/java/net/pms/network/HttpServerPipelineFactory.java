@@ -36,9 +36,11 @@ import org.jboss.netty.handler.stream.ChunkedWriteHandler;
  */
 public class HttpServerPipelineFactory implements ChannelPipelineFactory {
 	private ChannelGroup group;
-	
-	public HttpServerPipelineFactory(ChannelGroup group) {
+	private final RequestExecutor executor;
+
+	public HttpServerPipelineFactory(ChannelGroup group, RequestExecutor executor) {
 	    this.group = group;
+	    this.executor = executor;
 	}
 
 	@Override
@@ -49,7 +51,7 @@ public class HttpServerPipelineFactory implements ChannelPipelineFactory {
 		pipeline.addLast("aggregator", new HttpChunkAggregator(65536)); // eliminate the need to decode http chunks from the client
 		pipeline.addLast("encoder", new HttpResponseEncoder());
 		pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
-		pipeline.addLast("handler", new RequestHandlerV2(group));
+		pipeline.addLast("handler", new RequestHandlerV2(group, executor));
 		return pipeline;
 	}
 }
@@ -42,18 +42,16 @@ import net.pms.dlna.DLNAImageProfile;
 import net.pms.dlna.DLNAMediaInfo;
 import net.pms.dlna.DLNAMediaSubtitle;
 import net.pms.dlna.DLNAResource;
-import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.dlna.MediaType;
 import net.pms.dlna.Range;
-import net.pms.dlna.RealFile;
 import net.pms.encoders.ImagePlayer;
 import net.pms.external.StartStopListenerDelegate;
 import net.pms.formats.v2.SubtitleType;
 import net.pms.image.ImagesUtil;
+import net.pms.image.thumbnail.ThumbnailStore;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
 import net.pms.service.Services;
-import net.pms.util.FullyPlayed;
 import net.pms.util.StringUtil;
 import net.pms.util.SubtitleUtils;
 import net.pms.util.UMSUtils;
@@ -338,17 +336,12 @@ public class Request extends HTTPResource {
 					appendToHeader(responseHeader, "Accept-Ranges: bytes");
 					appendToHeader(responseHeader, "Expires: " + getFUTUREDATE() + " GMT");
 					appendToHeader(responseHeader, "Connection: keep-alive");
-					DLNAThumbnailInputStream thumbInputStream;
-					if (!configuration.isShowCodeThumbs() && !dlna.isCodeValid(dlna)) {
-						thumbInputStream = dlna.getGenericThumbnailInputStream(null);
-					} else {
-						dlna.checkThumbnail();
-						thumbInputStream = dlna.fetchThumbnailInputStream();
-					}
-					if (dlna instanceof RealFile && FullyPlayed.isFullyPlayedThumbnail(((RealFile) dlna).getFile())) {
-						thumbInputStream = FullyPlayed.addFullyPlayedOverlay(thumbInputStream);
-					}
-					inputStream = thumbInputStream.transcode(imageProfile, mediaRenderer != null ? mediaRenderer.isThumbnailPadding() : false);
+					inputStream = ThumbnailStore.get().getThumbnailInputStream(
+						dlna,
+						imageProfile,
+						mediaRenderer != null ? mediaRenderer.isThumbnailPadding() : false,
+						!configuration.isShowCodeThumbs() && !dlna.isCodeValid(dlna)
+					);
 					if (contentFeatures != null) {
 						appendToHeader(
 							responseHeader,
@@ -0,0 +1,242 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.network;
+
+import java.util.EnumMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import net.pms.util.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Runs the handling of HTTP requests for {@link RequestHandlerV2} outside of
+ * the Netty I/O worker threads, so that a request that blocks on the file
+ * system, the database or an external process doesn't stall the other
+ * connections served by the same I/O worker.
+ * <p>
+ * Requests are divided into {@link Pool}s that each have their own bounded
+ * number of threads and queue, so that for example many thumbnail requests
+ * can't delay control requests. The time requests spend waiting in each
+ * queue is recorded in {@link WaitStatistics}.
+ */
+@ThreadSafe
+public class RequestExecutor {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RequestExecutor.class);
+
+	/** The maximum number of queued requests per pool */
+	protected static final int MAX_QUEUED = 1000;
+
+	/** The queue wait time in milliseconds above which a request is logged */
+	protected static final long SLOW_WAIT_MS = 1000;
+
+	/** The executors */
+	protected final EnumMap<Pool, ThreadPoolExecutor> executors = new EnumMap<>(Pool.class);
+
+	/** The queue wait statistics */
+	protected final EnumMap<Pool, WaitStatistics> statistics = new EnumMap<>(Pool.class);
+
+	/**
+	 * Creates a new instance with the default number of threads for each
+	 * {@link Pool}.
+	 */
+	public RequestExecutor() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		for (Pool pool : Pool.values()) {
+			int threads;
+			switch (pool) {
+				case CONTROL:
+					threads = Math.max(4, processors);
+					break;
+				case THUMBNAIL:
+					threads = Math.max(2, processors / 2);
+					break;
+				case MEDIA:
+					threads = Math.max(8, processors * 2);
+					break;
+				default:
+					throw new AssertionError("Unimplemented pool " + pool);
+			}
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(
+				threads,
+				threads,
+				30,
+				TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(MAX_QUEUED),
+				new BasicThreadFactory("HTTP " + pool.threadName + " %d-%d")
+			);
+			executor.allowCoreThreadTimeOut(true);
+			executors.put(pool, executor);
+			statistics.put(pool, new WaitStatistics());
+		}
+	}
+
+	/**
+	 * Determines which {@link Pool} should handle a request.
+	 *
+	 * @param uri the request URI without the leading slash.
+	 * @return The {@link Pool} to use.
+	 */
+	@Nonnull
+	public static Pool getPool(@Nullable String uri) {
+		if (uri == null || !uri.startsWith("get/")) {
+			return Pool.CONTROL;
+		}
+		int slash = uri.indexOf('/', 4);
+		if (slash > 0 && uri.startsWith("thumbnail0000", slash + 1)) {
+			return Pool.THUMBNAIL;
+		}
+		return Pool.MEDIA;
+	}
+
+	/**
+	 * Queues a request for execution.
+	 *
+	 * @param pool the {@link Pool} to use.
+	 * @param task the task handling the request.
+	 * @return {@code true} if the request was queued, {@code false} if the
+	 *         queue is full or the executor has been shut down.
+	 */
+	public boolean execute(@Nonnull final Pool pool, @Nonnull final Runnable task) {
+		final long queued = System.nanoTime();
+		try {
+			executors.get(pool).execute(new Runnable() {
+
+				@Override
+				public void run() {
+					long waited = System.nanoTime() - queued;
+					statistics.get(pool).add(waited);
+					if (waited > TimeUnit.MILLISECONDS.toNanos(SLOW_WAIT_MS) && LOGGER.isDebugEnabled()) {
+						LOGGER.debug(
+							"HTTP {} request waited {} ms in the queue ({})",
+							pool,
+							Long.valueOf(TimeUnit.NANOSECONDS.toMillis(waited)),
+							statistics.get(pool)
+						);
+					}
+					task.run();
+				}
+			});
+			return true;
+		} catch (RejectedExecutionException e) {
+			LOGGER.debug("Rejected HTTP {} request since the queue is full", pool);
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the queue wait statistics for the specified {@link Pool}.
+	 *
+	 * @param pool the {@link Pool}.
+	 * @return The {@link WaitStatistics}.
+	 */
+	@Nonnull
+	public WaitStatistics getStatistics(@Nonnull Pool pool) {
+		return statistics.get(pool);
+	}
+
+	/**
+	 * Stops all threads, interrupting the requests being handled. Queued
+	 * requests are discarded.
+	 */
+	public void shutdown() {
+		for (ThreadPoolExecutor executor : executors.values()) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The categories of requests that are handled by separate threads.
+	 */
+	public enum Pool {
+
+		/** SOAP actions, descriptions, subscriptions and the web console */
+		CONTROL("Control"),
+
+		/** Thumbnail requests */
+		THUMBNAIL("Thumbnail"),
+
+		/** Media requests, including transcoding */
+		MEDIA("Media");
+
+		private final String threadName;
+
+		private Pool(String threadName) {
+			this.threadName = threadName;
+		}
+	}
+
+	/**
+	 * Keeps track of the time requests spend waiting in a queue.
+	 */
+	@ThreadSafe
+	public static class WaitStatistics {
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong total = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		/**
+		 * Records a wait time.
+		 *
+		 * @param nanos the wait time in nanoseconds.
+		 */
+		protected void add(long nanos) {
+			count.incrementAndGet();
+			total.addAndGet(nanos);
+			long current = max.get();
+			while (nanos > current && !max.compareAndSet(current, nanos)) {
+				current = max.get();
+			}
+		}
+
+		/**
+		 * @return The number of requests that have left the queue.
+		 */
+		public long getCount() {
+			return count.get();
+		}
+
+		/**
+		 * @return The average wait time in milliseconds.
+		 */
+		public double getAverageWaitMS() {
+			long currentCount = count.get();
+			return currentCount == 0 ? 0 : total.get() / (currentCount * 1000000d);
+		}
+
+		/**
+		 * @return The maximum wait time in milliseconds.
+		 */
+		public double getMaxWaitMS() {
+			return max.get() / 1000000d;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("requests: %d, average wait: %.1f ms, max wait: %.1f ms", getCount(), getAverageWaitMS(), getMaxWaitMS());
+		}
+	}
+}
@@ -25,6 +25,7 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Locale;
@@ -33,6 +34,7 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import javax.annotation.concurrent.GuardedBy;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPathExpressionException;
@@ -62,9 +64,34 @@ public class RequestHandlerV2 extends SimpleChannelUpstreamHandler {
 
 	private volatile HttpRequest nettyRequest;
 	private final ChannelGroup group;
+	private final RequestExecutor executor;
+
+	/**
+	 * The requests received on this channel while another request is being
+	 * handled. Requests on the same channel are handled one at a time and in
+	 * order, since the responses must be sent in the same order.
+	 */
+	@GuardedBy("pendingRequests")
+	private final ArrayDeque<MessageEvent> pendingRequests = new ArrayDeque<>();
+
+	@GuardedBy("pendingRequests")
+	private boolean handlingRequest;
 
 	public RequestHandlerV2(ChannelGroup group) {
+		this(group, null);
+	}
+
+	/**
+	 * Creates a new handler that handles requests using the specified
+	 * {@link RequestExecutor}.
+	 *
+	 * @param group the {@link ChannelGroup} to add the channel to.
+	 * @param executor the {@link RequestExecutor} or {@code null} to handle
+	 *            requests on the Netty I/O thread.
+	 */
+	public RequestHandlerV2(ChannelGroup group, RequestExecutor executor) {
 		this.group = group;
+		this.executor = executor;
 	}
 
 	// Used to filter out known headers when the renderer is not recognized
@@ -78,6 +105,8 @@ public class RequestHandlerV2 extends SimpleChannelUpstreamHandler {
 		"content-type",
 		"date",
 		"host",
+		"if-modified-since",
+		"if-none-match",
 		"nt",
 		"sid",
 		"timeout",
@@ -86,6 +115,78 @@ public class RequestHandlerV2 extends SimpleChannelUpstreamHandler {
 
 	@Override
 	public void messageReceived(ChannelHandlerContext ctx, MessageEvent event) throws Exception {
+		if (executor == null) {
+			handleRequest(ctx, event);
+			return;
+		}
+
+		synchronized (pendingRequests) {
+			if (handlingRequest) {
+				pendingRequests.add(event);
+				return;
+			}
+			handlingRequest = true;
+		}
+		// Don't read more requests from this channel until this one is handled
+		event.getChannel().setReadable(false);
+		dispatch(ctx, event);
+	}
+
+	/**
+	 * Queues a request on the {@link RequestExecutor}. When it's handled, the
+	 * next pending request for this channel is dispatched.
+	 *
+	 * @param ctx the {@link ChannelHandlerContext}.
+	 * @param event the {@link MessageEvent} containing the request.
+	 */
+	private void dispatch(final ChannelHandlerContext ctx, final MessageEvent event) {
+		HttpRequest message = (HttpRequest) event.getMessage();
+		boolean queued = executor.execute(RequestExecutor.getPool(message.getUri().substring(1)), new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					handleRequest(ctx, event);
+				} catch (Exception e) {
+					Channels.fireExceptionCaughtLater(ctx, e);
+				} finally {
+					next(ctx, event.getChannel());
+				}
+			}
+		});
+		if (!queued) {
+			// The channel is closed by sendError(), drop the pending requests
+			synchronized (pendingRequests) {
+				pendingRequests.clear();
+				handlingRequest = false;
+			}
+			sendError(ctx, HttpResponseStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+
+	/**
+	 * Dispatches the next pending request for this channel or resumes
+	 * reading from the channel if there are none.
+	 *
+	 * @param ctx the {@link ChannelHandlerContext}.
+	 * @param channel the {@link Channel}.
+	 */
+	private void next(ChannelHandlerContext ctx, Channel channel) {
+		MessageEvent nextEvent;
+		synchronized (pendingRequests) {
+			nextEvent = pendingRequests.poll();
+			if (nextEvent == null) {
+				handlingRequest = false;
+			}
+		}
+		if (nextEvent != null) {
+			dispatch(ctx, nextEvent);
+		} else if (channel.isOpen()) {
+			channel.setReadable(true);
+		}
+	}
+
+	private void handleRequest(ChannelHandlerContext ctx, MessageEvent event) throws Exception {
 		RequestV2 request = null;
 		RendererConfiguration renderer = null;
 		String userAgentString = null;
@@ -220,6 +321,11 @@ public class RequestHandlerV2 extends SimpleChannelUpstreamHandler {
 			}
 		}
 
+		request.setConditionalHeaders(
+			headers.get(HttpHeaders.Names.IF_NONE_MATCH),
+			headers.get(HttpHeaders.Names.IF_MODIFIED_SINCE)
+		);
+
 		// Still no media renderer recognized?
 		if (renderer == null) {
 
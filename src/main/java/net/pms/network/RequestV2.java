@@ -18,13 +18,17 @@
  */
 package net.pms.network;
 
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.MalformedURLException;
 import java.net.Socket;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -42,10 +46,10 @@ import net.pms.encoders.ImagePlayer;
 import net.pms.external.StartStopListenerDelegate;
 import net.pms.formats.v2.SubtitleType;
 import net.pms.image.ImagesUtil;
+import net.pms.image.thumbnail.ThumbnailStore;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
 import net.pms.service.Services;
-import net.pms.util.FullyPlayed;
 import net.pms.util.StringUtil;
 import net.pms.util.SubtitleUtils;
 import static net.pms.util.StringUtil.convertStringToTime;
@@ -55,12 +59,16 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import org.apache.commons.text.StringEscapeUtils;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.DefaultFileRegion;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpResponse;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.ssl.SslHandler;
+import org.jboss.netty.handler.stream.ChunkedNioFile;
 import org.jboss.netty.handler.stream.ChunkedStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,6 +83,7 @@ public class RequestV2 extends HTTPResource {
 	private static final Pattern DIDL_PATTERN = Pattern.compile("<Result>(&lt;DIDL-Lite.*?)</Result>");
 	private final SimpleDateFormat sdf = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss", Locale.US);
 	private static int BUFFER_SIZE = 8 * 1024;
+	private static final int NIO_BUFFER_SIZE = 256 * 1024;
 	private final String method;
 	private PmsConfiguration configuration = PMS.getConfiguration();
 
@@ -97,9 +106,17 @@ public class RequestV2 extends HTTPResource {
 	 */
 	private long lowRange;
 	private InputStream inputStream;
+
+	/**
+	 * When sending an untranscoded file, the file that can be sent directly
+	 * instead of reading {@link #inputStream}.
+	 */
+	private File directFile;
 	private RendererConfiguration mediaRenderer;
 	private String transferMode;
 	private String contentFeatures;
+	private String ifNoneMatch;
+	private String ifModifiedSince;
 	private final Range.Time range = new Range.Time();
 
 	/**
@@ -158,6 +175,19 @@ public class RequestV2 extends HTTPResource {
 		this.contentFeatures = contentFeatures;
 	}
 
+	/**
+	 * Sets the conditional request headers sent by the client.
+	 *
+	 * @param ifNoneMatch the {@code If-None-Match} header value or
+	 *            {@code null}.
+	 * @param ifModifiedSince the {@code If-Modified-Since} header value or
+	 *            {@code null}.
+	 */
+	public void setConditionalHeaders(String ifNoneMatch, String ifModifiedSince) {
+		this.ifNoneMatch = ifNoneMatch;
+		this.ifModifiedSince = ifModifiedSince;
+	}
+
 	public void setTimeRangeStart(Double timeseek) {
 		this.range.setStart(timeseek);
 	}
@@ -270,6 +300,7 @@ public class RequestV2 extends HTTPResource {
 		ChannelFuture future = null;
 		long CLoverride = -2; // 0 and above are valid Content-Length values, -1 means omit
 		StringBuilder response = new StringBuilder();
+		ChannelBuffer responseBuffer = null;
 		DLNAResource dlna = null;
 		boolean xbox360 = mediaRenderer.isXbox360();
 
@@ -326,17 +357,19 @@ public class RequestV2 extends HTTPResource {
 					output.headers().set(HttpHeaders.Names.EXPIRES, getFUTUREDATE() + " GMT");
 					output.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
 
-					DLNAThumbnailInputStream thumbInputStream;
-					if (!configuration.isShowCodeThumbs() && !dlna.isCodeValid(dlna)) {
-						thumbInputStream = dlna.getGenericThumbnailInputStream(null);
-					} else {
-						dlna.checkThumbnail();
-						thumbInputStream = dlna.fetchThumbnailInputStream();
-					}
-					if (dlna instanceof RealFile && FullyPlayed.isFullyPlayedThumbnail(((RealFile) dlna).getFile())) {
-						thumbInputStream = FullyPlayed.addFullyPlayedOverlay(thumbInputStream);
+					boolean padToSize = mediaRenderer != null ? mediaRenderer.isThumbnailPadding() : false;
+					boolean generic = !configuration.isShowCodeThumbs() && !dlna.isCodeValid(dlna);
+					future = sendNotModified(
+						output,
+						event,
+						close,
+						ThumbnailStore.get().getETag(dlna, imageProfile, padToSize, generic),
+						0
+					);
+					if (future != null) {
+						return future;
 					}
-					inputStream = thumbInputStream.transcode(imageProfile, mediaRenderer != null ? mediaRenderer.isThumbnailPadding() : false);
+					inputStream = ThumbnailStore.get().getThumbnailInputStream(dlna, imageProfile, padToSize, generic);
 					if (contentFeatures != null) {
 						output.headers().set(
 							"ContentFeatures.DLNA.ORG",
@@ -377,6 +410,28 @@ public class RequestV2 extends HTTPResource {
 						output.headers().set(HttpHeaders.Names.ACCEPT_RANGES, HttpHeaders.Values.BYTES);
 						output.headers().set(HttpHeaders.Names.EXPIRES, getFUTUREDATE() + " GMT");
 						output.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+						if (dlna instanceof RealFile && ((RealFile) dlna).getFile() != null) {
+							File imageFile = ((RealFile) dlna).getFile();
+							long lastModified = imageFile.lastModified();
+							if (lastModified > 0) {
+								future = sendNotModified(
+									output,
+									event,
+									close,
+									HTTPValidator.createETag(
+										imageFile.getAbsolutePath(),
+										lastModified,
+										imageFile.length(),
+										imageProfile,
+										dlna.getPlayer() == null ? null : dlna.getPlayer().id()
+									),
+									lastModified
+								);
+								if (future != null) {
+									return future;
+								}
+							}
+						}
 						try {
 						InputStream imageInputStream;
 						if (dlna.getPlayer() instanceof ImagePlayer) {
@@ -488,6 +543,9 @@ public class RequestV2 extends HTTPResource {
 							// Update range to possibly adjusted resume time
 							range.setStart(dlna.getResume().getTimeOffset() / (double) 1000);
 						}
+						if (inputStream != null) {
+							directFile = getDirectFile(dlna);
+						}
 					}
 
 					if (dlna.isVideo()) {
@@ -619,6 +677,17 @@ public class RequestV2 extends HTTPResource {
 			output.headers().set(HttpHeaders.Names.ACCEPT_RANGES, HttpHeaders.Values.BYTES);
 			output.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
 			output.headers().set(HttpHeaders.Names.EXPIRES, getFUTUREDATE() + " GMT");
+			long resourceModified = getResourceLastModified(argument);
+			future = sendNotModified(
+				output,
+				event,
+				close,
+				HTTPValidator.createETag(argument, PMS.getVersion(), Long.valueOf(resourceModified)),
+				resourceModified
+			);
+			if (future != null) {
+				return future;
+			}
 			inputStream = getResourceInputStream(argument);
 		} else if ((method.equals("GET") || method.equals("HEAD")) && (argument.equals("description/fetch") || argument.endsWith("1.0.xml"))) {
 			output.headers().set(HttpHeaders.Names.CONTENT_TYPE, "text/xml; charset=\"utf-8\"");
@@ -626,6 +695,19 @@ public class RequestV2 extends HTTPResource {
 			output.headers().set(HttpHeaders.Names.EXPIRES, "0");
 			output.headers().set(HttpHeaders.Names.ACCEPT_RANGES, HttpHeaders.Values.BYTES);
 			output.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+			if (!argument.equals("description/fetch")) {
+				long resourceModified = getResourceLastModified(argument);
+				future = sendNotModified(
+					output,
+					event,
+					close,
+					HTTPValidator.createETag(argument, PMS.getVersion(), Long.valueOf(resourceModified)),
+					resourceModified
+				);
+				if (future != null) {
+					return future;
+				}
+			}
 			inputStream = getResourceInputStream((argument.equals("description/fetch") ? "PMS.xml" : argument));
 
 			if (argument.equals("description/fetch")) {
@@ -654,8 +736,13 @@ public class RequestV2 extends HTTPResource {
 					s = s.replace("Digital Media Server", configuration.getServerDisplayName());
 				}
 
-				response.append(s);
 				inputStream = null;
+				// The description depends on the configuration, validate the result
+				future = sendNotModified(output, event, close, HTTPValidator.createETag(s), 0);
+				if (future != null) {
+					return future;
+				}
+				response.append(s);
 			}
 		} else if (method.equals("POST") && (argument.contains("MS_MediaReceiverRegistrar_control") || argument.contains("mrr/control"))) {
 			output.headers().set(HttpHeaders.Names.CONTENT_TYPE, "text/xml; charset=\"utf-8\"");
@@ -759,20 +846,22 @@ public class RequestV2 extends HTTPResource {
 					requestCount = -1;
 				}
 
-				response.append(HTTPXMLHelper.XML_HEADER);
-				response.append(CRLF);
-				response.append(HTTPXMLHelper.SOAP_ENCODING_HEADER);
-				response.append(CRLF);
+				// Large folders can produce multi-megabyte responses, encode as we go
+				ChannelBufferWriter browseResponse = new ChannelBufferWriter();
+				browseResponse.append(HTTPXMLHelper.XML_HEADER);
+				browseResponse.append(CRLF);
+				browseResponse.append(HTTPXMLHelper.SOAP_ENCODING_HEADER);
+				browseResponse.append(CRLF);
 
 				if (soapaction.contains("ContentDirectory:1#Search")) {
-					response.append(HTTPXMLHelper.SEARCHRESPONSE_HEADER);
+					browseResponse.append(HTTPXMLHelper.SEARCHRESPONSE_HEADER);
 				} else {
-					response.append(HTTPXMLHelper.BROWSERESPONSE_HEADER);
+					browseResponse.append(HTTPXMLHelper.BROWSERESPONSE_HEADER);
 				}
 
-				response.append(CRLF);
-				response.append(HTTPXMLHelper.RESULT_HEADER);
-				response.append(HTTPXMLHelper.DIDL_HEADER);
+				browseResponse.append(CRLF);
+				browseResponse.append(HTTPXMLHelper.RESULT_HEADER);
+				browseResponse.append(HTTPXMLHelper.DIDL_HEADER);
 
 				boolean browseDirectChildren = browseFlag != null && browseFlag.equals("BrowseDirectChildren");
 
@@ -830,24 +919,24 @@ public class RequestV2 extends HTTPResource {
 						}
 
 						if (uf.isCompatible(mediaRenderer) && (uf.getPlayer() == null || uf.getPlayer().isPlayerCompatible(mediaRenderer))) {
-							response.append(uf.getDidlString(mediaRenderer));
+							browseResponse.append(uf.getDidlString(mediaRenderer));
 						} else {
 							minus++;
 						}
 					}
 				}
 
-				response.append(HTTPXMLHelper.DIDL_FOOTER);
-				response.append(HTTPXMLHelper.RESULT_FOOTER);
-				response.append(CRLF);
+				browseResponse.append(HTTPXMLHelper.DIDL_FOOTER);
+				browseResponse.append(HTTPXMLHelper.RESULT_FOOTER);
+				browseResponse.append(CRLF);
 
 				int filessize = 0;
 				if (files != null) {
 					filessize = files.size();
 				}
 
-				response.append("<NumberReturned>").append(filessize - minus).append("</NumberReturned>");
-				response.append(CRLF);
+				browseResponse.append("<NumberReturned>").append(filessize - minus).append("</NumberReturned>");
+				browseResponse.append(CRLF);
 				DLNAResource parentFolder = null;
 
 				if (files != null && filessize > 0) {
@@ -870,33 +959,34 @@ public class RequestV2 extends HTTPResource {
 						totalCount = startingIndex;
 					}
 
-					response.append("<TotalMatches>").append(totalCount).append("</TotalMatches>");
+					browseResponse.append("<TotalMatches>").append(totalCount).append("</TotalMatches>");
 				} else if (browseDirectChildren) {
-					response.append("<TotalMatches>").append(((parentFolder != null) ? parentFolder.childrenNumber() : filessize) - minus).append("</TotalMatches>");
+					browseResponse.append("<TotalMatches>").append(((parentFolder != null) ? parentFolder.childrenNumber() : filessize) - minus).append("</TotalMatches>");
 				} else {
 					// From upnp spec: If BrowseMetadata is specified in the BrowseFlags then TotalMatches = 1
-					response.append("<TotalMatches>1</TotalMatches>");
+					browseResponse.append("<TotalMatches>1</TotalMatches>");
 				}
 
-				response.append(CRLF);
-				response.append("<UpdateID>");
+				browseResponse.append(CRLF);
+				browseResponse.append("<UpdateID>");
 
 				if (parentFolder != null) {
-					response.append(parentFolder.getUpdateId());
+					browseResponse.append(parentFolder.getUpdateId());
 				} else {
-					response.append('1');
+					browseResponse.append('1');
 				}
 
-				response.append("</UpdateID>");
-				response.append(CRLF);
+				browseResponse.append("</UpdateID>");
+				browseResponse.append(CRLF);
 				if (soapaction.contains("ContentDirectory:1#Search")) {
-					response.append(HTTPXMLHelper.SEARCHRESPONSE_FOOTER);
+					browseResponse.append(HTTPXMLHelper.SEARCHRESPONSE_FOOTER);
 				} else {
-					response.append(HTTPXMLHelper.BROWSERESPONSE_FOOTER);
+					browseResponse.append(HTTPXMLHelper.BROWSERESPONSE_FOOTER);
 				}
-				response.append(CRLF);
-				response.append(HTTPXMLHelper.SOAP_ENCODING_FOOTER);
-				response.append(CRLF);
+				browseResponse.append(CRLF);
+				browseResponse.append(HTTPXMLHelper.SOAP_ENCODING_FOOTER);
+				browseResponse.append(CRLF);
+				responseBuffer = browseResponse.toChannelBuffer();
 			}
 		} else if (method.equals("SUBSCRIBE")) {
 			output.headers().set("SID", PMS.get().usn());
@@ -976,15 +1066,23 @@ public class RequestV2 extends HTTPResource {
 
 		output.headers().set(HttpHeaders.Names.SERVER, PMS.get().getServerName());
 
-		if (response.length() > 0) {
+		if (responseBuffer != null || response.length() > 0) {
 			// A response message was constructed; convert it to data ready to be sent.
-			byte responseData[] = response.toString().getBytes("UTF-8");
-			output.headers().set(HttpHeaders.Names.CONTENT_LENGTH, "" + responseData.length);
+			ChannelBuffer buf;
+			if (responseBuffer != null) {
+				buf = responseBuffer;
+				if (LOGGER.isTraceEnabled()) {
+					// Only needed for logging the response
+					response.append(buf.toString(StandardCharsets.UTF_8));
+				}
+			} else {
+				buf = ChannelBuffers.copiedBuffer(response.toString().getBytes(StandardCharsets.UTF_8));
+			}
+			output.headers().set(HttpHeaders.Names.CONTENT_LENGTH, "" + buf.readableBytes());
 
 			// HEAD requests only require headers to be set, no need to set contents.
 			if (!method.equals("HEAD")) {
 				// Not a HEAD request, so set the contents of the response.
-				ChannelBuffer buf = ChannelBuffers.copiedBuffer(responseData);
 				output.setContent(buf);
 			}
 
@@ -1033,8 +1131,19 @@ public class RequestV2 extends HTTPResource {
 			future = event.getChannel().write(output);
 
 			if (lowRange != DLNAMediaInfo.ENDFILE_POS && !method.equals("HEAD")) {
-				// Send the response body to the client in chunks.
-				ChannelFuture chunkWriteFuture = event.getChannel().write(new ChunkedStream(inputStream, BUFFER_SIZE));
+				// Send the response body to the client, directly from the file if possible.
+				ChannelFuture chunkWriteFuture = null;
+				if (directFile != null) {
+					long length = directFile.length() - lowRange;
+					if (CLoverride > -1 && CLoverride < length) {
+						length = CLoverride;
+					}
+					chunkWriteFuture = writeFile(event.getChannel(), directFile, length);
+				}
+				if (chunkWriteFuture == null) {
+					// Send the response body to the client in chunks.
+					chunkWriteFuture = event.getChannel().write(new ChunkedStream(inputStream, BUFFER_SIZE));
+				}
 
 				// Add a listener to clean up after sending the entire response body.
 				chunkWriteFuture.addListener(new ChannelFutureListener() {
@@ -1173,6 +1282,134 @@ public class RequestV2 extends HTTPResource {
 		return future;
 	}
 
+	/**
+	 * Determines if the body for the specified {@link DLNAResource} can be sent
+	 * directly from the file system instead of through its
+	 * {@link InputStream}. This is only the case for plain files that are
+	 * streamed as is, transcodes, archive entries, partial sources and images
+	 * must use the stream.
+	 *
+	 * @param dlna the {@link DLNAResource} being sent.
+	 * @return The {@link File} to send or {@code null} if the
+	 *         {@link InputStream} must be used.
+	 */
+	private File getDirectFile(DLNAResource dlna) {
+		if (
+			!(dlna instanceof RealFile) ||
+			dlna instanceof PartialSource ||
+			dlna instanceof IPushOutput ||
+			dlna.getPlayer() != null ||
+			dlna.isResume() ||
+			dlna.isImage() ||
+			range.getStartOrZero() > 0
+		) {
+			return null;
+		}
+		File file = ((RealFile) dlna).getFile();
+		return file != null && file.isFile() ? file : null;
+	}
+
+	/**
+	 * Writes {@code length} bytes of {@code file}, starting at
+	 * {@link #lowRange}, to {@code channel}. If zero-copy transfers are enabled
+	 * and the channel allows it, a {@link DefaultFileRegion} is written so
+	 * that the data is transferred by {@link FileChannel#transferTo}.
+	 * Otherwise, the file is read in large chunks using a
+	 * {@link ChunkedNioFile}.
+	 *
+	 * @param channel the {@link Channel} to write to.
+	 * @param file the {@link File} to send.
+	 * @param length the number of bytes to send.
+	 * @return The {@link ChannelFuture} for the write, or {@code null} if the
+	 *         file couldn't be sent this way.
+	 */
+	private ChannelFuture writeFile(Channel channel, File file, long length) {
+		if (length < 1) {
+			return null;
+		}
+		final RandomAccessFile randomAccessFile;
+		try {
+			randomAccessFile = new RandomAccessFile(file, "r");
+		} catch (FileNotFoundException e) {
+			LOGGER.debug("Couldn't open \"{}\" for direct transfer, using stream instead: {}", file, e.getMessage());
+			LOGGER.trace("", e);
+			return null;
+		}
+		FileChannel fileChannel = randomAccessFile.getChannel();
+		ChannelFuture future;
+		try {
+			if (configuration.isZeroCopyTransfer() && channel.getPipeline().get(SslHandler.class) == null) {
+				LOGGER.trace("Sending {} bytes of \"{}\" using zero-copy transfer", Long.valueOf(length), file);
+				future = channel.write(new DefaultFileRegion(fileChannel, lowRange, length));
+			} else {
+				LOGGER.trace("Sending {} bytes of \"{}\" using NIO chunks", Long.valueOf(length), file);
+				future = channel.write(new ChunkedNioFile(fileChannel, lowRange, length, NIO_BUFFER_SIZE));
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Couldn't send \"{}\" directly, using stream instead: {}", file, e.getMessage());
+			LOGGER.trace("", e);
+			try {
+				randomAccessFile.close();
+			} catch (IOException e1) {
+				LOGGER.trace("", e1);
+			}
+			return null;
+		}
+
+		future.addListener(new ChannelFutureListener() {
+			@Override
+			public void operationComplete(ChannelFuture future) {
+				try {
+					randomAccessFile.close();
+				} catch (IOException e) {
+					LOGGER.error("Caught exception", e);
+				}
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Sets the validators of the response and sends {@code 304 Not Modified}
+	 * if the conditional request headers show that the client's copy is
+	 * current.
+	 *
+	 * @param output the {@link HttpResponse}.
+	 * @param event the {@link MessageEvent}.
+	 * @param close whether the channel should be closed after the response.
+	 * @param eTag the entity tag of the content or {@code null} if unknown.
+	 * @param lastModified the modification time of the content in
+	 *            milliseconds or {@code 0} if unknown.
+	 * @return The {@link ChannelFuture} of the {@code 304} response or
+	 *         {@code null} if the full response should be sent.
+	 */
+	private ChannelFuture sendNotModified(
+		HttpResponse output,
+		MessageEvent event,
+		boolean close,
+		String eTag,
+		long lastModified
+	) {
+		if (eTag != null) {
+			output.headers().set(HttpHeaders.Names.ETAG, eTag);
+		}
+		if (lastModified > 0) {
+			output.headers().set(HttpHeaders.Names.LAST_MODIFIED, HTTPValidator.formatDate(lastModified));
+		}
+		if (!HTTPValidator.isNotModified(ifNoneMatch, ifModifiedSince, eTag, lastModified)) {
+			return null;
+		}
+		LOGGER.trace("Sending 304 Not Modified for \"{}\"", argument);
+		output.setStatus(HttpResponseStatus.NOT_MODIFIED);
+		output.headers().remove(HttpHeaders.Names.CONTENT_LENGTH);
+		output.headers().set(HttpHeaders.Names.SERVER, PMS.get().getServerName());
+		ChannelFuture future = event.getChannel().write(output);
+		if (close) {
+			future.addListener(ChannelFutureListener.CLOSE);
+		}
+		return future;
+	}
+
 	/**
 	 * Returns a date somewhere in the far future.
 	 * @return The {@link String} containing the date
@@ -45,6 +45,7 @@ import net.pms.PMS;
 import net.pms.configuration.PmsConfiguration;
 import net.pms.dlna.DLNAMediaDatabase;
 import net.pms.image.thumbnail.CoverSupplier;
+import net.pms.image.thumbnail.ThumbnailStore;
 import net.pms.io.BasicSystemUtils;
 import net.pms.newgui.LooksFrame.AbstractTabListenerRegistrar;
 import net.pms.newgui.LooksFrame.LooksFrameTab;
@@ -474,6 +475,7 @@ public class NavigationShareTab {
 					JOptionPane.YES_NO_OPTION);
 				if (option == JOptionPane.YES_OPTION) {
 					PMS.get().getDatabase().init(true);
+					ThumbnailStore.get().clear();
 				}
 
 			}
@@ -23,6 +23,7 @@ import net.pms.configuration.WebRender;
 import net.pms.dlna.DLNAMediaInfo;
 import net.pms.dlna.Range;
 import net.pms.media.H264Level;
+import net.pms.network.HTTPValidator;
 import net.pms.newgui.LooksFrame;
 import net.pms.util.FileWatcher;
 import net.pms.util.Languages;
@@ -88,6 +89,41 @@ public class RemoteUtil {
 		}
 	}
 
+	/**
+	 * Sets the validators of the response and sends {@code 304 Not Modified}
+	 * if the conditional request headers show that the client's copy is
+	 * current.
+	 *
+	 * @param t the {@link HttpExchange}.
+	 * @param eTag the entity tag of the content or {@code null} if unknown.
+	 * @param lastModified the modification time of the content in
+	 *            milliseconds or {@code 0} if unknown.
+	 * @return {@code true} if a {@code 304} response has been sent,
+	 *         {@code false} if the full response should be sent.
+	 * @throws IOException If an I/O error occurs during the operation.
+	 */
+	public static boolean sendNotModified(HttpExchange t, String eTag, long lastModified) throws IOException {
+		Headers hdr = t.getResponseHeaders();
+		if (eTag != null) {
+			hdr.set("ETag", eTag);
+		}
+		if (lastModified > 0) {
+			hdr.set("Last-Modified", HTTPValidator.formatDate(lastModified));
+		}
+		Headers requestHeaders = t.getRequestHeaders();
+		if (!HTTPValidator.isNotModified(
+			requestHeaders.getFirst("If-None-Match"),
+			requestHeaders.getFirst("If-Modified-Since"),
+			eTag,
+			lastModified
+		)) {
+			return false;
+		}
+		t.sendResponseHeaders(304, -1);
+		t.close();
+		return true;
+	}
+
 	public static void dumpFile(String file, HttpExchange t) throws IOException {
 		File f = new File(file);
 		dumpFile(f, t);
@@ -554,6 +590,20 @@ public class RemoteUtil {
 		public boolean write(String filename, HttpExchange t) throws IOException {
 			InputStream stream = getInputStream(filename);
 			if (stream != null) {
+				long lastModified = 0;
+				URL url = findResource(filename);
+				if (url != null) {
+					lastModified = url.openConnection().getLastModified();
+				} else {
+					File file = getFile(filename);
+					if (file != null) {
+						lastModified = file.lastModified();
+					}
+				}
+				if (sendNotModified(t, lastModified > 0 ? HTTPValidator.createETag(filename, lastModified) : null, lastModified)) {
+					stream.close();
+					return true;
+				}
 				Headers headers = t.getResponseHeaders();
 				if (!headers.containsKey("Content-Type")) {
 					String mime = getContentType(filename);
@@ -31,6 +31,7 @@ import net.pms.io.BasicSystemUtils;
 import net.pms.logging.LoggingConfig;
 import net.pms.network.HTTPResource;
 import net.pms.network.HTTPServer;
+import net.pms.network.HTTPValidator;
 import net.pms.util.FullyPlayed;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.lang3.StringUtils;
@@ -298,8 +299,29 @@ public class RemoteWeb {
 					LOGGER.debug("media unknown");
 					throw new IOException("Bad id");
 				}
+				boolean generic = !configuration.isShowCodeThumbs() && !r.isCodeValid(r);
+				if (
+					!generic &&
+					r instanceof RealFile &&
+					((RealFile) r).getFile() != null &&
+					r.getMedia() != null &&
+					r.getMedia().isThumbready()
+				) {
+					// A cover image in the folder can replace the thumbnail
+					File file = ((RealFile) r).getFile();
+					File folder = file.getAbsoluteFile().getParentFile();
+					String eTag = HTTPValidator.createETag(
+						file.getAbsolutePath(),
+						file.lastModified(),
+						folder == null ? 0 : folder.lastModified(),
+						FullyPlayed.isFullyPlayedThumbnail(file)
+					);
+					if (RemoteUtil.sendNotModified(t, eTag, 0)) {
+						return;
+					}
+				}
 				DLNAThumbnailInputStream in;
-				if (!configuration.isShowCodeThumbs() && !r.isCodeValid(r)) {
+				if (generic) {
 					// we shouldn't show the thumbs for coded objects
 					// unless the code is entered
 					in = r.getGenericThumbnailInputStream(null);
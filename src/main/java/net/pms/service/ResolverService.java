@@ -0,0 +1,499 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import net.pms.dlna.DLNAResource;
+import net.pms.util.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * This class resolves {@link DLNAResource}s using a server-wide, bounded pool
+ * of threads instead of creating threads for each request.
+ * <p>
+ * Resolves of the same {@link DLNAResource} that are requested while one is
+ * already queued or running are merged into the existing task. Tasks are
+ * executed in {@link ResolvePriority} order, and tasks belonging to the same
+ * device can be limited to a given number of concurrent resolves.
+ */
+@ThreadSafe
+public class ResolverService implements Service {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResolverService.class);
+
+	/** The number of seconds an idle resolver thread is kept alive */
+	protected static final long KEEP_ALIVE_SECONDS = 60;
+
+	/** The maximum number of resolver threads */
+	protected final int poolSize;
+
+	/** The {@link ThreadPoolExecutor} running the resolves */
+	@GuardedBy("this")
+	protected ThreadPoolExecutor executor;
+
+	/** The queued or running tasks */
+	@GuardedBy("this")
+	protected final IdentityHashMap<DLNAResource, ResolveTask> inFlight = new IdentityHashMap<>();
+
+	/** The state of devices with a concurrency limit */
+	@GuardedBy("this")
+	protected final HashMap<String, DeviceState> devices = new HashMap<>();
+
+	/** The sequence used to keep tasks with equal priority in FIFO order */
+	protected final AtomicLong sequence = new AtomicLong();
+
+	/** The number of completed resolves */
+	protected final AtomicLong completedCount = new AtomicLong();
+
+	/** The number of resolves that were merged into an existing task */
+	protected final AtomicLong dedupedCount = new AtomicLong();
+
+	/** The accumulated time tasks have been queued in nanoseconds */
+	protected final AtomicLong waitNanos = new AtomicLong();
+
+	/** The accumulated time spent resolving in nanoseconds */
+	protected final AtomicLong resolveNanos = new AtomicLong();
+
+	/**
+	 * Creates a new instance and starts the resolver pool.
+	 */
+	public ResolverService() {
+		poolSize = Math.max(3, Runtime.getRuntime().availableProcessors());
+		start();
+	}
+
+	@Override
+	public synchronized void start() {
+		if (executor != null && !executor.isShutdown()) {
+			LOGGER.warn("ResolverService is already running, start attempt failed");
+			return;
+		}
+		LOGGER.debug("Starting ResolverService with {} threads", Integer.valueOf(poolSize));
+		executor = new ThreadPoolExecutor(
+			poolSize,
+			poolSize,
+			KEEP_ALIVE_SECONDS,
+			TimeUnit.SECONDS,
+			new PriorityBlockingQueue<Runnable>(),
+			new BasicThreadFactory("DLNAResource resolver thread %d-%d")
+		);
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	@Override
+	public void stop() {
+		ThreadPoolExecutor currentExecutor;
+		ArrayList<ResolveTask> abandoned = new ArrayList<>();
+		synchronized (this) {
+			currentExecutor = executor;
+			executor = null;
+			for (DeviceState state : devices.values()) {
+				abandoned.addAll(state.parked);
+			}
+			devices.clear();
+			inFlight.clear();
+		}
+		if (currentExecutor != null) {
+			LOGGER.debug("Stopping ResolverService");
+			for (Runnable runnable : currentExecutor.shutdownNow()) {
+				if (runnable instanceof ResolveTask) {
+					abandoned.add((ResolveTask) runnable);
+				}
+			}
+		}
+		// Release anybody waiting for tasks that will never run
+		for (ResolveTask task : abandoned) {
+			task.done.countDown();
+		}
+	}
+
+	@Override
+	public synchronized boolean isAlive() {
+		return executor != null && !executor.isShutdown();
+	}
+
+	/**
+	 * Queues {@code resource} for resolving without a device limit.
+	 *
+	 * @param resource the {@link DLNAResource} to resolve.
+	 * @param priority the {@link ResolvePriority}.
+	 * @return The {@link ResolveTask} that can be used to wait for the
+	 *         resolve to complete.
+	 */
+	@Nonnull
+	public ResolveTask submit(@Nonnull DLNAResource resource, @Nonnull ResolvePriority priority) {
+		return submit(resource, priority, null, 0);
+	}
+
+	/**
+	 * Queues {@code resource} for resolving. If {@code resource} is already
+	 * queued or running, the existing {@link ResolveTask} is returned and its
+	 * priority is raised if needed.
+	 *
+	 * @param resource the {@link DLNAResource} to resolve.
+	 * @param priority the {@link ResolvePriority}.
+	 * @param device the key identifying the device {@code resource} resides on
+	 *            or {@code null} if no device limit applies.
+	 * @param deviceLimit the maximum number of concurrent resolves for
+	 *            {@code device}. Ignored if {@code device} is {@code null}.
+	 * @return The {@link ResolveTask} that can be used to wait for the
+	 *         resolve to complete.
+	 */
+	@Nonnull
+	public ResolveTask submit(
+		@Nonnull DLNAResource resource,
+		@Nonnull ResolvePriority priority,
+		@Nullable String device,
+		int deviceLimit
+	) {
+		ResolveTask task;
+		synchronized (this) {
+			task = inFlight.get(resource);
+			if (task != null) {
+				dedupedCount.incrementAndGet();
+				if (priority.compareTo(task.priority) < 0) {
+					raisePriority(task, priority);
+				}
+				return task;
+			}
+			task = new ResolveTask(resource, priority, sequence.getAndIncrement(), device);
+			if (executor == null || executor.isShutdown()) {
+				task.runInline = true;
+			} else {
+				inFlight.put(resource, task);
+				task.registered = true;
+				if (device != null) {
+					DeviceState state = devices.get(device);
+					if (state == null) {
+						state = new DeviceState(Math.max(deviceLimit, 1));
+						devices.put(device, state);
+					}
+					if (state.running >= state.limit) {
+						state.parked.add(task);
+						return task;
+					}
+					state.running++;
+				}
+				try {
+					executor.execute(task);
+				} catch (RejectedExecutionException e) {
+					LOGGER.debug("Resolver pool rejected {}, resolving in the calling thread", resource);
+					task.runInline = true;
+				}
+			}
+		}
+		if (task.runInline) {
+			task.run();
+		}
+		return task;
+	}
+
+	/**
+	 * Moves a waiting {@link ResolveTask} ahead according to its new priority.
+	 *
+	 * @param task the {@link ResolveTask}.
+	 * @param priority the new {@link ResolvePriority}.
+	 */
+	@GuardedBy("this")
+	protected void raisePriority(@Nonnull ResolveTask task, @Nonnull ResolvePriority priority) {
+		if (task.device != null) {
+			DeviceState state = devices.get(task.device);
+			if (state != null && state.parked.remove(task)) {
+				task.priority = priority;
+				state.parked.add(task);
+				return;
+			}
+		}
+		if (executor != null && executor.remove(task)) {
+			task.priority = priority;
+			executor.execute(task);
+		}
+	}
+
+	/**
+	 * Waits for the given {@link ResolveTask}s to complete.
+	 *
+	 * @param tasks the {@link ResolveTask}s to wait for.
+	 * @param timeout the maximum time to wait for all tasks.
+	 * @param unit the {@link TimeUnit} of {@code timeout}.
+	 * @return {@code true} if all tasks completed, {@code false} if the
+	 *         timeout expired first.
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 */
+	public boolean await(
+		@Nonnull Collection<ResolveTask> tasks,
+		long timeout,
+		@Nonnull TimeUnit unit
+	) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (ResolveTask task : tasks) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0 && !task.isDone()) {
+				return false;
+			}
+			if (!task.done.await(Math.max(remaining, 0), TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Called by {@link ResolveTask} when it has finished to release its slot
+	 * and start the next parked task for the same device, if any.
+	 *
+	 * @param task the finished {@link ResolveTask}.
+	 */
+	protected void finished(@Nonnull ResolveTask task) {
+		ResolveTask next = null;
+		synchronized (this) {
+			inFlight.remove(task.resource);
+			if (task.device != null) {
+				DeviceState state = devices.get(task.device);
+				if (state != null) {
+					state.running--;
+					next = state.parked.poll();
+					if (next != null) {
+						state.running++;
+					} else if (state.running < 1) {
+						devices.remove(task.device);
+					}
+				}
+			}
+			if (next != null) {
+				if (executor == null || executor.isShutdown()) {
+					next.runInline = true;
+				} else {
+					try {
+						executor.execute(next);
+					} catch (RejectedExecutionException e) {
+						next.runInline = true;
+					}
+				}
+			}
+		}
+		if (next != null && next.runInline) {
+			next.run();
+		}
+	}
+
+	/**
+	 * @return The number of threads in the resolver pool.
+	 */
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * @return The number of resolves that are currently running.
+	 */
+	public synchronized int getActiveCount() {
+		return executor == null ? 0 : executor.getActiveCount();
+	}
+
+	/**
+	 * @return The number of resolves waiting to be run, including those
+	 *         waiting for a device slot.
+	 */
+	public synchronized int getQueueDepth() {
+		int depth = executor == null ? 0 : executor.getQueue().size();
+		for (DeviceState state : devices.values()) {
+			depth += state.parked.size();
+		}
+		return depth;
+	}
+
+	/**
+	 * @return The number of completed resolves.
+	 */
+	public long getCompletedCount() {
+		return completedCount.get();
+	}
+
+	/**
+	 * @return The number of resolve requests that were merged into an already
+	 *         queued or running resolve.
+	 */
+	public long getDedupedCount() {
+		return dedupedCount.get();
+	}
+
+	/**
+	 * @return The average time a resolve has been queued before it started in
+	 *         milliseconds.
+	 */
+	public double getAverageWaitTime() {
+		long count = completedCount.get();
+		return count == 0 ? 0d : (double) TimeUnit.NANOSECONDS.toMicros(waitNanos.get()) / count / 1000d;
+	}
+
+	/**
+	 * @return The average time spent resolving in milliseconds.
+	 */
+	public double getAverageResolveTime() {
+		long count = completedCount.get();
+		return count == 0 ? 0d : (double) TimeUnit.NANOSECONDS.toMicros(resolveNanos.get()) / count / 1000d;
+	}
+
+	/**
+	 * The priorities of resolves, in descending order.
+	 */
+	public static enum ResolvePriority {
+
+		/** Resources that have been requested by a renderer */
+		REQUESTED,
+
+		/** Resources that are resolved in anticipation of a request */
+		PREFETCH
+	}
+
+	/**
+	 * The concurrency state of a device with a limit.
+	 */
+	protected static class DeviceState {
+
+		/** The maximum number of concurrent resolves */
+		protected final int limit;
+
+		/** The number of running resolves */
+		protected int running;
+
+		/** The tasks waiting for a free slot */
+		protected final PriorityQueue<ResolveTask> parked = new PriorityQueue<>();
+
+		/**
+		 * Creates a new instance with the given limit.
+		 *
+		 * @param limit the maximum number of concurrent resolves.
+		 */
+		public DeviceState(int limit) {
+			this.limit = limit;
+		}
+	}
+
+	/**
+	 * A queued or running resolve of a {@link DLNAResource}.
+	 */
+	public class ResolveTask implements Runnable, Comparable<ResolveTask> {
+
+		/** The {@link DLNAResource} to resolve */
+		protected final DLNAResource resource;
+
+		/** The sequence number */
+		protected final long sequenceNumber;
+
+		/** The device key or {@code null} */
+		protected final String device;
+
+		/** The time this task was created */
+		protected final long queuedTime = System.nanoTime();
+
+		/** Released when this task has finished */
+		protected final CountDownLatch done = new CountDownLatch(1);
+
+		/** The current priority */
+		@GuardedBy("ResolverService.this")
+		protected volatile ResolvePriority priority;
+
+		/** Whether this task must be run by the submitting thread */
+		@GuardedBy("ResolverService.this")
+		protected boolean runInline;
+
+		/** Whether this task is registered as in flight */
+		protected volatile boolean registered;
+
+		/**
+		 * Creates a new task.
+		 *
+		 * @param resource the {@link DLNAResource} to resolve.
+		 * @param priority the {@link ResolvePriority}.
+		 * @param sequenceNumber the sequence number.
+		 * @param device the device key or {@code null}.
+		 */
+		protected ResolveTask(
+			@Nonnull DLNAResource resource,
+			@Nonnull ResolvePriority priority,
+			long sequenceNumber,
+			@Nullable String device
+		) {
+			this.resource = resource;
+			this.priority = priority;
+			this.sequenceNumber = sequenceNumber;
+			this.device = device;
+		}
+
+		/**
+		 * @return The {@link DLNAResource} to resolve.
+		 */
+		@Nonnull
+		public DLNAResource getResource() {
+			return resource;
+		}
+
+		/**
+		 * @return {@code true} if this task has finished, {@code false}
+		 *         otherwise.
+		 */
+		public boolean isDone() {
+			return done.getCount() == 0;
+		}
+
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			try {
+				resource.run();
+			} finally {
+				long end = System.nanoTime();
+				waitNanos.addAndGet(start - queuedTime);
+				resolveNanos.addAndGet(end - start);
+				completedCount.incrementAndGet();
+				if (registered) {
+					finished(this);
+				}
+				done.countDown();
+			}
+		}
+
+		@Override
+		public int compareTo(ResolveTask other) {
+			int result = priority.compareTo(other.priority);
+			if (result != 0) {
+				return result;
+			}
+			return sequenceNumber < other.sequenceNumber ? -1 : sequenceNumber == other.sequenceNumber ? 0 : 1;
+		}
+	}
+}
@@ -73,6 +73,8 @@ public class Services {
 
 	private ProcessManager processManager;
 
+	private ResolverService resolverService;
+
 	private SleepManager sleepManager;
 
 	private TableManager tableManager;
@@ -118,6 +120,14 @@ public class Services {
 		return instance == null ? null : instance.getProcessManager();
 	}
 
+	/**
+	 * @return The {@link ResolverService} instance.
+	 */
+	@Nullable
+	public static ResolverService resolverService() {
+		return instance == null ? null : instance.getResolverService();
+	}
+
 	/**
 	 * @return The {@link SleepManager} instance.
 	 */
@@ -159,12 +169,13 @@ public class Services {
 	 * @throws IllegalStateException If the services have already been started.
 	 */
 	public void start() {
-		if (processManager != null || sleepManager != null) {
+		if (processManager != null || resolverService != null || sleepManager != null) {
 			throw new IllegalStateException("Services have already been started");
 		}
 		LOGGER.debug("Starting services");
 
 		processManager = new ProcessManager();
+		resolverService = new ResolverService();
 		sleepManager = new SleepManager();
 	}
 
@@ -231,6 +242,11 @@ public class Services {
 			processManager = null;
 		}
 
+		if (resolverService != null) {
+			resolverService.stop();
+			resolverService = null;
+		}
+
 		if (sleepManager != null) {
 			sleepManager.stop();
 			sleepManager = null;
@@ -251,6 +267,16 @@ public class Services {
 		return processManager;
 	}
 
+	/**
+	 * Isn't normally needed, use {@link Services#resolverService()} instead.
+	 *
+	 * @return The {@link ResolverService} instance.
+	 */
+	@Nullable
+	public ResolverService getResolverService() {
+		return resolverService;
+	}
+
 	/**
 	 * Isn't normally needed, use {@link Services#sleepManager()} instead.
 	 *
@@ -1,28 +1,167 @@
 package net.pms.util;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.annotation.concurrent.ThreadSafe;
 import net.pms.PMS;
 import net.pms.dlna.DLNAResource;
 
+/**
+ * The list of children of a {@link DLNAResource}. Children are added and
+ * removed by discovery and refresh while other threads browse, search or
+ * evict them, so all access is synchronized on the list itself.
+ * <p>
+ * {@link #iterator()} iterates over a snapshot, so the list can be modified
+ * while it's iterated. {@link #subList(int, int)} also returns a copy instead
+ * of a view. Compound operations must synchronize on the list.
+ */
+@ThreadSafe
 public class DLNAList extends ArrayList<DLNAResource> {
 	private static final long serialVersionUID = -5775968769790761576L;
 
+	/*
+	 * The global repository is updated without holding the list lock, since
+	 * the repository iterates children while holding its own lock.
+	 */
+
 	@Override
 	public DLNAResource remove(int index) {
-		PMS.getGlobalRepo().remove(get(index));
-		return super.remove(index);
+		DLNAResource removed;
+		synchronized (this) {
+			removed = super.remove(index);
+		}
+		PMS.getGlobalRepo().remove(removed);
+		return removed;
 	}
 
 	public boolean remove(DLNAResource r) {
 		PMS.getGlobalRepo().remove(r);
-		return super.remove(r);
+		synchronized (this) {
+			return super.remove(r);
+		}
+	}
+
+	@Override
+	public synchronized boolean remove(Object o) {
+		return super.remove(o);
 	}
 
 	@Override
 	public void clear() {
-		for (DLNAResource my : this) {
-			PMS.getGlobalRepo().remove(my);
+		Object[] removed;
+		synchronized (this) {
+			removed = super.toArray();
+			super.clear();
+		}
+		for (Object my : removed) {
+			PMS.getGlobalRepo().remove((DLNAResource) my);
 		}
-		super.clear();
+	}
+
+	@Override
+	public synchronized boolean add(DLNAResource e) {
+		return super.add(e);
+	}
+
+	@Override
+	public synchronized void add(int index, DLNAResource element) {
+		super.add(index, element);
+	}
+
+	@Override
+	public synchronized boolean addAll(Collection<? extends DLNAResource> c) {
+		return super.addAll(c);
+	}
+
+	@Override
+	public synchronized boolean addAll(int index, Collection<? extends DLNAResource> c) {
+		return super.addAll(index, c);
+	}
+
+	@Override
+	public synchronized DLNAResource get(int index) {
+		return super.get(index);
+	}
+
+	@Override
+	public synchronized DLNAResource set(int index, DLNAResource element) {
+		return super.set(index, element);
+	}
+
+	@Override
+	public synchronized int size() {
+		return super.size();
+	}
+
+	@Override
+	public synchronized boolean isEmpty() {
+		return super.isEmpty();
+	}
+
+	@Override
+	public synchronized boolean contains(Object o) {
+		return super.contains(o);
+	}
+
+	@Override
+	public synchronized int indexOf(Object o) {
+		return super.indexOf(o);
+	}
+
+	@Override
+	public synchronized int lastIndexOf(Object o) {
+		return super.lastIndexOf(o);
+	}
+
+	@Override
+	public synchronized Object[] toArray() {
+		return super.toArray();
+	}
+
+	@Override
+	public synchronized <T> T[] toArray(T[] a) {
+		return super.toArray(a);
+	}
+
+	/**
+	 * Returns an iterator over a snapshot of the list. Changes to the list
+	 * aren't reflected by the iterator, and the iterator doesn't support
+	 * {@link Iterator#remove()}.
+	 */
+	@Override
+	public Iterator<DLNAResource> iterator() {
+		final Object[] snapshot = toArray();
+		return new Iterator<DLNAResource>() {
+			private int cursor;
+
+			@Override
+			public boolean hasNext() {
+				return cursor < snapshot.length;
+			}
+
+			@Override
+			public DLNAResource next() {
+				if (cursor >= snapshot.length) {
+					throw new NoSuchElementException();
+				}
+				return (DLNAResource) snapshot[cursor++];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("Can't remove from a snapshot iterator");
+			}
+		};
+	}
+
+	/**
+	 * Returns a copy of the specified range of the list, not a view.
+	 */
+	@Override
+	public synchronized List<DLNAResource> subList(int fromIndex, int toIndex) {
+		return new ArrayList<>(super.subList(fromIndex, toIndex));
 	}
 }
@@ -30,15 +30,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import net.pms.PMS;
 import net.pms.configuration.PmsConfiguration;
 import net.pms.configuration.WindowsProgramPaths;
@@ -60,8 +61,6 @@ import org.slf4j.LoggerFactory;
 
 public class FileUtil {
 	private static final Logger LOGGER = LoggerFactory.getLogger(FileUtil.class);
-	private static final ReentrantLock subtitleCacheLock = new ReentrantLock();
-	private static final Map<File, File[]> subtitleCache = new HashMap<>();
 	private static final int S_ISVTX = 512; // Unix sticky bit mask
 
 	// This class is not instantiable
@@ -807,10 +806,10 @@ public class FileUtil {
 		String edition = null;
 		Matcher m = COMMON_FILE_EDITIONS_PATTERN.matcher(formattedName);
 		if (m.find()) {
-			edition = m.group().replaceAll("\\.", " ");
+			edition = m.group().replace('.', ' ');
 			edition = "(" + WordUtils.capitalizeFully(edition) + ")";
-			formattedName = formattedName.replaceAll(" - " + COMMON_FILE_EDITIONS, "");
-			formattedName = formattedName.replaceAll(COMMON_FILE_EDITIONS, "");
+			formattedName = COMMON_FILE_EDITIONS_SEPARATED_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = COMMON_FILE_EDITIONS_PATTERN.matcher(formattedName).replaceAll("");
 		}
 		return new FormattedNameAndEdition(formattedName, edition);
 	}
@@ -847,13 +846,11 @@ public class FileUtil {
 	 */
 	private static String removeGroupNameFromBeginning(String formattedName) {
 		if (!"".equals(formattedName) && formattedName.startsWith("[")) {
-			Pattern pattern = Pattern.compile("^\\[[^\\]]{0,20}\\][^\\w]*(\\w.*?)\\s*$");
-			Matcher matcher = pattern.matcher(formattedName);
+			Matcher matcher = GROUP_NAME_PATTERN.matcher(formattedName);
 			if (matcher.find()) {
 				formattedName = matcher.group(1);
 			} else if (formattedName.endsWith("]")) {
-				pattern = Pattern.compile("^\\[([^\\[\\]]+)\\]\\s*$");
-				matcher = pattern.matcher(formattedName);
+				matcher = BRACKETED_NAME_PATTERN.matcher(formattedName);
 				if (matcher.find()) {
 					formattedName = matcher.group(1);
 				}
@@ -867,8 +864,8 @@ public class FileUtil {
 	 * Remove stuff at the end of the filename like release group, quality, source, etc.
 	 */
 	private static String removeFilenameEndMetadata(String formattedName) {
-		formattedName = formattedName.replaceAll(COMMON_FILE_ENDS_CASE_SENSITIVE, "");
-		formattedName = formattedName.replaceAll("(?i)" + COMMON_FILE_ENDS, "");
+		formattedName = COMMON_FILE_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll("");
+		formattedName = COMMON_FILE_ENDS_PATTERN.matcher(formattedName).replaceAll("");
 		return formattedName;
 	}
 
@@ -879,18 +876,128 @@ public class FileUtil {
 	 */
 	private static final String COMMON_FILE_ENDS = "[\\s\\.]AC3.*|[\\s\\.]REPACK.*|[\\s\\.]480p.*|[\\s\\.]720p.*|[\\s\\.]m-720p.*|[\\s\\.]900p.*|[\\s\\.]1080p.*|[\\s\\.]2160p.*|[\\s\\.]WEB-DL.*|[\\s\\.]HDTV.*|[\\s\\.]DSR.*|[\\s\\.]PDTV.*|[\\s\\.]WS.*|[\\s\\.]HQ.*|[\\s\\.]DVDRip.*|[\\s\\.]TVRiP.*|[\\s\\.]BDRip.*|[\\s\\.]BRRip.*|[\\s\\.]WEBRip.*|[\\s\\.]BluRay.*|[\\s\\.]Blu-ray.*|[\\s\\.]SUBBED.*|[\\s\\.]x264.*|[\\s\\.]Dual[\\s\\.]Audio.*|[\\s\\.]HSBS.*|[\\s\\.]H-SBS.*|[\\s\\.]RERiP.*|[\\s\\.]DIRFIX.*|[\\s\\.]READNFO.*|[\\s\\.]60FPS.*";
 	private static final String COMMON_FILE_ENDS_MATCH = ".*[\\s\\.]AC3.*|.*[\\s\\.]REPACK.*|.*[\\s\\.]480p.*|.*[\\s\\.]720p.*|.*[\\s\\.]m-720p.*|.*[\\s\\.]900p.*|.*[\\s\\.]1080p.*|.*[\\s\\.]2160p.*|.*[\\s\\.]WEB-DL.*|.*[\\s\\.]HDTV.*|.*[\\s\\.]DSR.*|.*[\\s\\.]PDTV.*|.*[\\s\\.]WS.*|.*[\\s\\.]HQ.*|.*[\\s\\.]DVDRip.*|.*[\\s\\.]TVRiP.*|.*[\\s\\.]BDRip.*|.*[\\s\\.]BRRip.*|.*[\\s\\.]WEBRip.*|.*[\\s\\.]BluRay.*|.*[\\s\\.]Blu-ray.*|.*[\\s\\.]SUBBED.*|.*[\\s\\.]x264.*|.*[\\s\\.]Dual[\\s\\.]Audio.*|.*[\\s\\.]HSBS.*|.*[\\s\\.]H-SBS.*|.*[\\s\\.]RERiP.*|.*[\\s\\.]DIRFIX.*|.*[\\s\\.]READNFO.*|.*[\\s\\.]60FPS.*";
+	private static final Pattern COMMON_FILE_ENDS_PATTERN = Pattern.compile("(?i)" + COMMON_FILE_ENDS);
+	private static final Pattern COMMON_FILE_ENDS_MATCH_PATTERN = Pattern.compile(COMMON_FILE_ENDS_MATCH);
 
 	/**
 	 * Same as above, but they are common words so we reduce the chances of a
 	 * false-positive by being case-sensitive.
 	 */
 	private static final String COMMON_FILE_ENDS_CASE_SENSITIVE = "[\\s\\.]PROPER[\\s\\.].*|[\\s\\.]iNTERNAL[\\s\\.].*|[\\s\\.]LIMITED[\\s\\.].*|[\\s\\.]LiMiTED[\\s\\.].*|[\\s\\.]FESTiVAL[\\s\\.].*|[\\s\\.]NORDIC[\\s\\.].*|[\\s\\.]REAL[\\s\\.].*|[\\s\\.]SUBBED[\\s\\.].*|[\\s\\.]RETAIL[\\s\\.].*|[\\s\\.]EXTENDED[\\s\\.].*|[\\s\\.]NEWEDIT[\\s\\.].*|[\\s\\.]WEB[\\s\\.].*";
+	private static final Pattern COMMON_FILE_ENDS_CASE_SENSITIVE_PATTERN = Pattern.compile(COMMON_FILE_ENDS_CASE_SENSITIVE);
 
 	/**
 	 * Editions to be added to the end of the prettified name
 	 */
 	private static final String COMMON_FILE_EDITIONS = "(?i)(?!\\()(Special[\\s\\.]Edition|Unrated|Final[\\s\\.]Cut|Remastered|Extended[\\s\\.]Cut|IMAX[\\s\\.]Edition|Uncensored|Directors[\\s\\.]Cut|Uncut)(?!\\))";
 	private static final Pattern COMMON_FILE_EDITIONS_PATTERN = Pattern.compile(COMMON_FILE_EDITIONS);
+	private static final Pattern COMMON_FILE_EDITIONS_SEPARATED_PATTERN = Pattern.compile(" - " + COMMON_FILE_EDITIONS);
+
+	/*
+	 * The patterns used by getFileNamePrettified(). They are compiled once
+	 * since the method is called for every file whenever the display name is
+	 * resolved.
+	 */
+	private static final Pattern GROUP_NAME_PATTERN = Pattern.compile("^\\[[^\\]]{0,20}\\][^\\w]*(\\w.*?)\\s*$");
+	private static final Pattern BRACKETED_NAME_PATTERN = Pattern.compile("^\\[([^\\[\\]]+)\\]\\s*$");
+
+	// Multiple episodes within the first 9 seasons, for example "S01E01E02" or "S01E01-E02"
+	private static final Pattern MULTI_EPISODE_PATTERN = Pattern.compile(".*[sS]0\\d[eE]\\d\\d([eE]|-[eE])\\d\\d.*");
+	private static final Pattern MULTI_EPISODE_ENDS_PATTERN = Pattern.compile("(?i)[\\s\\.]S0(\\d)E(\\d)(\\d)([eE]|-[eE])(\\d)(\\d)(" + COMMON_FILE_ENDS + ")");
+	private static final Pattern MULTI_EPISODE_ENDS_CASE_SENSITIVE_PATTERN = Pattern.compile("[\\s\\.]S0(\\d)E(\\d)(\\d)([eE]|-[eE])(\\d)(\\d)(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")");
+	private static final Pattern MULTI_EPISODE_TITLE_PATTERN = Pattern.compile("(?i)[\\s\\.]S0(\\d)E(\\d)(\\d)([eE]|-[eE])(\\d)(\\d)[\\s\\.]");
+
+	// Multiple episodes after the first 9 seasons, for example "S11E01E02" or "S11E01-E02"
+	private static final Pattern MULTI_EPISODE_LATER_SEASON_PATTERN = Pattern.compile(".*[sS][1-9]\\d[eE]\\d\\d([eE]|-[eE])\\d\\d.*");
+	private static final Pattern MULTI_EPISODE_LATER_SEASON_ENDS_PATTERN = Pattern.compile("(?i)[\\s\\.]S([1-9]\\d)E(\\d)(\\d)([eE]|-[eE])(\\d)(\\d)(" + COMMON_FILE_ENDS + ")");
+	private static final Pattern MULTI_EPISODE_LATER_SEASON_ENDS_CASE_SENSITIVE_PATTERN = Pattern.compile("[\\s\\.]S([1-9]\\d)E(\\d)(\\d)([eE]|-[eE])(\\d)(\\d)(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")");
+	private static final Pattern MULTI_EPISODE_LATER_SEASON_TITLE_PATTERN = Pattern.compile("(?i)[\\s\\.]S([1-9]\\d)E(\\d)(\\d)([eE]|-[eE])(\\d)(\\d)[\\s\\.]");
+
+	// Single episodes within the first 9 seasons, for example "S01E01"
+	private static final Pattern EPISODE_PATTERN = Pattern.compile(".*[sS]0\\d[eE]\\d\\d.*");
+	private static final Pattern EPISODE_ENDS_PATTERN = Pattern.compile("(?i)[\\s\\.]S0(\\d)E(\\d)(\\d)(" + COMMON_FILE_ENDS + ")");
+	private static final Pattern EPISODE_ENDS_CASE_SENSITIVE_PATTERN = Pattern.compile("[\\s\\.]S0(\\d)E(\\d)(\\d)(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")");
+	private static final Pattern EPISODE_TITLE_PATTERN = Pattern.compile("(?i)[\\s\\.]S0(\\d)E(\\d)(\\d)[\\s\\.]");
+
+	// Single episodes after the first 9 seasons, for example "S11E01"
+	private static final Pattern EPISODE_LATER_SEASON_PATTERN = Pattern.compile(".*[sS][1-9]\\d[eE]\\d\\d.*");
+	private static final Pattern EPISODE_LATER_SEASON_ENDS_PATTERN = Pattern.compile("(?i)[\\s\\.]S([1-9]\\d)E(\\d)(\\d)(" + COMMON_FILE_ENDS + ")");
+	private static final Pattern EPISODE_LATER_SEASON_ENDS_CASE_SENSITIVE_PATTERN = Pattern.compile("[\\s\\.]S([1-9]\\d)E(\\d)(\\d)(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")");
+	private static final Pattern EPISODE_LATER_SEASON_TITLE_PATTERN = Pattern.compile("(?i)[\\s\\.]S([1-9]\\d)E(\\d)(\\d)[\\s\\.]");
+
+	// Dated episodes, for example "2013.03.18"
+	private static final Pattern DATED_EPISODE_PATTERN = Pattern.compile(".*[\\s\\.](19|20)\\d\\d[\\s\\.][0-1]\\d[\\s\\.][0-3]\\d[\\s\\.].*");
+	private static final Pattern DATED_EPISODE_ENDS_PATTERN = Pattern.compile("(?i)[\\s\\.](19|20)(\\d\\d)[\\s\\.]([0-1]\\d)[\\s\\.]([0-3]\\d)(" + COMMON_FILE_ENDS + ")");
+	private static final Pattern DATED_EPISODE_ENDS_CASE_SENSITIVE_PATTERN = Pattern.compile("[\\s\\.](19|20)(\\d\\d)[\\s\\.]([0-1]\\d)[\\s\\.]([0-3]\\d)(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")");
+	private static final Pattern DATED_EPISODE_TITLE_PATTERN = Pattern.compile("(?i)[\\s\\.](19|20)(\\d\\d)[\\s\\.]([0-1]\\d)[\\s\\.]([0-3]\\d)[\\s\\.]");
+
+	// Movies
+	private static final Pattern MOVIE_PATTERN = Pattern.compile(".*[\\s\\.](19|20)\\d\\d[\\s\\.].*");
+	private static final Pattern MOVIE_YEAR_PATTERN = Pattern.compile("[\\s\\.](19|20)(\\d\\d)");
+	private static final Pattern MOVIE_SQUARE_BRACKETED_YEAR_PATTERN = Pattern.compile(".*\\[(19|20)\\d\\d\\].*");
+	private static final Pattern MOVIE_SQUARE_BRACKETED_YEAR_END_PATTERN = Pattern.compile("(?i)\\[(19|20)(\\d\\d)\\].*");
+	private static final Pattern MOVIE_PARENTHESIZED_YEAR_PATTERN = Pattern.compile(".*\\((19|20)\\d\\d\\).*");
+
+	// Anime
+	private static final Pattern ANIME_HASH_PATTERN = Pattern.compile(".*\\[[0-9a-zA-Z]{8}\\]$");
+	private static final Pattern ANIME_HASH_ENDS_PATTERN = Pattern.compile("(?i)\\s\\(1280x720.*|\\s\\(1920x1080.*|\\s\\(720x400.*|\\[720p.*|\\[1080p.*|\\[480p.*|\\s\\(BD.*|\\s\\[Blu-Ray.*|\\s\\[DVD.*|\\.DVD.*|\\[[0-9a-zA-Z]{8}\\]$|\\[h264.*|R1DVD.*|\\[BD.*");
+	private static final Pattern ANIME_PATTERN = Pattern.compile(".*\\[BD\\].*|.*\\[720p\\].*|.*\\[1080p\\].*|.*\\[480p\\].*|.*\\[Blu-Ray.*|.*\\[h264.*");
+	private static final Pattern ANIME_ENDS_PATTERN = Pattern.compile("(?i)\\[BD\\].*|\\[720p.*|\\[1080p.*|\\[480p.*|\\[Blu-Ray.*|\\[h264.*");
+	private static final Pattern ANIME_EPISODE_NUMBER_PATTERN = Pattern.compile("[\\s\\._]\\d\\d");
+
+	private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+	private static final Pattern SHOW_NAME_END_PATTERN = Pattern.compile("(?i) - \\d\\d\\d.*");
+	private static final Pattern PARENTHESIZED_YEAR_PATTERN = Pattern.compile("\\s\\(\\d{4}\\)");
+
+	/** The maximum number of names kept in {@link #PRETTIFIED_NAMES} */
+	static final int MAX_PRETTIFIED_NAMES = 2000;
+
+	/**
+	 * The results of parsing file names, keyed by the file name and the
+	 * "use info from IMDb" setting. The setting is part of the key so that
+	 * a configuration change never returns a stale result.
+	 */
+	@GuardedBy("PRETTIFIED_NAMES")
+	private static final Map<Pair<String, Boolean>, PrettifiedName> PRETTIFIED_NAMES = new LinkedHashMap<Pair<String, Boolean>, PrettifiedName>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Pair<String, Boolean>, PrettifiedName> eldest) {
+			return size() > MAX_PRETTIFIED_NAMES;
+		}
+	};
+
+	/**
+	 * The immutable result of parsing a file name, before any information from
+	 * the InfoDb is added.
+	 */
+	private static final class PrettifiedName {
+		public final String formattedName;
+		public final String searchFormattedName;
+		public final String edition;
+		public final boolean isEpisodeToLookup;
+		public final boolean isTVSeriesToLookup;
+		public final boolean isMovieToLookup;
+		public final boolean isMovieWithoutYear;
+
+		public PrettifiedName(
+			String formattedName,
+			String searchFormattedName,
+			String edition,
+			boolean isEpisodeToLookup,
+			boolean isTVSeriesToLookup,
+			boolean isMovieToLookup,
+			boolean isMovieWithoutYear
+		) {
+			this.formattedName = formattedName;
+			this.searchFormattedName = searchFormattedName;
+			this.edition = edition;
+			this.isEpisodeToLookup = isEpisodeToLookup;
+			this.isTVSeriesToLookup = isTVSeriesToLookup;
+			this.isMovieToLookup = isMovieToLookup;
+			this.isMovieWithoutYear = isMovieWithoutYear;
+		}
+	}
 
 	public static String getFileNamePrettified(String f) {
 		return getFileNamePrettified(f, null);
@@ -909,6 +1016,99 @@ public class FileUtil {
 	 * @return The prettified filename
 	 */
 	public static String getFileNamePrettified(String f, File file) {
+		boolean useInfoFromIMDb = PMS.getConfiguration().isUseInfoFromIMDb();
+		Pair<String, Boolean> key = new Pair<>(f, Boolean.valueOf(useInfoFromIMDb));
+		PrettifiedName prettifiedName;
+		synchronized (PRETTIFIED_NAMES) {
+			prettifiedName = PRETTIFIED_NAMES.get(key);
+		}
+		if (prettifiedName == null) {
+			prettifiedName = parseFileName(f, useInfoFromIMDb);
+			synchronized (PRETTIFIED_NAMES) {
+				PRETTIFIED_NAMES.put(key, prettifiedName);
+			}
+		}
+
+		String formattedName = prettifiedName.formattedName;
+		String edition = prettifiedName.edition;
+		boolean isEpisodeToLookup = prettifiedName.isEpisodeToLookup;
+		boolean isTVSeriesToLookup = prettifiedName.isTVSeriesToLookup;
+		boolean isMovieToLookup = prettifiedName.isMovieToLookup;
+		boolean isMovieWithoutYear = prettifiedName.isMovieWithoutYear;
+
+		/*
+		 * Add info from IMDb
+		 *
+		 * We use the Jaro Winkler similarity algorithm to make sure that changes to
+		 * movie or TV show names are only made when the difference between the
+		 * original and replacement names is less than 10%.
+		 * This means we get proper case and special characters without worrying about
+		 * incorrect results being used.
+		 *
+		 * TODO: Make the following logic only happen once.
+		 */
+		if (file != null && (isTVSeriesToLookup || isMovieToLookup)) {
+			JaroWinklerDistance jaroWinklerDistance = new JaroWinklerDistance();
+			InfoDb.InfoDbData info = PMS.get().infoDb().get(file);
+			if (info == null) {
+				PMS.get().infoDbAdd(file, isNotBlank(prettifiedName.searchFormattedName) ?  prettifiedName.searchFormattedName : formattedName);
+			} else if (isTVSeriesToLookup) {
+				int showNameIndex = indexOf(SHOW_NAME_END_PATTERN, formattedName);
+				if (isNotEmpty(info.title) && showNameIndex != -1) {
+					String titleFromFilename = formattedName.substring(0, showNameIndex);
+
+					// The following line can run over 100 times in under 1ms
+					double similarity = jaroWinklerDistance.apply(titleFromFilename, info.title);
+					if (similarity > 0.91) {
+						formattedName = info.title + formattedName.substring(showNameIndex);
+
+						if (isEpisodeToLookup && isNotEmpty(info.ep_name)) {
+							formattedName += " - " + info.ep_name;
+						}
+					}
+					LOGGER.trace("The similarity between '" + info.title + "' and '" + titleFromFilename + "' is " + similarity);
+				}
+			} else if (isMovieToLookup && isNotEmpty(info.title) && isNotEmpty(info.year)) {
+				double similarity;
+				if (isMovieWithoutYear) {
+					similarity = jaroWinklerDistance.apply(formattedName, info.title);
+					LOGGER.trace("The similarity between '" + info.title + "' and '" + formattedName + "' is " + similarity);
+				} else {
+					int yearIndex = indexOf(PARENTHESIZED_YEAR_PATTERN, formattedName);
+					String titleFromFilename = formattedName.substring(0, yearIndex);
+					similarity = jaroWinklerDistance.apply(titleFromFilename, info.title);
+					LOGGER.trace("The similarity between '" + info.title + "' and '" + titleFromFilename + "' is " + similarity);
+				}
+
+				if (similarity > 0.91) {
+					formattedName = info.title + " (" + info.year + ")";
+				}
+			}
+		}
+		formattedName = formattedName.trim();
+
+		// Add the edition information if it exists
+		if (!edition.isEmpty()) {
+			String substr = formattedName.substring(Math.max(0, formattedName.length() - 2));
+			if (" -".equals(substr)) {
+				formattedName = formattedName.substring(0, formattedName.length() - 2);
+			}
+			formattedName += " " + edition;
+		}
+
+		return formattedName;
+	}
+
+	/**
+	 * Does the part of {@link #getFileNamePrettified(String, File)} that only
+	 * depends on the file name and the "use info from IMDb" setting.
+	 *
+	 * @param f The filename
+	 * @param useInfoFromIMDb whether info from IMDb is to be used
+	 *
+	 * @return The {@link PrettifiedName}
+	 */
+	private static PrettifiedName parseFileName(String f, boolean useInfoFromIMDb) {
 		String fileNameWithoutExtension;
 		String formattedName = "";
 		String formattedNameTemp;
@@ -926,14 +1126,14 @@ public class FileUtil {
 		formattedName = removeGroupNameFromBeginning(fileNameWithoutExtension);
 		searchFormattedName = "";
 
-		if (formattedName.matches(".*[sS]0\\d[eE]\\d\\d([eE]|-[eE])\\d\\d.*")) {
+		if (MULTI_EPISODE_PATTERN.matcher(formattedName).matches()) {
 			// This matches scene and most p2p TV episodes within the first 9 seasons that are more than one episode
 			isTVSeriesToLookup = true;
 
 			// Rename the season/episode numbers. For example, "S01E01" changes to " - 101"
 			// Then strip the end of the episode if it does not have the episode name in the title
-			formattedName = formattedName.replaceAll("(?i)[\\s\\.]S0(\\d)E(\\d)(\\d)([eE]|-[eE])(\\d)(\\d)(" + COMMON_FILE_ENDS + ")", " - $1$2$3-$5$6");
-			formattedName = formattedName.replaceAll("[\\s\\.]S0(\\d)E(\\d)(\\d)([eE]|-[eE])(\\d)(\\d)(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")", " - $1$2$3-$5$6");
+			formattedName = MULTI_EPISODE_ENDS_PATTERN.matcher(formattedName).replaceAll(" - $1$2$3-$5$6");
+			formattedName = MULTI_EPISODE_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll(" - $1$2$3-$5$6");
 			FormattedNameAndEdition result = removeAndSaveEditionToBeAddedLater(formattedName);
 			formattedName = result.formattedName;
 			if (result.edition != null) {
@@ -941,8 +1141,8 @@ public class FileUtil {
 			}
 
 			// If it matches this then it didn't match the previous one, which means there is probably an episode title in the filename
-			formattedNameTemp = formattedName.replaceAll("(?i)[\\s\\.]S0(\\d)E(\\d)(\\d)([eE]|-[eE])(\\d)(\\d)[\\s\\.]", " - $1$2$3-$5$6 - ");
-			if (PMS.getConfiguration().isUseInfoFromIMDb() && formattedName.equals(formattedNameTemp)) {
+			formattedNameTemp = MULTI_EPISODE_TITLE_PATTERN.matcher(formattedName).replaceAll(" - $1$2$3-$5$6 - ");
+			if (useInfoFromIMDb && formattedName.equals(formattedNameTemp)) {
 				isEpisodeToLookup = true;
 			}
 
@@ -950,16 +1150,16 @@ public class FileUtil {
 			formattedName = removeFilenameEndMetadata(formattedName);
 
 			// Replace periods with spaces
-			formattedName = formattedName.replaceAll("\\.", " ");
+			formattedName = formattedName.replace('.', ' ');
 
 			formattedName = convertFormattedNameToTitleCaseParts(formattedName);
-		} else if (formattedName.matches(".*[sS][1-9]\\d[eE]\\d\\d([eE]|-[eE])\\d\\d.*")) {
+		} else if (MULTI_EPISODE_LATER_SEASON_PATTERN.matcher(formattedName).matches()) {
 			// This matches scene and most p2p TV episodes after their first 9 seasons that are more than one episode
 			isTVSeriesToLookup = true;
 
 			// Rename the season/episode numbers. For example, "S11E01" changes to " - 1101"
-			formattedName = formattedName.replaceAll("(?i)[\\s\\.]S([1-9]\\d)E(\\d)(\\d)([eE]|-[eE])(\\d)(\\d)(" + COMMON_FILE_ENDS + ")", " - $1$2$3-$5$6");
-			formattedName = formattedName.replaceAll("[\\s\\.]S([1-9]\\d)E(\\d)(\\d)([eE]|-[eE])(\\d)(\\d)(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")", " - $1$2$3-$5$6");
+			formattedName = MULTI_EPISODE_LATER_SEASON_ENDS_PATTERN.matcher(formattedName).replaceAll(" - $1$2$3-$5$6");
+			formattedName = MULTI_EPISODE_LATER_SEASON_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll(" - $1$2$3-$5$6");
 			FormattedNameAndEdition result = removeAndSaveEditionToBeAddedLater(formattedName);
 			formattedName = result.formattedName;
 			if (result.edition != null) {
@@ -967,8 +1167,8 @@ public class FileUtil {
 			}
 
 			// If it matches this then it didn't match the previous one, which means there is probably an episode title in the filename
-			formattedNameTemp = formattedName.replaceAll("(?i)[\\s\\.]S([1-9]\\d)E(\\d)(\\d)([eE]|-[eE])(\\d)(\\d)[\\s\\.]", " - $1$2$3-$5$6 - ");
-			if (PMS.getConfiguration().isUseInfoFromIMDb() && formattedName.equals(formattedNameTemp)) {
+			formattedNameTemp = MULTI_EPISODE_LATER_SEASON_TITLE_PATTERN.matcher(formattedName).replaceAll(" - $1$2$3-$5$6 - ");
+			if (useInfoFromIMDb && formattedName.equals(formattedNameTemp)) {
 				isEpisodeToLookup = true;
 			}
 
@@ -976,10 +1176,10 @@ public class FileUtil {
 			formattedName = removeFilenameEndMetadata(formattedName);
 
 			// Replace periods with spaces
-			formattedName = formattedName.replaceAll("\\.", " ");
+			formattedName = formattedName.replace('.', ' ');
 
 			formattedName = convertFormattedNameToTitleCaseParts(formattedName);
-		} else if (formattedName.matches(".*[sS]0\\d[eE]\\d\\d.*")) {
+		} else if (EPISODE_PATTERN.matcher(formattedName).matches()) {
 			// This matches scene and most p2p TV episodes within the first 9 seasons
 			isTVSeriesToLookup = true;
 			FormattedNameAndEdition result = removeAndSaveEditionToBeAddedLater(formattedName);
@@ -990,12 +1190,12 @@ public class FileUtil {
 
 			// Rename the season/episode numbers. For example, "S01E01" changes to " - 101"
 			// Then strip the end of the episode if it does not have the episode name in the title
-			formattedName = formattedName.replaceAll("(?i)[\\s\\.]S0(\\d)E(\\d)(\\d)(" + COMMON_FILE_ENDS + ")", " - $1$2$3");
-			formattedName = formattedName.replaceAll("[\\s\\.]S0(\\d)E(\\d)(\\d)(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")", " - $1$2$3");
+			formattedName = EPISODE_ENDS_PATTERN.matcher(formattedName).replaceAll(" - $1$2$3");
+			formattedName = EPISODE_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll(" - $1$2$3");
 
 			// If it matches this then it didn't match the previous one, which means there is probably an episode title in the filename
-			formattedNameTemp = formattedName.replaceAll("(?i)[\\s\\.]S0(\\d)E(\\d)(\\d)[\\s\\.]", " - $1$2$3 - ");
-			if (PMS.getConfiguration().isUseInfoFromIMDb() && formattedName.equals(formattedNameTemp)) {
+			formattedNameTemp = EPISODE_TITLE_PATTERN.matcher(formattedName).replaceAll(" - $1$2$3 - ");
+			if (useInfoFromIMDb && formattedName.equals(formattedNameTemp)) {
 				isEpisodeToLookup = true;
 			}
 
@@ -1003,16 +1203,16 @@ public class FileUtil {
 			formattedName = removeFilenameEndMetadata(formattedName);
 
 			// Replace periods with spaces
-			formattedName = formattedName.replaceAll("\\.", " ");
+			formattedName = formattedName.replace('.', ' ');
 
 			formattedName = convertFormattedNameToTitleCaseParts(formattedName);
-		} else if (formattedName.matches(".*[sS][1-9]\\d[eE]\\d\\d.*")) {
+		} else if (EPISODE_LATER_SEASON_PATTERN.matcher(formattedName).matches()) {
 			// This matches scene and most p2p TV episodes after their first 9 seasons
 			isTVSeriesToLookup = true;
 
 			// Rename the season/episode numbers. For example, "S11E01" changes to " - 1101"
-			formattedName = formattedName.replaceAll("(?i)[\\s\\.]S([1-9]\\d)E(\\d)(\\d)(" + COMMON_FILE_ENDS + ")", " - $1$2$3");
-			formattedName = formattedName.replaceAll("[\\s\\.]S([1-9]\\d)E(\\d)(\\d)(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")", " - $1$2$3");
+			formattedName = EPISODE_LATER_SEASON_ENDS_PATTERN.matcher(formattedName).replaceAll(" - $1$2$3");
+			formattedName = EPISODE_LATER_SEASON_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll(" - $1$2$3");
 			FormattedNameAndEdition result = removeAndSaveEditionToBeAddedLater(formattedName);
 			formattedName = result.formattedName;
 			if (result.edition != null) {
@@ -1020,8 +1220,8 @@ public class FileUtil {
 			}
 
 			// If it matches this then it didn't match the previous one, which means there is probably an episode title in the filename
-			formattedNameTemp = formattedName.replaceAll("(?i)[\\s\\.]S([1-9]\\d)E(\\d)(\\d)[\\s\\.]", " - $1$2$3 - ");
-			if (PMS.getConfiguration().isUseInfoFromIMDb() && formattedName.equals(formattedNameTemp)) {
+			formattedNameTemp = EPISODE_LATER_SEASON_TITLE_PATTERN.matcher(formattedName).replaceAll(" - $1$2$3 - ");
+			if (useInfoFromIMDb && formattedName.equals(formattedNameTemp)) {
 				isEpisodeToLookup = true;
 			}
 
@@ -1029,16 +1229,16 @@ public class FileUtil {
 			formattedName = removeFilenameEndMetadata(formattedName);
 
 			// Replace periods with spaces
-			formattedName = formattedName.replaceAll("\\.", " ");
+			formattedName = formattedName.replace('.', ' ');
 
 			formattedName = convertFormattedNameToTitleCaseParts(formattedName);
-		} else if (formattedName.matches(".*[\\s\\.](19|20)\\d\\d[\\s\\.][0-1]\\d[\\s\\.][0-3]\\d[\\s\\.].*")) {
+		} else if (DATED_EPISODE_PATTERN.matcher(formattedName).matches()) {
 			// This matches scene and most p2p TV episodes that release several times per week
 			isTVSeriesToLookup = true;
 
 			// Rename the date. For example, "2013.03.18" changes to " - 2013/03/18"
-			formattedName = formattedName.replaceAll("(?i)[\\s\\.](19|20)(\\d\\d)[\\s\\.]([0-1]\\d)[\\s\\.]([0-3]\\d)(" + COMMON_FILE_ENDS + ")", " - $1$2/$3/$4");
-			formattedName = formattedName.replaceAll("[\\s\\.](19|20)(\\d\\d)[\\s\\.]([0-1]\\d)[\\s\\.]([0-3]\\d)(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")", " - $1$2/$3/$4");
+			formattedName = DATED_EPISODE_ENDS_PATTERN.matcher(formattedName).replaceAll(" - $1$2/$3/$4");
+			formattedName = DATED_EPISODE_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll(" - $1$2/$3/$4");
 			FormattedNameAndEdition result = removeAndSaveEditionToBeAddedLater(formattedName);
 			formattedName = result.formattedName;
 			if (result.edition != null) {
@@ -1046,8 +1246,8 @@ public class FileUtil {
 			}
 
 			// If it matches this then it didn't match the previous one, which means there is probably an episode title in the filename
-			formattedNameTemp = formattedName.replaceAll("(?i)[\\s\\.](19|20)(\\d\\d)[\\s\\.]([0-1]\\d)[\\s\\.]([0-3]\\d)[\\s\\.]", " - $1$2/$3/$4 - ");
-			if (PMS.getConfiguration().isUseInfoFromIMDb() && formattedName.equals(formattedNameTemp)) {
+			formattedNameTemp = DATED_EPISODE_TITLE_PATTERN.matcher(formattedName).replaceAll(" - $1$2/$3/$4 - ");
+			if (useInfoFromIMDb && formattedName.equals(formattedNameTemp)) {
 				isEpisodeToLookup = true;
 			}
 
@@ -1055,15 +1255,15 @@ public class FileUtil {
 			formattedName = removeFilenameEndMetadata(formattedName);
 
 			// Replace periods with spaces
-			formattedName = formattedName.replaceAll("\\.", " ");
+			formattedName = formattedName.replace('.', ' ');
 
 			formattedName = convertFormattedNameToTitleCaseParts(formattedName);
-		} else if (formattedName.matches(".*[\\s\\.](19|20)\\d\\d[\\s\\.].*")) {
+		} else if (MOVIE_PATTERN.matcher(formattedName).matches()) {
 			// This matches scene and most p2p movies
 			isMovieToLookup = true;
 
 			// Rename the year. For example, "2013" changes to " (2013)"
-			formattedName = formattedName.replaceAll("[\\s\\.](19|20)(\\d\\d)", " ($1$2)");
+			formattedName = MOVIE_YEAR_PATTERN.matcher(formattedName).replaceAll(" ($1$2)");
 			formattedName = removeFilenameEndMetadata(formattedName);
 			FormattedNameAndEdition result = removeAndSaveEditionToBeAddedLater(formattedName);
 			formattedName = result.formattedName;
@@ -1072,63 +1272,63 @@ public class FileUtil {
 			}
 
 			// Replace periods with spaces
-			formattedName = formattedName.replaceAll("\\.", " ");
+			formattedName = formattedName.replace('.', ' ');
 
 			formattedName = convertFormattedNameToTitleCase(formattedName);
-		} else if (formattedName.matches(".*\\[(19|20)\\d\\d\\].*")) {
+		} else if (MOVIE_SQUARE_BRACKETED_YEAR_PATTERN.matcher(formattedName).matches()) {
 			// This matches rarer types of movies
 			isMovieToLookup = true;
 
 			// Rename the year. For example, "2013" changes to " (2013)"
-			formattedName = formattedName.replaceAll("(?i)\\[(19|20)(\\d\\d)\\].*", " ($1$2)");
+			formattedName = MOVIE_SQUARE_BRACKETED_YEAR_END_PATTERN.matcher(formattedName).replaceAll(" ($1$2)");
 			formattedName = removeFilenameEndMetadata(formattedName);
 
 			// Replace periods with spaces
-			formattedName = formattedName.replaceAll("\\.", " ");
+			formattedName = formattedName.replace('.', ' ');
 
 			formattedName = convertFormattedNameToTitleCase(formattedName);
-		} else if (formattedName.matches(".*\\((19|20)\\d\\d\\).*")) {
+		} else if (MOVIE_PARENTHESIZED_YEAR_PATTERN.matcher(formattedName).matches()) {
 			// This matches rarer types of movies
 			isMovieToLookup = true;
 			formattedName = removeFilenameEndMetadata(formattedName);
 
 			// Replace periods with spaces
-			formattedName = formattedName.replaceAll("\\.", " ");
+			formattedName = formattedName.replace('.', ' ');
 
 			formattedName = convertFormattedNameToTitleCase(formattedName);
-		} else if (formattedName.matches(".*\\[[0-9a-zA-Z]{8}\\]$")) {
+		} else if (ANIME_HASH_PATTERN.matcher(formattedName).matches()) {
 			// This matches anime with a hash at the end of the name
 			isTVSeriesToLookup = true;
 
 			// Remove underscores
-			formattedName = formattedName.replaceAll("_", " ");
+			formattedName = formattedName.replace('_', ' ');
 
 			// Remove stuff at the end of the filename like hash, quality, source, etc.
-			formattedName = formattedName.replaceAll("(?i)\\s\\(1280x720.*|\\s\\(1920x1080.*|\\s\\(720x400.*|\\[720p.*|\\[1080p.*|\\[480p.*|\\s\\(BD.*|\\s\\[Blu-Ray.*|\\s\\[DVD.*|\\.DVD.*|\\[[0-9a-zA-Z]{8}\\]$|\\[h264.*|R1DVD.*|\\[BD.*", "");
+			formattedName = ANIME_HASH_ENDS_PATTERN.matcher(formattedName).replaceAll("");
 
-			if (PMS.getConfiguration().isUseInfoFromIMDb() && formattedName.substring(formattedName.length() - 3).matches("[\\s\\._]\\d\\d")) {
+			if (useInfoFromIMDb && ANIME_EPISODE_NUMBER_PATTERN.matcher(formattedName.substring(formattedName.length() - 3)).matches()) {
 				isEpisodeToLookup = true;
 				searchFormattedName = formattedName.substring(0, formattedName.length() - 2) + "S01E" + formattedName.substring(formattedName.length() - 2);
 			}
 
 			formattedName = convertFormattedNameToTitleCase(formattedName);
-		} else if (formattedName.matches(".*\\[BD\\].*|.*\\[720p\\].*|.*\\[1080p\\].*|.*\\[480p\\].*|.*\\[Blu-Ray.*|.*\\[h264.*")) {
+		} else if (ANIME_PATTERN.matcher(formattedName).matches()) {
 			// This matches anime without a hash in the name
 			isTVSeriesToLookup = true;
 
 			// Remove underscores
-			formattedName = formattedName.replaceAll("_", " ");
+			formattedName = formattedName.replace('_', ' ');
 
 			// Remove stuff at the end of the filename like hash, quality, source, etc.
-			formattedName = formattedName.replaceAll("(?i)\\[BD\\].*|\\[720p.*|\\[1080p.*|\\[480p.*|\\[Blu-Ray.*|\\[h264.*", "");
+			formattedName = ANIME_ENDS_PATTERN.matcher(formattedName).replaceAll("");
 
-			if (PMS.getConfiguration().isUseInfoFromIMDb() && formattedName.substring(formattedName.length() - 3).matches("[\\s\\._]\\d\\d")) {
+			if (useInfoFromIMDb && ANIME_EPISODE_NUMBER_PATTERN.matcher(formattedName.substring(formattedName.length() - 3)).matches()) {
 				isEpisodeToLookup = true;
 				searchFormattedName = formattedName.substring(0, formattedName.length() - 2) + "S01E" + formattedName.substring(formattedName.length() - 2);
 			}
 
 			formattedName = convertFormattedNameToTitleCase(formattedName);
-		} else if (formattedName.matches(COMMON_FILE_ENDS_MATCH)) {
+		} else if (COMMON_FILE_ENDS_MATCH_PATTERN.matcher(formattedName).matches()) {
 			// This is probably a movie that doesn't specify a year
 			isMovieToLookup = true;
 			isMovieWithoutYear = true;
@@ -1140,75 +1340,23 @@ public class FileUtil {
 			}
 
 			// Replace periods with spaces
-			formattedName = formattedName.replaceAll("\\.", " ");
+			formattedName = formattedName.replace('.', ' ');
 
 			formattedName = convertFormattedNameToTitleCase(formattedName);
 		}
 
 		// Remove extra spaces
-		formattedName = formattedName.replaceAll("\\s+", " ");
-
-		/*
-		 * Add info from IMDb
-		 *
-		 * We use the Jaro Winkler similarity algorithm to make sure that changes to
-		 * movie or TV show names are only made when the difference between the
-		 * original and replacement names is less than 10%.
-		 * This means we get proper case and special characters without worrying about
-		 * incorrect results being used.
-		 *
-		 * TODO: Make the following logic only happen once.
-		 */
-		JaroWinklerDistance jaroWinklerDistance = new JaroWinklerDistance();
-		if (file != null && (isTVSeriesToLookup || isMovieToLookup)) {
-			InfoDb.InfoDbData info = PMS.get().infoDb().get(file);
-			if (info == null) {
-				PMS.get().infoDbAdd(file, isNotBlank(searchFormattedName) ?  searchFormattedName : formattedName);
-			} else if (isTVSeriesToLookup) {
-				int showNameIndex = indexOf(Pattern.compile("(?i) - \\d\\d\\d.*"), formattedName);
-				if (isNotEmpty(info.title) && showNameIndex != -1) {
-					String titleFromFilename = formattedName.substring(0, showNameIndex);
-
-					// The following line can run over 100 times in under 1ms
-					double similarity = jaroWinklerDistance.apply(titleFromFilename, info.title);
-					if (similarity > 0.91) {
-						formattedName = info.title + formattedName.substring(showNameIndex);
-
-						if (isEpisodeToLookup && isNotEmpty(info.ep_name)) {
-							formattedName += " - " + info.ep_name;
-						}
-					}
-					LOGGER.trace("The similarity between '" + info.title + "' and '" + titleFromFilename + "' is " + similarity);
-				}
-			} else if (isMovieToLookup && isNotEmpty(info.title) && isNotEmpty(info.year)) {
-				double similarity;
-				if (isMovieWithoutYear) {
-					similarity = jaroWinklerDistance.apply(formattedName, info.title);
-					LOGGER.trace("The similarity between '" + info.title + "' and '" + formattedName + "' is " + similarity);
-				} else {
-					int yearIndex = indexOf(Pattern.compile("\\s\\(\\d{4}\\)"), formattedName);
-					String titleFromFilename = formattedName.substring(0, yearIndex);
-					similarity = jaroWinklerDistance.apply(titleFromFilename, info.title);
-					LOGGER.trace("The similarity between '" + info.title + "' and '" + titleFromFilename + "' is " + similarity);
-				}
-
-				if (similarity > 0.91) {
-					formattedName = info.title + " (" + info.year + ")";
-				}
-			}
-		}
-		formattedName = formattedName.trim();
-
-		// Add the edition information if it exists
-		if (!edition.isEmpty()) {
-			String substr = formattedName.substring(Math.max(0, formattedName.length() - 2));
-			if (" -".equals(substr)) {
-				formattedName = formattedName.substring(0, formattedName.length() - 2);
-			}
-			formattedName += " " + edition;
-		}
-
-		return formattedName;
+		formattedName = WHITESPACE_PATTERN.matcher(formattedName).replaceAll(" ");
+
+		return new PrettifiedName(
+			formattedName,
+			searchFormattedName,
+			edition,
+			isEpisodeToLookup,
+			isTVSeriesToLookup,
+			isMovieToLookup,
+			isMovieWithoutYear
+		);
 	}
 
 	/**
@@ -1902,116 +2050,99 @@ public class FileUtil {
 		boolean found = false;
 		final Set<String> supported = SubtitleType.getSupportedFileExtensions();
 
-		File[] allSubs = null;
-		// TODO This caching scheme is very restrictive locking the whole cache
-		// while populating a single folder. A more effective solution should
-		// be implemented.
-		subtitleCacheLock.lock();
-		try {
-			if (useCache) {
-				allSubs = subtitleCache.get(subFolder);
-			}
-
-			if (allSubs == null) {
-				allSubs = subFolder.listFiles(
-					new FilenameFilter() {
-						@Override
-						public boolean accept(File dir, String name) {
-							String ext = FilenameUtils.getExtension(name).toLowerCase();
-							if ("sub".equals(ext)) {
-								// Avoid microdvd/vobsub confusion by ignoring sub+idx pairs here since
-								// they'll come in unambiguously as vobsub via the idx file anyway
-								return replaceExtension(new File(dir, name), "idx", true, true) == null;
-							}
-							return supported.contains(ext);
-						}
+		List<File> allSubs = null;
+		FolderIndex folderIndex = FolderIndex.get(subFolder, !useCache);
+		if (folderIndex != null) {
+			allSubs = new ArrayList<>();
+			for (File f : folderIndex.getVisibleFiles()) {
+				String name = f.getName();
+				String ext = FilenameUtils.getExtension(name).toLowerCase();
+				if ("sub".equals(ext)) {
+					// Avoid microdvd/vobsub confusion by ignoring sub+idx pairs here since
+					// they'll come in unambiguously as vobsub via the idx file anyway
+					if (folderIndex.getFile(getFileNameWithoutExtension(name), "idx") == null) {
+						allSubs.add(f);
 					}
-				);
-
-				if (allSubs != null) {
-					subtitleCache.put(subFolder, allSubs);
+				} else if (supported.contains(ext)) {
+					allSubs.add(f);
 				}
 			}
-		} finally {
-			subtitleCacheLock.unlock();
 		}
 
 		String fileName = getFileNameWithoutExtension(file.getName()).toLowerCase();
 		if (allSubs != null) {
 			for (File f : allSubs) {
-				if (f.isFile() && !f.isHidden()) {
-					String fName = f.getName().toLowerCase();
-					for (String ext : supported) {
-						if (fName.length() > ext.length() && fName.startsWith(fileName) && endsWithIgnoreCase(fName, "." + ext)) {
-							int a = fileName.length();
-							int b = fName.length() - ext.length() - 1;
-							String code = "";
-
-							if (a <= b) { // handling case with several dots: <video>..<extension>
-								code = fName.substring(a, b);
-							}
-
-							if (code.startsWith(".")) {
-								code = code.substring(1);
-							}
+				String fName = f.getName().toLowerCase();
+				for (String ext : supported) {
+					if (fName.length() > ext.length() && fName.startsWith(fileName) && endsWithIgnoreCase(fName, "." + ext)) {
+						int a = fileName.length();
+						int b = fName.length() - ext.length() - 1;
+						String code = "";
+
+						if (a <= b) { // handling case with several dots: <video>..<extension>
+							code = fName.substring(a, b);
+						}
 
-							boolean exists = false;
-							if (media != null) {
-								for (DLNAMediaSubtitle sub : media.getSubtitleTracksList()) {
-									if (f.equals(sub.getExternalFile())) {
-										exists = true;
-									} else if (equalsIgnoreCase(ext, "idx") && sub.getType() == SubtitleType.MICRODVD) { // sub+idx => VOBSUB
-										sub.setType(SubtitleType.VOBSUB);
-										exists = true;
-									} else if (equalsIgnoreCase(ext, "sub") && sub.getType() == SubtitleType.VOBSUB) { // VOBSUB
-										try {
-											sub.setExternalFile(f, null);
-										} catch (FileNotFoundException ex) {
-											LOGGER.warn("File not found during external subtitles scan: {}", ex.getMessage());
-											LOGGER.trace("", ex);
-										}
+						if (code.startsWith(".")) {
+							code = code.substring(1);
+						}
 
-										exists = true;
+						boolean exists = false;
+						if (media != null) {
+							for (DLNAMediaSubtitle sub : media.getSubtitleTracksList()) {
+								if (f.equals(sub.getExternalFile())) {
+									exists = true;
+								} else if (equalsIgnoreCase(ext, "idx") && sub.getType() == SubtitleType.MICRODVD) { // sub+idx => VOBSUB
+									sub.setType(SubtitleType.VOBSUB);
+									exists = true;
+								} else if (equalsIgnoreCase(ext, "sub") && sub.getType() == SubtitleType.VOBSUB) { // VOBSUB
+									try {
+										sub.setExternalFile(f, null);
+									} catch (FileNotFoundException ex) {
+										LOGGER.warn("File not found during external subtitles scan: {}", ex.getMessage());
+										LOGGER.trace("", ex);
 									}
+
+									exists = true;
 								}
 							}
+						}
 
-							if (!exists) {
-								String forcedLang = null;
-								DLNAMediaSubtitle sub = new DLNAMediaSubtitle();
-								sub.setId(100 + (media == null ? 0 : media.getSubtitleTracksList().size())); // fake id, not used
-								if (code.length() == 0 || !Iso639.codeIsValid(code)) {
-									sub.setLang(DLNAMediaSubtitle.UND);
-									sub.setType(SubtitleType.valueOfFileExtension(ext));
-									if (code.length() > 0) {
-										sub.setSubtitlesTrackTitleFromMetadata(code);
-										if (sub.getSubtitlesTrackTitleFromMetadata().contains("-")) {
-											String flavorLang = sub.getSubtitlesTrackTitleFromMetadata().substring(0, sub.getSubtitlesTrackTitleFromMetadata().indexOf('-'));
-											String flavorTitle = sub.getSubtitlesTrackTitleFromMetadata().substring(sub.getSubtitlesTrackTitleFromMetadata().indexOf('-') + 1);
-											if (Iso639.codeIsValid(flavorLang)) {
-												sub.setLang(flavorLang);
-												sub.setSubtitlesTrackTitleFromMetadata(flavorTitle);
-												forcedLang = flavorLang;
-											}
+						if (!exists) {
+							String forcedLang = null;
+							DLNAMediaSubtitle sub = new DLNAMediaSubtitle();
+							sub.setId(100 + (media == null ? 0 : media.getSubtitleTracksList().size())); // fake id, not used
+							if (code.length() == 0 || !Iso639.codeIsValid(code)) {
+								sub.setLang(DLNAMediaSubtitle.UND);
+								sub.setType(SubtitleType.valueOfFileExtension(ext));
+								if (code.length() > 0) {
+									sub.setSubtitlesTrackTitleFromMetadata(code);
+									if (sub.getSubtitlesTrackTitleFromMetadata().contains("-")) {
+										String flavorLang = sub.getSubtitlesTrackTitleFromMetadata().substring(0, sub.getSubtitlesTrackTitleFromMetadata().indexOf('-'));
+										String flavorTitle = sub.getSubtitlesTrackTitleFromMetadata().substring(sub.getSubtitlesTrackTitleFromMetadata().indexOf('-') + 1);
+										if (Iso639.codeIsValid(flavorLang)) {
+											sub.setLang(flavorLang);
+											sub.setSubtitlesTrackTitleFromMetadata(flavorTitle);
+											forcedLang = flavorLang;
 										}
 									}
-								} else {
-									sub.setLang(code);
-									sub.setType(SubtitleType.valueOfFileExtension(ext));
-									forcedLang = code;
 								}
+							} else {
+								sub.setLang(code);
+								sub.setType(SubtitleType.valueOfFileExtension(ext));
+								forcedLang = code;
+							}
 
-								try {
-									sub.setExternalFile(f, forcedLang);
-								} catch (FileNotFoundException ex) {
-									LOGGER.warn("File not found during external subtitles scan: {}", ex.getMessage());
-									LOGGER.trace("", ex);
-								}
+							try {
+								sub.setExternalFile(f, forcedLang);
+							} catch (FileNotFoundException ex) {
+								LOGGER.warn("File not found during external subtitles scan: {}", ex.getMessage());
+								LOGGER.trace("", ex);
+							}
 
-								found = true;
-								if (media != null) {
-									media.getSubtitleTracksList().add(sub);
-								}
+							found = true;
+							if (media != null) {
+								media.getSubtitleTracksList().add(sub);
 							}
 						}
 					}
@@ -2375,21 +2506,24 @@ public class FileUtil {
 		return false;
 	}
 
+	private static final Pattern ARTICLE_PATTERN = Pattern.compile("^(?i)A[ .]|The[ .]");
+	private static final Pattern MULTIPLE_WHITESPACE_PATTERN = Pattern.compile("\\s{2,}");
+
 	public static String renameForSorting(String filename) {
 		if (PMS.getConfiguration().isPrettifyFilenames()) {
 			// This makes anime sort properly
 			filename = removeGroupNameFromBeginning(filename);
 
 			// Replace periods and underscores with spaces
-			filename = filename.replaceAll("\\.|_", " ");
+			filename = filename.replace('.', ' ').replace('_', ' ');
 		}
 
 		if (PMS.getConfiguration().isIgnoreTheWordAandThe()) {
 			// Remove "a" and "the" from filename
-			filename = filename.replaceAll("^(?i)A[ .]|The[ .]", "");
+			filename = ARTICLE_PATTERN.matcher(filename).replaceAll("");
 
 			// Replace multiple whitespaces with space
-			filename = filename.replaceAll("\\s{2,}"," ");
+			filename = MULTIPLE_WHITESPACE_PATTERN.matcher(filename).replaceAll(" ");
 		}
 
 		return filename;
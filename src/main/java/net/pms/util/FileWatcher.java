@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map.Entry;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
@@ -30,7 +31,10 @@ public class FileWatcher {
 		 * A user-defined callback for receiving file change notifications.
 		 *
 		 * @param filename The changed filepath, relative or absolute depending on the original filespec.
-		 * @param event The change itself: 'ENTRY_CREATE' 'ENTRY_MODIFY' or 'ENTRY_DELETE'.
+		 *                 For 'OVERFLOW' it's the watched folder.
+		 * @param event The change itself: 'ENTRY_CREATE' 'ENTRY_MODIFY' or 'ENTRY_DELETE'. Recursive
+		 *              watchpoints also receive 'OVERFLOW' when events have been lost, in which case
+		 *              anything in the watched folder might have changed.
 		 * @param watch The original user-supplied watch object that triggered the match.
 		 * @param isDir Whether the changed file is a directory.
 		 */
@@ -46,6 +50,7 @@ public class FileWatcher {
 		private WeakReference<Object> item;
 		public int flag;
 		private PathMatcher matcher;
+		private Path folder;
 
 		// Convenience constructors
 
@@ -89,7 +94,36 @@ public class FileWatcher {
 			this.flag = flag;
 		}
 
+		/**
+		 * Creates a recursive watchpoint for everything in and below a
+		 * folder. Unlike a glob filespec, the folder path doesn't need any
+		 * escaping of glob special characters.
+		 *
+		 * @param folder The folder to watch.
+		 * @param listener The user-defined callback.**
+		 * @param item A user Object to attach to this watchpoint.**
+		 * @return The new watchpoint.
+		 *
+		 * @implNote ** Note that {@code listener} and {@code item} are held as weak references
+		 *    and will not persist if anonymously inlined in the constructor call.
+		 */
+		public static Watch folder(Path folder, Listener listener, Object item) {
+			Watch watch = new Watch(folder.toString() + folder.getFileSystem().getSeparator() + "**", listener, item, 0);
+			watch.folder = folder;
+			return watch;
+		}
+
 		public void init(Path dir) {
+			if (folder != null) {
+				final Path root = folder;
+				matcher = new PathMatcher() {
+					@Override
+					public boolean matches(Path path) {
+						return path.startsWith(root);
+					}
+				};
+				return;
+			}
 			// Assume glob pattern if no prefix
 			String match = (fspec.startsWith("glob:") || fspec.startsWith("regex:")) ? fspec : ("glob:" + fspec);
 			matcher = dir.getFileSystem().getPathMatcher(match);
@@ -131,19 +165,22 @@ public class FileWatcher {
 	 * Add a file watchpoint to the Watch Service.
 	 *
 	 * @param w The watch object.
+	 * @return {@code false} if one or more directories couldn't be
+	 *         registered, {@code true} otherwise.
 	 */
-	public static void add(Watch w) {
-		Path dir = Paths.get(FilenameUtils.getFullPath(w.fspec));
+	public static boolean add(Watch w) {
+		Path dir = w.folder != null ? w.folder : Paths.get(FilenameUtils.getFullPath(w.fspec));
 		w.init(dir);
-		if (keys.contains(w)) {
-			// Ignore duplicates
-			return;
+		synchronized (keys) {
+			if (keys.contains(w)) {
+				// Ignore duplicates
+				return true;
+			}
 		}
 		if (Watch.isRecursive(w)) {
-			addRecursive(w, dir);
-		} else {
-			add(w, dir);
+			return addRecursive(w, dir);
 		}
+		return add(w, dir);
 	}
 
 	/**
@@ -152,13 +189,17 @@ public class FileWatcher {
 	 * @param w The watch object.
 	 */
 	public static boolean remove(Watch w) {
-		return keys.remove(w);
+		synchronized (keys) {
+			return keys.remove(w);
+		}
 	}
 
 	// Internals
 
 	/**
-	 * A map of file watchpoints by watchkey.
+	 * A map of file watchpoints by watchkey. It's used by both the thread
+	 * adding and removing watchpoints and the "File watcher" thread, so all
+	 * access must synchronize on the map.
 	 */
 	static class WatchMap extends HashMap<WatchKey, ArrayList<Watch>> {
 		private static final long serialVersionUID = 66052264663459389L;
@@ -167,7 +208,22 @@ public class FileWatcher {
 			if (!containsKey(k)) {
 				put(k, new ArrayList<Watch>());
 			}
-			get(k).add(w);
+			ArrayList<Watch> a = get(k);
+			if (!a.contains(w)) {
+				a.add(w);
+			}
+		}
+
+		/**
+		 * Returns a copy of the watchpoints of a watchkey, so that it can be
+		 * iterated without holding the lock.
+		 *
+		 * @param k the watchkey.
+		 * @return The watchpoints, empty if there are none.
+		 */
+		public ArrayList<Watch> getWatches(WatchKey k) {
+			ArrayList<Watch> a = get(k);
+			return a == null ? new ArrayList<Watch>() : new ArrayList<>(a);
 		}
 
 		public boolean contains(Watch w) {
@@ -179,48 +235,102 @@ public class FileWatcher {
 			return false;
 		}
 
+		/**
+		 * Removes a watchpoint from every watchkey. Watchkeys without any
+		 * watchpoints left are cancelled.
+		 *
+		 * @param w the watchpoint.
+		 * @return {@code true} if the watchpoint was removed, {@code false}
+		 *         if it didn't exist.
+		 */
 		public boolean remove(Watch w) {
-			for (WatchKey k : keySet()) {
-				ArrayList<Watch> a = get(k);
-				if (a.contains(w)) {
-					return a.remove(w);
+			boolean removed = false;
+			for (Iterator<Entry<WatchKey, ArrayList<Watch>>> iterator = entrySet().iterator(); iterator.hasNext();) {
+				Entry<WatchKey, ArrayList<Watch>> entry = iterator.next();
+				if (removeFrom(entry, w)) {
+					removed = true;
+					if (entry.getValue().isEmpty()) {
+						iterator.remove();
+					}
 				}
 			}
-			return false;
+			return removed;
+		}
+
+		/**
+		 * Removes a watchpoint from a watchkey. The watchkey is cancelled and
+		 * removed if it doesn't have any watchpoints left.
+		 *
+		 * @param k the watchkey.
+		 * @param w the watchpoint.
+		 */
+		public void removeWatch(WatchKey k, Watch w) {
+			ArrayList<Watch> a = get(k);
+			if (a != null && a.remove(w) && a.isEmpty()) {
+				k.cancel();
+				remove(k);
+			}
+		}
+
+		private static boolean removeFrom(Entry<WatchKey, ArrayList<Watch>> entry, Watch w) {
+			if (!entry.getValue().remove(w)) {
+				return false;
+			}
+			if (entry.getValue().isEmpty()) {
+				entry.getKey().cancel();
+			}
+			return true;
 		}
 	}
 
-	private static WatchMap keys = new WatchMap();
+	/** The watchpoints by watchkey, all access must synchronize on it */
+	private static final WatchMap keys = new WatchMap();
 	private static WatchService watchService = null;
 
-	public static void add(Watch w, Path dir) {
+	public static boolean add(Watch w, Path dir) {
 		if (watchService == null) {
 			start(dir);
 		}
 		try {
 			WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
-			keys.put(key, w);
-			LOGGER.debug("Added file watch at {}: {}", dir, w.fspec);
+			synchronized (keys) {
+				keys.put(key, w);
+			}
+			LOGGER.trace("Added file watch at {}: {}", dir, w.fspec);
+			return true;
 		} catch (Exception e) {
-			LOGGER.debug("Register error: " + e);
-			e.printStackTrace();
+			LOGGER.debug("Register error at {}: {}", dir, e);
+			LOGGER.trace("", e);
+			return false;
 		}
 	}
 
-	public static void addRecursive(final Watch w, Path dir) {
+	public static boolean addRecursive(final Watch w, Path dir) {
+		final boolean[] result = {true};
 		try {
 			Files.walkFileTree(dir, EnumSet.of(FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
 				@Override
 				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-					add(w, dir);
+					if (!add(w, dir)) {
+						// Further registrations are very likely to fail too
+						result[0] = false;
+						return FileVisitResult.TERMINATE;
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					// Unreadable entries are skipped
 					return FileVisitResult.CONTINUE;
 				}
 			});
 		} catch (Exception e) {
 			LOGGER.debug("Recursion error: " + e);
 			e.printStackTrace();
+			return false;
 		}
-
+		return result[0];
 	}
 
 	private static void start(Path dir) {
@@ -244,23 +354,43 @@ public class FileWatcher {
 							// Wait a bit in case there are a few repeats
 							Thread.sleep(100);
 						} catch (InterruptedException e) { }
+						// The watchpoints are copied since they can be removed by other threads
+						ArrayList<Watch> watches;
+						synchronized (keys) {
+							watches = keys.getWatches(key);
+						}
+						Path dir = (Path) key.watchable();
+						for (Iterator<Watch> iterator = watches.iterator(); iterator.hasNext();) {
+							Watch w = iterator.next();
+							if (!Watch.isValid(w)) {
+								LOGGER.debug("Deleting expired file watch at {}: {}", dir, w.fspec);
+								synchronized (keys) {
+									keys.removeWatch(key, w);
+								}
+								iterator.remove();
+							}
+						}
 						// Filter the received directory event(s)
 						for (WatchEvent<?> e : key.pollEvents()) {
 							final WatchEvent.Kind<?> kind = e.kind();
-							if (kind != OVERFLOW) {
+							if (kind == OVERFLOW) {
+								// Events were lost, let recursive watchpoints rescan their folder
+								LOGGER.debug("File events were lost at {}", dir);
+								for (Watch w : watches) {
+									if (Watch.isRecursive(w)) {
+										// Subdirectories might have been created without being registered
+										addRecursive(w, dir);
+										Path root = w.folder != null ? w.folder : dir;
+										notifier.schedule(new Notice(root.toString(), kind.toString(), w, true), 0);
+									}
+								}
+							} else {
 								WatchEvent<Path> event = (WatchEvent<Path>) e;
 								// Determine the actual file
-								Path dir = (Path) key.watchable();
 								final Path filename = dir.resolve(event.context());
 								final boolean isDir = Files.isDirectory(filename/*, NOFOLLOW_LINKS*/);
 								// See if we're watching for this specific file
-								for (Iterator<Watch> iterator = keys.get(key).iterator(); iterator.hasNext();) {
-									final Watch w = iterator.next();
-									if (!Watch.isValid(w)) {
-										LOGGER.debug("Deleting expired file watch at {}: {}", dir, w.fspec);
-										iterator.remove();
-										continue;
-									}
+								for (Watch w : watches) {
 									if (w.matcher.matches(filename)) {
 										// We have an event of interest
 										LOGGER.debug("{} (ct={}): {}", kind, event.count(), filename);
@@ -268,6 +398,8 @@ public class FileWatcher {
 											// It's a new directory in a recursive scope,
 											// traverse it to include any subdirs
 											addRecursive(w, filename);
+											// Its content might not produce any events
+											notifier.schedule(new Notice(filename.toString(), kind.toString(), w, isDir), 0);
 										} else {
 											// It's a regular event, schedule a notice
 											notifier.schedule(new Notice(filename.toString(), kind.toString(), w, isDir),
@@ -279,9 +411,12 @@ public class FileWatcher {
 						}
 						// Reset and clean up
 						if (!key.reset()) {
-							keys.remove(key);
+							synchronized (keys) {
+								keys.remove(key);
+							}
 						}
-					} while (!keys.isEmpty());
+						// Keep running, new watchpoints can be added after all have been removed
+					} while (true);
 				} catch (Exception e) {
 					LOGGER.debug("Event process error: " + e);
 					e.printStackTrace();
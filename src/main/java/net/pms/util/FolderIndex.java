@@ -0,0 +1,305 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.util;
+
+import com.sun.jna.Platform;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * An in-memory index of the regular files in a folder, built from a single
+ * listing. It's used to find the files belonging to another file, like
+ * external subtitles, thumbnails and covers, without listing the folder or
+ * probing for candidate names on the file system for every file.
+ * <p>
+ * The indexes of the most recently used folders are kept. A kept index is
+ * only used as long as the modification time of its folder is unchanged,
+ * which changes whenever a file is added, removed or renamed. Since the
+ * modification time can have a resolution as coarse as 2 seconds (FAT and
+ * SMB), a kept index is only used if the folder was listed at least that
+ * long after it was modified.
+ */
+@ThreadSafe
+public class FolderIndex {
+	private static final Logger LOGGER = LoggerFactory.getLogger(FolderIndex.class);
+
+	/** The maximum number of kept indexes */
+	protected static final int MAX_FOLDERS = 200;
+
+	/** Whether file names are compared case-insensitively */
+	protected static final boolean CASE_INSENSITIVE = Platform.isWindows() || Platform.isMac();
+
+	/**
+	 * The coarsest resolution of folder modification times in milliseconds
+	 * (FAT and SMB)
+	 */
+	protected static final long MODIFIED_RESOLUTION = 2000;
+
+	@GuardedBy("INDEXES")
+	private static final Map<File, FolderIndex> INDEXES = new LinkedHashMap<File, FolderIndex>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, FolderIndex> eldest) {
+			return size() > MAX_FOLDERS;
+		}
+	};
+
+	/** The indexed folder */
+	protected final File folder;
+
+	/** The modification time of the folder when it was listed */
+	protected final long lastModified;
+
+	/** The time the folder was listed */
+	protected final long listed;
+
+	/** The regular files in listing order, including hidden files */
+	protected final List<File> files;
+
+	/** The regular files in listing order, excluding hidden files */
+	protected final List<File> visibleFiles;
+
+	/** The regular files by (normalized) file name */
+	protected final Map<String, File> filesByName;
+
+	/**
+	 * The regular files by lower-case file name, used if there's no exact
+	 * match on platforms where file names are case-sensitive, since the
+	 * folder can still be on a case-insensitive file system (CIFS or FAT).
+	 * {@code null} where {@link #filesByName} is already case-insensitive.
+	 */
+	protected final Map<String, File> filesByLowerCaseName;
+
+	/**
+	 * Creates a new index by listing the specified folder.
+	 *
+	 * @param folder the folder to list.
+	 * @param lastModified the modification time of {@code folder}.
+	 * @param listed the time {@code folder} was listed.
+	 * @param listing the listing of {@code folder}.
+	 */
+	protected FolderIndex(@Nonnull File folder, long lastModified, long listed, @Nonnull File[] listing) {
+		this.folder = folder;
+		this.lastModified = lastModified;
+		this.listed = listed;
+		ArrayList<File> tmpFiles = new ArrayList<>(listing.length);
+		ArrayList<File> tmpVisibleFiles = new ArrayList<>(listing.length);
+		HashMap<String, File> tmpFilesByName = new HashMap<>(listing.length * 2);
+		HashMap<String, File> tmpFilesByLowerCaseName = CASE_INSENSITIVE ? null : new HashMap<String, File>(listing.length * 2);
+		for (File file : listing) {
+			if (file.isFile()) {
+				tmpFiles.add(file);
+				if (!file.isHidden()) {
+					tmpVisibleFiles.add(file);
+				}
+				tmpFilesByName.put(normalize(file.getName()), file);
+				if (tmpFilesByLowerCaseName != null) {
+					String lowerCaseName = file.getName().toLowerCase(Locale.ROOT);
+					// The first file in listing order wins if names only differ by case
+					if (!tmpFilesByLowerCaseName.containsKey(lowerCaseName)) {
+						tmpFilesByLowerCaseName.put(lowerCaseName, file);
+					}
+				}
+			}
+		}
+		this.files = Collections.unmodifiableList(tmpFiles);
+		this.visibleFiles = Collections.unmodifiableList(tmpVisibleFiles);
+		this.filesByName = tmpFilesByName;
+		this.filesByLowerCaseName = tmpFilesByLowerCaseName;
+	}
+
+	/**
+	 * Returns the index of the specified folder, listing the folder if there
+	 * is no current index for it.
+	 *
+	 * @param folder the folder.
+	 * @return The {@link FolderIndex} or {@code null} if {@code folder} isn't
+	 *         a folder or can't be listed.
+	 */
+	@Nullable
+	public static FolderIndex get(@Nullable File folder) {
+		return get(folder, false);
+	}
+
+	/**
+	 * Returns the index of the specified folder, listing the folder if there
+	 * is no current index for it or if {@code refresh} is {@code true}.
+	 *
+	 * @param folder the folder.
+	 * @param refresh whether to list the folder even if there is a current
+	 *            index for it.
+	 * @return The {@link FolderIndex} or {@code null} if {@code folder} isn't
+	 *         a folder or can't be listed.
+	 */
+	@Nullable
+	public static FolderIndex get(@Nullable File folder, boolean refresh) {
+		if (folder == null) {
+			return null;
+		}
+		long lastModified = folder.lastModified();
+		if (!refresh && lastModified != 0) {
+			FolderIndex index;
+			synchronized (INDEXES) {
+				index = INDEXES.get(folder);
+			}
+			if (index != null && index.isCurrent(lastModified)) {
+				return index;
+			}
+		}
+
+		// The folder is listed without holding the lock
+		long listed = System.currentTimeMillis();
+		File[] listing = folder.listFiles();
+		if (listing == null) {
+			synchronized (INDEXES) {
+				INDEXES.remove(folder);
+			}
+			return null;
+		}
+		FolderIndex index = new FolderIndex(folder, lastModified, listed, listing);
+		if (LOGGER.isTraceEnabled()) {
+			LOGGER.trace("Indexed {} files in \"{}\"", Integer.valueOf(index.files.size()), folder);
+		}
+		synchronized (INDEXES) {
+			INDEXES.put(folder, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns whether this index is current for the specified modification
+	 * time of its folder. It's only current if the modification time is
+	 * unchanged and the folder was listed more than
+	 * {@link #MODIFIED_RESOLUTION} after it, since a file added in the same
+	 * clock tick as the listing doesn't change the modification time.
+	 *
+	 * @param folderLastModified the current modification time of the folder.
+	 * @return {@code true} if this index is current, {@code false} otherwise.
+	 */
+	protected boolean isCurrent(long folderLastModified) {
+		return lastModified == folderLastModified && listed - lastModified > MODIFIED_RESOLUTION;
+	}
+
+	/**
+	 * Discards the index of the specified folder if it exists.
+	 *
+	 * @param folder the folder.
+	 */
+	public static void invalidate(@Nullable File folder) {
+		if (folder != null) {
+			synchronized (INDEXES) {
+				INDEXES.remove(folder);
+			}
+		}
+	}
+
+	/**
+	 * @return The indexed folder.
+	 */
+	@Nonnull
+	public File getFolder() {
+		return folder;
+	}
+
+	/**
+	 * @return The regular files in the folder, including hidden files.
+	 */
+	@Nonnull
+	public List<File> getFiles() {
+		return files;
+	}
+
+	/**
+	 * @return The regular files in the folder, excluding hidden files.
+	 */
+	@Nonnull
+	public List<File> getVisibleFiles() {
+		return visibleFiles;
+	}
+
+	/**
+	 * Returns whether a regular file with the specified name exists in the
+	 * folder. An exact match is preferred, but the name is also compared
+	 * case-insensitively, since the folder can be on a case-insensitive file
+	 * system.
+	 *
+	 * @param fileName the file name without path.
+	 * @return {@code true} if the file exists, {@code false} otherwise.
+	 */
+	public boolean contains(@Nullable String fileName) {
+		return getFile(fileName) != null;
+	}
+
+	/**
+	 * Returns the regular file with the specified name. An exact match is
+	 * preferred, but the name is also compared case-insensitively, since the
+	 * folder can be on a case-insensitive file system.
+	 *
+	 * @param fileName the file name without path.
+	 * @return The {@link File} or {@code null} if it doesn't exist.
+	 */
+	@Nullable
+	public File getFile(@Nullable String fileName) {
+		if (fileName == null) {
+			return null;
+		}
+		File result = filesByName.get(normalize(fileName));
+		if (result == null && filesByLowerCaseName != null) {
+			result = filesByLowerCaseName.get(fileName.toLowerCase(Locale.ROOT));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the regular file with the specified base name and extension.
+	 * Like {@link #getFile(String)}, an exact match is preferred.
+	 *
+	 * @param baseName the file name without path and extension.
+	 * @param extension the extension.
+	 * @return The {@link File} or {@code null} if it doesn't exist.
+	 */
+	@Nullable
+	public File getFile(@Nonnull String baseName, @Nonnull String extension) {
+		return getFile(baseName + "." + extension);
+	}
+
+	/**
+	 * Normalizes a file name for lookup.
+	 *
+	 * @param fileName the file name.
+	 * @return The normalized file name.
+	 */
+	protected static String normalize(String fileName) {
+		return CASE_INSENSITIVE ? fileName.toLowerCase(Locale.ROOT) : fileName;
+	}
+}
@@ -22,6 +22,7 @@ package net.pms.util;
 import java.io.*;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.text.CollationKey;
 import java.text.Collator;
 import java.util.*;
 import java.util.List;
@@ -92,69 +93,125 @@ public class UMSUtils {
 
 	/**
 	 * Sorts a list of files using a custom method.
+	 * <p>
+	 * The sort key of each file (the name prepared for sorting, its
+	 * {@link CollationKey} or the modification time) is computed once before
+	 * sorting, since renaming for sorting and {@link File#lastModified()} are
+	 * too expensive to repeat for every comparison in large folders.
 	 *
 	 * @param files
 	 * @param method
 	 * @see #sort(java.util.ArrayList, int)
 	 */
 	public static void sort(List<File> files, int method) {
+		if (files.size() < 2) {
+			return;
+		}
+		List<SortEntry> entries;
 		switch (method) {
 			case SORT_NO_SORT: // no sorting
-				break;
+				return;
 			case SORT_LOC_NAT: // Locale-sensitive natural sort
-				Collections.sort(files, new Comparator<File>() {
+				entries = createSortEntries(files, method);
+				Collections.sort(entries, new Comparator<SortEntry>() {
 					@Override
-					public int compare(File f1, File f2) {
-						String filename1ToSort = FileUtil.renameForSorting(f1.getName());
-						String filename2ToSort = FileUtil.renameForSorting(f2.getName());
-
-						return NaturalComparator.compareNatural(collator, filename1ToSort, filename2ToSort);
+					public int compare(SortEntry e1, SortEntry e2) {
+						return NaturalComparator.compareNatural(collator, e1.name, e2.name);
 					}
 				});
 				break;
 			case SORT_INS_ASCII: // Case-insensitive ASCIIbetical sort
-				Collections.sort(files, new Comparator<File>() {
+				entries = createSortEntries(files, method);
+				Collections.sort(entries, new Comparator<SortEntry>() {
 					@Override
-					public int compare(File f1, File f2) {
-						String filename1ToSort = FileUtil.renameForSorting(f1.getName());
-						String filename2ToSort = FileUtil.renameForSorting(f2.getName());
-
-						return filename1ToSort.compareToIgnoreCase(filename2ToSort);
+					public int compare(SortEntry e1, SortEntry e2) {
+						return e1.name.compareToIgnoreCase(e2.name);
 					}
 				});
 				break;
 			case SORT_MOD_OLD: // Sort by modified date, oldest first
-				Collections.sort(files, new Comparator<File>() {
+				entries = createSortEntries(files, method);
+				Collections.sort(entries, new Comparator<SortEntry>() {
 					@Override
-					public int compare(File f1, File f2) {
-						return Long.valueOf(f1.lastModified()).compareTo(f2.lastModified());
+					public int compare(SortEntry e1, SortEntry e2) {
+						return Long.compare(e1.lastModified, e2.lastModified);
 					}
 				});
 				break;
 			case SORT_MOD_NEW: // Sort by modified date, newest first
-				Collections.sort(files, new Comparator<File>() {
+				entries = createSortEntries(files, method);
+				Collections.sort(entries, new Comparator<SortEntry>() {
 					@Override
-					public int compare(File f1, File f2) {
-						return Long.valueOf(f2.lastModified()).compareTo(f1.lastModified());
+					public int compare(SortEntry e1, SortEntry e2) {
+						return Long.compare(e2.lastModified, e1.lastModified);
 					}
 				});
 				break;
 			case SORT_RANDOM: // Random
 				Collections.shuffle(files, new Random(System.currentTimeMillis()));
-				break;
+				return;
 			case SORT_LOC_SENS: // Same as default
 			default: // Locale-sensitive A-Z
-				Collections.sort(files, new Comparator<File>() {
+				entries = createSortEntries(files, SORT_LOC_SENS);
+				Collections.sort(entries, new Comparator<SortEntry>() {
 					@Override
-					public int compare(File f1, File f2) {
-						String filename1ToSort = FileUtil.renameForSorting(f1.getName());
-						String filename2ToSort = FileUtil.renameForSorting(f2.getName());
-
-						return collator.compare(filename1ToSort, filename2ToSort);
+					public int compare(SortEntry e1, SortEntry e2) {
+						return e1.collationKey.compareTo(e2.collationKey);
 					}
 				});
 				break;
 		}
+
+		ListIterator<File> iterator = files.listIterator();
+		for (SortEntry entry : entries) {
+			iterator.next();
+			iterator.set(entry.file);
+		}
+	}
+
+	/**
+	 * Creates the {@link SortEntry} instances for the specified files,
+	 * computing only the sort key that the specified sort method uses.
+	 *
+	 * @param files the {@link List} of {@link File}s to sort.
+	 * @param method the sort method.
+	 * @return The {@link List} of {@link SortEntry} instances.
+	 */
+	private static List<SortEntry> createSortEntries(List<File> files, int method) {
+		List<SortEntry> entries = new ArrayList<>(files.size());
+		for (File file : files) {
+			switch (method) {
+				case SORT_MOD_OLD:
+				case SORT_MOD_NEW:
+					entries.add(new SortEntry(file, null, null, file.lastModified()));
+					break;
+				case SORT_LOC_SENS:
+					String name = FileUtil.renameForSorting(file.getName());
+					entries.add(new SortEntry(file, name, collator.getCollationKey(name), 0));
+					break;
+				default:
+					entries.add(new SortEntry(file, FileUtil.renameForSorting(file.getName()), null, 0));
+					break;
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Holds a {@link File} with its precomputed sort key.
+	 */
+	private static final class SortEntry {
+		private final File file;
+		private final String name;
+		private final CollationKey collationKey;
+		private final long lastModified;
+
+		private SortEntry(File file, String name, CollationKey collationKey, long lastModified) {
+			this.file = file;
+			this.name = name;
+			this.collationKey = collationKey;
+			this.lastModified = lastModified;
+		}
 	}
 
 	public static String playedDurationStr(String current, String duration) {
@@ -0,0 +1,117 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.dlna;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import java.io.File;
+import java.util.Collections;
+import net.pms.PMS;
+import net.pms.configuration.MapFileConfiguration;
+import net.pms.configuration.RendererConfiguration;
+import net.pms.dlna.virtual.VirtualFolder;
+import org.apache.commons.configuration.ConfigurationException;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+public class GlobalIdRepoTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUpClass() throws ConfigurationException, InterruptedException {
+		// Silence all log messages from the DMS code that is being tested
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		PMS.setTestConfiguration();
+		PMS.get();
+	}
+
+	/**
+	 * A renderer that uses MediaInfo and the tree hack, which makes
+	 * {@link DLNAResource#discoverWithRenderer} only analyze the requested
+	 * number of children.
+	 */
+	private static RendererConfiguration createTreeHackRenderer() {
+		return new RendererConfiguration(0) {
+
+			@Override
+			public boolean isUseMediaInfo() {
+				return true;
+			}
+
+			@Override
+			public boolean isDLNATreeHack() {
+				return true;
+			}
+		};
+	}
+
+	private MapFile createMapFile(String... subfolders) throws Exception {
+		File folder = temporaryFolder.newFolder("media");
+		for (String subfolder : subfolders) {
+			assertThat(new File(folder, subfolder).mkdir()).isTrue();
+		}
+		MapFileConfiguration conf = new MapFileConfiguration();
+		conf.setName("media");
+		conf.setFiles(Collections.singletonList(folder));
+		MapFile mapFile = new MapFile(conf);
+		new VirtualFolder("root", null).addChild(mapFile);
+		return mapFile;
+	}
+
+	@Test
+	public void testRestoreEvictedWithTreeHack() throws Exception {
+		boolean hideEmptyFolders = PMS.getConfiguration().isHideEmptyFolders();
+		PMS.getConfiguration().setHideEmptyFolders(false);
+		try {
+			RendererConfiguration renderer = createTreeHackRenderer();
+			MapFile mapFile = createMapFile("A", "B", "C");
+			mapFile.discoverWithRenderer(renderer, -1, false, null);
+			assertThat(mapFile.isDiscovered()).isTrue();
+			assertThat(mapFile.getChildren()).hasSize(3);
+			DLNAResource child = mapFile.getChildren().get(2);
+			String childId = child.getId();
+			String childName = child.getName();
+
+			GlobalIdRepo repo = PMS.getGlobalRepo();
+			assertThat(repo.evictIdleFolders(-60000L)).isGreaterThanOrEqualTo(3);
+			assertThat(repo.exists(childId)).isFalse();
+			assertThat(mapFile.isDiscovered()).isFalse();
+			assertThat(mapFile.getChildren()).isEmpty();
+
+			// Requesting the evicted id must discover all the children again
+			DLNAResource restored = mapFile.getDLNAResource(childId, renderer);
+			assertThat(restored).isNotNull();
+			assertThat(restored.getId()).isEqualTo(childId);
+			assertThat(restored.getName()).isEqualTo(childName);
+			assertThat(mapFile.getChildren()).hasSize(3);
+			assertThat(repo.exists(childId)).isTrue();
+		} finally {
+			PMS.getConfiguration().setHideEmptyFolders(hideEmptyFolders);
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.dlna;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import net.pms.dlna.LibraryScanner.Fingerprint;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class LibraryScannerTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private static File createFile(File folder, String name, String content, long lastModified) throws IOException {
+		File file = new File(folder, name);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		assertThat(file.setLastModified(lastModified)).isTrue();
+		return file;
+	}
+
+	@Test
+	public void testUnchangedFolder() throws IOException {
+		File folder = temporaryFolder.newFolder("unchanged");
+		createFile(folder, "a.mkv", "a", 1500000000000L);
+		createFile(folder, "b.mkv", "bb", 1500000000000L);
+
+		Fingerprint first = LibraryScanner.calculateFingerprint(folder);
+		Fingerprint second = LibraryScanner.calculateFingerprint(folder);
+		assertThat(first).isNotNull();
+		assertThat(second).isNotNull();
+		assertThat(second.value).isEqualTo(first.value);
+		assertThat(second.modified).isEqualTo(first.modified);
+		assertThat(first.path).isEqualTo(folder.getAbsolutePath());
+	}
+
+	@Test
+	public void testAddedFile() throws IOException {
+		File folder = temporaryFolder.newFolder("added");
+		createFile(folder, "a.mkv", "a", 1500000000000L);
+		long before = LibraryScanner.calculateFingerprint(folder).value;
+
+		createFile(folder, "b.mkv", "b", 1500000000000L);
+		assertThat(LibraryScanner.calculateFingerprint(folder).value).isNotEqualTo(before);
+	}
+
+	@Test
+	public void testRemovedFile() throws IOException {
+		File folder = temporaryFolder.newFolder("removed");
+		createFile(folder, "a.mkv", "a", 1500000000000L);
+		File b = createFile(folder, "b.mkv", "b", 1500000000000L);
+		long before = LibraryScanner.calculateFingerprint(folder).value;
+
+		assertThat(b.delete()).isTrue();
+		assertThat(LibraryScanner.calculateFingerprint(folder).value).isNotEqualTo(before);
+	}
+
+	@Test
+	public void testRenamedFile() throws IOException {
+		File folder = temporaryFolder.newFolder("renamed");
+		File a = createFile(folder, "a.mkv", "a", 1500000000000L);
+		long before = LibraryScanner.calculateFingerprint(folder).value;
+
+		assertThat(a.renameTo(new File(folder, "c.mkv"))).isTrue();
+		assertThat(LibraryScanner.calculateFingerprint(folder).value).isNotEqualTo(before);
+	}
+
+	@Test
+	public void testModifiedFile() throws IOException {
+		File folder = temporaryFolder.newFolder("modified");
+		File a = createFile(folder, "a.mkv", "a", 1500000000000L);
+		long before = LibraryScanner.calculateFingerprint(folder).value;
+
+		// Same size, different modification time
+		assertThat(a.setLastModified(1500000010000L)).isTrue();
+		long touched = LibraryScanner.calculateFingerprint(folder).value;
+		assertThat(touched).isNotEqualTo(before);
+
+		// Same modification time, different size
+		createFile(folder, "a.mkv", "aa", 1500000010000L);
+		assertThat(LibraryScanner.calculateFingerprint(folder).value).isNotEqualTo(touched);
+	}
+
+	@Test
+	public void testEqualFolders() throws IOException {
+		File first = temporaryFolder.newFolder("first");
+		File second = temporaryFolder.newFolder("second");
+		createFile(first, "a.mkv", "a", 1500000000000L);
+		createFile(second, "a.mkv", "a", 1500000000000L);
+
+		// The fingerprint only depends on the entries, not on the folder itself
+		assertThat(LibraryScanner.calculateFingerprint(second).value).isEqualTo(
+			LibraryScanner.calculateFingerprint(first).value
+		);
+	}
+
+	@Test
+	public void testSubfolders() throws IOException {
+		File folder = temporaryFolder.newFolder("subfolders");
+		File movies = new File(folder, "Movies");
+		File videoTs = new File(folder, "VIDEO_TS");
+		assertThat(movies.mkdir()).isTrue();
+		assertThat(videoTs.mkdir()).isTrue();
+		createFile(folder, "a.mkv", "a", 1500000000000L);
+
+		Fingerprint fingerprint = LibraryScanner.calculateFingerprint(folder);
+		assertThat(fingerprint.subfolders).containsExactly(movies);
+
+		// A new subfolder changes the fingerprint
+		long before = fingerprint.value;
+		assertThat(new File(folder, "Series").mkdir()).isTrue();
+		assertThat(LibraryScanner.calculateFingerprint(folder).value).isNotEqualTo(before);
+	}
+
+	@Test
+	public void testNotAFolder() throws IOException {
+		File folder = temporaryFolder.newFolder("file");
+		File file = createFile(folder, "a.mkv", "a", 1500000000000L);
+		assertThat(LibraryScanner.calculateFingerprint(file)).isNull();
+		assertThat(LibraryScanner.calculateFingerprint(new File(folder, "missing"))).isNull();
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+
+public class ProbeCacheTest {
+
+	private static final String JAVA = new File(
+		new File(System.getProperty("java.home"), "bin"),
+		System.getProperty("os.name").startsWith("Windows") ? "java.exe" : "java"
+	).getAbsolutePath();
+
+	@Test
+	public void testRunWithoutDatabase() throws InterruptedException {
+		ListProcessWrapperResult result = ProbeCache.runProcessListOutput(30000, 1000, JAVA, "-version");
+		assertThat(result.getError()).isNull();
+		assertThat(result.getExitCode()).isEqualTo(0);
+		assertThat(result.getOutput()).isNotEmpty();
+	}
+
+	@Test
+	public void testPrefetchIsUsedOnce() throws InterruptedException {
+		List<String> key = Arrays.asList(JAVA, "-version");
+		ProbeCache.prefetch(30000, 1000, JAVA, new String[] {"-version"});
+		ProbeCache.Prefetch prefetch = ProbeCache.PREFETCHED.get(key);
+		assertThat(prefetch).isNotNull();
+
+		ListProcessWrapperResult result = ProbeCache.runProcessListOutput(30000, 1000, JAVA, "-version");
+		assertThat(prefetch.isDone()).isTrue();
+		assertThat(ProbeCache.PREFETCHED).doesNotContainKey(key);
+		assertThat(result.getExitCode()).isEqualTo(0);
+
+		// The next call runs the command again and gives the same output
+		ListProcessWrapperResult rerun = ProbeCache.runProcessListOutput(30000, 1000, JAVA, "-version");
+		assertThat(rerun.getOutput()).isEqualTo(result.getOutput());
+	}
+
+	@Test
+	public void testPrefetchReplacesPrevious() {
+		List<String> key = Arrays.asList(JAVA, "-help");
+		ProbeCache.prefetch(30000, 1000, JAVA, new String[] {"-help"});
+		ProbeCache.Prefetch first = ProbeCache.PREFETCHED.get(key);
+		ProbeCache.prefetch(30000, 1000, JAVA, new String[] {"-help"});
+		ProbeCache.Prefetch second = ProbeCache.PREFETCHED.get(key);
+		assertThat(second).isNotNull().isNotSameAs(first);
+		ProbeCache.PREFETCHED.remove(key);
+	}
+
+	@Test
+	public void testMissingExecutable() throws InterruptedException {
+		File missing = new File(System.getProperty("java.io.tmpdir"), "dms-probe-cache-test-missing");
+		ListProcessWrapperResult result = ProbeCache.runProcessListOutput(5000, 1000, missing.getAbsolutePath(), "-version");
+		assertThat(result.getError()).isNotNull();
+		assertThat(result.getExitCode()).isNotEqualTo(0);
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import java.nio.charset.StandardCharsets;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.junit.Test;
+
+
+public class ChannelBufferWriterTest {
+
+	private static byte[] toBytes(ChannelBuffer buffer) {
+		byte[] result = new byte[buffer.readableBytes()];
+		buffer.getBytes(buffer.readerIndex(), result);
+		return result;
+	}
+
+	private static byte[] utf8(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testEmpty() {
+		ChannelBufferWriter writer = new ChannelBufferWriter();
+		assertThat(writer.length()).isEqualTo(0);
+		assertThat(writer.toChannelBuffer().readableBytes()).isEqualTo(0);
+	}
+
+	@Test
+	public void testAppend() {
+		ChannelBufferWriter writer = new ChannelBufferWriter();
+		writer.append("<DIDL-Lite>").append('x').append("abcdef", 1, 3).append(42).append(-7L).append((CharSequence) null);
+		assertThat(writer.length()).isEqualTo(utf8("<DIDL-Lite>xbc42-7null").length);
+		assertThat(toBytes(writer.toChannelBuffer())).isEqualTo(utf8("<DIDL-Lite>xbc42-7null"));
+	}
+
+	@Test
+	public void testMultipleChunks() {
+		// Multi-byte characters make the chunk boundaries fall inside characters
+		StringBuilder sb = new StringBuilder();
+		ChannelBufferWriter writer = new ChannelBufferWriter();
+		for (int i = 0; i < 20000; i++) {
+			String s = "æøå€" + i;
+			sb.append(s);
+			writer.append(s);
+		}
+		byte[] expected = utf8(sb.toString());
+		assertThat(expected.length).isGreaterThan(ChannelBufferWriter.CHUNK_SIZE * 3);
+		assertThat(writer.length()).isEqualTo(expected.length);
+		assertThat(toBytes(writer.toChannelBuffer())).isEqualTo(expected);
+	}
+
+	@Test
+	public void testSurrogatePairs() {
+		String pile = "💩";
+		ChannelBufferWriter writer = new ChannelBufferWriter();
+		writer.append(pile);
+		assertThat(toBytes(writer.toChannelBuffer())).isEqualTo(utf8(pile)).hasSize(4);
+	}
+
+	@Test
+	public void testSplitSurrogatePairs() {
+		ChannelBufferWriter writer = new ChannelBufferWriter();
+		writer.append('a').append('\ud83d').append('\udca9');
+		writer.append("b\ud83c").append("\udfb5c");
+		writer.append("🎥\ud83d", 0, 3).append("");
+		writer.append("\udcfa", 0, 1);
+		assertThat(toBytes(writer.toChannelBuffer())).isEqualTo(utf8("a💩b🎵c🎥📺"));
+	}
+
+	@Test
+	public void testSurrogatePairsAcrossChunks() {
+		StringBuilder sb = new StringBuilder();
+		ChannelBufferWriter writer = new ChannelBufferWriter();
+		for (int i = 0; i < 10000; i++) {
+			sb.append("x💩");
+			writer.append("x\ud83d").append("\udca9");
+		}
+		assertThat(toBytes(writer.toChannelBuffer())).isEqualTo(utf8(sb.toString()));
+	}
+
+	@Test
+	public void testUnpairedSurrogates() {
+		// Unpaired surrogates are replaced like String.getBytes() does
+		ChannelBufferWriter writer = new ChannelBufferWriter();
+		writer.append("a\ud83d").append("b").append('\ud83d').append('\ud83d').append('\udca9').append("\udca9c\ud83d");
+		assertThat(toBytes(writer.toChannelBuffer())).isEqualTo(utf8("a\ud83db\ud83d💩\udca9c\ud83d"));
+	}
+
+	@Test
+	public void testFinished() {
+		ChannelBufferWriter writer = new ChannelBufferWriter();
+		writer.append("abc");
+		ChannelBuffer first = writer.toChannelBuffer();
+		assertThat(toBytes(writer.toChannelBuffer())).isEqualTo(toBytes(first));
+		try {
+			writer.append("d");
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+	}
+}
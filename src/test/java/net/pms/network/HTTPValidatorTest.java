@@ -0,0 +1,117 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.Test;
+
+
+public class HTTPValidatorTest {
+
+	/** Fri, 14 Jul 2017 02:40:00 GMT */
+	private static final long TIME = 1500000000000L;
+	private static final String DATE = "Fri, 14 Jul 2017 02:40:00 GMT";
+
+	@Test
+	public void testCreateETag() {
+		String eTag = HTTPValidator.createETag("image.png", "1.0", Long.valueOf(TIME));
+		assertThat(eTag).startsWith("\"").endsWith("\"").hasSize(42);
+		assertThat(HTTPValidator.createETag("image.png", "1.0", Long.valueOf(TIME))).isEqualTo(eTag);
+		assertThat(HTTPValidator.createETag("image.png", "1.0", Long.valueOf(TIME + 1000))).isNotEqualTo(eTag);
+		assertThat(HTTPValidator.createETag("image.png", "1.1", Long.valueOf(TIME))).isNotEqualTo(eTag);
+		assertThat(HTTPValidator.createETag("image.jpg", "1.0", Long.valueOf(TIME))).isNotEqualTo(eTag);
+		assertThat(HTTPValidator.createETag("a|b", "c")).isNotEqualTo(HTTPValidator.createETag("a", "b|c"));
+	}
+
+	@Test
+	public void testFormatDate() {
+		assertThat(HTTPValidator.formatDate(TIME)).isEqualTo(DATE);
+		assertThat(HTTPValidator.formatDate(TIME + 999)).isEqualTo(DATE);
+		assertThat(HTTPValidator.formatDate(0)).isEqualTo("Thu, 01 Jan 1970 00:00:00 GMT");
+	}
+
+	@Test
+	public void testIfNoneMatch() {
+		String eTag = HTTPValidator.createETag("file");
+		String other = HTTPValidator.createETag("other");
+		assertThat(HTTPValidator.isNotModified(eTag, null, eTag, 0)).isTrue();
+		assertThat(HTTPValidator.isNotModified(" " + eTag + " ", null, eTag, 0)).isTrue();
+		assertThat(HTTPValidator.isNotModified(other, null, eTag, 0)).isFalse();
+		assertThat(HTTPValidator.isNotModified(other + ", " + eTag, null, eTag, 0)).isTrue();
+		assertThat(HTTPValidator.isNotModified(other + "," + other, null, eTag, 0)).isFalse();
+		assertThat(HTTPValidator.isNotModified("*", null, eTag, 0)).isTrue();
+		assertThat(HTTPValidator.isNotModified("*", null, null, 0)).isFalse();
+		assertThat(HTTPValidator.isNotModified(eTag, null, null, TIME)).isFalse();
+		assertThat(HTTPValidator.isNotModified("", null, eTag, 0)).isFalse();
+		assertThat(HTTPValidator.isNotModified(null, null, eTag, 0)).isFalse();
+	}
+
+	@Test
+	public void testIfNoneMatchWeak() {
+		String eTag = HTTPValidator.createETag("file");
+		assertThat(HTTPValidator.isNotModified("W/" + eTag, null, eTag, 0)).isTrue();
+		assertThat(HTTPValidator.isNotModified(eTag, null, "W/" + eTag, 0)).isTrue();
+		assertThat(HTTPValidator.isNotModified("W/" + eTag, null, "W/" + eTag, 0)).isTrue();
+		assertThat(HTTPValidator.isNotModified("W/" + HTTPValidator.createETag("other"), null, eTag, 0)).isFalse();
+	}
+
+	@Test
+	public void testIfNoneMatchPrecedence() {
+		String eTag = HTTPValidator.createETag("file");
+		String other = HTTPValidator.createETag("other");
+		// A matching date doesn't help if the entity tag doesn't match
+		assertThat(HTTPValidator.isNotModified(other, DATE, eTag, TIME)).isFalse();
+		// A newer modification time doesn't matter if the entity tag matches
+		assertThat(HTTPValidator.isNotModified(eTag, DATE, eTag, TIME + 60000)).isTrue();
+		// Without If-None-Match the date is used
+		assertThat(HTTPValidator.isNotModified(null, DATE, eTag, TIME)).isTrue();
+		assertThat(HTTPValidator.isNotModified(" ", DATE, eTag, TIME)).isTrue();
+	}
+
+	@Test
+	public void testIfModifiedSince() {
+		assertThat(HTTPValidator.isNotModified(null, DATE, null, TIME)).isTrue();
+		assertThat(HTTPValidator.isNotModified(null, " " + DATE + " ", null, TIME)).isTrue();
+		assertThat(HTTPValidator.isNotModified(null, DATE, null, TIME - 60000)).isTrue();
+		assertThat(HTTPValidator.isNotModified(null, DATE, null, TIME + 1000)).isFalse();
+		assertThat(HTTPValidator.isNotModified(null, DATE, null, TIME + 60000)).isFalse();
+		assertThat(HTTPValidator.isNotModified(null, null, null, TIME)).isFalse();
+		assertThat(HTTPValidator.isNotModified(null, "", null, TIME)).isFalse();
+	}
+
+	@Test
+	public void testIfModifiedSinceResolution() {
+		// HTTP dates have a resolution of one second
+		assertThat(HTTPValidator.isNotModified(null, DATE, null, TIME + 999)).isTrue();
+		assertThat(HTTPValidator.isNotModified(null, HTTPValidator.formatDate(TIME + 500), null, TIME + 999)).isTrue();
+	}
+
+	@Test
+	public void testIfModifiedSinceUnknown() {
+		assertThat(HTTPValidator.isNotModified(null, DATE, null, 0)).isFalse();
+		assertThat(HTTPValidator.isNotModified(null, DATE, HTTPValidator.createETag("file"), 0)).isFalse();
+	}
+
+	@Test
+	public void testIfModifiedSinceInvalid() {
+		assertThat(HTTPValidator.isNotModified(null, "invalid", null, TIME)).isFalse();
+		assertThat(HTTPValidator.isNotModified(null, "Friday, 14-Jul-17 02:40:00 GMT", null, TIME)).isFalse();
+		assertThat(HTTPValidator.isNotModified(null, "2017-07-14T02:40:00Z", null, TIME)).isFalse();
+	}
+}
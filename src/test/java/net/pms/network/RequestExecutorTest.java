@@ -0,0 +1,121 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import net.pms.network.RequestExecutor.Pool;
+import org.junit.Test;
+
+
+public class RequestExecutorTest {
+
+	@Test
+	public void testGetPool() {
+		assertThat(RequestExecutor.getPool(null)).isEqualTo(Pool.CONTROL);
+		assertThat(RequestExecutor.getPool("")).isEqualTo(Pool.CONTROL);
+		assertThat(RequestExecutor.getPool("description/fetch")).isEqualTo(Pool.CONTROL);
+		assertThat(RequestExecutor.getPool("upnp/control/content_directory")).isEqualTo(Pool.CONTROL);
+		assertThat(RequestExecutor.getPool("console/index.html")).isEqualTo(Pool.CONTROL);
+		assertThat(RequestExecutor.getPool("images/thumbnail-video-256.png")).isEqualTo(Pool.CONTROL);
+		assertThat(RequestExecutor.getPool("get")).isEqualTo(Pool.CONTROL);
+
+		assertThat(RequestExecutor.getPool("get/0$1$2/thumbnail0000movie.mkv")).isEqualTo(Pool.THUMBNAIL);
+		assertThat(RequestExecutor.getPool("get/12/thumbnail0000JPEG_TN_movie.mkv")).isEqualTo(Pool.THUMBNAIL);
+
+		assertThat(RequestExecutor.getPool("get/12/movie.mkv")).isEqualTo(Pool.MEDIA);
+		assertThat(RequestExecutor.getPool("get/12/movie_thumbnail0000.mkv")).isEqualTo(Pool.MEDIA);
+		assertThat(RequestExecutor.getPool("get/thumbnail0000")).isEqualTo(Pool.MEDIA);
+		assertThat(RequestExecutor.getPool("get/12/subtitle0000movie.srt")).isEqualTo(Pool.MEDIA);
+	}
+
+	@Test
+	public void testExecute() throws InterruptedException {
+		RequestExecutor executor = new RequestExecutor();
+		try {
+			final CountDownLatch done = new CountDownLatch(1);
+			final AtomicReference<String> threadName = new AtomicReference<>();
+			assertThat(executor.execute(Pool.MEDIA, new Runnable() {
+
+				@Override
+				public void run() {
+					threadName.set(Thread.currentThread().getName());
+					done.countDown();
+				}
+			})).isTrue();
+			assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(threadName.get()).startsWith("HTTP Media");
+			assertThat(executor.getStatistics(Pool.MEDIA).getCount()).isEqualTo(1);
+			assertThat(executor.getStatistics(Pool.CONTROL).getCount()).isEqualTo(0);
+			assertThat(executor.getStatistics(Pool.THUMBNAIL).getCount()).isEqualTo(0);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testRejection() throws InterruptedException {
+		RequestExecutor executor = new RequestExecutor();
+		final CountDownLatch release = new CountDownLatch(1);
+		try {
+			Runnable blocking = new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+			int capacity = executor.executors.get(Pool.THUMBNAIL).getMaximumPoolSize() + RequestExecutor.MAX_QUEUED;
+			for (int i = 0; i < capacity; i++) {
+				assertThat(executor.execute(Pool.THUMBNAIL, blocking)).isTrue();
+			}
+			// The full queue doesn't affect the other pools
+			assertThat(executor.execute(Pool.THUMBNAIL, blocking)).isFalse();
+			assertThat(executor.execute(Pool.CONTROL, blocking)).isTrue();
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+		assertThat(executor.execute(Pool.CONTROL, new Runnable() {
+
+			@Override
+			public void run() {
+			}
+		})).isFalse();
+	}
+
+	@Test
+	public void testWaitStatistics() {
+		RequestExecutor.WaitStatistics statistics = new RequestExecutor.WaitStatistics();
+		assertThat(statistics.getCount()).isEqualTo(0);
+		assertThat(statistics.getAverageWaitMS()).isEqualTo(0d);
+		statistics.add(TimeUnit.MILLISECONDS.toNanos(10));
+		statistics.add(TimeUnit.MILLISECONDS.toNanos(30));
+		statistics.add(TimeUnit.MILLISECONDS.toNanos(20));
+		assertThat(statistics.getCount()).isEqualTo(3);
+		assertThat(statistics.getAverageWaitMS()).isEqualTo(20d);
+		assertThat(statistics.getMaxWaitMS()).isEqualTo(30d);
+	}
+}
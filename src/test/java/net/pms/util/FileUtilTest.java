@@ -28,6 +28,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Random;
 import net.pms.PMS;
+import net.pms.configuration.PmsConfiguration;
 import net.pms.util.FilePermissions.FileFlag;
 import static net.pms.util.Constants.*;
 import org.apache.commons.configuration.ConfigurationException;
@@ -133,6 +134,92 @@ public class FileUtilTest {
 		//assertThat(FileUtil.getFileNamePrettified("[FanSubbers] Digital Media Server S1 EP02 (BD 1280x720 x264 AAC ASS(EN)) [700D423E].mkv")).isEqualTo("Digital Media Server - 102");
 	}
 
+	/**
+	 * File names and their prettified names as returned by
+	 * {@link FileUtil#getFileNamePrettified(String)} before the results were
+	 * memoized.
+	 */
+	private static final String[][] PRETTIFIED_NAMES = {
+		{"Digital.Media.Server.S01E02.720p.mkv", "Digital Media Server - 102"},
+		{"Digital.Media.Server.S12E03.720p.mkv", "Digital Media Server - 1203"},
+		{"Digital.Media.Server.S01E02E03.720p.mkv", "Digital Media Server - 102-03"},
+		{"Digital.Media.Server.S01E02-E03.720p.mkv", "Digital Media Server - 102-03"},
+		{"Digital.Media.Server.S12E03E04.720p.mkv", "Digital Media Server - 1203-04"},
+		{"Digital.Media.Server.S12E03-E04.720p.mkv", "Digital Media Server - 1203-04"},
+		{"Digital.Media.Server.S01E02.EXTENDED.720p.mkv", "Digital Media Server - 102"},
+		{"Digital.Media.Server.S01E02.Mysterious.Wordplay.720p.mkv", "Digital Media Server - 102 - Mysterious Wordplay"},
+		{"Digital.Media.Server.S12E03.Mysterious.Wordplay.720p.mkv", "Digital Media Server - 1203 - Mysterious Wordplay"},
+		{"Digital.Media.Server.S01E02E03.Mysterious.Wordplay.720p.mkv", "Digital Media Server - 102-03 - Mysterious Wordplay"},
+		{"Digital.Media.Server.S01E02.UNCUT.720p.mkv", "Digital Media Server - 102 (Uncut)"},
+		{"Digital.Media.Server.S01E02.Extended.Cut.720p.mkv", "Digital Media Server - 102 (Extended Cut)"},
+		{"Digital.Media.Server.S12E03.Directors.Cut.PROPER.1080p.mkv", "Digital Media Server - 1203 (Directors Cut)"},
+		{"digital.media.server.s01e02.hdtv.x264.mkv", "Digital Media Server - 102"},
+		{"Digital.Media.Server.2015.01.23.720p.mkv", "Digital Media Server - 2015/01/23"},
+		{"Digital.Media.Server.2015.01.23.Mysterious.Wordplay.720p.mkv", "Digital Media Server - 2015/01/23 - Mysterious Wordplay"},
+		{"Digital.Media.Server.2015.720p.mkv", "Digital Media Server (2015)"},
+		{"Digital.Media.Server.Special.Edition.2015.720p.mkv", "Digital Media Server (2015) (Special Edition)"},
+		{"Digital.Media.Server.2015.Special.Edition.720p.mkv", "Digital Media Server (2015) (Special Edition)"},
+		{"digital.media.server.1999.dvdrip.avi", "Digital Media Server (1999)"},
+		{"Digital.Media.Server.2015.Remastered.PROPER.BluRay.mkv", "Digital Media Server (2015) (Remastered)"},
+		{"Digital Media Server [2015] [1080p].mkv", "Digital Media Server (2015)"},
+		{"Digital Media Server (2015) DVDRip.avi", "Digital Media Server (2015)"},
+		{"[FanSubbers]_Digital_Media_Server_02_[700D423E].mp4", "Digital Media Server 02"},
+		{"[FanSubbers]_Digital_Media_Server_-_02_[720p][700D423E].mkv", "Digital Media Server - 02"},
+		{"Digital Media Server - 02 [BD.1080p] [700D423E].mkv", "Digital Media Server - 02"},
+		{"[FanSubbers] Digital Media Server 02 [720p].mkv", "Digital Media Server 02"},
+		{"Digital_Media_Server_-_03_[h264].mkv", "Digital Media Server - 03"},
+		{"Digital.Media.Server.720p.BluRay.x264.mkv", "Digital Media Server"},
+		{"Digital.Media.Server.Uncut.DVDRip.avi", "Digital Media Server (Uncut)"},
+		{"[Group] Digital Media Server.mkv", "Digital Media Server"},
+		{"[Digital Media Server].mkv", "Digital Media Server"},
+		{"Digital Media Server.mkv", "Digital Media Server"},
+		{"Holiday video.mp4", "Holiday video"},
+		{"IMG_1234.JPG", "IMG_1234"},
+		{"no_extension", "no_extension"}
+	};
+
+	private static void assertPrettifiedNames() {
+		for (String[] name : PRETTIFIED_NAMES) {
+			assertThat(FileUtil.getFileNamePrettified(name[0])).as(name[0]).isEqualTo(name[1]);
+		}
+	}
+
+	@Test
+	public void testGetFileNamePrettifiedMemoized() throws Exception {
+		PmsConfiguration configuration = PMS.getConfiguration();
+		boolean prettifyFilenames = configuration.isPrettifyFilenames();
+		boolean useInfoFromIMDb = configuration.isUseInfoFromIMDb();
+		try {
+			configuration.setPrettifyFilenames(true);
+			for (boolean imdb : new boolean[] {false, true, false}) {
+				configuration.setUseInfoFromIMDb(imdb);
+				assertThat(configuration.isUseInfoFromIMDb()).isEqualTo(imdb);
+
+				// The first round parses the names, the second uses the memoized results
+				assertPrettifiedNames();
+				assertPrettifiedNames();
+			}
+		} finally {
+			configuration.setPrettifyFilenames(prettifyFilenames);
+			configuration.setUseInfoFromIMDb(useInfoFromIMDb);
+		}
+	}
+
+	@Test
+	public void testGetFileNamePrettifiedEviction() throws Exception {
+		assertPrettifiedNames();
+
+		// Evict all the previous results
+		for (int i = 0; i < 2 * FileUtil.MAX_PRETTIFIED_NAMES; i++) {
+			assertThat(FileUtil.getFileNamePrettified("Show.Name." + i + ".S01E02.720p.mkv")).isEqualTo("Show Name " + i + " - 102");
+		}
+
+		assertPrettifiedNames();
+		for (int i = 0; i < 10; i++) {
+			assertThat(FileUtil.getFileNamePrettified("Show.Name." + i + ".S01E02.720p.mkv")).isEqualTo("Show Name " + i + " - 102");
+		}
+	}
+
 	@Test
 	public void testGetFileCharset_WINDOWS_1251() throws Exception {
 		File file = FileUtils.toFile(CLASS.getResource("russian-cp1251.srt"));
@@ -0,0 +1,202 @@
+/*
+ * Digital Media Server, for streaming digital media to UPnP AV or DLNA
+ * compatible devices based on PS3 Media Server and Universal Media Server.
+ * Copyright (C) 2016 Digital Media Server developers.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see http://www.gnu.org/licenses/.
+ */
+package net.pms.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeFalse;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class FolderIndexTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File folder;
+
+	/** A folder modification time long enough ago to trust the index */
+	private long oldTime;
+
+	@Before
+	public void setUp() throws IOException {
+		folder = temporaryFolder.newFolder("media");
+		oldTime = (System.currentTimeMillis() / 10000 - 6) * 10000;
+	}
+
+	private File createFile(String name) throws IOException {
+		File file = new File(folder, name);
+		assertThat(file.createNewFile()).isTrue();
+		return file;
+	}
+
+	@Test
+	public void testNotAFolder() throws IOException {
+		assertThat(FolderIndex.get(null)).isNull();
+		assertThat(FolderIndex.get(createFile("Movie.mkv"))).isNull();
+		assertThat(FolderIndex.get(new File(folder, "missing"))).isNull();
+	}
+
+	@Test
+	public void testLookup() throws IOException {
+		File movie = createFile("Movie.mkv");
+		File thumbnail = createFile("Movie.jpg");
+		File cover = createFile("Movie.mkv.cover.png");
+		assertThat(new File(folder, "Subfolder").mkdir()).isTrue();
+
+		FolderIndex index = FolderIndex.get(folder);
+		assertThat(index).isNotNull();
+		assertThat(index.getFolder()).isEqualTo(folder);
+		assertThat(index.getFiles()).containsOnly(movie, thumbnail, cover);
+		assertThat(index.getFile("Movie.jpg")).isEqualTo(thumbnail);
+		assertThat(index.getFile("Movie", "jpg")).isEqualTo(thumbnail);
+		assertThat(index.getFile("Movie.mkv.cover.png")).isEqualTo(cover);
+		assertThat(index.contains("Movie.mkv")).isTrue();
+		assertThat(index.contains("Movie.png")).isFalse();
+		assertThat(index.getFile("Movie", "png")).isNull();
+		assertThat(index.getFile("Subfolder")).isNull();
+		assertThat(index.getFile(null)).isNull();
+		assertThat(index.contains(null)).isFalse();
+	}
+
+	@Test
+	public void testCaseInsensitiveLookup() throws IOException {
+		File thumbnail = createFile("MOVIE.JPG");
+
+		FolderIndex index = FolderIndex.get(folder);
+		assertThat(index).isNotNull();
+		assertThat(index.getFile("MOVIE.JPG")).isEqualTo(thumbnail);
+		assertThat(index.getFile("movie.jpg")).isEqualTo(thumbnail);
+		assertThat(index.getFile("Movie", "jpg")).isEqualTo(thumbnail);
+		assertThat(index.getFile("Movie", "JPG")).isEqualTo(thumbnail);
+		assertThat(index.contains("movie.Jpg")).isTrue();
+	}
+
+	@Test
+	public void testExactMatchPreferred() throws IOException {
+		// Both files can only exist on a case-sensitive file system
+		assumeFalse(FolderIndex.CASE_INSENSITIVE);
+		File lowerCase = createFile("cover.jpg");
+		File upperCase = createFile("COVER.jpg");
+
+		FolderIndex index = FolderIndex.get(folder);
+		assertThat(index).isNotNull();
+		assertThat(index.getFile("cover.jpg")).isEqualTo(lowerCase);
+		assertThat(index.getFile("COVER.jpg")).isEqualTo(upperCase);
+		assertThat(index.getFile("Cover.jpg")).isIn(lowerCase, upperCase);
+	}
+
+	@Test
+	public void testHiddenFiles() throws IOException {
+		File visible = createFile("Movie.srt");
+		File hidden = createFile(".Movie.srt");
+
+		FolderIndex index = FolderIndex.get(folder);
+		assertThat(index).isNotNull();
+		assertThat(index.getFiles()).containsOnly(visible, hidden);
+		if (hidden.isHidden()) {
+			assertThat(index.getVisibleFiles()).containsOnly(visible);
+		} else {
+			assertThat(index.getVisibleFiles()).containsOnly(visible, hidden);
+		}
+	}
+
+	@Test
+	public void testCached() throws IOException {
+		createFile("Movie.mkv");
+		assertThat(folder.setLastModified(oldTime)).isTrue();
+
+		FolderIndex index = FolderIndex.get(folder);
+		assertThat(index).isNotNull();
+		assertThat(FolderIndex.get(folder)).isSameAs(index);
+	}
+
+	@Test
+	public void testModified() throws IOException {
+		createFile("Movie.mkv");
+		assertThat(folder.setLastModified(oldTime)).isTrue();
+		FolderIndex index = FolderIndex.get(folder);
+		assertThat(index).isNotNull();
+
+		File added = createFile("Movie.srt");
+		assertThat(folder.setLastModified(oldTime + 10000)).isTrue();
+		FolderIndex newIndex = FolderIndex.get(folder);
+		assertThat(newIndex).isNotSameAs(index);
+		assertThat(newIndex.getFile("Movie.srt")).isEqualTo(added);
+	}
+
+	@Test
+	public void testRecentlyModified() throws IOException {
+		createFile("Movie.mkv");
+		assertThat(folder.setLastModified(System.currentTimeMillis())).isTrue();
+		FolderIndex index = FolderIndex.get(folder);
+		assertThat(index).isNotNull();
+
+		// A file added in the same clock tick doesn't change the modification time
+		long lastModified = folder.lastModified();
+		File added = createFile("Movie.srt");
+		assertThat(folder.setLastModified(lastModified)).isTrue();
+		FolderIndex newIndex = FolderIndex.get(folder);
+		assertThat(newIndex).isNotSameAs(index);
+		assertThat(newIndex.getFile("Movie.srt")).isEqualTo(added);
+	}
+
+	@Test
+	public void testRefresh() throws IOException {
+		createFile("Movie.mkv");
+		assertThat(folder.setLastModified(oldTime)).isTrue();
+		FolderIndex index = FolderIndex.get(folder);
+		assertThat(index).isNotNull();
+
+		File added = createFile("Movie.srt");
+		assertThat(folder.setLastModified(oldTime)).isTrue();
+		assertThat(FolderIndex.get(folder)).isSameAs(index);
+		FolderIndex newIndex = FolderIndex.get(folder, true);
+		assertThat(newIndex).isNotSameAs(index);
+		assertThat(newIndex.getFile("Movie.srt")).isEqualTo(added);
+		assertThat(FolderIndex.get(folder)).isSameAs(newIndex);
+	}
+
+	@Test
+	public void testInvalidate() throws IOException {
+		createFile("Movie.mkv");
+		assertThat(folder.setLastModified(oldTime)).isTrue();
+		FolderIndex index = FolderIndex.get(folder);
+		assertThat(index).isNotNull();
+
+		FolderIndex.invalidate(folder);
+		FolderIndex.invalidate(null);
+		assertThat(FolderIndex.get(folder)).isNotSameAs(index);
+	}
+
+	@Test
+	public void testIsCurrent() {
+		File[] listing = new File[0];
+		long lastModified = oldTime;
+		assertThat(new FolderIndex(folder, lastModified, lastModified + 60000, listing).isCurrent(lastModified)).isTrue();
+		assertThat(new FolderIndex(folder, lastModified, lastModified + 60000, listing).isCurrent(lastModified + 2000)).isFalse();
+		assertThat(new FolderIndex(folder, lastModified, lastModified + 1000, listing).isCurrent(lastModified)).isFalse();
+		assertThat(new FolderIndex(folder, lastModified, lastModified + FolderIndex.MODIFIED_RESOLUTION, listing).isCurrent(lastModified)).isFalse();
+		assertThat(new FolderIndex(folder, lastModified, lastModified - 60000, listing).isCurrent(lastModified)).isFalse();
+	}
+}
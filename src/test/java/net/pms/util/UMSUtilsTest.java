@@ -2,16 +2,60 @@ package net.pms.util;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.LoggerContext;
+import java.io.File;
+import java.io.IOException;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
 import net.pms.PMS;
+import net.pms.configuration.PmsConfiguration;
 import org.apache.commons.configuration.ConfigurationException;
 import static org.assertj.core.api.Assertions.*;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class UMSUtilsTest {
 
+	private static final String[] FILE_NAMES = {
+		"The Matrix.mkv",
+		"the.matrix.reloaded.mkv",
+		"A.Beautiful.Mind.mkv",
+		"a_file.mkv",
+		"Another Movie.mkv",
+		"Episode 10.mkv",
+		"Episode 2.mkv",
+		"episode 1.mkv",
+		"Episode  3.mkv",
+		"\u00c4rger.mkv",
+		"Arger.mkv",
+		"Zebra.mkv",
+		"zebra.mkv",
+		"ABC.mkv",
+		"abc.mkv",
+		"[Group] Anime 02.mkv",
+		"[Group] Anime 10.mkv",
+		"[Group]_Anime_03.mkv",
+		"_underscore.mkv",
+		"file10.txt",
+		"file9.txt",
+		"file09.txt",
+		"Th\u00e9\u00e2tre.avi",
+		"theatre.avi",
+		"1999.mkv",
+		"100.mkv",
+		"2.mkv"
+	};
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	/**
 	 * Set up testing conditions before running the tests.
 	 *
@@ -34,4 +78,127 @@ public class UMSUtilsTest {
 		assertThat(UMSUtils.playedDurationStr("01:23", "01:23:45")).isEqualTo("1:23 / 1:23:45");
 		assertThat(UMSUtils.playedDurationStr(":12", "59")).isEqualTo("0:12 / 0:59");
 	}
+
+	/**
+	 * The comparators {@link UMSUtils#sort(List, int)} used before the sort
+	 * keys were precomputed, used as the reference.
+	 */
+	private static Comparator<File> getReferenceComparator(int method) {
+		final Collator collator = Collator.getInstance();
+		collator.setStrength(Collator.PRIMARY);
+		switch (method) {
+			case UMSUtils.SORT_LOC_NAT:
+				return new Comparator<File>() {
+					@Override
+					public int compare(File f1, File f2) {
+						String filename1ToSort = FileUtil.renameForSorting(f1.getName());
+						String filename2ToSort = FileUtil.renameForSorting(f2.getName());
+
+						return NaturalComparator.compareNatural(collator, filename1ToSort, filename2ToSort);
+					}
+				};
+			case UMSUtils.SORT_INS_ASCII:
+				return new Comparator<File>() {
+					@Override
+					public int compare(File f1, File f2) {
+						String filename1ToSort = FileUtil.renameForSorting(f1.getName());
+						String filename2ToSort = FileUtil.renameForSorting(f2.getName());
+
+						return filename1ToSort.compareToIgnoreCase(filename2ToSort);
+					}
+				};
+			case UMSUtils.SORT_MOD_OLD:
+				return new Comparator<File>() {
+					@Override
+					public int compare(File f1, File f2) {
+						return Long.valueOf(f1.lastModified()).compareTo(f2.lastModified());
+					}
+				};
+			case UMSUtils.SORT_MOD_NEW:
+				return new Comparator<File>() {
+					@Override
+					public int compare(File f1, File f2) {
+						return Long.valueOf(f2.lastModified()).compareTo(f1.lastModified());
+					}
+				};
+			default:
+				return new Comparator<File>() {
+					@Override
+					public int compare(File f1, File f2) {
+						String filename1ToSort = FileUtil.renameForSorting(f1.getName());
+						String filename2ToSort = FileUtil.renameForSorting(f2.getName());
+
+						return collator.compare(filename1ToSort, filename2ToSort);
+					}
+				};
+		}
+	}
+
+	private List<File> createFiles() throws IOException {
+		List<File> files = new ArrayList<>(FILE_NAMES.length);
+		long time = 1500000000000L;
+		for (int i = 0; i < FILE_NAMES.length; i++) {
+			// Each file has its own folder since some names only differ by case
+			File file = new File(folder.newFolder(Integer.toString(i)), FILE_NAMES[i]);
+			assertThat(file.createNewFile()).isTrue();
+			// Every third file has the same modification time as the previous
+			if (i % 3 != 2) {
+				time -= 3600000L * ((i * 7) % 11 - 5);
+			}
+			assertThat(file.setLastModified(time)).isTrue();
+			files.add(file);
+		}
+		Collections.shuffle(files, new Random(1));
+		return files;
+	}
+
+	private static void assertSortedAsReference(List<File> files, int method) {
+		List<File> expected = new ArrayList<>(files);
+		Collections.sort(expected, getReferenceComparator(method));
+		List<File> actual = new ArrayList<>(files);
+		UMSUtils.sort(actual, method);
+		assertThat(actual).as("Sort method " + method).containsExactlyElementsOf(expected);
+	}
+
+	@Test
+	public void testSort() throws Exception {
+		List<File> files = createFiles();
+		PmsConfiguration configuration = PMS.getConfiguration();
+		boolean prettifyFilenames = configuration.isPrettifyFilenames();
+		boolean ignoreTheWordAandThe = configuration.isIgnoreTheWordAandThe();
+		try {
+			for (boolean prettify : new boolean[] {false, true}) {
+				for (boolean ignoreArticles : new boolean[] {false, true}) {
+					configuration.setPrettifyFilenames(prettify);
+					configuration.setIgnoreTheWordAandThe(ignoreArticles);
+					assertSortedAsReference(files, UMSUtils.SORT_LOC_SENS);
+					assertSortedAsReference(files, UMSUtils.SORT_LOC_NAT);
+					assertSortedAsReference(files, UMSUtils.SORT_INS_ASCII);
+					assertSortedAsReference(files, UMSUtils.SORT_MOD_OLD);
+					assertSortedAsReference(files, UMSUtils.SORT_MOD_NEW);
+				}
+			}
+		} finally {
+			configuration.setPrettifyFilenames(prettifyFilenames);
+			configuration.setIgnoreTheWordAandThe(ignoreTheWordAandThe);
+		}
+	}
+
+	@Test
+	public void testSortUnsorted() throws Exception {
+		List<File> files = createFiles();
+		List<File> actual = new ArrayList<>(files);
+		UMSUtils.sort(actual, UMSUtils.SORT_NO_SORT);
+		assertThat(actual).containsExactlyElementsOf(files);
+
+		UMSUtils.sort(actual, UMSUtils.SORT_RANDOM);
+		assertThat(actual).containsOnlyElementsOf(files).hasSameSizeAs(files);
+
+		actual = new ArrayList<>();
+		UMSUtils.sort(actual, UMSUtils.SORT_LOC_SENS);
+		assertThat(actual).isEmpty();
+		actual.add(files.get(0));
+		UMSUtils.sort(actual, UMSUtils.SORT_MOD_NEW);
+		assertThat(actual).containsExactly(files.get(0));
+	}
 }